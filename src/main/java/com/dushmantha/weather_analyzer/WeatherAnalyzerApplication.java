@@ -1,16 +1,27 @@
 package com.dushmantha.weather_analyzer;
 
+import com.dushmantha.weather_analyzer.reprocess.ReprocessCommand;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.io.IOException;
+import java.util.Arrays;
 
 @SpringBootApplication
 @EnableCaching
 @EnableAsync
+@EnableScheduling
 public class WeatherAnalyzerApplication {
 
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
+		if (args.length > 0 && args[0].equals(ReprocessCommand.NAME)) {
+			// offline batch mode, no application context
+			ReprocessCommand.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
 		SpringApplication.run(WeatherAnalyzerApplication.class, args);
 	}
 
@@ -0,0 +1,193 @@
+package com.dushmantha.weather_analyzer.cache;
+
+import com.dushmantha.weather_analyzer.dto.WeatherSummary;
+import com.dushmantha.weather_analyzer.forecast.ForecastAccumulator;
+import com.dushmantha.weather_analyzer.forecast.ForecastColumns;
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.Value;
+import lombok.experimental.NonFinal;
+
+import java.time.LocalDate;
+
+/**
+ * A {@link WeatherSummary} and the decoded forecast it was computed from, together with when it was fetched. Past
+ * {@code staleAtMillis} the entry is still served but is refreshed in the background; it is dropped from the cache at
+ * the hard TTL. {@code forecast} is {@code null} for entries built from a summary alone.
+ * <p>
+ * Entries are kept compact for large caches: days are epoch days ({@link #NO_DAY} when there is none), the city name
+ * is interned so every entry and forecast of a city shares one string, and the {@link WeatherSummary} is only built
+ * when asked for. The encoded response {@link #getBody(SummaryEncoder) body} is built once per entry, before it is
+ * cached, and kept with it; {@link #withForecast} keeps it too.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+@Value
+public class CachedSummary {
+
+    public static final int NO_DAY = Integer.MIN_VALUE;
+
+    /**
+     * Estimated heap bytes of this object, with compressed references.
+     */
+    private static final int SHALLOW_BYTES = 56;
+
+    /**
+     * Estimated heap bytes of a forecast besides its packed columns: the columns object and its buffer handle, plus
+     * the cleaner of a direct buffer.
+     */
+    private static final int FORECAST_HEAP_BYTES = 24 + 56;
+    private static final int FORECAST_DIRECT_BYTES = 24 + 64 + 48;
+    private static final int ARRAY_HEADER_BYTES = 16;
+
+    /**
+     * Estimated bytes of a {@link SummaryBody} not encoded yet: the holder, about 100 bytes of JSON and the ETag.
+     */
+    private static final int UNENCODED_BODY_BYTES = 32 + ARRAY_HEADER_BYTES + 100 + 72;
+
+    String city;
+    double averageTemperature;
+    int hottestEpochDay;
+    int coldestEpochDay;
+    ForecastColumns forecast;
+    long fetchedAtMillis;
+    long staleAtMillis;
+    @NonFinal
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    volatile SummaryBody body;
+
+    CachedSummary(String city, double averageTemperature, int hottestEpochDay, int coldestEpochDay,
+                  ForecastColumns forecast, long fetchedAtMillis, long staleAtMillis) {
+        this.city = city;
+        this.averageTemperature = averageTemperature;
+        this.hottestEpochDay = hottestEpochDay;
+        this.coldestEpochDay = coldestEpochDay;
+        this.forecast = forecast;
+        this.fetchedAtMillis = fetchedAtMillis;
+        this.staleAtMillis = staleAtMillis;
+    }
+
+    public CachedSummary(WeatherSummary summary, long fetchedAtMillis, long staleAtMillis) {
+        this(summary, null, fetchedAtMillis, staleAtMillis);
+    }
+
+    public CachedSummary(WeatherSummary summary, ForecastColumns forecast, long fetchedAtMillis, long staleAtMillis) {
+        this(summary.getCity() != null ? summary.getCity().intern() : null, summary.getAverageTemperature(),
+                toEpochDay(summary.getHottestDay()), toEpochDay(summary.getColdestDay()), forecast, fetchedAtMillis,
+                staleAtMillis);
+    }
+
+    /**
+     * The entry for a freshly decoded forecast, summarised without going through date strings.
+     */
+    public static CachedSummary of(ForecastColumns forecast, long fetchedAtMillis, long staleAtMillis) {
+        ForecastAccumulator accumulator = forecast.accumulate(ForecastAccumulator.WINDOW);
+        boolean empty = accumulator.count() == 0;
+        return new CachedSummary(forecast.city(), accumulator.roundedAverage(),
+                empty ? NO_DAY : accumulator.hottestDay(), empty ? NO_DAY : accumulator.coldestDay(), forecast,
+                fetchedAtMillis, staleAtMillis);
+    }
+
+    public WeatherSummary getSummary() {
+        return new WeatherSummary(city, averageTemperature, fromEpochDay(hottestEpochDay),
+                fromEpochDay(coldestEpochDay));
+    }
+
+    /**
+     * A copy with {@code forecast}, keeping the encoded body, which does not depend on it.
+     */
+    public CachedSummary withForecast(ForecastColumns forecast) {
+        if (this.forecast == forecast) {
+            return this;
+        }
+        CachedSummary copy = new CachedSummary(city, averageTemperature, hottestEpochDay, coldestEpochDay, forecast,
+                fetchedAtMillis, staleAtMillis);
+        copy.body = body;
+        return copy;
+    }
+
+    /**
+     * The encoded response body, built by {@code encoder} the first time and then kept with this entry. Two first
+     * calls at once may both encode it; either result is the same.
+     */
+    public SummaryBody getBody(SummaryEncoder encoder) {
+        SummaryBody current = body;
+        if (current == null) {
+            current = encoder.body(this);
+            body = current;
+        }
+        return current;
+    }
+
+    /**
+     * The response body in {@code format}: kept with this entry for JSON and the eager formats, otherwise encoded
+     * on each call.
+     */
+    public byte[] getBody(SummaryEncoder encoder, SummaryFormat format) {
+        byte[] encoded = getBody(encoder).encoded(format);
+        return encoded != null ? encoded : encoder.encode(format, this);
+    }
+
+    public long ageSeconds() {
+        return Math.max(0L, (System.currentTimeMillis() - fetchedAtMillis) / 1000L);
+    }
+
+    public boolean isStale() {
+        return System.currentTimeMillis() >= staleAtMillis;
+    }
+
+    /**
+     * Estimated bytes held by this entry, on and off the heap, with the body as encoded. The interned city name is
+     * shared and not counted.
+     */
+    public int estimatedBytes() {
+        SummaryBody encoded = body;
+        int bytes = SHALLOW_BYTES + (encoded != null ? encoded.sizeInBytes() : UNENCODED_BODY_BYTES);
+        if (forecast == null) {
+            return bytes;
+        }
+        int packed = forecast.sizeInBytes();
+        return bytes + (forecast.isOffHeap()
+                ? FORECAST_DIRECT_BYTES + packed
+                : FORECAST_HEAP_BYTES + ARRAY_HEADER_BYTES + packed);
+    }
+
+    /**
+     * The epoch day of an ISO date. Plain {@code yyyy-MM-dd}, as summaries carry, is read digit by digit, several
+     * times faster than the formatter behind {@link LocalDate#parse}, which other forms fall back to.
+     */
+    static int toEpochDay(String date) {
+        if (date == null) {
+            return NO_DAY;
+        }
+        if (date.length() == 10 && date.charAt(4) == '-' && date.charAt(7) == '-') {
+            int year = digits(date, 0, 4);
+            int month = digits(date, 5, 7);
+            int day = digits(date, 8, 10);
+            if (year >= 0 && month >= 0 && day >= 0) {
+                return (int) LocalDate.of(year, month, day).toEpochDay();
+            }
+        }
+        return (int) LocalDate.parse(date).toEpochDay();
+    }
+
+    private static int digits(String value, int from, int to) {
+        int number = 0;
+        for (int i = from; i < to; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            number = number * 10 + digit;
+        }
+        return number;
+    }
+
+    static String fromEpochDay(int epochDay) {
+        return epochDay != NO_DAY ? LocalDate.ofEpochDay(epochDay).toString() : null;
+    }
+}
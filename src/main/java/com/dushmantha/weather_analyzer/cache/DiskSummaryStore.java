@@ -0,0 +1,444 @@
+package com.dushmantha.weather_analyzer.cache;
+
+import com.dushmantha.weather_analyzer.forecast.ForecastColumns;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.CRC32;
+
+/**
+ * Optional second-level store behind the Caffeine {@code weatherCache}, so a restart does not start cold.
+ * <p>
+ * Summaries are appended to a single log file as compact binary records:
+ * <pre>
+ *   int bodyLength | int crc32(body) |
+ *   long fetchedAt | long staleAt | long expiresAt |
+ *   short keyLength | key utf-8 | short cityLength | city utf-8 |
+ *   double averageTemperature | int hottestEpochDay | int coldestEpochDay |
+ *   short slots | slots * (long epochSecond | double temp | double tempMin | double tempMax | int epochDay)
+ * </pre>
+ * {@code slots} is -1 for an entry without forecast columns.
+ * Reads go through a read-only memory mapping of the file. On startup only the key index is rebuilt, in the
+ * background; summaries are decoded when first asked for. A torn record at the tail from a crash is detected by
+ * its length or checksum and truncated. Superseded and expired records are dropped by a periodic compaction that
+ * rewrites the live set into a new file and swaps it in atomically.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+@Component
+@ConditionalOnProperty(name = "weather.cache.disk.enabled", havingValue = "true")
+@Slf4j
+public class DiskSummaryStore implements DisposableBean {
+
+    private static final int MAGIC = 0x57534332;
+    private static final int HEADER_BYTES = 4;
+    private static final int RECORD_PREFIX_BYTES = 8;
+    private static final int SLOT_BYTES = 8 + 8 + 8 + 8 + 4;
+    private static final int MAX_STRING_BYTES = Short.MAX_VALUE;
+
+    private final Path path;
+    private final long hardTtlMillis;
+    private final Executor executor;
+    private final Scheduler scheduler;
+    private final CompletableFuture<Void> indexed;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter droppedWrites;
+
+    private volatile Generation generation;
+
+    public DiskSummaryStore(@Value("${weather.cache.disk.path:./data/weather-cache.bin}") Path path,
+                            @Value("${weather.cache.hard-ttl:2h}") Duration hardTtl,
+                            @Qualifier("taskExecutor") Executor executor,
+                            MeterRegistry meterRegistry) {
+        this.path = path;
+        this.hardTtlMillis = hardTtl.toMillis();
+        this.executor = executor;
+        this.scheduler = Schedulers.fromExecutor(executor);
+        this.generation = open(path);
+        this.indexed = CompletableFuture.runAsync(() -> loadIndex(generation), executor)
+                .exceptionally(e -> {
+                    log.error("Unable to index weather cache file {}, starting empty", path, e);
+                    return null;
+                });
+
+        this.hits = Counter.builder("weather.cache.disk.hits")
+                .description("L1 misses answered from the on-disk store")
+                .register(meterRegistry);
+        this.misses = Counter.builder("weather.cache.disk.misses")
+                .description("L1 misses the on-disk store could not answer")
+                .register(meterRegistry);
+        this.droppedWrites = Counter.builder("weather.cache.disk.dropped")
+                .description("Writes dropped because the task executor was saturated")
+                .register(meterRegistry);
+        Gauge.builder("weather.cache.disk.entries", this, store -> store.generation.index.size())
+                .description("Live keys in the on-disk store")
+                .register(meterRegistry);
+        Gauge.builder("weather.cache.disk.bytes", this, store -> store.generation.size)
+                .description("Size of the on-disk store file")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The stored summary for {@code key}, or empty when absent or past its hard TTL.
+     */
+    public Mono<CachedSummary> get(String key) {
+        return Mono.fromFuture(indexed)
+                .then(Mono.fromCallable(() -> read(key)))
+                .subscribeOn(scheduler)
+                .doOnNext(entry -> hits.increment())
+                .switchIfEmpty(Mono.fromRunnable(misses::increment))
+                .onErrorResume(e -> {
+                    log.warn("Unable to read {} from weather cache file", key, e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Appends {@code entry} in the background; the caller never waits on disk and never sees a failure. Writes
+     * made while the index is still loading wait for it without holding an executor thread, and a write the
+     * saturated executor rejects is dropped and counted: the entry is still in memory and is written on its next
+     * load. A key or city name too long for its length field is not persisted at all.
+     */
+    public void put(String key, CachedSummary entry) {
+        if (!fits(key) || !fits(entry.getCity())) {
+            log.debug("Not persisting {} to weather cache file, its key or city name is too long", key);
+            return;
+        }
+        if (!indexed.isDone()) {
+            indexed.thenRun(() -> put(key, entry));
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    append(key, entry);
+                } catch (RuntimeException e) {
+                    log.warn("Unable to persist {} to weather cache file", key, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            droppedWrites.increment();
+            log.debug("Dropped write of {} to weather cache file, task executor is saturated", key);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${weather.cache.disk.compaction-interval:10m}",
+            initialDelayString = "${weather.cache.disk.compaction-interval:10m}")
+    public void compactIfNeeded() {
+        Generation current = generation;
+        if (current.records > 2L * current.index.size() || current.expiredSeen) {
+            compact();
+        }
+    }
+
+    synchronized void compact() {
+        Generation current = generation;
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeHeader(out);
+            long position = HEADER_BYTES;
+            long now = System.currentTimeMillis();
+            Map<String, Long> offsets = new HashMap<>();
+            MappedByteBuffer buffer = current.mapping(current.size);
+            for (Map.Entry<String, Long> indexEntry : current.index.entrySet()) {
+                int offset = Math.toIntExact(indexEntry.getValue());
+                int length = RECORD_PREFIX_BYTES + buffer.getInt(offset);
+                if (buffer.getLong(offset + RECORD_PREFIX_BYTES + 16) <= now) {
+                    continue;
+                }
+                byte[] record = new byte[length];
+                buffer.get(offset, record);
+                out.write(ByteBuffer.wrap(record), position);
+                offsets.put(indexEntry.getKey(), position);
+                position += length;
+            }
+            out.force(true);
+            current.channel.close();
+            Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            Generation next = open(path);
+            next.index.putAll(offsets);
+            next.records = offsets.size();
+            generation = next;
+            log.info("Compacted weather cache file from {} to {} bytes, {} live entries",
+                    current.size, next.size, offsets.size());
+        } catch (IOException e) {
+            log.error("Weather cache file compaction failed", e);
+            generation = open(path);
+            loadIndex(generation);
+        }
+    }
+
+    @Override
+    public synchronized void destroy() throws IOException {
+        generation.channel.force(true);
+        generation.channel.close();
+    }
+
+    private CachedSummary read(String key) {
+        Generation current = generation;
+        Long offset = current.index.get(key);
+        if (offset == null) {
+            return null;
+        }
+        MappedByteBuffer buffer = current.mapping(offset + RECORD_PREFIX_BYTES);
+        int length = buffer.getInt(Math.toIntExact(offset));
+        buffer = current.mapping(offset + RECORD_PREFIX_BYTES + length);
+        CachedSummary entry = decode(buffer, Math.toIntExact(offset) + RECORD_PREFIX_BYTES);
+        if (entry == null) {
+            current.index.remove(key, offset);
+            current.expiredSeen = true;
+        }
+        return entry;
+    }
+
+    private synchronized void append(String key, CachedSummary entry) {
+        Generation current = generation;
+        ByteBuffer record = encode(key, entry, entry.getFetchedAtMillis() + hardTtlMillis);
+        try {
+            long offset = current.size;
+            while (record.hasRemaining()) {
+                current.channel.write(record, offset + record.position());
+            }
+            current.size += record.limit();
+            current.records++;
+            current.index.put(key, offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void loadIndex(Generation target) {
+        long now = System.currentTimeMillis();
+        MappedByteBuffer buffer = target.mapping(target.size);
+        long position = HEADER_BYTES;
+        CRC32 crc = new CRC32();
+        while (position + RECORD_PREFIX_BYTES <= target.size) {
+            int offset = Math.toIntExact(position);
+            int length = buffer.getInt(offset);
+            if (length <= 0 || position + RECORD_PREFIX_BYTES + length > target.size) {
+                break;
+            }
+            crc.reset();
+            crc.update(buffer.slice(offset + RECORD_PREFIX_BYTES, length));
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                break;
+            }
+            int body = offset + RECORD_PREFIX_BYTES;
+            String key = readString(buffer, body + 24);
+            if (buffer.getLong(body + 16) > now) {
+                target.index.put(key, position);
+            } else {
+                target.index.remove(key);
+                target.expiredSeen = true;
+            }
+            target.records++;
+            position += RECORD_PREFIX_BYTES + length;
+        }
+        if (position < target.size) {
+            log.warn("Truncating {} bytes of incomplete records from weather cache file", target.size - position);
+            truncate(target, position);
+        }
+        log.info("Indexed {} weather cache entries from {}", target.index.size(), path);
+    }
+
+    private synchronized void truncate(Generation target, long size) {
+        try {
+            target.channel.truncate(size);
+            target.size = size;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Generation open(Path path) {
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            long size = channel.size();
+            if (size < HEADER_BYTES || readMagic(channel) != MAGIC) {
+                if (size > 0) {
+                    log.warn("Weather cache file {} has an unknown format, starting empty", path);
+                }
+                channel.truncate(0);
+                writeHeader(channel);
+                size = HEADER_BYTES;
+            }
+            return new Generation(channel, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open weather cache file " + path, e);
+        }
+    }
+
+    private static int readMagic(FileChannel channel) throws IOException {
+        ByteBuffer magic = ByteBuffer.allocate(HEADER_BYTES);
+        channel.read(magic, 0);
+        return magic.flip().getInt();
+    }
+
+    private static void writeHeader(FileChannel channel) throws IOException {
+        channel.write(ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).flip(), 0);
+    }
+
+    static ByteBuffer encode(String key, CachedSummary entry, long expiresAtMillis) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] cityBytes = entry.getCity() != null ? entry.getCity().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        if (keyBytes.length > MAX_STRING_BYTES || cityBytes.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("Key or city name of " + key.length() + " characters is too long");
+        }
+        ForecastColumns forecast = entry.getForecast();
+        int slots = forecast != null ? forecast.size() : 0;
+        int bodyLength = 24 + 2 + keyBytes.length + 2 + cityBytes.length + 8 + 4 + 4 + 2 + slots * SLOT_BYTES;
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_PREFIX_BYTES + bodyLength);
+        record.putInt(bodyLength).putInt(0)
+                .putLong(entry.getFetchedAtMillis())
+                .putLong(entry.getStaleAtMillis())
+                .putLong(expiresAtMillis)
+                .putShort((short) keyBytes.length).put(keyBytes)
+                .putShort((short) cityBytes.length).put(cityBytes)
+                .putDouble(entry.getAverageTemperature())
+                .putInt(entry.getHottestEpochDay())
+                .putInt(entry.getColdestEpochDay())
+                .putShort((short) (forecast != null ? slots : -1));
+        for (int i = 0; i < slots; i++) {
+            record.putLong(forecast.epochSecond(i))
+                    .putDouble(forecast.temp(i))
+                    .putDouble(forecast.tempMin(i))
+                    .putDouble(forecast.tempMax(i))
+                    .putInt(forecast.epochDay(i));
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), RECORD_PREFIX_BYTES, bodyLength);
+        record.putInt(4, (int) crc.getValue());
+        return record.flip();
+    }
+
+    /**
+     * Decodes the record body at {@code body}, or returns {@code null} when it is past its hard TTL.
+     */
+    static CachedSummary decode(ByteBuffer buffer, int body) {
+        if (buffer.getLong(body + 16) <= System.currentTimeMillis()) {
+            return null;
+        }
+        int cursor = body + 24;
+        cursor += 2 + Short.toUnsignedInt(buffer.getShort(cursor));
+        String city = readString(buffer, cursor);
+        cursor += 2 + Short.toUnsignedInt(buffer.getShort(cursor));
+        String cityName = city.isEmpty() ? null : city.intern();
+        return new CachedSummary(cityName, buffer.getDouble(cursor), buffer.getInt(cursor + 8),
+                buffer.getInt(cursor + 12), readForecast(buffer, cursor + 16, cityName), buffer.getLong(body),
+                buffer.getLong(body + 8));
+    }
+
+    private static ForecastColumns readForecast(ByteBuffer buffer, int offset, String city) {
+        int slots = buffer.getShort(offset);
+        if (slots < 0) {
+            return null;
+        }
+        long[] epochSeconds = new long[slots];
+        double[] temps = new double[slots];
+        double[] tempMins = new double[slots];
+        double[] tempMaxes = new double[slots];
+        int[] epochDays = new int[slots];
+        int cursor = offset + 2;
+        for (int i = 0; i < slots; i++, cursor += SLOT_BYTES) {
+            epochSeconds[i] = buffer.getLong(cursor);
+            temps[i] = buffer.getDouble(cursor + 8);
+            tempMins[i] = buffer.getDouble(cursor + 16);
+            tempMaxes[i] = buffer.getDouble(cursor + 24);
+            epochDays[i] = buffer.getInt(cursor + 32);
+        }
+        return new ForecastColumns(city, epochSeconds, temps, tempMins, tempMaxes, epochDays);
+    }
+
+    /**
+     * Whether {@code value} fits a record's short length field; a UTF-8 char is at most three bytes.
+     */
+    private static boolean fits(String value) {
+        return value == null || value.length() <= MAX_STRING_BYTES / 3
+                || value.getBytes(StandardCharsets.UTF_8).length <= MAX_STRING_BYTES;
+    }
+
+    private static String readString(ByteBuffer buffer, int offset) {
+        int length = Short.toUnsignedInt(buffer.getShort(offset));
+        byte[] bytes = new byte[length];
+        buffer.get(offset + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * One open file with its key index. Compaction replaces the whole generation, so a reader that picked up an
+     * offset from an index always reads it from that index's file.
+     */
+    private static final class Generation {
+        private final FileChannel channel;
+        private final Map<String, Long> index = new ConcurrentHashMap<>();
+        private volatile long size;
+        private volatile long records;
+        private volatile boolean expiredSeen;
+        private volatile MappedByteBuffer mapped;
+
+        private Generation(FileChannel channel, long size) {
+            this.channel = channel;
+            this.size = size;
+        }
+
+        /**
+         * A mapping covering at least {@code end} bytes, remapped when records were appended since the last one.
+         */
+        private MappedByteBuffer mapping(long end) {
+            MappedByteBuffer current = mapped;
+            if (current != null && current.capacity() >= end) {
+                return current;
+            }
+            synchronized (this) {
+                current = mapped;
+                if (current == null || current.capacity() < end) {
+                    try {
+                        current = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    mapped = current;
+                }
+                return current;
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.dushmantha.weather_analyzer.cache;
+
+import com.dushmantha.weather_analyzer.cluster.ClusterMembership;
+import com.dushmantha.weather_analyzer.exception.ExternalApiException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.CRC32;
+
+/**
+ * Asks the instance owning a city for its cache entry, so that only the owner calls the weather API for it. The
+ * owner answers from its own cache or loads the entry itself; see {@code PeerController} for the other side.
+ * Requests carry the cluster's shared secret in {@link #SECRET_HEADER}.
+ * <p>
+ * An entry travels in the record format of {@link DiskSummaryStore}, forecast columns included, and keeps the
+ * owner's fetch and stale times. A failure of the owner's load comes back as a 422 with the upstream status and is
+ * signalled as an {@link ExternalApiException}, as if it had happened here. Any other answer is signalled as a
+ * {@link PeerUnavailableException}, and a peer that cannot be reached or does not answer within
+ * {@code peer-timeout} is also marked down, which moves its cities to the remaining instances.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+@Component
+@ConditionalOnProperty(name = "weather.cluster.enabled", havingValue = "true")
+public class PeerCacheClient {
+
+    public static final String ENTRY_PATH = "/internal/cluster/entry";
+    public static final String SECRET_HEADER = "X-Cluster-Secret";
+
+    private static final int RECORD_PREFIX_BYTES = 8;
+
+    private final ClusterMembership membership;
+    private final WebClient webClient;
+    private final Duration peerTimeout;
+    private final String secret;
+    private final MeterRegistry meterRegistry;
+
+    public PeerCacheClient(ClusterMembership membership, WebClient.Builder webClientBuilder,
+                           @Value("${weather.cluster.peer-timeout:2s}") Duration peerTimeout,
+                           @Value("${weather.cluster.secret:}") String secret,
+                           MeterRegistry meterRegistry) {
+        this.membership = membership;
+        this.secret = secret;
+        this.peerTimeout = peerTimeout;
+        this.meterRegistry = meterRegistry;
+        HttpClient httpClient = HttpClient.create()
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) peerTimeout.toMillis())
+                .responseTimeout(peerTimeout)
+                .keepAlive(true);
+        this.webClient = webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+
+    /**
+     * The peer owning {@code key}, or {@code null} when this instance owns it.
+     */
+    public String remoteOwner(String key) {
+        String owner = membership.owner(key);
+        return owner.equals(membership.self()) ? null : owner;
+    }
+
+    public Mono<CachedSummary> fetch(String owner, String key) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return webClient.get()
+                    .uri(owner + ENTRY_PATH + "?key={key}", key)
+                    .header(SECRET_HEADER, secret)
+                    .exchangeToMono(response -> {
+                        int status = response.statusCode().value();
+                        if (status == HttpStatus.OK.value()) {
+                            return response.bodyToMono(byte[].class).map(record -> decode(key, record));
+                        }
+                        if (status == HttpStatus.UNPROCESSABLE_ENTITY.value()) {
+                            return response.bodyToMono(PeerError.class).flatMap(error -> Mono.error(
+                                    ExternalApiException.stackless(error.error(), error.upstreamStatus())));
+                        }
+                        return response.releaseBody().then(Mono.error(
+                                new PeerUnavailableException("Cluster peer " + owner + " answered " + status)));
+                    })
+                    .timeout(peerTimeout)
+                    .doOnNext(entry -> stop(sample, "success"))
+                    .doOnError(e -> {
+                        if (e instanceof ExternalApiException) {
+                            stop(sample, "upstream_failure");
+                        } else if (e instanceof PeerUnavailableException) {
+                            stop(sample, "peer_failure");
+                        } else {
+                            stop(sample, e instanceof TimeoutException ? "timeout" : "unreachable");
+                            membership.markDown(owner);
+                        }
+                    });
+        });
+    }
+
+    private void stop(Timer.Sample sample, String outcome) {
+        sample.stop(Timer.builder("weather.cluster.forwards")
+                .description("Cache misses and refreshes forwarded to the instance owning the city")
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+    }
+
+    /**
+     * {@code entry} as a record for {@link #decode}. The owner's hard TTL does not travel, the receiving cache
+     * applies its own.
+     */
+    public static byte[] encode(String key, CachedSummary entry) {
+        return DiskSummaryStore.encode(key, entry, Long.MAX_VALUE).array();
+    }
+
+    static CachedSummary decode(String key, byte[] record) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        int length = record.length >= RECORD_PREFIX_BYTES ? buffer.getInt(0) : -1;
+        if (length != record.length - RECORD_PREFIX_BYTES) {
+            throw new PeerUnavailableException("Truncated cache entry for " + key + " from cluster peer");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record, RECORD_PREFIX_BYTES, length);
+        if ((int) crc.getValue() != buffer.getInt(4)) {
+            throw new PeerUnavailableException("Corrupt cache entry for " + key + " from cluster peer");
+        }
+        return DiskSummaryStore.decode(buffer, RECORD_PREFIX_BYTES);
+    }
+
+    /**
+     * Body of a 422 answer: the owner's failure message and the upstream status it came from.
+     */
+    public record PeerError(String error, int upstreamStatus) {
+
+        public static PeerError of(ExternalApiException e) {
+            return new PeerError(e.getMessage(), e.getUpstreamStatus());
+        }
+    }
+
+    /**
+     * A peer answered, but not with an entry or an upstream failure. The caller loads the entry itself.
+     */
+    public static class PeerUnavailableException extends RuntimeException {
+
+        public PeerUnavailableException(String message) {
+            super(message, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.dushmantha.weather_analyzer.cache;
+
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.Value;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * The {@code GET /weather} response body of a cached entry, encoded once by {@link SummaryEncoder} in JSON and the
+ * eager formats, with a strong ETag over its JSON bytes. Cache hits write these bytes as they are, and a matching
+ * {@code If-None-Match} is answered from the ETag alone.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+@Value
+public class SummaryBody {
+
+    private static final int ARRAY_HEADER_BYTES = 16;
+
+    /**
+     * Estimated heap bytes besides the encoded bytes: this object, the array of encodings and the ETag string.
+     */
+    private static final int FIXED_BYTES = 24 + ARRAY_HEADER_BYTES + 4 * Integer.BYTES + 72;
+
+    byte[] json;
+    String etag;
+    /**
+     * The encodings kept by {@link SummaryFormat#ordinal()}, {@link #json} included, {@code null} for the others.
+     */
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    byte[][] encodings;
+
+    SummaryBody(byte[][] encodings) {
+        this.json = encodings[SummaryFormat.JSON.ordinal()];
+        this.etag = etag(json);
+        this.encodings = encodings;
+    }
+
+    /**
+     * The kept encoding in {@code format}, or {@code null}.
+     */
+    byte[] encoded(SummaryFormat format) {
+        return encodings[format.ordinal()];
+    }
+
+    /**
+     * Estimated heap bytes of this body and the encodings it keeps.
+     */
+    int sizeInBytes() {
+        int bytes = FIXED_BYTES;
+        for (byte[] encoded : encodings) {
+            if (encoded != null) {
+                bytes += ARRAY_HEADER_BYTES + encoded.length;
+            }
+        }
+        return bytes;
+    }
+
+    private static String etag(byte[] json) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 12) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
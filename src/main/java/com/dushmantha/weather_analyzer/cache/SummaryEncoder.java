@@ -0,0 +1,90 @@
+package com.dushmantha.weather_analyzer.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Encodes response bodies in each {@link SummaryFormat}. JSON is written with the application's object mapper, so
+ * {@code spring.jackson.*} settings apply to cached bodies as to any other response, and CBOR and Smile with copies
+ * of it over their own factories.
+ * <p>
+ * A cached entry keeps its body in JSON, which its ETag is computed over, and in the other
+ * {@code weather.cache.eager-formats}; all of them are encoded before the entry is cached, so the cache weighs them.
+ * A format not listed is encoded again on every response in it rather than kept unweighed, which for a summary of
+ * about 100 bytes costs a microsecond or two.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+@Component
+public class SummaryEncoder {
+
+    private final ObjectMapper[] objectMappers;
+    private final Set<SummaryFormat> eagerFormats;
+
+    @Autowired
+    public SummaryEncoder(ObjectMapper objectMapper,
+                          @Value("${weather.cache.eager-formats:json}") Set<SummaryFormat> eagerFormats) {
+        this.objectMappers = new ObjectMapper[SummaryFormat.values().length];
+        objectMappers[SummaryFormat.JSON.ordinal()] = objectMapper;
+        objectMappers[SummaryFormat.CBOR.ordinal()] = objectMapper.copyWith(new CBORFactory());
+        objectMappers[SummaryFormat.SMILE.ordinal()] = objectMapper.copyWith(new SmileFactory());
+        this.eagerFormats = EnumSet.of(SummaryFormat.JSON);
+        this.eagerFormats.addAll(eagerFormats);
+    }
+
+    /**
+     * An encoder keeping JSON only.
+     */
+    public SummaryEncoder(ObjectMapper objectMapper) {
+        this(objectMapper, Set.of());
+    }
+
+    /**
+     * The body of {@code entry} in JSON and every eager format.
+     */
+    SummaryBody body(CachedSummary entry) {
+        byte[][] encodings = new byte[SummaryFormat.values().length][];
+        for (SummaryFormat format : eagerFormats) {
+            encodings[format.ordinal()] = encode(format, entry);
+        }
+        return new SummaryBody(encodings);
+    }
+
+    byte[] encode(SummaryFormat format, CachedSummary entry) {
+        return format == SummaryFormat.BINARY ? SummaryFormat.writeBinary(entry) : write(format, entry.getSummary());
+    }
+
+    /**
+     * Encodes a summary or a list of batch results.
+     */
+    public byte[] write(SummaryFormat format, Object value) {
+        if (format == SummaryFormat.BINARY) {
+            return SummaryFormat.writeBinary(value);
+        }
+        try {
+            return objectMappers[format.ordinal()].writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to encode " + value.getClass().getSimpleName() + " as " + format,
+                    e);
+        }
+    }
+
+    /**
+     * Decodes a summary, a batch result or an array of batch results.
+     */
+    public <T> T read(SummaryFormat format, byte[] bytes, Class<T> type) throws IOException {
+        if (format == SummaryFormat.BINARY) {
+            return SummaryFormat.readBinary(bytes, type);
+        }
+        return objectMappers[format.ordinal()].readValue(bytes, type);
+    }
+}
@@ -0,0 +1,237 @@
+package com.dushmantha.weather_analyzer.cache;
+
+import com.dushmantha.weather_analyzer.dto.WeatherBatchResult;
+import com.dushmantha.weather_analyzer.dto.WeatherSummary;
+import org.springframework.http.MediaType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Encodings of a {@code GET /weather} response body, negotiated from the {@code Accept} header with JSON as the
+ * default. CBOR and Smile are Jackson's binary forms of the same object. {@link #BINARY} is a fixed layout, all
+ * numbers big-endian:
+ * <pre>
+ * summary:      string city, float64 averageTemperature, int32 hottestDay, int32 coldestDay
+ * batch result: uint8 0, string city, summary   |   uint8 1, string city, string error
+ * string:       uint16 length of the UTF-8 bytes that follow, 0xFFFF for null
+ * </pre>
+ * Days are epoch days, {@link CachedSummary#NO_DAY} when there is none. A batch response is its results one after
+ * the other. {@link SummaryEncoder} writes the Jackson formats with the application's object mapper.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public enum SummaryFormat {
+
+    JSON(MediaType.APPLICATION_JSON),
+    CBOR(MediaType.APPLICATION_CBOR),
+    SMILE(new MediaType("application", "x-jackson-smile")),
+    BINARY(MediaType.valueOf(SummaryFormat.BINARY_VALUE));
+
+    public static final String BINARY_VALUE = "application/vnd.weather-analyzer.summary";
+
+    private static final int NULL_STRING = 0xFFFF;
+    private static final byte BATCH_SUCCESS = 0;
+    private static final byte BATCH_FAILURE = 1;
+    /**
+     * A first guess of the bytes of a binary summary, a city name of up to 16 bytes.
+     */
+    private static final int SUMMARY_BYTES = 2 + 16 + Double.BYTES + 2 * Integer.BYTES;
+
+    private final MediaType mediaType;
+
+    SummaryFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    /**
+     * The format asked for by {@code accept}: the acceptable one with the highest quality, an exact media type
+     * before a wildcard, JSON for none or a wildcard alone.
+     */
+    public static SummaryFormat negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return JSON;
+        }
+        SummaryFormat best = JSON;
+        double bestQuality = -1;
+        boolean bestExact = false;
+        for (MediaType type : MediaType.parseMediaTypes(accept)) {
+            double quality = type.getQualityValue();
+            if (quality == 0) {
+                continue;
+            }
+            boolean exact = !type.isWildcardType() && !type.isWildcardSubtype();
+            for (SummaryFormat format : values()) {
+                if (type.includes(format.mediaType)) {
+                    if (quality > bestQuality || quality == bestQuality && exact && !bestExact) {
+                        best = format;
+                        bestQuality = quality;
+                        bestExact = exact;
+                    }
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * A strong ETag of this encoding, derived from the one of the JSON body so every encoding has its own.
+     */
+    public String etag(String jsonEtag) {
+        if (this == JSON) {
+            return jsonEtag;
+        }
+        return jsonEtag.substring(0, jsonEtag.length() - 1) + "-" + name().toLowerCase(Locale.ROOT) + "\"";
+    }
+
+    /**
+     * Encodes {@code entry}'s summary in the {@link #BINARY} layout, straight from its fields.
+     */
+    static byte[] writeBinary(CachedSummary entry) {
+        Output out = new Output(SUMMARY_BYTES);
+        writeSummary(out, entry.getCity(), entry.getAverageTemperature(), entry.getHottestEpochDay(),
+                entry.getColdestEpochDay());
+        return out.toByteArray();
+    }
+
+    /**
+     * Encodes a summary or a list of batch results in the {@link #BINARY} layout.
+     */
+    public static byte[] writeBinary(Object value) {
+        if (value instanceof WeatherSummary summary) {
+            Output out = new Output(SUMMARY_BYTES);
+            writeSummary(out, summary);
+            return out.toByteArray();
+        }
+        if (value instanceof List<?> results) {
+            Output out = new Output(results.size() * (1 + SUMMARY_BYTES * 2));
+            for (Object result : results) {
+                writeBatchResult(out, (WeatherBatchResult) result);
+            }
+            return out.toByteArray();
+        }
+        throw new IllegalArgumentException("No binary layout for " + value.getClass().getSimpleName());
+    }
+
+    /**
+     * Decodes a summary, a batch result or an array of batch results from the {@link #BINARY} layout.
+     */
+    public static <T> T readBinary(byte[] bytes, Class<T> type) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        if (type == WeatherSummary.class) {
+            return type.cast(readSummary(in));
+        }
+        if (type == WeatherBatchResult.class) {
+            return type.cast(readBatchResult(in));
+        }
+        if (type == WeatherBatchResult[].class) {
+            List<WeatherBatchResult> results = new ArrayList<>();
+            while (in.hasRemaining()) {
+                results.add(readBatchResult(in));
+            }
+            return type.cast(results.toArray(WeatherBatchResult[]::new));
+        }
+        throw new IllegalArgumentException("No binary layout for " + type.getSimpleName());
+    }
+
+    private static void writeSummary(Output out, WeatherSummary summary) {
+        writeSummary(out, summary.getCity(), summary.getAverageTemperature(),
+                CachedSummary.toEpochDay(summary.getHottestDay()), CachedSummary.toEpochDay(summary.getColdestDay()));
+    }
+
+    private static void writeSummary(Output out, String city, double averageTemperature, int hottestEpochDay,
+                                     int coldestEpochDay) {
+        writeString(out, city);
+        out.reserve(Double.BYTES + 2 * Integer.BYTES)
+                .putDouble(averageTemperature)
+                .putInt(hottestEpochDay)
+                .putInt(coldestEpochDay);
+    }
+
+    private static void writeBatchResult(Output out, WeatherBatchResult result) {
+        if (result.getSummary() != null) {
+            out.reserve(1).put(BATCH_SUCCESS);
+            writeString(out, result.getCity());
+            writeSummary(out, result.getSummary());
+        } else {
+            out.reserve(1).put(BATCH_FAILURE);
+            writeString(out, result.getCity());
+            writeString(out, result.getError());
+        }
+    }
+
+    /**
+     * Reads a summary at the position of {@code in}, as written in the {@link #BINARY} layout.
+     */
+    public static WeatherSummary readSummary(ByteBuffer in) {
+        return new WeatherSummary(readString(in), in.getDouble(), CachedSummary.fromEpochDay(in.getInt()),
+                CachedSummary.fromEpochDay(in.getInt()));
+    }
+
+    /**
+     * Reads a batch result at the position of {@code in}, as written in the {@link #BINARY} layout.
+     */
+    public static WeatherBatchResult readBatchResult(ByteBuffer in) {
+        byte kind = in.get();
+        String city = readString(in);
+        return kind == BATCH_SUCCESS
+                ? WeatherBatchResult.success(city, readSummary(in))
+                : WeatherBatchResult.failure(city, readString(in));
+    }
+
+    private static void writeString(Output out, String value) {
+        if (value == null) {
+            out.reserve(Short.BYTES).putShort((short) NULL_STRING);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        if (utf8.length >= NULL_STRING) {
+            throw new IllegalArgumentException("String of " + utf8.length + " bytes is too long to encode");
+        }
+        out.reserve(Short.BYTES + utf8.length).putShort((short) utf8.length).put(utf8);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = Short.toUnsignedInt(in.getShort());
+        if (length == NULL_STRING) {
+            return null;
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    /**
+     * A growable big-endian buffer. Unlike a {@code DataOutputStream} over a {@code ByteArrayOutputStream}, whose
+     * every field is a synchronized write, each field here is a bounds check and a store.
+     */
+    private static final class Output {
+
+        private ByteBuffer buffer;
+
+        Output(int capacity) {
+            buffer = ByteBuffer.allocate(capacity);
+        }
+
+        ByteBuffer reserve(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                buffer = grown.put(buffer.flip());
+            }
+            return buffer;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer.array(), buffer.position());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.dushmantha.weather_analyzer.cache;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fan-out of newly loaded entries, with one topic per key that has subscribers. A topic is a best-effort multicast
+ * sink: publishing hands the entry to every current subscriber without queueing it, so publishing a key nobody
+ * follows is a map lookup, and an idle subscriber costs its slot in the topic and nothing else. Buffering for slow
+ * consumers is left to each subscriber. A topic is dropped with its last subscriber.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+final class SummaryTopics {
+
+    private final Map<String, Topic> topics = new ConcurrentHashMap<>();
+
+    Flux<CachedSummary> subscribe(String key) {
+        return Flux.defer(() -> {
+            Topic topic = topics.compute(key, (k, current) -> {
+                Topic next = current != null ? current : new Topic();
+                next.subscribers++;
+                return next;
+            });
+            return topic.sink.asFlux().doFinally(signal -> release(key, topic));
+        });
+    }
+
+    void publish(String key, CachedSummary entry) {
+        Topic topic = topics.get(key);
+        if (topic != null) {
+            // emissions must be serialized; two loads of one key can complete on different threads
+            synchronized (topic) {
+                topic.sink.tryEmitNext(entry);
+            }
+        }
+    }
+
+    Set<String> keys() {
+        return Set.copyOf(topics.keySet());
+    }
+
+    int size() {
+        return topics.size();
+    }
+
+    private void release(String key, Topic topic) {
+        topics.computeIfPresent(key, (k, current) -> current == topic && --current.subscribers == 0 ? null : current);
+    }
+
+    private static final class Topic {
+        private final Sinks.Many<CachedSummary> sink = Sinks.many().multicast().directBestEffort();
+        // guarded by the map's compute
+        private int subscribers;
+    }
+}
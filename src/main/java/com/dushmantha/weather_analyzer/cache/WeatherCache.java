@@ -0,0 +1,338 @@
+package com.dushmantha.weather_analyzer.cache;
+
+import com.dushmantha.weather_analyzer.exception.ExternalApiException;
+import com.dushmantha.weather_analyzer.forecast.ForecastColumns;
+import com.dushmantha.weather_analyzer.service.SingleFlight;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Policy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Soft / hard TTL front for {@code weatherCache}. A fresh entry is served as is. An entry past the soft TTL is
+ * served immediately while one background refresh replaces it; if that refresh fails the last good summary keeps
+ * being served, with retries spaced by {@code refresh-retry-interval}, until the hard TTL evicts it. Misses and
+ * refreshes for the same key share a single upstream load. Each entry keeps the decoded forecast columns next to its
+ * summary, so other analyses are answered from the cache too; with {@code weather.cache.off-heap} those columns are
+ * kept in native memory. When the optional {@link DiskSummaryStore} is enabled,
+ * misses are answered from it before going upstream and every fetched entry is written through to it.
+ * Every entry loaded from upstream is also published to the subscribers of its key, see {@link #updates(String)}.
+ * <p>
+ * With the optional {@link PeerCacheClient}, misses and refreshes of a city owned by another instance are asked of
+ * that instance instead of going upstream, so each city is fetched by one instance of the cluster; the owner answers
+ * through {@link #getOwned}. The entry keeps the owner's fetch and stale times. A failure of the owner's load is
+ * taken as this instance's own, and when the owner cannot be asked the city is loaded here.
+ * <p>
+ * Failures are not cached as entries, but two of them are remembered as negative entries. A 404 is kept for its key
+ * for {@code negative.not-found-ttl}, and a 401 for every key for {@code negative.unauthorized-ttl}, since it is
+ * about the API key rather than the city. While one applies, loads fail at once with the same stackless exception,
+ * so a repeated bad lookup costs about as much as a hit. Cached entries are still served during a 401.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+@Component
+@Slf4j
+public class WeatherCache {
+
+    private static final int NEGATIVE_MAXIMUM_SIZE = 10_000;
+
+    private final AsyncCache<String, CachedSummary> cache;
+    private final DiskSummaryStore diskStore;
+    private final PeerCacheClient peers;
+    private final SummaryEncoder encoder;
+    private final SingleFlight<String, CachedSummary> loads;
+    private final Map<String, Long> refreshRetryAt = new ConcurrentHashMap<>();
+    private final SummaryTopics topics = new SummaryTopics();
+    private final Cache<String, NegativeEntry> notFound = Caffeine.newBuilder()
+            .maximumSize(NEGATIVE_MAXIMUM_SIZE)
+            .build();
+    private volatile NegativeEntry unauthorized;
+    private final Counter negativeHits;
+    private final Counter staleServed;
+    private final Counter refreshFailures;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${weather.cache.soft-ttl:30m}")
+    private Duration softTtl;
+
+    @Value("${weather.cache.refresh-retry-interval:30s}")
+    private Duration refreshRetryInterval;
+
+    @Value("${weather.cache.off-heap:false}")
+    private boolean offHeap;
+
+    @Value("${weather.cache.negative.not-found-ttl:2m}")
+    private Duration notFoundTtl;
+
+    @Value("${weather.cache.negative.unauthorized-ttl:10m}")
+    private Duration unauthorizedTtl;
+
+    public WeatherCache(AsyncCache<String, CachedSummary> weatherCacheStore, Optional<DiskSummaryStore> diskStore,
+                        Optional<PeerCacheClient> peers, SummaryEncoder encoder, MeterRegistry meterRegistry) {
+        this.cache = weatherCacheStore;
+        this.encoder = encoder;
+        this.diskStore = diskStore.orElse(null);
+        this.peers = peers.orElse(null);
+        this.meterRegistry = meterRegistry;
+        this.loads = new SingleFlight<>("weather.upstream.flight", meterRegistry);
+        this.staleServed = Counter.builder("weather.cache.stale.served")
+                .description("Entries served past their soft TTL")
+                .register(meterRegistry);
+        this.refreshFailures = Counter.builder("weather.cache.refresh.failures")
+                .description("Background refreshes that failed and left the previous entry in place")
+                .register(meterRegistry);
+        this.negativeHits = Counter.builder("weather.cache.negative.hits")
+                .description("Loads failed at once from a remembered 404 or 401")
+                .register(meterRegistry);
+        Gauge.builder("weather.cache.negative.entries", notFound, Cache::estimatedSize)
+                .description("Keys remembered as not found upstream")
+                .register(meterRegistry);
+        Gauge.builder("weather.cache.subscribed", topics, SummaryTopics::size)
+                .description("Keys with at least one subscriber to their updates")
+                .register(meterRegistry);
+        cache.synchronous().policy().eviction().ifPresent(eviction -> {
+            Gauge.builder("weather.cache.weight", eviction, e -> e.weightedSize().orElse(0L))
+                    .description("Estimated bytes held by weatherCache entries, on and off the heap")
+                    .baseUnit(BaseUnits.BYTES)
+                    .register(meterRegistry);
+            Gauge.builder("weather.cache.weight.max", eviction, Policy.Eviction::getMaximum)
+                    .description("Bytes weatherCache evicts down to")
+                    .baseUnit(BaseUnits.BYTES)
+                    .register(meterRegistry);
+        });
+    }
+
+    public Mono<CachedSummary> get(String key, Function<String, Mono<ForecastColumns>> loader) {
+        return Mono.defer(() -> {
+            CachedSummary entry = getIfPresent(key);
+            if (entry == null) {
+                return diskStore == null ? load(key, loader) : loadFromDisk(key, loader);
+            }
+            return Mono.just(serve(key, entry, loader));
+        });
+    }
+
+    /**
+     * Loads {@code key} from upstream and replaces its entry whatever the entry's age, sharing a load already in
+     * flight for it.
+     */
+    public Mono<CachedSummary> refresh(String key, Function<String, Mono<ForecastColumns>> loader) {
+        return load(key, loader);
+    }
+
+    /**
+     * The entry for {@code key} as its owner in the cluster: never asked of another instance, and never served
+     * stale while a refresh could replace it. A stale entry is refreshed and waited for, and is only returned when
+     * that refresh fails or a failed one is still backing off.
+     */
+    public Mono<CachedSummary> getOwned(String key, Function<String, Mono<ForecastColumns>> loader) {
+        return Mono.defer(() -> {
+            CachedSummary entry = getIfPresent(key);
+            if (entry == null) {
+                return load(key, loader, false);
+            }
+            if (!entry.isStale()) {
+                return Mono.just(entry);
+            }
+            Long retryAt = refreshRetryAt.get(key);
+            if (retryAt != null && System.currentTimeMillis() < retryAt) {
+                staleServed.increment();
+                return Mono.just(entry);
+            }
+            return load(key, loader, false).onErrorResume(e -> {
+                refreshFailures.increment();
+                refreshRetryAt.put(key, System.currentTimeMillis() + refreshRetryInterval.toMillis());
+                staleServed.increment();
+                return Mono.just(entry);
+            });
+        });
+    }
+
+    /**
+     * Entries loaded for {@code key} from now on, each as it replaces the cached one. The flux is hot and never
+     * completes; nothing loaded before subscribing is replayed and a subscriber without demand misses the entry.
+     */
+    public Flux<CachedSummary> updates(String key) {
+        return topics.subscribe(key);
+    }
+
+    /**
+     * Keys that currently have a subscriber to their updates.
+     */
+    public Set<String> subscribedKeys() {
+        return topics.keys();
+    }
+
+    public CachedSummary getIfPresent(String key) {
+        CompletableFuture<CachedSummary> cached = cache.getIfPresent(key);
+        if (cached == null || !cached.isDone() || cached.isCompletedExceptionally()) {
+            return null;
+        }
+        return cached.join();
+    }
+
+    /**
+     * Caches {@code entry} with its body encoded first, so hits only copy bytes and the cache weighs the encodings.
+     */
+    public void put(String key, CachedSummary entry) {
+        entry.getBody(encoder);
+        cache.put(key, CompletableFuture.completedFuture(entry));
+    }
+
+    private CachedSummary serve(String key, CachedSummary entry, Function<String, Mono<ForecastColumns>> loader) {
+        if (entry.isStale()) {
+            staleServed.increment();
+            refreshInBackground(key, loader);
+        }
+        return entry;
+    }
+
+    private Mono<CachedSummary> loadFromDisk(String key, Function<String, Mono<ForecastColumns>> loader) {
+        return diskStore.get(key)
+                .map(entry -> {
+                    if (offHeap && entry.getForecast() != null) {
+                        entry = entry.withForecast(entry.getForecast().offHeap());
+                    }
+                    put(key, entry);
+                    return serve(key, entry, loader);
+                })
+                .switchIfEmpty(Mono.defer(() -> load(key, loader)));
+    }
+
+    private Mono<CachedSummary> load(String key, Function<String, Mono<ForecastColumns>> loader) {
+        return load(key, loader, true);
+    }
+
+    private Mono<CachedSummary> load(String key, Function<String, Mono<ForecastColumns>> loader, boolean forward) {
+        return Mono.defer(() -> {
+            ExternalApiException failure = negative(key);
+            if (failure != null) {
+                negativeHits.increment();
+                return Mono.error(failure);
+            }
+            String owner = forward && peers != null ? peers.remoteOwner(key) : null;
+            return loads.execute(key, () -> (owner == null ? fetch(key, loader) : fetchFromOwner(owner, key, loader))
+                    .doOnNext(entry -> {
+                        put(key, entry);
+                        if (entry.isStale()) {
+                            // the owner could not refresh it either; asking again on every hit would not help
+                            refreshRetryAt.put(key, System.currentTimeMillis() + refreshRetryInterval.toMillis());
+                        } else {
+                            refreshRetryAt.remove(key);
+                        }
+                        if (diskStore != null) {
+                            diskStore.put(key, entry);
+                        }
+                        topics.publish(key, entry);
+                    })
+                    .doOnError(ExternalApiException.class, e -> remember(key, e)));
+        });
+    }
+
+    private Mono<CachedSummary> fetch(String key, Function<String, Mono<ForecastColumns>> loader) {
+        return timed(loader.apply(key)).map(forecast -> {
+            long now = System.currentTimeMillis();
+            return CachedSummary.of(offHeap ? forecast.offHeap() : forecast, now, now + softTtl.toMillis());
+        });
+    }
+
+    private Mono<CachedSummary> fetchFromOwner(String owner, String key,
+                                               Function<String, Mono<ForecastColumns>> loader) {
+        return peers.fetch(owner, key)
+                .map(entry -> offHeap && entry.getForecast() != null
+                        ? entry.withForecast(entry.getForecast().offHeap())
+                        : entry)
+                .onErrorResume(e -> !(e instanceof ExternalApiException), e -> {
+                    log.warn("Unable to get {} from cluster peer {}, loading it here: {}", key, owner,
+                            e.toString());
+                    return fetch(key, loader);
+                });
+    }
+
+    /**
+     * The remembered failure for {@code key}, or {@code null} when there is none or it has expired.
+     */
+    private ExternalApiException negative(String key) {
+        long now = System.nanoTime();
+        NegativeEntry entry = unauthorized;
+        if (entry != null && entry.isLive(now)) {
+            return entry.error();
+        }
+        entry = notFound.getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.isLive(now)) {
+            notFound.asMap().remove(key, entry);
+            return null;
+        }
+        return entry.error();
+    }
+
+    private void remember(String key, ExternalApiException e) {
+        if (e.getUpstreamStatus() == 404) {
+            notFound.put(key, new NegativeEntry(e, System.nanoTime() + notFoundTtl.toNanos()));
+        } else if (e.getUpstreamStatus() == 401) {
+            unauthorized = new NegativeEntry(e, System.nanoTime() + unauthorizedTtl.toNanos());
+        }
+    }
+
+    /**
+     * Caffeine only times loads it runs itself; entries here are put after the load, so the miss penalty is timed
+     * separately as {@code weather.cache.loads}.
+     */
+    private Mono<ForecastColumns> timed(Mono<ForecastColumns> load) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return load
+                    .doOnSuccess(summary -> stop(sample, "success"))
+                    .doOnError(e -> stop(sample, "failure"));
+        });
+    }
+
+    private void stop(Timer.Sample sample, String result) {
+        sample.stop(Timer.builder("weather.cache.loads")
+                .description("Loads of weatherCache entries from upstream, including time queued for a permit")
+                .tag("result", result)
+                .register(meterRegistry));
+    }
+
+    private void refreshInBackground(String key, Function<String, Mono<ForecastColumns>> loader) {
+        Long retryAt = refreshRetryAt.get(key);
+        if (retryAt != null && System.currentTimeMillis() < retryAt) {
+            return;
+        }
+        load(key, loader).subscribe(
+                entry -> log.debug("Refreshed weather summary for city: {}", key),
+                e -> {
+                    refreshFailures.increment();
+                    refreshRetryAt.put(key, System.currentTimeMillis() + refreshRetryInterval.toMillis());
+                    log.warn("Refresh failed for city: {}, serving last good summary", key);
+                });
+    }
+
+    private record NegativeEntry(ExternalApiException error, long expiresAtNanos) {
+
+        private boolean isLive(long nowNanos) {
+            return nowNanos - expiresAtNanos < 0;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.dushmantha.weather_analyzer.city;
+
+import lombok.Value;
+
+/**
+ * One gazetteer entry. {@code key} is its id, used as the {@code weatherCache} key.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+@Value
+public class CanonicalCity {
+    String key;
+    String name;
+    String country;
+
+    /**
+     * The upstream {@code q} parameter: name and country code, which the weather API resolves unambiguously.
+     */
+    public String getQuery() {
+        return name + "," + country;
+    }
+}
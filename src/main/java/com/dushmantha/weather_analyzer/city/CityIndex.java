@@ -0,0 +1,184 @@
+package com.dushmantha.weather_analyzer.city;
+
+import com.dushmantha.weather_analyzer.util.CityNames;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves user supplied city names to canonical gazetteer ids, loaded once at startup from a bundled tab separated
+ * file. Names, aliases and ids are indexed after folding case, accents, punctuation and spacing, so "London",
+ * " london", "LONDON,gb", "Lond%C3%B3n" and "2643743" are all the same key. That id is the {@code weatherCache} key,
+ * and the upstream query is built from the canonical name and country, so every spelling shares one entry and one
+ * upstream call.
+ * <p>
+ * A name the index does not know falls back to {@link CityNames#normalize(String)} as both key and query. With
+ * {@code weather.cities.reject-unknown} on it is rejected without a network call instead; that is only sensible
+ * with a gazetteer covering every city clients ask for, which the bundled one does not.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+@Component
+@Slf4j
+public class CityIndex {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Map<String, String> COUNTRY_ALIASES = Map.of("uk", "GB");
+
+    private final boolean rejectUnknown;
+    private final Counter rejected;
+
+    private final List<CanonicalCity> cities = new ArrayList<>();
+    private final Map<String, CanonicalCity> byKey = new HashMap<>();
+    private final Map<String, CanonicalCity> byName = new HashMap<>();
+
+    public CityIndex(@Value("${weather.cities.gazetteer:classpath:gazetteer/cities.tsv}") Resource gazetteer,
+                     @Value("${weather.cities.reject-unknown:false}") boolean rejectUnknown,
+                     MeterRegistry meterRegistry) {
+        this.rejectUnknown = rejectUnknown;
+        this.rejected = Counter.builder("weather.cities.rejected")
+                .description("Requests for city names the gazetteer does not know, rejected without an upstream call")
+                .register(meterRegistry);
+        load(gazetteer);
+        log.info("Indexed {} cities under {} names from {}", cities.size(), byName.size(), gazetteer);
+    }
+
+    /**
+     * The cache key for {@code city}: its canonical id, or its normalized name when unknown names are allowed.
+     * Returns {@code null} for a name that is rejected.
+     */
+    public String resolve(String city) {
+        CanonicalCity canonical = lookup(city);
+        if (canonical != null) {
+            return canonical.getKey();
+        }
+        if (rejectUnknown) {
+            rejected.increment();
+            return null;
+        }
+        String normalized = CityNames.normalize(city);
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    /**
+     * Whether {@code key} is one {@link #resolve(String)} can return: a gazetteer id, or any normalized name when
+     * unknown names are allowed.
+     */
+    public boolean isKey(String key) {
+        if (byKey.containsKey(key)) {
+            return true;
+        }
+        return !rejectUnknown && !key.isEmpty() && key.equals(CityNames.normalize(key));
+    }
+
+    /**
+     * The upstream {@code q} parameter for a key returned by {@link #resolve(String)}.
+     */
+    public String query(String key) {
+        CanonicalCity canonical = byKey.get(key);
+        return canonical != null ? canonical.getQuery() : key;
+    }
+
+    public CanonicalCity lookup(String city) {
+        if (city == null) {
+            return null;
+        }
+        String input = decode(city);
+        int comma = input.lastIndexOf(',');
+        if (comma > 0) {
+            // "London,GB" / "London, uk": the part after the last comma is a country code when it looks like one
+            String country = fold(input.substring(comma + 1));
+            if (country.length() == 2 || COUNTRY_ALIASES.containsKey(country)) {
+                String code = COUNTRY_ALIASES.getOrDefault(country, country.toUpperCase(Locale.ROOT));
+                return byName.get(fold(input.substring(0, comma)) + "," + code);
+            }
+        }
+        String folded = fold(input);
+        CanonicalCity canonical = byName.get(folded);
+        return canonical != null ? canonical : byKey.get(folded);
+    }
+
+    public int size() {
+        return cities.size();
+    }
+
+    /**
+     * Lower case without accents, with every run of punctuation or whitespace collapsed to one space.
+     */
+    static String fold(String name) {
+        String decomposed = Normalizer.normalize(name, Normalizer.Form.NFKD);
+        String unaccented = MARKS.matcher(decomposed).replaceAll("");
+        return SEPARATORS.matcher(unaccented.toLowerCase(Locale.ROOT)).replaceAll(" ").strip();
+    }
+
+    private static String decode(String city) {
+        if (city.indexOf('%') < 0) {
+            return city;
+        }
+        try {
+            return URLDecoder.decode(city, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return city;
+        }
+    }
+
+    private void load(Resource gazetteer) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(gazetteer.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t", -1);
+                if (fields.length < 3) {
+                    throw new IllegalStateException("Malformed gazetteer line " + lineNumber + ": " + line);
+                }
+                add(new CanonicalCity(fields[0].strip(), fields[1].strip(), fields[2].strip().toUpperCase(Locale.ROOT)),
+                        fields.length > 3 ? fields[3] : "");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read city gazetteer " + gazetteer, e);
+        }
+    }
+
+    private void add(CanonicalCity city, String aliases) {
+        if (byKey.putIfAbsent(city.getKey(), city) != null) {
+            throw new IllegalStateException("Duplicate gazetteer id " + city.getKey());
+        }
+        cities.add(city);
+        index(city.getName(), city);
+        for (String alias : aliases.split("\\|")) {
+            if (!alias.isBlank()) {
+                index(alias, city);
+            }
+        }
+    }
+
+    private void index(String name, CanonicalCity city) {
+        String folded = fold(name);
+        // the first city listed under a name answers it unqualified; every one answers "name,country"
+        byName.putIfAbsent(folded, city);
+        byName.putIfAbsent(folded + "," + city.getCountry(), city);
+    }
+}
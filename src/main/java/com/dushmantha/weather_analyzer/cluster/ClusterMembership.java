@@ -0,0 +1,131 @@
+package com.dushmantha.weather_analyzer.cluster;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The instances sharing the cache, from the static {@code weather.cluster.peers} list, and the {@link HashRing} of
+ * the ones currently live. Every instance is configured with the same list and its own {@code self} address from it,
+ * so all of them build the same ring and agree on which instance owns a city.
+ * <p>
+ * Peers start out live. A peer that fails a forwarded call is marked down at once, and every
+ * {@code health-interval} each peer's health endpoint is checked, which marks it down or back up. Either change
+ * rebuilds the ring, so the cities of a peer that left move to the remaining instances and move back when it
+ * returns. Only the departed peer's cities move.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+@Component
+@ConditionalOnProperty(name = "weather.cluster.enabled", havingValue = "true")
+@Slf4j
+public class ClusterMembership {
+
+    private final String self;
+    private final List<String> peers;
+    private final int virtualNodes;
+    private final Set<String> down = ConcurrentHashMap.newKeySet();
+    private final WebClient healthClient;
+    private volatile HashRing ring;
+
+    @Value("${weather.cluster.peer-timeout:2s}")
+    private Duration peerTimeout;
+
+    public ClusterMembership(@Value("${weather.cluster.self}") String self,
+                             @Value("${weather.cluster.peers}") List<String> peers,
+                             @Value("${weather.cluster.virtual-nodes:128}") int virtualNodes,
+                             WebClient.Builder webClientBuilder, MeterRegistry meterRegistry) {
+        this.self = normalize(self);
+        Set<String> members = new LinkedHashSet<>();
+        peers.stream().filter(peer -> !peer.isBlank()).map(ClusterMembership::normalize).forEach(members::add);
+        members.add(this.self);
+        this.peers = List.copyOf(members);
+        this.virtualNodes = virtualNodes;
+        this.ring = new HashRing(this.peers, virtualNodes);
+        this.healthClient = webClientBuilder.clone().build();
+
+        Gauge.builder("weather.cluster.peers.live", this, membership -> membership.ring.nodes().size())
+                .description("Instances, this one included, currently sharing the cache")
+                .register(meterRegistry);
+        log.info("Cluster member {} of {}", this.self, this.peers);
+    }
+
+    public String self() {
+        return self;
+    }
+
+    /**
+     * The live instance owning {@code key}; this instance when it is the owner or every peer is down.
+     */
+    public String owner(String key) {
+        String owner = ring.owner(key);
+        return owner != null ? owner : self;
+    }
+
+    public List<String> livePeers() {
+        return ring.nodes();
+    }
+
+    public void markDown(String peer) {
+        if (!peer.equals(self) && down.add(peer)) {
+            log.warn("Cluster peer {} is down, its cities move to the remaining instances", peer);
+            rebuild();
+        }
+    }
+
+    public void markUp(String peer) {
+        if (down.remove(peer)) {
+            log.info("Cluster peer {} is back, its cities move back to it", peer);
+            rebuild();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${weather.cluster.health-interval:5s}",
+            initialDelayString = "${weather.cluster.health-interval:5s}")
+    public void checkPeers() {
+        Flux.fromIterable(peers)
+                .filter(peer -> !peer.equals(self))
+                .flatMap(peer -> isHealthy(peer).doOnNext(healthy -> {
+                    if (healthy) {
+                        markUp(peer);
+                    } else {
+                        markDown(peer);
+                    }
+                }))
+                .blockLast();
+    }
+
+    private Mono<Boolean> isHealthy(String peer) {
+        return healthClient.get()
+                .uri(peer + "/actuator/health")
+                .exchangeToMono(response -> response.releaseBody()
+                        .thenReturn(response.statusCode().is2xxSuccessful()))
+                .timeout(peerTimeout)
+                .onErrorReturn(false);
+    }
+
+    private synchronized void rebuild() {
+        List<String> live = new ArrayList<>(peers);
+        live.removeAll(down);
+        ring = new HashRing(live, virtualNodes);
+    }
+
+    private static String normalize(String address) {
+        String trimmed = address.trim();
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+}
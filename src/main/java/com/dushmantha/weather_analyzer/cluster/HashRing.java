@@ -0,0 +1,97 @@
+package com.dushmantha.weather_analyzer.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Consistent hash ring over a set of nodes. Every node is placed at {@code virtualNodes} points and a key belongs
+ * to the first point at or after its own hash, wrapping around. With enough points each node owns about the same
+ * share of keys, and removing a node moves only the keys it owned, each to the node after it on the ring.
+ * <p>
+ * Hashes depend only on the bytes of the node names and keys, so every instance given the same node list builds the
+ * same ring and agrees on every owner. The ring is immutable; membership changes build a new one.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public final class HashRing {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long[] points;
+    private final String[] owners;
+    private final List<String> nodes;
+
+    public HashRing(Collection<String> nodes, int virtualNodes) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtualNodes must be at least 1");
+        }
+        this.nodes = nodes.stream().distinct().sorted().toList();
+        int size = this.nodes.size() * virtualNodes;
+        long[] hashes = new long[size];
+        String[] names = new String[size];
+        int i = 0;
+        for (String node : this.nodes) {
+            for (int replica = 0; replica < virtualNodes; replica++, i++) {
+                hashes[i] = hash(node + "#" + replica);
+                names[i] = node;
+            }
+        }
+        // sorted as (hash, node) pairs so the order, and so the owner of a colliding point, is the same everywhere
+        Integer[] order = new Integer[size];
+        Arrays.setAll(order, index -> index);
+        Arrays.sort(order, (a, b) -> {
+            int byHash = Long.compare(hashes[a], hashes[b]);
+            return byHash != 0 ? byHash : names[a].compareTo(names[b]);
+        });
+        this.points = new long[size];
+        this.owners = new String[size];
+        for (int j = 0; j < size; j++) {
+            points[j] = hashes[order[j]];
+            owners[j] = names[order[j]];
+        }
+    }
+
+    /**
+     * The node owning {@code key}, or {@code null} when the ring has no nodes.
+     */
+    public String owner(String key) {
+        if (points.length == 0) {
+            return null;
+        }
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        } else {
+            // the first of several equal points, which binarySearch does not promise to return
+            while (index > 0 && points[index - 1] == points[index]) {
+                index--;
+            }
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-8 bytes, finished with the MurmurHash3 mixer so that names differing only in their
+     * last characters, such as consecutive replicas or ports, still land far apart.
+     */
+    static long hash(String value) {
+        long hash = FNV_OFFSET;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
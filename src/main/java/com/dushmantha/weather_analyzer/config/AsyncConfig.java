@@ -1,25 +1,78 @@
 package com.dushmantha.weather_analyzer.config;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
 
 /**
+ * The shared {@code taskExecutor}. Nothing on the request path runs on it; it only serves the background writes of
+ * {@code DiskSummaryStore} and {@code ForecastHistoryStore}, which drop and count what it rejects. The mode picks a
+ * bounded pool or virtual threads for those writes; upstream calls are bounded by the upstream limiter instead.
+ *
  * @author dushmantha.sse@gmail.com
  */
 @Configuration
 @EnableAsync
+@Slf4j
 public class AsyncConfig {
 
+    public enum ExecutionMode {
+        POOL,
+        VIRTUAL
+    }
+
+    @Value("${weather.executor.mode:pool}")
+    private ExecutionMode mode;
+
+    @Value("${weather.executor.core-pool-size:2}")
+    private int corePoolSize;
+
+    @Value("${weather.executor.max-pool-size:5}")
+    private int maxPoolSize;
+
+    @Value("${weather.executor.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${weather.executor.virtual-max-concurrency:200}")
+    private int virtualMaxConcurrency;
+
     @Bean(name = "taskExecutor")
-    public Executor taskExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(2);
-        executor.setMaxPoolSize(5);
-        executor.setQueueCapacity(100);
+    public Executor taskExecutor(MeterRegistry meterRegistry) {
+        InstrumentedExecutor executor = switch (mode) {
+            case POOL -> pooledExecutor();
+            case VIRTUAL -> new VirtualThreadTaskExecutor("Weather-vt-", virtualMaxConcurrency, queueCapacity);
+        };
+        log.info("Task executor running in {} mode", mode);
+
+        Tags tags = Tags.of("name", "taskExecutor", "mode", mode.name().toLowerCase());
+        Gauge.builder("weather.executor.active", executor, InstrumentedExecutor::activeCount)
+                .description("Tasks currently running")
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge.builder("weather.executor.queued", executor, InstrumentedExecutor::queuedCount)
+                .description("Tasks waiting to run")
+                .tags(tags)
+                .register(meterRegistry);
+        FunctionCounter.builder("weather.executor.rejected", executor, InstrumentedExecutor::rejectedCount)
+                .description("Tasks rejected because the executor was saturated")
+                .tags(tags)
+                .register(meterRegistry);
+        return executor;
+    }
+
+    private PooledTaskExecutor pooledExecutor() {
+        PooledTaskExecutor executor = new PooledTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
         executor.setThreadNamePrefix("Weather-");
         executor.initialize();
         return executor;
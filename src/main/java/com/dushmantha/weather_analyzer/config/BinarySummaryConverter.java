@@ -0,0 +1,69 @@
+package com.dushmantha.weather_analyzer.config;
+
+import com.dushmantha.weather_analyzer.cache.SummaryFormat;
+import com.dushmantha.weather_analyzer.dto.WeatherBatchResult;
+import com.dushmantha.weather_analyzer.dto.WeatherSummary;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Writes a {@link WeatherSummary}, such as a forecast window, or a batch response, a list of
+ * {@link WeatherBatchResult}, in the fixed {@link SummaryFormat#BINARY} layout. {@code GET /weather} writes the
+ * cached bytes of its entry instead. Other lists are left to the other converters, so asking for this format from
+ * any other endpoint is answered with 406.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public class BinarySummaryConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public BinarySummaryConverter() {
+        super(SummaryFormat.BINARY.mediaType());
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return WeatherSummary.class.isAssignableFrom(clazz) || List.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        if (!canWrite(mediaType)) {
+            return false;
+        }
+        ResolvableType resolved = type != null ? ResolvableType.forType(type) : ResolvableType.forClass(clazz);
+        if (WeatherSummary.class.isAssignableFrom(resolved.toClass())) {
+            return true;
+        }
+        Class<?> element = resolved.asCollection().resolveGeneric(0);
+        return List.class.isAssignableFrom(resolved.toClass()) && element != null
+                && WeatherBatchResult.class.isAssignableFrom(element);
+    }
+
+    @Override
+    protected void writeInternal(Object value, Type type, HttpOutputMessage outputMessage) throws IOException {
+        outputMessage.getBody().write(SummaryFormat.writeBinary(value));
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Binary summaries are written only", inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Binary summaries are written only", inputMessage);
+    }
+}
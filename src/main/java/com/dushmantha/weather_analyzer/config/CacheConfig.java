@@ -1,12 +1,20 @@
 package com.dushmantha.weather_analyzer.config;
 
+import com.dushmantha.weather_analyzer.cache.CachedSummary;
+import com.github.benmanes.caffeine.cache.AsyncCache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.sun.management.HotSpotDiagnosticMXBean;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.concurrent.TimeUnit;
+import org.springframework.util.unit.DataSize;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
 
 /**
  * @author dushmantha.sse@gmail.com
@@ -14,14 +22,63 @@ import java.util.concurrent.TimeUnit;
 @Configuration
 public class CacheConfig {
 
+    /**
+     * Estimated bytes per entry besides the {@link CachedSummary}: the cache node, its future and the key string.
+     */
+    private static final int ENTRY_OVERHEAD_BYTES = 72 + 24 + 40;
+
+    @Value("${weather.cache.hard-ttl:2h}")
+    private Duration hardTtl;
+
+    @Value("${weather.cache.maximum-weight:64MB}")
+    private DataSize maximumWeight;
+
+    @Value("${weather.cache.off-heap:false}")
+    private boolean offHeap;
+
+    /**
+     * Entries expire at the hard TTL measured from when the summary was fetched, not from when it was cached. The
+     * cache is bounded by the estimated bytes of its entries rather than their number, since an entry with a forecast
+     * is several times the size of one without.
+     * <p>
+     * Off-heap forecasts are each their own direct buffer, and what bounds those is the JVM's direct memory limit,
+     * not the cache: a weight the limit cannot hold would end in {@code OutOfMemoryError: Direct buffer memory}
+     * rather than in evictions. Startup fails instead when off-heap is on and the weight exceeds the limit.
+     */
+    @Bean
+    public AsyncCache<String, CachedSummary> weatherCacheStore() {
+        if (offHeap && maximumWeight.toBytes() > maxDirectMemory()) {
+            throw new IllegalStateException("weather.cache.maximum-weight of " + maximumWeight.toBytes()
+                    + " bytes exceeds the " + maxDirectMemory() + " bytes of direct memory the JVM allows; raise "
+                    + "-XX:MaxDirectMemorySize or lower the weight");
+        }
+        return Caffeine.newBuilder()
+                .expireAfter(Expiry.writing((String key, CachedSummary entry) -> Duration.ofMillis(
+                        Math.max(0L, entry.getFetchedAtMillis() + hardTtl.toMillis() - System.currentTimeMillis()))))
+                .maximumWeight(maximumWeight.toBytes())
+                .weigher((String key, CachedSummary entry) ->
+                        ENTRY_OVERHEAD_BYTES + key.length() + entry.estimatedBytes())
+                .recordStats()
+                .buildAsync();
+    }
+
+    /**
+     * {@code -XX:MaxDirectMemorySize}, or the maximum heap size the JVM defaults it to.
+     */
+    static long maxDirectMemory() {
+        HotSpotDiagnosticMXBean hotSpot = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+        long configured = hotSpot != null
+                ? Long.parseLong(hotSpot.getVMOption("MaxDirectMemorySize").getValue())
+                : 0L;
+        return configured > 0 ? configured : Runtime.getRuntime().maxMemory();
+    }
+
     @Bean
-    public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager("weatherCache");
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public CacheManager cacheManager(AsyncCache<String, CachedSummary> weatherCacheStore) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
         cacheManager.setAsyncCacheMode(true);
-        cacheManager.setCaffeine(Caffeine.newBuilder()
-                .expireAfterWrite(30, TimeUnit.MINUTES)
-                .maximumSize(100)
-                .recordStats());
+        cacheManager.registerCustomCache("weatherCache", (AsyncCache) weatherCacheStore);
         return cacheManager;
     }
 }
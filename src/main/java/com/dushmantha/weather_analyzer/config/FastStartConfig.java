@@ -0,0 +1,30 @@
+package com.dushmantha.weather_analyzer.config;
+
+import com.dushmantha.weather_analyzer.cache.WeatherCache;
+import com.dushmantha.weather_analyzer.city.CityIndex;
+import com.dushmantha.weather_analyzer.controller.WeatherController;
+import com.dushmantha.weather_analyzer.service.WeatherService;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Used with {@code spring.main.lazy-initialization}, as in the {@code fast-start} profile. Beans on the path of a
+ * {@code GET /weather} request are still created at startup, together with everything they depend on, so the first
+ * request does not create them. Beans with {@code @Scheduled} methods are kept eager by Spring Boot itself. The rest,
+ * mostly auto-configured infrastructure, is created when first used.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+@Configuration
+public class FastStartConfig {
+
+    /**
+     * Static, so that reading it does not create this configuration early.
+     */
+    @Bean
+    static LazyInitializationExcludeFilter requestPathBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(WeatherController.class, WeatherService.class,
+                WeatherCache.class, CityIndex.class);
+    }
+}
@@ -0,0 +1,18 @@
+package com.dushmantha.weather_analyzer.config;
+
+import java.util.concurrent.Executor;
+
+/**
+ * An {@link Executor} that reports the same saturation figures regardless of how it runs tasks, so the pool and
+ * virtual thread modes can be compared under the same load.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public interface InstrumentedExecutor extends Executor {
+
+    int activeCount();
+
+    int queuedCount();
+
+    long rejectedCount();
+}
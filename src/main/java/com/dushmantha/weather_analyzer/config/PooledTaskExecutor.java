@@ -0,0 +1,38 @@
+package com.dushmantha.weather_analyzer.config;
+
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed platform thread pool with a bounded queue, counting the tasks it rejects.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public class PooledTaskExecutor extends ThreadPoolTaskExecutor implements InstrumentedExecutor {
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    public PooledTaskExecutor() {
+        setRejectedExecutionHandler((task, executor) -> {
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("Executor queue is full, rejected task " + task);
+        });
+    }
+
+    @Override
+    public int activeCount() {
+        return getActiveCount();
+    }
+
+    @Override
+    public int queuedCount() {
+        return getQueueSize();
+    }
+
+    @Override
+    public long rejectedCount() {
+        return rejected.get();
+    }
+}
@@ -0,0 +1,198 @@
+package com.dushmantha.weather_analyzer.config;
+
+import com.dushmantha.weather_analyzer.service.AdaptiveLimit;
+import com.dushmantha.weather_analyzer.service.CircuitBreaker;
+import com.dushmantha.weather_analyzer.service.ConcurrencyLimiter;
+import com.dushmantha.weather_analyzer.service.RequestHedger;
+import com.dushmantha.weather_analyzer.service.UpstreamOutcome;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+@Configuration
+public class UpstreamConfig {
+
+    @Value("${weather.api.url}")
+    private String apiUrl;
+
+    @Value("${weather.api.mirrors:}")
+    private List<String> apiMirrors;
+
+    @Value("${weather.upstream.max-concurrency:64}")
+    private int maxConcurrency;
+
+    @Value("${weather.upstream.min-concurrency:4}")
+    private int minConcurrency;
+
+    @Value("${weather.upstream.initial-concurrency:16}")
+    private int initialConcurrency;
+
+    @Value("${weather.upstream.latency-tolerance:1.5}")
+    private double latencyTolerance;
+
+    @Value("${weather.upstream.max-queued:1000}")
+    private int maxQueued;
+
+    @Value("${weather.upstream.circuit.failure-rate-threshold:0.5}")
+    private double circuitFailureRateThreshold;
+
+    @Value("${weather.upstream.circuit.sliding-window:20}")
+    private int circuitSlidingWindow;
+
+    @Value("${weather.upstream.circuit.minimum-calls:10}")
+    private int circuitMinimumCalls;
+
+    @Value("${weather.upstream.circuit.open-duration:30s}")
+    private Duration circuitOpenDuration;
+
+    @Value("${weather.upstream.circuit.half-open-calls:3}")
+    private int circuitHalfOpenCalls;
+
+    @Value("${weather.upstream.hedge.enabled:false}")
+    private boolean hedgeEnabled;
+
+    @Value("${weather.upstream.hedge.percentile:0.95}")
+    private double hedgePercentile;
+
+    @Value("${weather.upstream.hedge.min-delay:20ms}")
+    private Duration hedgeMinDelay;
+
+    @Value("${weather.upstream.hedge.max-delay:2s}")
+    private Duration hedgeMaxDelay;
+
+    @Value("${weather.upstream.hedge.budget:0.05}")
+    private double hedgeBudget;
+
+    @Value("${weather.upstream.hedge.window:1000}")
+    private int hedgeWindow;
+
+    @Value("${weather.upstream.connect-timeout:2s}")
+    private Duration connectTimeout;
+
+    @Value("${weather.upstream.response-timeout:5s}")
+    private Duration responseTimeout;
+
+    @Value("${weather.upstream.read-timeout:5s}")
+    private Duration readTimeout;
+
+    @Value("${weather.upstream.write-timeout:5s}")
+    private Duration writeTimeout;
+
+    @Value("${weather.upstream.compression:true}")
+    private boolean compression;
+
+    @Value("${weather.upstream.http2:false}")
+    private boolean http2;
+
+    @Value("${weather.upstream.pool.max-connections:64}")
+    private int maxConnections;
+
+    @Value("${weather.upstream.pool.max-pending-acquires:256}")
+    private int maxPendingAcquires;
+
+    @Value("${weather.upstream.pool.pending-acquire-timeout:5s}")
+    private Duration pendingAcquireTimeout;
+
+    @Value("${weather.upstream.pool.max-idle-time:30s}")
+    private Duration maxIdleTime;
+
+    @Value("${weather.upstream.pool.max-life-time:5m}")
+    private Duration maxLifeTime;
+
+    @Value("${weather.upstream.pool.eviction-interval:30s}")
+    private Duration evictionInterval;
+
+    /**
+     * Starts at {@code initial-concurrency} and moves between {@code min-concurrency} and {@code max-concurrency} with
+     * upstream latency, so a slowing upstream gets fewer concurrent calls instead of a growing pile of them.
+     */
+    @Bean
+    public ConcurrencyLimiter upstreamLimiter(MeterRegistry meterRegistry) {
+        AdaptiveLimit limit = new AdaptiveLimit(initialConcurrency, minConcurrency, maxConcurrency, latencyTolerance);
+        return new ConcurrencyLimiter("weather.upstream", limit, maxQueued, UpstreamOutcome::isTimeout,
+                meterRegistry);
+    }
+
+    @Bean
+    public CircuitBreaker upstreamCircuitBreaker(MeterRegistry meterRegistry) {
+        return new CircuitBreaker("weather.upstream", circuitFailureRateThreshold, circuitSlidingWindow,
+                circuitMinimumCalls, circuitOpenDuration, circuitHalfOpenCalls, UpstreamOutcome::isUnhealthy,
+                meterRegistry);
+    }
+
+    /**
+     * Calls {@code weather.api.url} first and, when hedging is enabled, sends a second request to the next of
+     * {@code weather.api.mirrors} once the first is slower than {@code hedge.percentile} of recent calls. Mirrors must
+     * answer with the same forecast format, so another provider is put behind an adapter that serves it.
+     */
+    @Bean
+    public RequestHedger upstreamHedger(MeterRegistry meterRegistry) {
+        List<String> endpoints = new ArrayList<>();
+        endpoints.add(apiUrl);
+        apiMirrors.stream().map(String::trim).filter(mirror -> !mirror.isEmpty()).forEach(endpoints::add);
+        return new RequestHedger("weather.upstream", endpoints, hedgePercentile, hedgeMinDelay, hedgeMaxDelay,
+                hedgeEnabled ? hedgeBudget : 0, hedgeWindow, UpstreamOutcome::isUnhealthy, meterRegistry);
+    }
+
+    /**
+     * Keep-alive pool dedicated to the weather API, sized against {@code max-concurrency} so a permit from
+     * {@link #upstreamLimiter} normally finds an idle connection instead of opening one. Idle connections are closed
+     * in the background before the server or a load balancer drops them. Pool gauges and the acquire wait timer are
+     * published as {@code reactor.netty.connection.provider.*{name=weather-api}}.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider weatherApiConnectionProvider() {
+        return ConnectionProvider.builder("weather-api")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(maxPendingAcquires)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(evictionInterval)
+                .lifo()
+                .metrics(true)
+                .build();
+    }
+
+    /**
+     * Client for the weather API only. Asks for gzip bodies and bounds every phase of a call: connecting, waiting for
+     * the response, and each read and write after that. HTTP/2 is negotiated over TLS when enabled, falling back to
+     * HTTP/1.1, so many calls can share one connection.
+     */
+    @Bean
+    public WebClient weatherApiClient(WebClient.Builder webClientBuilder,
+                                      ConnectionProvider weatherApiConnectionProvider) {
+        HttpClient httpClient = HttpClient.create(weatherApiConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(responseTimeout)
+                .doOnConnected(connection -> connection
+                        .addHandlerLast(new ReadTimeoutHandler(readTimeout.toMillis(), TimeUnit.MILLISECONDS))
+                        .addHandlerLast(new WriteTimeoutHandler(writeTimeout.toMillis(), TimeUnit.MILLISECONDS)))
+                .compress(compression)
+                .keepAlive(true);
+        if (http2) {
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+        }
+        return webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+}
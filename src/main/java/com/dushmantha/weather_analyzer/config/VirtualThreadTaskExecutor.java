@@ -0,0 +1,69 @@
+package com.dushmantha.weather_analyzer.config;
+
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs every task on its own virtual thread. Thread count no longer caps concurrency, so at most
+ * {@code maxConcurrency} tasks run at once; the rest park on their virtual thread (costing a few hundred bytes each)
+ * until a permit frees up, and tasks beyond {@code queueCapacity} waiting are rejected. A task accepted is always
+ * run: an interrupt while it waits for a permit is kept for the task to see rather than dropping it.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public class VirtualThreadTaskExecutor implements InstrumentedExecutor {
+
+    private final ThreadFactory threadFactory;
+    private final Semaphore permits;
+    private final int queueCapacity;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public VirtualThreadTaskExecutor(String threadNamePrefix, int maxConcurrency, int queueCapacity) {
+        this.threadFactory = Thread.ofVirtual().name(threadNamePrefix, 0).factory();
+        this.permits = new Semaphore(maxConcurrency);
+        this.queueCapacity = queueCapacity;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (queued.incrementAndGet() > queueCapacity + permits.availablePermits()) {
+            queued.decrementAndGet();
+            rejected.incrementAndGet();
+            throw new TaskRejectedException("Executor queue is full, rejected task " + task);
+        }
+        threadFactory.newThread(() -> run(task)).start();
+    }
+
+    private void run(Runnable task) {
+        permits.acquireUninterruptibly();
+        queued.decrementAndGet();
+        active.incrementAndGet();
+        try {
+            task.run();
+        } finally {
+            active.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    @Override
+    public int activeCount() {
+        return active.get();
+    }
+
+    @Override
+    public int queuedCount() {
+        return queued.get();
+    }
+
+    @Override
+    public long rejectedCount() {
+        return rejected.get();
+    }
+}
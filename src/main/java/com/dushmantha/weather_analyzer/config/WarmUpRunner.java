@@ -0,0 +1,127 @@
+package com.dushmantha.weather_analyzer.config;
+
+import com.dushmantha.weather_analyzer.cache.CachedSummary;
+import com.dushmantha.weather_analyzer.cache.SummaryEncoder;
+import com.dushmantha.weather_analyzer.forecast.ForecastAnalysis;
+import com.dushmantha.weather_analyzer.forecast.ForecastColumns;
+import com.dushmantha.weather_analyzer.forecast.ForecastDecoder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the hot path of a cache miss on the bundled sample payloads before the application reports itself ready, so
+ * the first real requests do not pay for class loading, interpretation and JIT compilation. Each round streams a
+ * payload through {@link ForecastDecoder} in network-sized chunks, summarises it, encodes the response body and
+ * runs the forecast analyses. Nothing is cached or sent upstream.
+ * <p>
+ * Application runners finish before the readiness state becomes {@code ACCEPTING_TRAFFIC}, so a load balancer
+ * following {@code /actuator/health/readiness} only routes traffic once this is done. Rounds stop at
+ * {@code iterations} or {@code max-duration}, whichever comes first. The bean is not conditional on
+ * {@code enabled}, because an AOT-processed build fixes its conditions when it is built.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+@Component
+@Slf4j
+public class WarmUpRunner implements ApplicationRunner {
+
+    private static final String PAYLOADS = "classpath*:warm-up/forecast-*.json";
+    private static final int CHUNK_BYTES = 4096;
+    private static final double[] PERCENTILES = {50, 90, 99};
+
+    private final ResourcePatternResolver resources;
+    private final SummaryEncoder summaryEncoder;
+
+    @Value("${weather.warm-up.enabled:false}")
+    private boolean enabled;
+
+    @Value("${weather.warm-up.iterations:500}")
+    private int iterations;
+
+    @Value("${weather.warm-up.max-duration:3s}")
+    private Duration maxDuration;
+
+    public WarmUpRunner(ResourcePatternResolver resources, SummaryEncoder summaryEncoder) {
+        this.resources = resources;
+        this.summaryEncoder = summaryEncoder;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            warmUp();
+        }
+    }
+
+    /**
+     * Runs the warm-up rounds and returns the number of payloads processed.
+     */
+    int warmUp() {
+        List<byte[]> payloads = payloads();
+        long start = System.nanoTime();
+        long deadline = start + maxDuration.toNanos();
+        int processed = 0;
+        long checksum = 0;
+        for (int i = 0; i < iterations && System.nanoTime() - deadline < 0; i++) {
+            for (byte[] payload : payloads) {
+                checksum += process(payload);
+                processed++;
+            }
+        }
+        log.info("Warmed up on {} sample payloads in {} ms (checksum {})", processed,
+                Duration.ofNanos(System.nanoTime() - start).toMillis(), checksum);
+        return processed;
+    }
+
+    /**
+     * One miss on {@code payload}; the result feeds a checksum so the JIT cannot drop the work as unused.
+     */
+    private long process(byte[] payload) {
+        ForecastColumns forecast = ForecastDecoder.decode(chunks(payload), ForecastColumns::builder,
+                        ForecastColumns.CAPACITY)
+                .map(ForecastColumns.Builder::build)
+                .block();
+        long now = System.currentTimeMillis();
+        CachedSummary entry = CachedSummary.of(forecast, now, now);
+        return entry.getBody(summaryEncoder).getJson().length
+                + ForecastAnalysis.daily(forecast, Integer.MAX_VALUE).size()
+                + ForecastAnalysis.window(forecast, 24).hashCode()
+                + ForecastAnalysis.percentiles(forecast, Integer.MAX_VALUE, PERCENTILES).hashCode();
+    }
+
+    private static Flux<DataBuffer> chunks(byte[] payload) {
+        return Flux.range(0, (payload.length + CHUNK_BYTES - 1) / CHUNK_BYTES)
+                .map(i -> DefaultDataBufferFactory.sharedInstance.wrap(ByteBuffer.wrap(payload, i * CHUNK_BYTES,
+                        Math.min(CHUNK_BYTES, payload.length - i * CHUNK_BYTES))));
+    }
+
+    private List<byte[]> payloads() {
+        try {
+            List<byte[]> payloads = new ArrayList<>();
+            for (Resource resource : resources.getResources(PAYLOADS)) {
+                payloads.add(resource.getContentAsByteArray());
+            }
+            if (payloads.isEmpty()) {
+                throw new IllegalStateException("No warm-up payloads found at " + PAYLOADS);
+            }
+            return payloads;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read warm-up payloads", e);
+        }
+    }
+}
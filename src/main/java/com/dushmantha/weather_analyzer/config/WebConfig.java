@@ -0,0 +1,36 @@
+package com.dushmantha.weather_analyzer.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Spring MVC writes each element of a streamed response (SSE, NDJSON) on its async task executor, with a blocking
+ * servlet write. Those writes run on virtual threads, so a fan-out to thousands of subscribers, or a client that
+ * stops reading, parks cheap threads instead of exhausting a pool or starting a platform thread per write.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("Weather-stream-");
+        executor.setVirtualThreads(true);
+        configurer.setTaskExecutor(executor);
+    }
+
+    /**
+     * CBOR and Smile are written by the Jackson converters Spring MVC adds when their libraries are present; the
+     * fixed binary layout has its own.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new BinarySummaryConverter());
+    }
+}
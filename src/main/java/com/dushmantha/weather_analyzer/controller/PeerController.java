@@ -0,0 +1,68 @@
+package com.dushmantha.weather_analyzer.controller;
+
+import com.dushmantha.weather_analyzer.cache.PeerCacheClient;
+import com.dushmantha.weather_analyzer.exception.ExternalApiException;
+import com.dushmantha.weather_analyzer.service.WeatherService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * The owner's side of {@link PeerCacheClient}: answers another instance of the cluster with the cache entry for a
+ * city this instance owns, loading it here when needed.
+ * <p>
+ * It is served on the public port, so only a request carrying the cluster's shared
+ * {@code weather.cluster.secret} is answered; anything else gets a 403. Keys are checked against the
+ * {@link com.dushmantha.weather_analyzer.city.CityIndex} like user requests, so a peer cannot make this instance
+ * call upstream for names a user could not.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+@RestController
+@ConditionalOnProperty(name = "weather.cluster.enabled", havingValue = "true")
+public class PeerController {
+
+    private final WeatherService weatherService;
+    private final byte[] secret;
+
+    public PeerController(WeatherService weatherService, @Value("${weather.cluster.secret:}") String secret) {
+        if (secret.isBlank()) {
+            throw new IllegalStateException("weather.cluster.secret must be set when weather.cluster.enabled is on");
+        }
+        this.weatherService = weatherService;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @GetMapping(value = PeerCacheClient.ENTRY_PATH, produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public Mono<ResponseEntity<byte[]>> entry(
+            @RequestParam String key,
+            @RequestHeader(value = PeerCacheClient.SECRET_HEADER, required = false) String presented) {
+        if (presented == null || !MessageDigest.isEqual(secret, presented.getBytes(StandardCharsets.UTF_8))) {
+            return Mono.just(ResponseEntity.status(HttpStatus.FORBIDDEN).build());
+        }
+        return weatherService.ownedWeatherSummary(key)
+                .map(entry -> ResponseEntity.ok(PeerCacheClient.encode(key, entry)));
+    }
+
+    /**
+     * A failed load is an answer, not a failure of this instance, so it gets its own status and keeps the upstream
+     * status for the asking instance's negative cache.
+     */
+    @ExceptionHandler(ExternalApiException.class)
+    public ResponseEntity<PeerCacheClient.PeerError> handleExternalApiException(ExternalApiException e) {
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(PeerCacheClient.PeerError.of(e));
+    }
+}
@@ -1,17 +1,44 @@
 package com.dushmantha.weather_analyzer.controller;
 
+import com.dushmantha.weather_analyzer.cache.CachedSummary;
+import com.dushmantha.weather_analyzer.cache.SummaryBody;
+import com.dushmantha.weather_analyzer.cache.SummaryEncoder;
+import com.dushmantha.weather_analyzer.cache.SummaryFormat;
+import com.dushmantha.weather_analyzer.dto.DailyForecast;
+import com.dushmantha.weather_analyzer.dto.ForecastHistory;
+import com.dushmantha.weather_analyzer.dto.TemperaturePercentiles;
+import com.dushmantha.weather_analyzer.dto.WeatherBatchRequest;
+import com.dushmantha.weather_analyzer.dto.WeatherBatchResult;
 import com.dushmantha.weather_analyzer.dto.WeatherSummary;
 import com.dushmantha.weather_analyzer.exception.ExternalApiException;
+import com.dushmantha.weather_analyzer.forecast.ForecastAnalysis;
+import com.dushmantha.weather_analyzer.forecast.ForecastColumns;
+import com.dushmantha.weather_analyzer.service.ForecastHistoryService;
+import com.dushmantha.weather_analyzer.service.WeatherBatchService;
 import com.dushmantha.weather_analyzer.service.WeatherService;
+import com.dushmantha.weather_analyzer.service.WeatherSubscriptionService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.util.concurrent.ExecutionException;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
 
 /**
  * @author dushmantha.sse@gmail.com
@@ -21,24 +48,143 @@ import java.util.concurrent.ExecutionException;
 @Slf4j
 public class WeatherController {
 
+    private static final String STALE_WARNING = "110 - \"Response is Stale\"";
+    private static final String SMILE_VALUE = "application/x-jackson-smile";
+
     @Autowired
     private WeatherService weatherService;
 
-    @GetMapping
-    public ResponseEntity<WeatherSummary> getWeatherSummary(@RequestParam String city) {
+    @Autowired
+    private WeatherBatchService weatherBatchService;
+
+    @Autowired
+    private ForecastHistoryService forecastHistoryService;
+
+    @Autowired
+    private WeatherSubscriptionService weatherSubscriptionService;
+
+    @Autowired
+    private SummaryEncoder summaryEncoder;
+
+    /**
+     * Writes the entry's body in the {@link SummaryFormat} the {@code Accept} header asks for, JSON by default, with a
+     * strong ETag per format; a matching {@code If-None-Match} gets a 304 without touching the body.
+     */
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, SMILE_VALUE,
+            SummaryFormat.BINARY_VALUE})
+    public Mono<ResponseEntity<byte[]>> getWeatherSummary(
+            @RequestParam String city,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         log.info("Weather summery for city: {}", city);
-        try {
-            WeatherSummary summary = weatherService.weatherSummary(city).get();
-            return ResponseEntity.ok(summary);
-        } catch (ExecutionException e) {
-            Throwable cause = e.getCause();
-            if (cause instanceof ExternalApiException) {
-                throw (ExternalApiException) cause;
+        SummaryFormat format = SummaryFormat.negotiate(accept);
+        return weatherService.cachedWeatherSummary(city).map(cached -> {
+            SummaryBody body = cached.getBody(summaryEncoder);
+            String etag = format.etag(body.getEtag());
+            if (ifNoneMatch != null && matches(ifNoneMatch, etag)) {
+                return cachedResponse(cached, HttpStatus.NOT_MODIFIED)
+                        .eTag(etag)
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .build();
+            }
+            byte[] encoded = cached.getBody(summaryEncoder, format);
+            return cachedResponse(cached, HttpStatus.OK)
+                    .eTag(etag)
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .contentType(format.mediaType())
+                    .contentLength(encoded.length)
+                    .body(encoded);
+        });
+    }
+
+    @GetMapping("/daily")
+    public Mono<ResponseEntity<List<DailyForecast>>> getDailyForecast(
+            @RequestParam String city, @RequestParam(defaultValue = "" + Integer.MAX_VALUE) int days) {
+        return analyse(city, forecast -> ForecastAnalysis.daily(forecast, days));
+    }
+
+    @GetMapping("/window")
+    public Mono<ResponseEntity<WeatherSummary>> getWindowSummary(@RequestParam String city,
+                                                                 @RequestParam(defaultValue = "24") int hours) {
+        return analyse(city, forecast -> ForecastAnalysis.window(forecast, hours));
+    }
+
+    @GetMapping("/percentiles")
+    public Mono<ResponseEntity<TemperaturePercentiles>> getTemperaturePercentiles(
+            @RequestParam String city, @RequestParam(defaultValue = "50,90,99") double[] p,
+            @RequestParam(defaultValue = "" + Integer.MAX_VALUE) int hours) {
+        return analyse(city, forecast -> ForecastAnalysis.percentiles(forecast, hours, p));
+    }
+
+    /**
+     * Aggregates the forecasts recorded for {@code city} over the last {@code days} UTC days from the history store.
+     */
+    @GetMapping("/history")
+    public Mono<ForecastHistory> getForecastHistory(@RequestParam String city,
+                                                    @RequestParam(defaultValue = "30") int days,
+                                                    @RequestParam(defaultValue = "false") boolean daily) {
+        return forecastHistoryService.forecastHistory(city, days, daily);
+    }
+
+    /**
+     * Streams NDJSON, one result per line as it completes. Asked for CBOR, Smile or the binary layout, all results
+     * are collected and written as one list.
+     */
+    @PostMapping(value = "/batch", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            SMILE_VALUE, SummaryFormat.BINARY_VALUE})
+    public Flux<WeatherBatchResult> getWeatherSummaries(@RequestBody WeatherBatchRequest request) {
+        return weatherBatchService.weatherSummaries(request.getCities());
+    }
+
+    /**
+     * Streams the current summary of each {@code city} parameter and then every refresh of it. Cities are taken from
+     * repeated parameters rather than split on commas, so {@code London,GB} stays one city.
+     */
+    @GetMapping(value = "/subscribe", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<WeatherBatchResult>> subscribe(@RequestParam MultiValueMap<String, String> params) {
+        return weatherSubscriptionService.subscribe(params.get("city"));
+    }
+
+    /**
+     * Runs an analysis on the cached forecast of {@code city}; only a cache miss goes upstream.
+     */
+    private <T> Mono<ResponseEntity<T>> analyse(String city, Function<ForecastColumns, T> analysis) {
+        return weatherService.cachedWeatherSummary(city).map(cached -> {
+            if (cached.getForecast() == null) {
+                throw new ExternalApiException("Forecast not available for: " + city);
+            }
+            return cachedResponse(cached, HttpStatus.OK).body(analysis.apply(cached.getForecast()));
+        });
+    }
+
+    /**
+     * Freshness headers of a cached entry: {@code max-age} is its soft TTL and {@code Age} how far into it the entry
+     * is, so a client or proxy cache keeps it exactly as long as {@code weatherCache} serves it as fresh.
+     */
+    private static ResponseEntity.BodyBuilder cachedResponse(CachedSummary cached, HttpStatus status) {
+        long maxAge = Math.max(0L, (cached.getStaleAtMillis() - cached.getFetchedAtMillis()) / 1000L);
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(status)
+                .cacheControl(CacheControl.maxAge(Duration.ofSeconds(maxAge)))
+                .header(HttpHeaders.AGE, Long.toString(cached.ageSeconds()));
+        if (cached.isStale()) {
+            response.header(HttpHeaders.WARNING, STALE_WARNING);
+        }
+        return response;
+    }
+
+    /**
+     * {@code If-None-Match} uses the weak comparison: any listed tag, with or without {@code W/}, or {@code *}.
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
             }
-            throw new RuntimeException("Unexpected error", e);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("Request interrupted", e);
         }
+        return false;
     }
 }
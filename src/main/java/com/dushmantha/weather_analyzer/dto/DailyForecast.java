@@ -0,0 +1,21 @@
+package com.dushmantha.weather_analyzer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Temperatures of one forecast day: lowest temp_min, highest temp_max and the average temp of its slots.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DailyForecast {
+    private String date;
+    private double minTemperature;
+    private double maxTemperature;
+    private double averageTemperature;
+    private int slots;
+}
@@ -0,0 +1,24 @@
+package com.dushmantha.weather_analyzer.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Forecasts fetched on one UTC day: how many snapshots and the temperatures across all their slots, left out
+ * when none was fetched that day.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DailyHistory {
+    private String date;
+    private long snapshots;
+    private Double averageTemperature;
+    private Double minTemperature;
+    private Double maxTemperature;
+}
@@ -0,0 +1,30 @@
+package com.dushmantha.weather_analyzer.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Aggregate of the forecasts fetched for a city from {@code from} to {@code to}, UTC dates inclusive. Temperatures
+ * are left out when nothing was recorded; {@code daily} is only present when asked for.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ForecastHistory {
+    private String city;
+    private String from;
+    private String to;
+    private long snapshots;
+    private long slots;
+    private Double averageTemperature;
+    private Double minTemperature;
+    private Double maxTemperature;
+    private List<DailyHistory> daily;
+}
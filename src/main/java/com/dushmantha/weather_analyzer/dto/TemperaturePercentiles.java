@@ -0,0 +1,22 @@
+package com.dushmantha.weather_analyzer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Temperature percentiles over the first {@code hours} of the forecast, keyed by percentile such as {@code "p90"}.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TemperaturePercentiles {
+    private String city;
+    private int hours;
+    private int slots;
+    private Map<String, Double> percentiles;
+}
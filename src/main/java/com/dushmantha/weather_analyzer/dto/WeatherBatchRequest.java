@@ -0,0 +1,17 @@
+package com.dushmantha.weather_analyzer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class WeatherBatchRequest {
+    private List<String> cities;
+}
@@ -0,0 +1,29 @@
+package com.dushmantha.weather_analyzer.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One line of a batch response: either the summary for the requested city or the error it failed with.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class WeatherBatchResult {
+    private String city;
+    private WeatherSummary summary;
+    private String error;
+
+    public static WeatherBatchResult success(String city, WeatherSummary summary) {
+        return new WeatherBatchResult(city, summary, null);
+    }
+
+    public static WeatherBatchResult failure(String city, String error) {
+        return new WeatherBatchResult(city, null, error);
+    }
+}
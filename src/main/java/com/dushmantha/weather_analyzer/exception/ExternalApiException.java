@@ -4,11 +4,56 @@ package com.dushmantha.weather_analyzer.exception;
  * @author dushmantha.sse@gmail.com
  */
 public class ExternalApiException extends RuntimeException {
+
+    private final int upstreamStatus;
+    private final boolean stackless;
+
     public ExternalApiException(String message) {
+        this(message, 0);
+    }
+
+    public ExternalApiException(String message, int upstreamStatus) {
         super(message);
+        this.upstreamStatus = upstreamStatus;
+        this.stackless = false;
     }
 
     public ExternalApiException(String message, Throwable cause) {
         super(message, cause);
+        this.upstreamStatus = 0;
+        this.stackless = false;
+    }
+
+    private ExternalApiException(String message, int upstreamStatus, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+        this.upstreamStatus = upstreamStatus;
+        this.stackless = !writableStackTrace;
+    }
+
+    /**
+     * An exception for an expected outcome, such as an unknown city or a rejected call. It has no stack trace,
+     * which is most of the cost of creating one, and no suppressed exceptions, so one instance can be kept and
+     * signalled again to any number of callers.
+     */
+    public static ExternalApiException stackless(String message, int upstreamStatus) {
+        return new ExternalApiException(message, upstreamStatus, false);
+    }
+
+    public static ExternalApiException stackless(String message) {
+        return stackless(message, 0);
+    }
+
+    /**
+     * HTTP status the weather API answered with, or 0 when the failure did not come from an upstream response.
+     */
+    public int getUpstreamStatus() {
+        return upstreamStatus;
+    }
+
+    /**
+     * Whether this exception was made by {@link #stackless}, so there is no stack trace worth logging.
+     */
+    public boolean isStackless() {
+        return stackless;
     }
 }
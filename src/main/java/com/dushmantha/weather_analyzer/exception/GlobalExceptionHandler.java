@@ -1,11 +1,13 @@
 package com.dushmantha.weather_analyzer.exception;
 
+import com.dushmantha.weather_analyzer.util.LogRateLimiter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -16,9 +18,20 @@ import java.util.Map;
 @Slf4j
 public class GlobalExceptionHandler {
 
+    private static final LogRateLimiter API_ERROR_LOGS = new LogRateLimiter(Duration.ofMinutes(1), 20);
+
+    /**
+     * Upstream failures are expected outcomes that arrive in bursts, so they are logged at most 20 a minute per
+     * upstream status, and without a stack trace when the exception was created without one.
+     */
     @ExceptionHandler(ExternalApiException.class)
     public ResponseEntity<Map<String, String>> handleRuntimeException(ExternalApiException e) {
-        log.error("External API exception: ", e);
+        long skipped = API_ERROR_LOGS.tryAcquire(Integer.toString(e.getUpstreamStatus()));
+        if (skipped >= 0 && e.isStackless()) {
+            log.error("External API exception: {} ({} similar skipped)", e.getMessage(), skipped);
+        } else if (skipped >= 0) {
+            log.error("External API exception ({} similar skipped): ", skipped, e);
+        }
         Map<String, String> error = new HashMap<>();
         error.put("error", e.getMessage());
         return ResponseEntity.badRequest().body(error);
@@ -36,7 +49,14 @@ public class GlobalExceptionHandler {
     public ResponseEntity<Map<String, String>> handleGenericException(Exception e) {
         log.error("Unexpected error: ", e);
         Map<String, String> error = new HashMap<>();
-        error.put("error", "Internal server error");
+        error.put("error", errorMessage(e));
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
     }
+
+    /**
+     * Client facing message for an error, for responses that report failures inline instead of through a handler.
+     */
+    public static String errorMessage(Throwable e) {
+        return e instanceof RuntimeException ? e.getMessage() : "Internal server error";
+    }
 }
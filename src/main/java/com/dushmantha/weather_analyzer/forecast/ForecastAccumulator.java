@@ -0,0 +1,102 @@
+package com.dushmantha.weather_analyzer.forecast;
+
+import com.dushmantha.weather_analyzer.dto.WeatherSummary;
+
+import java.time.LocalDate;
+import java.util.DoubleSummaryStatistics;
+
+/**
+ * Single pass average / hottest / coldest over the first {@link #WINDOW} forecast slots, or another slot count. Produces the same
+ * {@link WeatherSummary} as streaming over the bound {@code WeatherApiResponse}: the average uses the same
+ * compensated summation as {@code DoubleStream.average()} and ties keep the earliest slot like {@code Stream.max/min}.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public final class ForecastAccumulator implements ForecastSink {
+
+    /**
+     * 7 days * 8 forecasts per day (3-hour intervals).
+     */
+    public static final int WINDOW = 56;
+
+    private final DoubleSummaryStatistics temperatures = new DoubleSummaryStatistics();
+    private final int window;
+    private String city;
+    private int count;
+    private double hottestTemp;
+    private int hottestDay;
+    private double coldestTemp;
+    private int coldestDay;
+
+    public ForecastAccumulator() {
+        this(WINDOW);
+    }
+
+    public ForecastAccumulator(int window) {
+        this.window = window;
+    }
+
+    @Override
+    public void city(String name) {
+        this.city = name;
+    }
+
+    @Override
+    public void slot(long epochSecond, double temp, double tempMin, double tempMax, int epochDay) {
+        if (count == window) {
+            return;
+        }
+        if (count == 0 || Double.compare(temp, hottestTemp) > 0) {
+            hottestTemp = temp;
+            hottestDay = epochDay;
+        }
+        if (count == 0 || Double.compare(temp, coldestTemp) < 0) {
+            coldestTemp = temp;
+            coldestDay = epochDay;
+        }
+        count++;
+        temperatures.accept(temp);
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public double average() {
+        return temperatures.getAverage();
+    }
+
+    /**
+     * The average as reported, rounded to two decimals.
+     */
+    public double roundedAverage() {
+        return Math.round(average() * 100.0) / 100.0;
+    }
+
+    /**
+     * Epoch day of the first hottest slot; only meaningful when {@link #count()} is positive.
+     */
+    public int hottestDay() {
+        return hottestDay;
+    }
+
+    /**
+     * Epoch day of the first coldest slot; only meaningful when {@link #count()} is positive.
+     */
+    public int coldestDay() {
+        return coldestDay;
+    }
+
+    public WeatherSummary toSummary() {
+        return new WeatherSummary(
+                city,
+                roundedAverage(),
+                count > 0 ? formatDay(hottestDay) : null,
+                count > 0 ? formatDay(coldestDay) : null
+        );
+    }
+
+    static String formatDay(int epochDay) {
+        return LocalDate.ofEpochDay(epochDay).toString();
+    }
+}
@@ -0,0 +1,136 @@
+package com.dushmantha.weather_analyzer.forecast;
+
+import com.dushmantha.weather_analyzer.dto.DailyForecast;
+import com.dushmantha.weather_analyzer.dto.TemperaturePercentiles;
+import com.dushmantha.weather_analyzer.dto.WeatherSummary;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Analyses over cached {@link ForecastColumns}, answered without an upstream call. Each one is a loop over the
+ * primitive columns with no allocation besides the response it returns. Invalid parameters fail with
+ * {@link IllegalArgumentException}.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public final class ForecastAnalysis {
+
+    private static final long SECONDS_PER_HOUR = 3600L;
+
+    private ForecastAnalysis() {
+    }
+
+    /**
+     * Lowest temp_min, highest temp_max and average temp per calendar day, for the first {@code days} days.
+     */
+    public static List<DailyForecast> daily(ForecastColumns forecast, int days) {
+        if (days <= 0) {
+            throw new IllegalArgumentException("days must be positive");
+        }
+        List<DailyForecast> result = new ArrayList<>(Math.min(days, 8));
+        int size = forecast.size();
+        int start = 0;
+        while (start < size && result.size() < days) {
+            int day = forecast.epochDay(start);
+            double min = forecast.tempMin(start);
+            double max = forecast.tempMax(start);
+            double sum = 0;
+            int end = start;
+            // upstream slots are chronological, so a day is one run of equal epoch days
+            while (end < size && forecast.epochDay(end) == day) {
+                min = Math.min(min, forecast.tempMin(end));
+                max = Math.max(max, forecast.tempMax(end));
+                sum += forecast.temp(end);
+                end++;
+            }
+            int slots = end - start;
+            result.add(new DailyForecast(ForecastAccumulator.formatDay(day), min, max, round(sum / slots), slots));
+            start = end;
+        }
+        return result;
+    }
+
+    /**
+     * The {@code GET /weather} summary computed over the first {@code hours} of the forecast instead of the default
+     * window.
+     */
+    public static WeatherSummary window(ForecastColumns forecast, int hours) {
+        return forecast.summary(slotsWithin(forecast, hours));
+    }
+
+    /**
+     * Temperature percentiles over the first {@code hours} of the forecast, linearly interpolated between the
+     * closest ranks. Uses the rank order precomputed in {@link ForecastColumns}, so nothing is sorted per request.
+     */
+    public static TemperaturePercentiles percentiles(ForecastColumns forecast, int hours, double[] percentiles) {
+        if (percentiles.length == 0) {
+            throw new IllegalArgumentException("At least one percentile is required");
+        }
+        int slots = slotsWithin(forecast, hours);
+        Map<String, Double> values = new LinkedHashMap<>();
+        for (double p : percentiles) {
+            if (!(p >= 0 && p <= 100)) {
+                throw new IllegalArgumentException("Percentiles must be between 0 and 100");
+            }
+            if (slots > 0) {
+                values.put(label(p), round(percentile(forecast, slots, p)));
+            }
+        }
+        return new TemperaturePercentiles(forecast.city(), hours, slots, values);
+    }
+
+    /**
+     * Number of leading slots that start within {@code hours} of the first slot.
+     */
+    static int slotsWithin(ForecastColumns forecast, int hours) {
+        if (hours <= 0) {
+            throw new IllegalArgumentException("hours must be positive");
+        }
+        int size = forecast.size();
+        if (size == 0) {
+            return 0;
+        }
+        long end = forecast.epochSecond(0) + hours * SECONDS_PER_HOUR;
+        int slots = 0;
+        while (slots < size && forecast.epochSecond(slots) < end) {
+            slots++;
+        }
+        return slots;
+    }
+
+    static double percentile(ForecastColumns forecast, int slots, double p) {
+        double position = p / 100.0 * (slots - 1);
+        int lowerRank = (int) position;
+        double fraction = position - lowerRank;
+        // walks the whole-forecast rank order, keeping only slots inside the window
+        double lower = Double.NaN;
+        int rank = 0;
+        for (int i = 0; i < forecast.size(); i++) {
+            int slot = forecast.tempRank(i);
+            if (slot >= slots) {
+                continue;
+            }
+            if (rank == lowerRank) {
+                lower = forecast.temp(slot);
+                if (fraction == 0) {
+                    return lower;
+                }
+            } else if (rank == lowerRank + 1) {
+                return lower + fraction * (forecast.temp(slot) - lower);
+            }
+            rank++;
+        }
+        return lower;
+    }
+
+    private static String label(double p) {
+        return p == Math.rint(p) ? "p" + (long) p : "p" + p;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+}
@@ -0,0 +1,250 @@
+package com.dushmantha.weather_analyzer.forecast;
+
+import com.dushmantha.weather_analyzer.dto.WeatherSummary;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Decoded forecast of one city as primitive columns, one row per slot in upstream (chronological) order: epoch
+ * second, temp, temp_min, temp_max and the calendar day of {@code dt_txt}. Rows are packed into a single buffer of
+ * 12 bytes each, relative to a base second and day:
+ * <pre>
+ *   long baseEpochSecond | int baseEpochDay |
+ *   slots * (int secondOffset | short temp | short tempMin | short tempMax | byte dayOffset | byte tempRank)
+ * </pre>
+ * Temperatures are kept in hundredths of a degree, which is exact for the two decimals the weather API reports.
+ * {@link #tempRank(int)} holds the slot indices ordered by temp, computed once at build time, so percentiles over any
+ * window need no sorting or scratch space. The buffer is on the heap, or off it after {@link #offHeap()}. Immutable
+ * once built.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public final class ForecastColumns {
+
+    /**
+     * Most slots kept per city: 12 days of 3-hour slots, room for any window the 5 day forecast can fill.
+     */
+    public static final int CAPACITY = 96;
+
+    private static final int HEADER_BYTES = 12;
+    private static final int SLOT_BYTES = 12;
+    private static final double SCALE = 100.0;
+
+    private final String city;
+    private final ByteBuffer data;
+
+    public ForecastColumns(String city, long[] epochSeconds, double[] temps, double[] tempMins, double[] tempMaxes,
+                           int[] epochDays) {
+        this(city, encode(epochSeconds.length, epochSeconds, temps, tempMins, tempMaxes, epochDays));
+    }
+
+    private ForecastColumns(String city, ByteBuffer data) {
+        this.city = city != null ? city.intern() : null;
+        this.data = data;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public String city() {
+        return city;
+    }
+
+    public int size() {
+        return (data.capacity() - HEADER_BYTES) / SLOT_BYTES;
+    }
+
+    public long epochSecond(int slot) {
+        return data.getLong(0) + data.getInt(offset(slot));
+    }
+
+    public double temp(int slot) {
+        return data.getShort(offset(slot) + 4) / SCALE;
+    }
+
+    public double tempMin(int slot) {
+        return data.getShort(offset(slot) + 6) / SCALE;
+    }
+
+    public double tempMax(int slot) {
+        return data.getShort(offset(slot) + 8) / SCALE;
+    }
+
+    public int epochDay(int slot) {
+        return data.getInt(8) + data.get(offset(slot) + 10);
+    }
+
+    /**
+     * Index of the slot with the {@code rank}-th lowest temp; equal temps keep slot order.
+     */
+    public int tempRank(int rank) {
+        return data.get(offset(rank) + 11);
+    }
+
+    /**
+     * Bytes held by the packed columns, on or off the heap.
+     */
+    public int sizeInBytes() {
+        return data.capacity();
+    }
+
+    public boolean isOffHeap() {
+        return data.isDirect();
+    }
+
+    /**
+     * A copy with the columns in native memory, leaving only a small handle on the heap.
+     */
+    public ForecastColumns offHeap() {
+        if (isOffHeap()) {
+            return this;
+        }
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.capacity());
+        direct.put(0, data, 0, data.capacity());
+        return new ForecastColumns(city, direct);
+    }
+
+    /**
+     * The {@code GET /weather} summary: the first {@link ForecastAccumulator#WINDOW} slots.
+     */
+    public WeatherSummary summary() {
+        return summary(ForecastAccumulator.WINDOW);
+    }
+
+    /**
+     * Average / hottest / coldest over the first {@code slots} slots.
+     */
+    public WeatherSummary summary(int slots) {
+        return accumulate(slots).toSummary();
+    }
+
+    public ForecastAccumulator accumulate(int slots) {
+        ForecastAccumulator accumulator = new ForecastAccumulator(slots);
+        accumulator.city(city);
+        int end = Math.min(slots, size());
+        for (int i = 0; i < end; i++) {
+            accumulator.slot(epochSecond(i), temp(i), tempMin(i), tempMax(i), epochDay(i));
+        }
+        return accumulator;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ForecastColumns other)) {
+            return false;
+        }
+        return Objects.equals(city, other.city) && data.equals(other.data);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hashCode(city) + data.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "ForecastColumns(city=" + city + ", slots=" + size() + ")";
+    }
+
+    private static int offset(int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+
+    private static ByteBuffer encode(int size, long[] epochSeconds, double[] temps, double[] tempMins,
+                                     double[] tempMaxes, int[] epochDays) {
+        if (size > CAPACITY || temps.length < size || tempMins.length < size || tempMaxes.length < size
+                || epochDays.length < size) {
+            throw new IllegalArgumentException("Forecast columns must have the same length, at most " + CAPACITY);
+        }
+        long baseSecond = size > 0 ? epochSeconds[0] : 0L;
+        int baseDay = size > 0 ? epochDays[0] : 0;
+        ByteBuffer data = ByteBuffer.allocate(HEADER_BYTES + size * SLOT_BYTES);
+        data.putLong(0, baseSecond).putInt(8, baseDay);
+        short[] scaledTemps = new short[size];
+        for (int i = 0; i < size; i++) {
+            int dayOffset = epochDays[i] - baseDay;
+            if (dayOffset != (byte) dayOffset) {
+                throw new IllegalArgumentException("Forecast spans more than " + Byte.MAX_VALUE + " days");
+            }
+            scaledTemps[i] = scale(temps[i]);
+            data.putInt(offset(i), Math.toIntExact(epochSeconds[i] - baseSecond))
+                    .putShort(offset(i) + 4, scaledTemps[i])
+                    .putShort(offset(i) + 6, scale(tempMins[i]))
+                    .putShort(offset(i) + 8, scale(tempMaxes[i]))
+                    .put(offset(i) + 10, (byte) dayOffset);
+        }
+        byte[] rank = rank(scaledTemps);
+        for (int i = 0; i < size; i++) {
+            data.put(offset(i) + 11, rank[i]);
+        }
+        return data;
+    }
+
+    private static short scale(double temp) {
+        return (short) Math.clamp(Math.round(temp * SCALE), Short.MIN_VALUE, Short.MAX_VALUE);
+    }
+
+    private static byte[] rank(short[] temps) {
+        // at most CAPACITY slots, so an insertion sort of indices is both small and stable
+        byte[] order = new byte[temps.length];
+        for (int i = 0; i < temps.length; i++) {
+            int j = i;
+            while (j > 0 && temps[order[j - 1]] > temps[i]) {
+                order[j] = order[j - 1];
+                j--;
+            }
+            order[j] = (byte) i;
+        }
+        return order;
+    }
+
+    /**
+     * {@link ForecastSink} that collects decoded slots into columns, up to {@link #CAPACITY}.
+     */
+    public static final class Builder implements ForecastSink {
+
+        private String city;
+        private int size;
+        private long[] epochSeconds = new long[40];
+        private double[] temps = new double[40];
+        private double[] tempMins = new double[40];
+        private double[] tempMaxes = new double[40];
+        private int[] epochDays = new int[40];
+
+        @Override
+        public void city(String name) {
+            this.city = name;
+        }
+
+        @Override
+        public void slot(long epochSecond, double temp, double tempMin, double tempMax, int epochDay) {
+            if (size == CAPACITY) {
+                return;
+            }
+            if (size == epochSeconds.length) {
+                int grown = Math.min(CAPACITY, size * 2);
+                epochSeconds = Arrays.copyOf(epochSeconds, grown);
+                temps = Arrays.copyOf(temps, grown);
+                tempMins = Arrays.copyOf(tempMins, grown);
+                tempMaxes = Arrays.copyOf(tempMaxes, grown);
+                epochDays = Arrays.copyOf(epochDays, grown);
+            }
+            epochSeconds[size] = epochSecond;
+            temps[size] = temp;
+            tempMins[size] = tempMin;
+            tempMaxes[size] = tempMax;
+            epochDays[size] = epochDay;
+            size++;
+        }
+
+        public ForecastColumns build() {
+            return new ForecastColumns(city, encode(size, epochSeconds, temps, tempMins, tempMaxes, epochDays));
+        }
+    }
+}
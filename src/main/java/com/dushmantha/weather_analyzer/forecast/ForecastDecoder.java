@@ -0,0 +1,400 @@
+package com.dushmantha.weather_analyzer.forecast;
+
+import com.dushmantha.weather_analyzer.exception.ExternalApiException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.function.Supplier;
+
+/**
+ * Incremental decoder for OpenWeatherMap forecast payloads. Input is pushed chunk by chunk into a non-blocking
+ * Jackson parser and only {@code city.name}, {@code list[].dt}, {@code list[].main.temp/temp_min/temp_max} and
+ * {@code list[].dt_txt} are read; everything else, including slots past the limit, is skipped token by token.
+ * <p>
+ * No object graph is built: each slot goes straight to a {@link ForecastSink}, numbers are read as primitives and
+ * the date is parsed from the {@code dt_txt} characters in place, so allocation per response is fixed regardless
+ * of payload size.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public final class ForecastDecoder implements AutoCloseable {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final int SECONDS_PER_DAY = 86_400;
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private static final int ROOT = 0;
+    private static final int CITY = 1;
+    private static final int LIST = 2;
+    private static final int ITEM = 3;
+    private static final int MAIN = 4;
+    private static final int DONE = 5;
+
+    private static final int NONE = 0;
+    private static final int FIELD_CITY = 1;
+    private static final int FIELD_LIST = 2;
+    private static final int FIELD_NAME = 3;
+    private static final int FIELD_DT = 4;
+    private static final int FIELD_MAIN = 5;
+    private static final int FIELD_DT_TXT = 6;
+    private static final int FIELD_TEMP = 7;
+    private static final int FIELD_TEMP_MIN = 8;
+    private static final int FIELD_TEMP_MAX = 9;
+
+    private final JsonParser parser;
+    private final ByteBufferFeeder feeder;
+    private final ForecastSink sink;
+    private final int slotLimit;
+
+    private boolean started;
+    private int context = ROOT;
+    private int field = NONE;
+    private boolean skipNextValue;
+    private int skipDepth;
+    private int slots;
+
+    private long dt;
+    private double temp;
+    private double tempMin;
+    private double tempMax;
+    private int epochDay;
+    private boolean hasEpochDay;
+
+    public ForecastDecoder(ForecastSink sink, int slotLimit) {
+        try {
+            this.parser = JSON_FACTORY.createNonBlockingByteBufferParser();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to create forecast parser", e);
+        }
+        this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+        this.sink = sink;
+        this.slotLimit = slotLimit;
+    }
+
+    /**
+     * Decodes a streamed response body into {@code sink}, releasing each buffer once it has been parsed.
+     */
+    public static <S extends ForecastSink> Mono<S> decode(Flux<DataBuffer> body, Supplier<S> sinks, int slotLimit) {
+        return Mono.defer(() -> {
+            S sink = sinks.get();
+            return Mono.using(
+                    () -> new ForecastDecoder(sink, slotLimit),
+                    decoder -> body
+                            .doOnNext(buffer -> {
+                                try {
+                                    decoder.feed(buffer);
+                                } finally {
+                                    DataBufferUtils.release(buffer);
+                                }
+                            })
+                            .then(Mono.fromCallable(() -> {
+                                decoder.endOfInput();
+                                return sink;
+                            })),
+                    ForecastDecoder::close);
+        });
+    }
+
+    /**
+     * Decodes a complete in-memory payload into {@code sink}.
+     */
+    public static <S extends ForecastSink> S decode(ByteBuffer payload, S sink, int slotLimit) {
+        try (ForecastDecoder decoder = new ForecastDecoder(sink, slotLimit)) {
+            decoder.feed(payload);
+            decoder.endOfInput();
+            return sink;
+        }
+    }
+
+    public void feed(DataBuffer buffer) {
+        try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+            while (iterator.hasNext()) {
+                feed(iterator.next());
+            }
+        }
+    }
+
+    public void feed(ByteBuffer buffer) {
+        if (!buffer.hasRemaining()) {
+            return;
+        }
+        try {
+            feeder.feedInput(buffer);
+            drain();
+        } catch (IOException e) {
+            throw new ExternalApiException("Malformed weather data response", e);
+        }
+    }
+
+    public void endOfInput() {
+        feeder.endOfInput();
+        try {
+            drain();
+        } catch (IOException e) {
+            throw new ExternalApiException("Malformed weather data response", e);
+        }
+        if (context != DONE) {
+            throw new ExternalApiException("Incomplete weather data response");
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            parser.close();
+        } catch (IOException ignored) {
+            // nothing buffered worth reporting
+        }
+    }
+
+    private void drain() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            onToken(token);
+        }
+    }
+
+    private void onToken(JsonToken token) throws IOException {
+        if (skipDepth > 0) {
+            if (token.isStructStart()) {
+                skipDepth++;
+            } else if (token.isStructEnd()) {
+                skipDepth--;
+            }
+            return;
+        }
+        if (skipNextValue) {
+            skipNextValue = false;
+            if (token.isStructStart()) {
+                skipDepth = 1;
+            }
+            return;
+        }
+        if (!started) {
+            if (token != JsonToken.START_OBJECT) {
+                throw new ExternalApiException("Malformed weather data response");
+            }
+            started = true;
+            return;
+        }
+        if (token == JsonToken.FIELD_NAME) {
+            field = fieldOf(parser.currentName());
+            skipNextValue = field == NONE;
+            return;
+        }
+        int current = field;
+        field = NONE;
+        switch (context) {
+            case ROOT -> onRoot(token, current);
+            case CITY -> onCity(token, current);
+            case LIST -> onList(token);
+            case ITEM -> onItem(token, current);
+            case MAIN -> onMain(token, current);
+            default -> {
+                // trailing content after the root object is ignored
+            }
+        }
+    }
+
+    private void onRoot(JsonToken token, int current) {
+        if (token == JsonToken.END_OBJECT) {
+            context = DONE;
+        } else if (current == FIELD_CITY && token == JsonToken.START_OBJECT) {
+            context = CITY;
+        } else if (current == FIELD_LIST && token == JsonToken.START_ARRAY) {
+            context = LIST;
+        } else {
+            skipValue(token);
+        }
+    }
+
+    private void onCity(JsonToken token, int current) throws IOException {
+        if (token == JsonToken.END_OBJECT) {
+            context = ROOT;
+        } else if (current == FIELD_NAME && token == JsonToken.VALUE_STRING) {
+            sink.city(parser.getText());
+        } else {
+            skipValue(token);
+        }
+    }
+
+    private void onList(JsonToken token) {
+        if (token == JsonToken.END_ARRAY) {
+            context = ROOT;
+        } else if (token == JsonToken.START_OBJECT && slots < slotLimit) {
+            context = ITEM;
+            dt = 0L;
+            temp = 0.0;
+            tempMin = 0.0;
+            tempMax = 0.0;
+            hasEpochDay = false;
+        } else {
+            skipValue(token);
+        }
+    }
+
+    private void onItem(JsonToken token, int current) throws IOException {
+        if (token == JsonToken.END_OBJECT) {
+            context = LIST;
+            slots++;
+            sink.slot(dt, temp, tempMin, tempMax, hasEpochDay ? epochDay : (int) Math.floorDiv(dt, SECONDS_PER_DAY));
+        } else if (current == FIELD_MAIN && token == JsonToken.START_OBJECT) {
+            context = MAIN;
+        } else if (current == FIELD_DT && token.isNumeric()) {
+            dt = parser.getValueAsLong();
+        } else if (current == FIELD_DT_TXT && token == JsonToken.VALUE_STRING) {
+            hasEpochDay = parseEpochDay(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        } else {
+            skipValue(token);
+        }
+    }
+
+    private void onMain(JsonToken token, int current) throws IOException {
+        if (token == JsonToken.END_OBJECT) {
+            context = ITEM;
+        } else if (token.isNumeric() && current >= FIELD_TEMP) {
+            double value = readDouble(token);
+            if (current == FIELD_TEMP) {
+                temp = value;
+            } else if (current == FIELD_TEMP_MIN) {
+                tempMin = value;
+            } else {
+                tempMax = value;
+            }
+        } else {
+            skipValue(token);
+        }
+    }
+
+    private void skipValue(JsonToken token) {
+        if (token.isStructStart()) {
+            skipDepth = 1;
+        }
+    }
+
+    private int fieldOf(String name) {
+        return switch (context) {
+            case ROOT -> switch (name) {
+                case "city" -> FIELD_CITY;
+                case "list" -> FIELD_LIST;
+                default -> NONE;
+            };
+            case CITY -> "name".equals(name) ? FIELD_NAME : NONE;
+            case ITEM -> switch (name) {
+                case "dt" -> FIELD_DT;
+                case "main" -> FIELD_MAIN;
+                case "dt_txt" -> FIELD_DT_TXT;
+                default -> NONE;
+            };
+            case MAIN -> switch (name) {
+                case "temp" -> FIELD_TEMP;
+                case "temp_min" -> FIELD_TEMP_MIN;
+                case "temp_max" -> FIELD_TEMP_MAX;
+                default -> NONE;
+            };
+            default -> NONE;
+        };
+    }
+
+    private double readDouble(JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getDoubleValue();
+        }
+        return parseDouble(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+    }
+
+    /**
+     * Parses a plain decimal without allocating. Values whose digits fit in 53 bits with at most 22 fraction digits
+     * are exact after one IEEE division, which is correctly rounded and therefore equal to
+     * {@link Double#parseDouble}; anything else (exponents, long mantissas) falls back to it.
+     */
+    static double parseDouble(char[] chars, int offset, int length) {
+        int i = offset;
+        int end = offset + length;
+        boolean negative = i < end && chars[i] == '-';
+        if (negative) {
+            i++;
+        }
+        long mantissa = 0;
+        int scale = 0;
+        boolean fraction = false;
+        boolean digits = false;
+        for (; i < end; i++) {
+            char c = chars[i];
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits = true;
+                if (fraction) {
+                    scale++;
+                }
+                if (mantissa >= MAX_EXACT_MANTISSA || scale >= POWERS_OF_TEN.length) {
+                    return Double.parseDouble(new String(chars, offset, length));
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else {
+                return Double.parseDouble(new String(chars, offset, length));
+            }
+        }
+        if (!digits) {
+            return Double.parseDouble(new String(chars, offset, length));
+        }
+        double value = scale == 0 ? mantissa : mantissa / POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Reads the leading {@code yyyy-MM-dd} of {@code dt_txt} into {@link #epochDay}.
+     */
+    private boolean parseEpochDay(char[] chars, int offset, int length) {
+        if (length < 10 || chars[offset + 4] != '-' || chars[offset + 7] != '-'
+                || (length > 10 && chars[offset + 10] != ' ')) {
+            return false;
+        }
+        int year = digits(chars, offset, 4);
+        int month = digits(chars, offset + 5, 2);
+        int day = digits(chars, offset + 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+            return false;
+        }
+        epochDay = epochDay(year, month, day);
+        return true;
+    }
+
+    private static int digits(char[] chars, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            char c = chars[i];
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Days since 1970-01-01 for a proleptic Gregorian date, same result as {@code LocalDate.toEpochDay()}.
+     */
+    static int epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - 719_468;
+    }
+}
@@ -0,0 +1,17 @@
+package com.dushmantha.weather_analyzer.forecast;
+
+/**
+ * Receives the fields of a forecast payload that the application reads, in document order.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public interface ForecastSink {
+
+    void city(String name);
+
+    /**
+     * One 3-hour forecast slot. {@code epochDay} is the date part of {@code dt_txt}, or the UTC day of {@code dt}
+     * when the payload has no usable {@code dt_txt}.
+     */
+    void slot(long epochSecond, double temp, double tempMin, double tempMax, int epochDay);
+}
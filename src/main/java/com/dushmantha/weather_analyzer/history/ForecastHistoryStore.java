@@ -0,0 +1,525 @@
+package com.dushmantha.weather_analyzer.history;
+
+import com.dushmantha.weather_analyzer.forecast.ForecastColumns;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only history of every forecast fetched from the upstream API, for range queries over months of snapshots
+ * without holding them on the heap.
+ * <p>
+ * Each snapshot is first appended to {@code active.log}, a write-ahead log of compact binary records
+ * <pre>
+ *   int bodyLength | int crc32(body) | int city | long fetchedSecond | short slots |
+ *   slots * (int leadSeconds | short temp | short tempMin | short tempMax)
+ * </pre>
+ * and to an in-memory columnar buffer. Once the buffer reaches {@code segment-rows} rows or is older than
+ * {@code segment-duration} it is sorted and sealed into an immutable {@link HistorySegment} file. City keys are
+ * mapped to dense ids through {@code cities.txt}, one key per line. A range query scans the memory-mapped segments
+ * in parallel on a dedicated fork-join pool and merges their partial aggregates with the active buffer's.
+ * A periodic compaction deletes segments past the retention period, drops expired rows from the one straddling it
+ * and merges runs of small adjacent segments, as time-based sealing produces one per quiet day.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+@Component
+@ConditionalOnProperty(name = "weather.history.enabled", havingValue = "true")
+@Slf4j
+public class ForecastHistoryStore implements DisposableBean {
+
+    private static final int WAL_MAGIC = 0x57534857;
+    private static final int WAL_HEADER_BYTES = 4 + 8;
+    private static final int RECORD_PREFIX_BYTES = 8;
+    private static final int RECORD_HEADER_BYTES = 4 + 8 + 2;
+    private static final int WAL_SLOT_BYTES = 4 + 2 + 2 + 2;
+    private static final double SCALE = 100.0;
+
+    private final Path directory;
+    private final int segmentRows;
+    private final long segmentDurationMillis;
+    private final long retentionMillis;
+    private final Executor executor;
+    private final ForkJoinPool pool;
+    private final Timer queries;
+    private final Counter droppedAppends;
+    private final Object compactionLock = new Object();
+
+    // guarded by this
+    private final Map<String, Integer> cityIds = new HashMap<>();
+    private final FileChannel dictionary;
+    private final HistoryRows active;
+    private FileChannel wal;
+    private long walGeneration;
+    private long walSize;
+    private long activeSinceMillis = -1;
+    private long nextSequence;
+
+    private volatile List<HistorySegment> segments;
+
+    public ForecastHistoryStore(@Value("${weather.history.path:./data/history}") Path directory,
+                                @Value("${weather.history.segment-rows:500000}") int segmentRows,
+                                @Value("${weather.history.segment-duration:1d}") Duration segmentDuration,
+                                @Value("${weather.history.retention:400d}") Duration retention,
+                                @Value("${weather.history.parallelism:0}") int parallelism,
+                                @Qualifier("taskExecutor") Executor executor,
+                                MeterRegistry meterRegistry) {
+        if (segmentRows <= 0) {
+            throw new IllegalArgumentException("weather.history.segment-rows must be positive");
+        }
+        this.directory = directory;
+        this.segmentRows = segmentRows;
+        this.segmentDurationMillis = segmentDuration.toMillis();
+        this.retentionMillis = retention.toMillis();
+        this.executor = executor;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.active = new HistoryRows(Math.min(segmentRows, 4096));
+        try {
+            Files.createDirectories(directory);
+            this.dictionary = openDictionary();
+            this.segments = openSegments();
+            openWal();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open forecast history in " + directory, e);
+        }
+
+        this.queries = Timer.builder("weather.history.queries")
+                .description("Forecast history range queries")
+                .register(meterRegistry);
+        this.droppedAppends = Counter.builder("weather.history.dropped")
+                .description("Snapshots dropped because the task executor was saturated")
+                .register(meterRegistry);
+        Gauge.builder("weather.history.segments", this, store -> store.segments.size())
+                .description("Sealed forecast history segments")
+                .register(meterRegistry);
+        Gauge.builder("weather.history.rows", this, ForecastHistoryStore::rows)
+                .description("Forecast slots kept in the history, sealed and active")
+                .register(meterRegistry);
+        Gauge.builder("weather.history.bytes", this, store -> store.segments.stream()
+                        .mapToLong(HistorySegment::sizeInBytes).sum())
+                .description("Size of the sealed forecast history segments")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        log.info("Opened forecast history in {} with {} segments and {} active rows",
+                directory, segments.size(), active.size);
+    }
+
+    /**
+     * Appends the forecast fetched for {@code key} in the background; the caller never waits on disk and never sees
+     * a failure. A snapshot the saturated executor rejects is dropped and counted.
+     */
+    public void append(String key, ForecastColumns forecast, long fetchedAtMillis) {
+        try {
+            executor.execute(() -> {
+                try {
+                    write(key, forecast, fetchedAtMillis);
+                } catch (RuntimeException e) {
+                    log.warn("Unable to append forecast for {} to history", key, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            droppedAppends.increment();
+            log.debug("Dropped history snapshot of {}, task executor is saturated", key);
+        }
+    }
+
+    /**
+     * Aggregates the snapshots of {@code key} fetched within {@code [fromMillis, toMillis)}, split into {@code days}
+     * daily buckets from {@code fromMillis} when positive. Runs on the history's own pool.
+     */
+    public CompletableFuture<HistoryAggregate> query(String key, long fromMillis, long toMillis, int days) {
+        long fromSecond = Math.floorDiv(fromMillis, 1000);
+        long toSecond = Math.floorDiv(toMillis, 1000);
+        HistoryAggregate empty = new HistoryAggregate(fromSecond, days);
+        Integer city;
+        synchronized (this) {
+            city = cityIds.get(key);
+        }
+        if (city == null) {
+            return CompletableFuture.completedFuture(empty);
+        }
+        List<HistorySegment> overlapping = segments.stream()
+                .filter(segment -> segment.minFetchedSecond < toSecond && segment.maxFetchedSecond >= fromSecond)
+                .toList();
+        long startNanos = System.nanoTime();
+        return CompletableFuture.supplyAsync(() -> {
+            HistoryAggregate result = new SegmentScan(overlapping, 0, overlapping.size(), city, fromSecond, toSecond,
+                    empty).invoke();
+            synchronized (this) {
+                active.scan(city, fromSecond, toSecond, result);
+            }
+            return result;
+        }, pool).whenComplete((result, error) -> queries.record(Duration.ofNanos(System.nanoTime() - startNanos)));
+    }
+
+    @Scheduled(fixedDelayString = "${weather.history.compaction-interval:1h}",
+            initialDelayString = "${weather.history.compaction-interval:1h}")
+    public void maintain() {
+        maintain(System.currentTimeMillis());
+    }
+
+    void maintain(long nowMillis) {
+        synchronized (this) {
+            if (activeSinceMillis >= 0 && nowMillis - activeSinceMillis >= segmentDurationMillis) {
+                seal();
+            }
+        }
+        compact(nowMillis);
+    }
+
+    synchronized void seal() {
+        if (active.size == 0) {
+            return;
+        }
+        HistorySegment segment = HistorySegment.write(directory, nextSequence++, active.sorted(), walGeneration,
+                new long[0]);
+        List<HistorySegment> next = new ArrayList<>(segments);
+        next.add(segment);
+        segments = List.copyOf(next);
+        active.clear();
+        activeSinceMillis = -1;
+        try {
+            resetWal(walGeneration + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to reset forecast history log", e);
+        }
+        log.debug("Sealed forecast history segment {} with {} rows", segment.path, segment.rows);
+    }
+
+    /**
+     * Deletes segments past the retention period and rewrites runs of adjacent segments that fit in one, dropping
+     * expired rows on the way.
+     */
+    void compact(long nowMillis) {
+        long cutoffSecond = Math.floorDiv(nowMillis - retentionMillis, 1000);
+        synchronized (compactionLock) {
+            List<HistorySegment> ordered = segments.stream()
+                    .sorted(Comparator.comparingLong((HistorySegment segment) -> segment.minFetchedSecond)
+                            .thenComparingLong(segment -> segment.sequence))
+                    .toList();
+            List<HistorySegment> group = new ArrayList<>();
+            long groupRows = 0;
+            for (HistorySegment segment : ordered) {
+                if (segment.maxFetchedSecond < cutoffSecond) {
+                    replace(List.of(segment), null);
+                    continue;
+                }
+                if (groupRows + segment.rows > segmentRows) {
+                    merge(group, cutoffSecond);
+                    group.clear();
+                    groupRows = 0;
+                }
+                group.add(segment);
+                groupRows += segment.rows;
+            }
+            merge(group, cutoffSecond);
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        pool.shutdown();
+        synchronized (this) {
+            wal.force(true);
+            wal.close();
+            dictionary.close();
+        }
+    }
+
+    private void merge(List<HistorySegment> group, long cutoffSecond) {
+        boolean expiredRows = group.stream().anyMatch(segment -> segment.minFetchedSecond < cutoffSecond);
+        if (group.isEmpty() || (group.size() == 1 && !expiredRows)) {
+            return;
+        }
+        HistoryRows rows = new HistoryRows(group.stream().mapToInt(segment -> segment.rows).sum());
+        for (HistorySegment segment : group) {
+            segment.copyTo(rows, cutoffSecond);
+        }
+        HistorySegment merged = null;
+        if (rows.size > 0) {
+            long[] sources = group.stream().mapToLong(segment -> segment.sequence).toArray();
+            long sourceWal = group.stream().mapToLong(segment -> segment.sourceWal).max().orElse(-1);
+            merged = HistorySegment.write(directory, sequence(), rows.sorted(), sourceWal, sources);
+        }
+        replace(group, merged);
+        log.debug("Compacted {} forecast history segments into {} rows", group.size(), rows.size);
+    }
+
+    private void replace(List<HistorySegment> removed, HistorySegment added) {
+        synchronized (this) {
+            List<HistorySegment> next = new ArrayList<>(segments);
+            next.removeAll(removed);
+            if (added != null) {
+                next.add(added);
+            }
+            segments = List.copyOf(next);
+        }
+        for (HistorySegment segment : removed) {
+            delete(segment.path);
+        }
+    }
+
+    private synchronized long sequence() {
+        return nextSequence++;
+    }
+
+    private synchronized long rows() {
+        return segments.stream().mapToLong(segment -> segment.rows).sum() + active.size;
+    }
+
+    private synchronized void write(String key, ForecastColumns forecast, long fetchedAtMillis) {
+        int city = cityId(key);
+        long fetchedSecond = Math.floorDiv(fetchedAtMillis, 1000);
+        int slots = forecast.size();
+        int bodyLength = RECORD_HEADER_BYTES + slots * WAL_SLOT_BYTES;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_PREFIX_BYTES + bodyLength);
+        record.putInt(bodyLength).putInt(0).putInt(city).putLong(fetchedSecond).putShort((short) slots);
+        for (int i = 0; i < slots; i++) {
+            int lead = (int) Math.clamp(forecast.epochSecond(i) - fetchedSecond, Integer.MIN_VALUE,
+                    Integer.MAX_VALUE);
+            short temp = quantize(forecast.temp(i));
+            short tempMin = quantize(forecast.tempMin(i));
+            short tempMax = quantize(forecast.tempMax(i));
+            record.putInt(lead).putShort(temp).putShort(tempMin).putShort(tempMax);
+            active.add(city, fetchedSecond, lead, temp, tempMin, tempMax);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), RECORD_PREFIX_BYTES, bodyLength);
+        record.putInt(4, (int) crc.getValue()).flip();
+        try {
+            while (record.hasRemaining()) {
+                wal.write(record, walSize + record.position());
+            }
+            walSize += record.limit();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (activeSinceMillis < 0) {
+            activeSinceMillis = fetchedAtMillis;
+        }
+        if (active.size >= segmentRows) {
+            seal();
+        }
+    }
+
+    private int cityId(String key) {
+        Integer id = cityIds.get(key);
+        if (id != null) {
+            return id;
+        }
+        try {
+            // the id must be durable before any log record refers to it
+            dictionary.write(ByteBuffer.wrap((key + "\n").getBytes(StandardCharsets.UTF_8)), dictionary.size());
+            dictionary.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        id = cityIds.size();
+        cityIds.put(key, id);
+        return id;
+    }
+
+    private FileChannel openDictionary() throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve("cities.txt"), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        byte[] bytes = new byte[Math.toIntExact(channel.size())];
+        channel.read(ByteBuffer.wrap(bytes), 0);
+        int complete = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '\n') {
+                cityIds.put(new String(bytes, complete, i - complete, StandardCharsets.UTF_8), cityIds.size());
+                complete = i + 1;
+            }
+        }
+        if (complete < bytes.length) {
+            channel.truncate(complete);
+        }
+        return channel;
+    }
+
+    private List<HistorySegment> openSegments() throws IOException {
+        List<HistorySegment> opened = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    delete(file);
+                } else if (name.startsWith("segment-") && name.endsWith(HistorySegment.SUFFIX)) {
+                    try {
+                        opened.add(HistorySegment.open(file));
+                    } catch (RuntimeException e) {
+                        log.warn("Skipping unreadable forecast history segment {}", file, e);
+                    }
+                }
+            }
+        }
+        // a compaction interrupted after its output was moved into place still has its sources on disk
+        Set<Long> replaced = new HashSet<>();
+        opened.forEach(segment -> {
+            for (long source : segment.sources) {
+                replaced.add(source);
+            }
+        });
+        List<HistorySegment> live = new ArrayList<>();
+        for (HistorySegment segment : opened) {
+            if (replaced.contains(segment.sequence)) {
+                delete(segment.path);
+            } else {
+                live.add(segment);
+            }
+            nextSequence = Math.max(nextSequence, segment.sequence + 1);
+        }
+        return List.copyOf(live);
+    }
+
+    private void openWal() throws IOException {
+        Path path = directory.resolve("active.log");
+        wal = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = wal.size();
+        long newestSealed = segments.stream().mapToLong(segment -> segment.sourceWal).max().orElse(-1);
+        MappedByteBuffer buffer = wal.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        if (size < WAL_HEADER_BYTES || buffer.getInt(0) != WAL_MAGIC) {
+            if (size > 0) {
+                log.warn("Forecast history log {} has an unknown format, starting empty", path);
+            }
+            resetWal(newestSealed + 1);
+            return;
+        }
+        walGeneration = buffer.getLong(4);
+        if (walGeneration <= newestSealed) {
+            // sealed just before a crash, the log was not reset yet
+            resetWal(newestSealed + 1);
+            return;
+        }
+        long position = replay(buffer, size);
+        if (position < size) {
+            log.warn("Truncating {} bytes of incomplete records from forecast history log", size - position);
+            wal.truncate(position);
+        }
+        walSize = position;
+    }
+
+    private long replay(MappedByteBuffer buffer, long size) {
+        int position = WAL_HEADER_BYTES;
+        CRC32 crc = new CRC32();
+        while (position + RECORD_PREFIX_BYTES <= size) {
+            int length = buffer.getInt(position);
+            if (length < RECORD_HEADER_BYTES || position + RECORD_PREFIX_BYTES + (long) length > size) {
+                break;
+            }
+            int body = position + RECORD_PREFIX_BYTES;
+            crc.reset();
+            crc.update(buffer.slice(body, length));
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                break;
+            }
+            int city = buffer.getInt(body);
+            long fetchedSecond = buffer.getLong(body + 4);
+            int slots = buffer.getShort(body + 12);
+            for (int i = 0, cursor = body + RECORD_HEADER_BYTES; i < slots; i++, cursor += WAL_SLOT_BYTES) {
+                active.add(city, fetchedSecond, buffer.getInt(cursor), buffer.getShort(cursor + 4),
+                        buffer.getShort(cursor + 6), buffer.getShort(cursor + 8));
+            }
+            if (activeSinceMillis < 0) {
+                activeSinceMillis = fetchedSecond * 1000;
+            }
+            position = body + length;
+        }
+        return position;
+    }
+
+    private void resetWal(long generation) throws IOException {
+        wal.truncate(0);
+        wal.write(ByteBuffer.allocate(WAL_HEADER_BYTES).putInt(WAL_MAGIC).putLong(generation).flip(), 0);
+        wal.force(true);
+        walGeneration = generation;
+        walSize = WAL_HEADER_BYTES;
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Unable to delete forecast history file {}", file, e);
+        }
+    }
+
+    private static short quantize(double value) {
+        return (short) Math.clamp(Math.round(value * SCALE), Short.MIN_VALUE, Short.MAX_VALUE);
+    }
+
+    /**
+     * Splits the segment list in halves until one segment is left, scanning each on its own fork-join worker.
+     */
+    private static final class SegmentScan extends RecursiveTask<HistoryAggregate> {
+
+        private final List<HistorySegment> segments;
+        private final int from;
+        private final int to;
+        private final int city;
+        private final long fromSecond;
+        private final long toSecond;
+        private final HistoryAggregate template;
+
+        private SegmentScan(List<HistorySegment> segments, int from, int to, int city, long fromSecond,
+                            long toSecond, HistoryAggregate template) {
+            this.segments = segments;
+            this.from = from;
+            this.to = to;
+            this.city = city;
+            this.fromSecond = fromSecond;
+            this.toSecond = toSecond;
+            this.template = template;
+        }
+
+        @Override
+        protected HistoryAggregate compute() {
+            if (to - from <= 1) {
+                HistoryAggregate aggregate = template.emptyCopy();
+                if (to > from) {
+                    segments.get(from).scan(city, fromSecond, toSecond, aggregate);
+                }
+                return aggregate;
+            }
+            int middle = (from + to) >>> 1;
+            SegmentScan left = new SegmentScan(segments, from, middle, city, fromSecond, toSecond, template);
+            left.fork();
+            HistoryAggregate right = new SegmentScan(segments, middle, to, city, fromSecond, toSecond, template)
+                    .compute();
+            return right.merge(left.join());
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.dushmantha.weather_analyzer.history;
+
+import java.util.Arrays;
+
+/**
+ * Running totals of a history range query. Temperatures stay in the stored hundredths of a degree until read, so
+ * partial results from different segments merge exactly regardless of the order they finish in.
+ * With {@code days > 0} the totals are also kept per UTC day of the fetch time, counted from {@code fromSecond}.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public final class HistoryAggregate {
+
+    private static final int SECONDS_PER_DAY = 86_400;
+    private static final double SCALE = 100.0;
+
+    private final long fromSecond;
+    private final int days;
+    private long snapshots;
+    private long slots;
+    private long tempSum;
+    private int tempMin = Integer.MAX_VALUE;
+    private int tempMax = Integer.MIN_VALUE;
+    private final long[] daySnapshots;
+    private final long[] daySlots;
+    private final long[] dayTempSums;
+    private final int[] dayTempMins;
+    private final int[] dayTempMaxes;
+
+    HistoryAggregate(long fromSecond, int days) {
+        this.fromSecond = fromSecond;
+        this.days = days;
+        this.daySnapshots = new long[days];
+        this.daySlots = new long[days];
+        this.dayTempSums = new long[days];
+        this.dayTempMins = new int[days];
+        this.dayTempMaxes = new int[days];
+        Arrays.fill(dayTempMins, Integer.MAX_VALUE);
+        Arrays.fill(dayTempMaxes, Integer.MIN_VALUE);
+    }
+
+    void add(long fetchedSecond, boolean firstSlot, short temp, short min, short max) {
+        if (firstSlot) {
+            snapshots++;
+        }
+        slots++;
+        tempSum += temp;
+        tempMin = Math.min(tempMin, min);
+        tempMax = Math.max(tempMax, max);
+
+        int day = (int) Math.floorDiv(fetchedSecond - fromSecond, SECONDS_PER_DAY);
+        if (day >= 0 && day < days) {
+            if (firstSlot) {
+                daySnapshots[day]++;
+            }
+            daySlots[day]++;
+            dayTempSums[day] += temp;
+            dayTempMins[day] = Math.min(dayTempMins[day], min);
+            dayTempMaxes[day] = Math.max(dayTempMaxes[day], max);
+        }
+    }
+
+    HistoryAggregate merge(HistoryAggregate other) {
+        snapshots += other.snapshots;
+        slots += other.slots;
+        tempSum += other.tempSum;
+        tempMin = Math.min(tempMin, other.tempMin);
+        tempMax = Math.max(tempMax, other.tempMax);
+        for (int day = 0; day < days; day++) {
+            daySnapshots[day] += other.daySnapshots[day];
+            daySlots[day] += other.daySlots[day];
+            dayTempSums[day] += other.dayTempSums[day];
+            dayTempMins[day] = Math.min(dayTempMins[day], other.dayTempMins[day]);
+            dayTempMaxes[day] = Math.max(dayTempMaxes[day], other.dayTempMaxes[day]);
+        }
+        return this;
+    }
+
+    HistoryAggregate emptyCopy() {
+        return new HistoryAggregate(fromSecond, days);
+    }
+
+    public int days() {
+        return days;
+    }
+
+    public long snapshots() {
+        return snapshots;
+    }
+
+    public long slots() {
+        return slots;
+    }
+
+    /**
+     * Mean forecast temperature over every matching slot, or {@code null} when nothing matched.
+     */
+    public Double averageTemperature() {
+        return slots == 0 ? null : round(tempSum / SCALE / slots);
+    }
+
+    public Double minTemperature() {
+        return slots == 0 ? null : tempMin / SCALE;
+    }
+
+    public Double maxTemperature() {
+        return slots == 0 ? null : tempMax / SCALE;
+    }
+
+    public long snapshots(int day) {
+        return daySnapshots[day];
+    }
+
+    public Double averageTemperature(int day) {
+        return daySlots[day] == 0 ? null : round(dayTempSums[day] / SCALE / daySlots[day]);
+    }
+
+    public Double minTemperature(int day) {
+        return daySlots[day] == 0 ? null : dayTempMins[day] / SCALE;
+    }
+
+    public Double maxTemperature(int day) {
+        return daySlots[day] == 0 ? null : dayTempMaxes[day] / SCALE;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+}
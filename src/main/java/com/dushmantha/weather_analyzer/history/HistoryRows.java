@@ -0,0 +1,110 @@
+package com.dushmantha.weather_analyzer.history;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Growable columnar buffer of forecast history rows, one row per forecast slot of a snapshot. Used for the active,
+ * not yet sealed rows and to merge segments during compaction, so it never holds more than one segment's rows.
+ * Rows of one snapshot are always contiguous.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+final class HistoryRows {
+
+    int size;
+    int[] cities;
+    long[] fetchedSeconds;
+    int[] leadSeconds;
+    short[] temps;
+    short[] tempMins;
+    short[] tempMaxes;
+
+    HistoryRows(int capacity) {
+        cities = new int[capacity];
+        fetchedSeconds = new long[capacity];
+        leadSeconds = new int[capacity];
+        temps = new short[capacity];
+        tempMins = new short[capacity];
+        tempMaxes = new short[capacity];
+    }
+
+    void add(int city, long fetchedSecond, int leadSecond, short temp, short tempMin, short tempMax) {
+        if (size == cities.length) {
+            grow(Math.max(16, size * 2));
+        }
+        cities[size] = city;
+        fetchedSeconds[size] = fetchedSecond;
+        leadSeconds[size] = leadSecond;
+        temps[size] = temp;
+        tempMins[size] = tempMin;
+        tempMaxes[size] = tempMax;
+        size++;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    long minFetchedSecond() {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            min = Math.min(min, fetchedSeconds[i]);
+        }
+        return min;
+    }
+
+    long maxFetchedSecond() {
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, fetchedSeconds[i]);
+        }
+        return max;
+    }
+
+    /**
+     * Rows reordered by city, then fetch time, keeping each snapshot's slots together and in order. Only snapshot
+     * starts are sorted, not individual rows.
+     */
+    HistoryRows sorted() {
+        int[] starts = IntStream.range(0, size)
+                .filter(i -> i == 0 || cities[i] != cities[i - 1] || fetchedSeconds[i] != fetchedSeconds[i - 1])
+                .toArray();
+        Integer[] order = new Integer[starts.length];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, Comparator.<Integer>comparingInt(i -> cities[starts[i]])
+                .thenComparingLong(i -> fetchedSeconds[starts[i]]));
+
+        HistoryRows sorted = new HistoryRows(size);
+        for (int snapshot : order) {
+            int end = snapshot + 1 < starts.length ? starts[snapshot + 1] : size;
+            for (int i = starts[snapshot]; i < end; i++) {
+                sorted.add(cities[i], fetchedSeconds[i], leadSeconds[i], temps[i], tempMins[i], tempMaxes[i]);
+            }
+        }
+        return sorted;
+    }
+
+    /**
+     * Adds the rows of {@code city} fetched within {@code [fromSecond, toSecond)}; the buffer need not be sorted.
+     */
+    void scan(int city, long fromSecond, long toSecond, HistoryAggregate aggregate) {
+        for (int i = 0; i < size; i++) {
+            if (cities[i] != city || fetchedSeconds[i] < fromSecond || fetchedSeconds[i] >= toSecond) {
+                continue;
+            }
+            boolean first = i == 0 || cities[i - 1] != city || fetchedSeconds[i - 1] != fetchedSeconds[i];
+            aggregate.add(fetchedSeconds[i], first, temps[i], tempMins[i], tempMaxes[i]);
+        }
+    }
+
+    private void grow(int capacity) {
+        cities = Arrays.copyOf(cities, capacity);
+        fetchedSeconds = Arrays.copyOf(fetchedSeconds, capacity);
+        leadSeconds = Arrays.copyOf(leadSeconds, capacity);
+        temps = Arrays.copyOf(temps, capacity);
+        tempMins = Arrays.copyOf(tempMins, capacity);
+        tempMaxes = Arrays.copyOf(tempMaxes, capacity);
+    }
+}
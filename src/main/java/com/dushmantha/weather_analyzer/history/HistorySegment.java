@@ -0,0 +1,215 @@
+package com.dushmantha.weather_analyzer.history;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One immutable, sorted segment file of the forecast history, read through a read-only memory mapping so queries
+ * touch only the pages of the cities and time ranges they ask for.
+ * <pre>
+ *   int magic | int rows | long minFetchedSecond | long maxFetchedSecond | long sourceWal |
+ *   int sourceCount | sourceCount * long sourceSequence |
+ *   rows * int city | rows * int fetchedOffset | rows * int leadSeconds |
+ *   rows * short temp | rows * short tempMin | rows * short tempMax
+ * </pre>
+ * Rows are sorted by city id, then fetch time, so a city is located by binary search on the first column and a time
+ * range by binary search on the second. Fetch times are stored as unsigned seconds after {@code minFetchedSecond},
+ * temperatures in hundredths of a degree.
+ * {@code sourceWal} is the newest generation of the active log whose rows the segment holds, so a log sealed just
+ * before a crash is not replayed twice. A compacted segment also lists the segments it replaces, so a crash halfway
+ * through compaction can be finished on startup.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+final class HistorySegment {
+
+    static final int MAGIC = 0x57534831;
+    static final int ROW_BYTES = 4 + 4 + 4 + 2 + 2 + 2;
+    static final String SUFFIX = ".seg";
+
+    private static final int FIXED_HEADER_BYTES = 4 + 4 + 8 + 8 + 8 + 4;
+
+    final long sequence;
+    final Path path;
+    final int rows;
+    final long minFetchedSecond;
+    final long maxFetchedSecond;
+    final long sourceWal;
+    final long[] sources;
+    private final MappedByteBuffer buffer;
+    private final int cityColumn;
+    private final int fetchedColumn;
+    private final int leadColumn;
+    private final int tempColumn;
+    private final int tempMinColumn;
+    private final int tempMaxColumn;
+
+    private HistorySegment(long sequence, Path path, MappedByteBuffer buffer) {
+        this.sequence = sequence;
+        this.path = path;
+        this.buffer = buffer;
+        if (buffer.capacity() < FIXED_HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalStateException("Not a forecast history segment: " + path);
+        }
+        this.rows = buffer.getInt(4);
+        this.minFetchedSecond = buffer.getLong(8);
+        this.maxFetchedSecond = buffer.getLong(16);
+        this.sourceWal = buffer.getLong(24);
+        this.sources = new long[buffer.getInt(32)];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = buffer.getLong(FIXED_HEADER_BYTES + i * 8);
+        }
+        this.cityColumn = FIXED_HEADER_BYTES + sources.length * 8;
+        this.fetchedColumn = cityColumn + rows * 4;
+        this.leadColumn = fetchedColumn + rows * 4;
+        this.tempColumn = leadColumn + rows * 4;
+        this.tempMinColumn = tempColumn + rows * 2;
+        this.tempMaxColumn = tempMinColumn + rows * 2;
+        if (buffer.capacity() != tempMaxColumn + rows * 2) {
+            throw new IllegalStateException("Truncated forecast history segment: " + path);
+        }
+    }
+
+    static Path path(Path directory, long sequence) {
+        return directory.resolve("segment-%012d%s".formatted(sequence, SUFFIX));
+    }
+
+    static HistorySegment open(Path path) {
+        String name = path.getFileName().toString();
+        long sequence = Long.parseLong(name.substring("segment-".length(), name.length() - SUFFIX.length()));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new HistorySegment(sequence, path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open forecast history segment " + path, e);
+        }
+    }
+
+    /**
+     * Writes {@code sorted} to a temporary file, forces it and moves it into place, so a segment is either complete
+     * or absent.
+     */
+    static HistorySegment write(Path directory, long sequence, HistoryRows sorted, long sourceWal, long[] sources) {
+        Path target = path(directory, sequence);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        int rows = sorted.size;
+        long min = sorted.minFetchedSecond();
+        long size = FIXED_HEADER_BYTES + sources.length * 8L + (long) rows * ROW_BYTES;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Forecast history segment too large: " + rows + " rows");
+        }
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.putInt(MAGIC).putInt(rows).putLong(min).putLong(sorted.maxFetchedSecond())
+                    .putLong(sourceWal).putInt(sources.length);
+            for (long source : sources) {
+                out.putLong(source);
+            }
+            for (int i = 0; i < rows; i++) {
+                out.putInt(sorted.cities[i]);
+            }
+            for (int i = 0; i < rows; i++) {
+                out.putInt((int) (sorted.fetchedSeconds[i] - min));
+            }
+            for (int i = 0; i < rows; i++) {
+                out.putInt(sorted.leadSeconds[i]);
+            }
+            for (int i = 0; i < rows; i++) {
+                out.putShort(sorted.temps[i]);
+            }
+            for (int i = 0; i < rows; i++) {
+                out.putShort(sorted.tempMins[i]);
+            }
+            for (int i = 0; i < rows; i++) {
+                out.putShort(sorted.tempMaxes[i]);
+            }
+            out.force();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write forecast history segment " + target, e);
+        }
+        try {
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to move forecast history segment into place " + target, e);
+        }
+        return open(target);
+    }
+
+    long sizeInBytes() {
+        return buffer.capacity();
+    }
+
+    int city(int row) {
+        return buffer.getInt(cityColumn + row * 4);
+    }
+
+    long fetchedSecond(int row) {
+        return minFetchedSecond + Integer.toUnsignedLong(buffer.getInt(fetchedColumn + row * 4));
+    }
+
+    /**
+     * Adds the rows of {@code city} fetched within {@code [fromSecond, toSecond)} to {@code aggregate}.
+     */
+    void scan(int city, long fromSecond, long toSecond, HistoryAggregate aggregate) {
+        if (rows == 0 || toSecond <= minFetchedSecond || fromSecond > maxFetchedSecond) {
+            return;
+        }
+        int cityStart = lowerBoundCity(city);
+        int cityEnd = lowerBoundCity(city + 1);
+        int start = lowerBoundFetched(cityStart, cityEnd, fromSecond);
+        int end = lowerBoundFetched(start, cityEnd, toSecond);
+        long previous = Long.MIN_VALUE;
+        for (int row = start; row < end; row++) {
+            long fetched = fetchedSecond(row);
+            aggregate.add(fetched, fetched != previous, buffer.getShort(tempColumn + row * 2),
+                    buffer.getShort(tempMinColumn + row * 2), buffer.getShort(tempMaxColumn + row * 2));
+            previous = fetched;
+        }
+    }
+
+    /**
+     * Copies the rows fetched at or after {@code cutoffSecond} into {@code target}, in segment order.
+     */
+    void copyTo(HistoryRows target, long cutoffSecond) {
+        for (int row = 0; row < rows; row++) {
+            long fetched = fetchedSecond(row);
+            if (fetched >= cutoffSecond) {
+                target.add(city(row), fetched, buffer.getInt(leadColumn + row * 4),
+                        buffer.getShort(tempColumn + row * 2), buffer.getShort(tempMinColumn + row * 2),
+                        buffer.getShort(tempMaxColumn + row * 2));
+            }
+        }
+    }
+
+    private int lowerBoundCity(int city) {
+        int low = 0;
+        int high = rows;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (city(mid) < city) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int lowerBoundFetched(int low, int high, long second) {
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (fetchedSecond(mid) < second) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
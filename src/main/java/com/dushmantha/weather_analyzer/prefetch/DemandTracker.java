@@ -0,0 +1,80 @@
+package com.dushmantha.weather_analyzer.prefetch;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks which cities are asked for most. Every answered request is counted in a {@link FrequencySketch}; a city
+ * becomes a candidate once its estimate reaches that of the least popular hot city, and at least
+ * {@link #MIN_ADMISSION}, so a city asked for once is never kept warm however small the hot set is.
+ * {@link #hotCities()} ranks the candidates and keeps the top {@code top-n}. Recording a request is a few counter increments and, for popular
+ * cities only, a map write, so it stays on the request path. {@code top-n} entries should fit well
+ * within {@code weather.cache.maximum-weight}, or keeping the hot set warm evicts part of it.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+@Component
+public class DemandTracker {
+
+    static final int MIN_ADMISSION = 2;
+
+    private final int topN;
+    private final FrequencySketch sketch;
+    private final Map<String, Boolean> candidates = new ConcurrentHashMap<>();
+    private volatile int admissionThreshold = MIN_ADMISSION;
+
+    public DemandTracker(@Value("${weather.prefetch.top-n:80}") int topN, MeterRegistry meterRegistry) {
+        this.topN = topN;
+        this.sketch = new FrequencySketch(topN * 16);
+
+        Gauge.builder("weather.prefetch.candidates", candidates, Map::size)
+                .description("Cities being ranked for the hot set")
+                .register(meterRegistry);
+    }
+
+    public void record(String key) {
+        int estimate = sketch.increment(key);
+        if (estimate >= admissionThreshold && candidates.size() < 4 * topN) {
+            candidates.put(key, Boolean.TRUE);
+        }
+    }
+
+    public int estimate(String key) {
+        return sketch.estimate(key);
+    }
+
+    /**
+     * Re-ranks the candidates and returns the current top {@code top-n}, hottest first. Candidates that fall well
+     * out of the ranking are dropped so the candidate set stays bounded.
+     */
+    public synchronized List<String> hotCities() {
+        List<Map.Entry<String, Integer>> ranked = new ArrayList<>();
+        for (String key : candidates.keySet()) {
+            int estimate = sketch.estimate(key);
+            if (estimate == 0) {
+                // aged out of the sketch entirely
+                candidates.remove(key);
+            } else {
+                ranked.add(Map.entry(key, estimate));
+            }
+        }
+        ranked.sort(Map.Entry.comparingByValue(Comparator.reverseOrder()));
+        for (int i = 2 * topN; i < ranked.size(); i++) {
+            candidates.remove(ranked.get(i).getKey());
+        }
+
+        List<String> hot = ranked.stream().limit(topN).map(Map.Entry::getKey).toList();
+        admissionThreshold = hot.size() < topN
+                ? MIN_ADMISSION
+                : Math.max(MIN_ADMISSION, ranked.get(topN - 1).getValue());
+        return hot;
+    }
+}
@@ -0,0 +1,77 @@
+package com.dushmantha.weather_analyzer.prefetch;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count-min sketch of how often each key was seen, in a fixed {@code 4 x width} table of counters whatever the
+ * number of distinct keys. Estimates never undercount and overcount only on hash collisions. After
+ * {@code 10 x width} increments every counter is halved, so the sketch follows current demand rather than all time
+ * totals.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final long[] SEEDS = {0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L,
+            0xD6E8FEB86659FD93L};
+
+    private final AtomicIntegerArray table;
+    private final int mask;
+    private final long sampleSize;
+    private final LongAdder additions = new LongAdder();
+
+    public FrequencySketch(int expectedKeys) {
+        int width = Integer.highestOneBit(Math.max(64, expectedKeys * 4 - 1)) << 1;
+        this.table = new AtomicIntegerArray(DEPTH * width);
+        this.mask = width - 1;
+        this.sampleSize = 10L * width;
+    }
+
+    /**
+     * Counts one occurrence of {@code key} and returns its new estimate.
+     */
+    public int increment(String key) {
+        int hash = spread(key.hashCode());
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, table.incrementAndGet(index(hash, row)));
+        }
+        additions.increment();
+        if (additions.sum() >= sampleSize) {
+            reset();
+        }
+        return estimate;
+    }
+
+    public int estimate(String key) {
+        int hash = spread(key.hashCode());
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, table.get(index(hash, row)));
+        }
+        return estimate;
+    }
+
+    private synchronized void reset() {
+        if (additions.sum() < sampleSize) {
+            return;
+        }
+        for (int i = 0; i < table.length(); i++) {
+            table.set(i, table.get(i) >>> 1);
+        }
+        additions.reset();
+    }
+
+    private int index(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        return row * (mask + 1) + ((int) (h >>> 32) & mask);
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x45d9f3b;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,138 @@
+package com.dushmantha.weather_analyzer.prefetch;
+
+import com.dushmantha.weather_analyzer.cache.CachedSummary;
+import com.dushmantha.weather_analyzer.cache.WeatherCache;
+import com.dushmantha.weather_analyzer.service.WeatherService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the hot cities from {@link DemandTracker} in {@code weatherCache} so their requests never wait on upstream.
+ * Every {@code interval} each hot city that is missing, or whose soft TTL ends within {@code refresh-ahead}, is
+ * refreshed, hottest first. A per-city offset of up to {@code spread} staggers entries loaded together so they do not
+ * come due together, and no more than {@code budget-per-minute} refreshes are started, evenly per interval. Cities
+ * whose refresh failed are left alone for {@code failure-backoff}.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+@Component
+@ConditionalOnProperty(name = "weather.prefetch.enabled", havingValue = "true")
+@Slf4j
+public class Prefetcher {
+
+    private final DemandTracker demandTracker;
+    private final WeatherCache weatherCache;
+    private final WeatherService weatherService;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final Map<String, Long> retryAt = new ConcurrentHashMap<>();
+    private final AtomicInteger hotCities = new AtomicInteger();
+    private final Counter refreshed;
+    private final Counter failed;
+    private final Counter deferred;
+    private double budget;
+
+    @Value("${weather.prefetch.interval:5s}")
+    private Duration interval;
+
+    @Value("${weather.prefetch.refresh-ahead:2m}")
+    private Duration refreshAhead;
+
+    @Value("${weather.prefetch.spread:3m}")
+    private Duration spread;
+
+    @Value("${weather.prefetch.budget-per-minute:60}")
+    private int budgetPerMinute;
+
+    @Value("${weather.prefetch.failure-backoff:10m}")
+    private Duration failureBackoff;
+
+    public Prefetcher(DemandTracker demandTracker, WeatherCache weatherCache, WeatherService weatherService,
+                      MeterRegistry meterRegistry) {
+        this.demandTracker = demandTracker;
+        this.weatherCache = weatherCache;
+        this.weatherService = weatherService;
+
+        Gauge.builder("weather.prefetch.hot", hotCities, AtomicInteger::get)
+                .description("Cities currently kept warm")
+                .register(meterRegistry);
+        this.refreshed = Counter.builder("weather.prefetch.refreshes")
+                .description("Prefetch refreshes of hot cities")
+                .tag("result", "success")
+                .register(meterRegistry);
+        this.failed = Counter.builder("weather.prefetch.refreshes")
+                .description("Prefetch refreshes of hot cities")
+                .tag("result", "failure")
+                .register(meterRegistry);
+        this.deferred = Counter.builder("weather.prefetch.deferred")
+                .description("Due refreshes put off to a later interval by the upstream call budget")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${weather.prefetch.interval:5s}")
+    public void prefetch() {
+        List<String> hot = demandTracker.hotCities();
+        hotCities.set(hot.size());
+
+        double perInterval = Math.max(1.0, budgetPerMinute * interval.toMillis() / 60_000.0);
+        budget = Math.min(perInterval, budget + perInterval);
+
+        long now = System.currentTimeMillis();
+        for (String key : hot) {
+            if (!isDue(key, now)) {
+                continue;
+            }
+            if (budget < 1) {
+                deferred.increment();
+                continue;
+            }
+            budget--;
+            refresh(key);
+        }
+    }
+
+    private boolean isDue(String key, long now) {
+        if (inFlight.contains(key)) {
+            return false;
+        }
+        Long retry = retryAt.get(key);
+        if (retry != null && now < retry) {
+            return false;
+        }
+        CachedSummary entry = weatherCache.getIfPresent(key);
+        if (entry == null) {
+            return true;
+        }
+        long offset = spread.isZero() ? 0 : Math.floorMod(key.hashCode(), spread.toMillis());
+        return now >= entry.getStaleAtMillis() - refreshAhead.toMillis() - offset;
+    }
+
+    private void refresh(String key) {
+        inFlight.add(key);
+        weatherService.refreshWeatherSummary(key)
+                .doFinally(signal -> inFlight.remove(key))
+                .subscribe(
+                        entry -> {
+                            refreshed.increment();
+                            retryAt.remove(key);
+                            log.debug("Prefetched weather summary for city: {}", key);
+                        },
+                        e -> {
+                            failed.increment();
+                            retryAt.put(key, System.currentTimeMillis() + failureBackoff.toMillis());
+                            log.warn("Prefetch failed for city: {}", key);
+                        });
+    }
+}
@@ -0,0 +1,111 @@
+package com.dushmantha.weather_analyzer.reprocess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * A byte range of an input file holding whole payloads: a run of lines of an NDJSON file, cut after a newline, or
+ * the whole of a {@code .json} file holding one payload. NDJSON ranges are mapped into memory when processed, so
+ * they are read from the page cache without being copied onto the heap. A {@code .json} file is read into a reused
+ * heap buffer instead: a mapping lives until it is garbage collected, and one per small file of a large archive
+ * could exceed the process's limit on mappings ({@code vm.max_map_count}).
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public record InputSlice(Path file, long offset, long length, boolean lines) {
+
+    private static final int SCAN_BYTES = 64 * 1024;
+
+    /**
+     * The slices of {@code input}, in file and then offset order. NDJSON files are cut into slices of about
+     * {@code sliceBytes}, {@code .json} files are one slice each. A directory is read for files of both kinds, named
+     * {@code *.ndjson}, {@code *.jsonl} or {@code *.json}; a file given on its own is NDJSON unless named
+     * {@code *.json}.
+     */
+    public static List<InputSlice> of(Path input, long sliceBytes) throws IOException {
+        List<InputSlice> slices = new ArrayList<>();
+        if (!Files.isDirectory(input)) {
+            addFile(input, !input.toString().endsWith(".json"), sliceBytes, slices);
+            return slices;
+        }
+        try (Stream<Path> files = Files.list(input)) {
+            for (Path file : files.filter(Files::isRegularFile)
+                    .filter(file -> file.toString().endsWith(".json") || isNdjson(file))
+                    .sorted()
+                    .toList()) {
+                addFile(file, isNdjson(file), sliceBytes, slices);
+            }
+        }
+        return slices;
+    }
+
+    private static void addFile(Path file, boolean ndjson, long sliceBytes, List<InputSlice> slices)
+            throws IOException {
+        long size = Files.size(file);
+        if (!ndjson) {
+            slices.add(new InputSlice(file, 0, size, false));
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long start = 0;
+            while (start < size) {
+                long end = start + sliceBytes >= size ? size : nextLine(channel, start + sliceBytes, size);
+                slices.add(new InputSlice(file, start, end - start, true));
+                start = end;
+            }
+        }
+    }
+
+    /**
+     * The offset just after the first newline at or after {@code from}, or {@code size} if there is none.
+     */
+    private static long nextLine(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(SCAN_BYTES);
+        for (long position = from; position < size; position += window.limit()) {
+            window.clear();
+            channel.read(window, position);
+            window.flip();
+            for (int i = 0; i < window.limit(); i++) {
+                if (window.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+        }
+        return size;
+    }
+
+    private static boolean isNdjson(Path file) {
+        String name = file.getFileName().toString();
+        return name.endsWith(".ndjson") || name.endsWith(".jsonl");
+    }
+
+    /**
+     * The bytes of this slice, from position 0 to the limit: mapped read-only for lines, otherwise read into
+     * {@code buffer}, or into a new heap buffer when it is too small. The buffer is only overwritten by the next read.
+     */
+    ByteBuffer read(ByteBuffer buffer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (lines) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            }
+            int size = Math.toIntExact(length);
+            ByteBuffer target = buffer.capacity() >= size ? buffer.clear().limit(size) : ByteBuffer.allocate(size);
+            while (target.hasRemaining() && channel.read(target, offset + target.position()) >= 0) {
+                // a file that shrank since it was listed ends at its current size
+            }
+            return target.flip();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return file + "@" + offset;
+    }
+}
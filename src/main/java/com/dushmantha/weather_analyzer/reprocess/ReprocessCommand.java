@@ -0,0 +1,67 @@
+package com.dushmantha.weather_analyzer.reprocess;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Offline batch mode: recomputes the summaries of archived forecast payloads, the raw weather API responses, with
+ * the decoder and summary of a cache miss, without starting the application. Run from the application jar as
+ * <pre>
+ * java -jar weather-analyzer.jar reprocess --input=forecasts.ndjson --output=summaries
+ * </pre>
+ * See {@link ReprocessOptions} for the options. The input is cut into slices, processed by a {@link ForkJoinPool}
+ * of {@code --parallelism} workers and written as part files of one summary per line; part files of an earlier run
+ * in the output directory are removed first. Payloads that cannot be decoded are counted and skipped. A throughput
+ * report is printed at the end.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public final class ReprocessCommand {
+
+    public static final String NAME = "reprocess";
+
+    private ReprocessCommand() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        ReprocessOptions options;
+        try {
+            options = ReprocessOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: " + NAME + " --input=FILE|DIR --output=DIR [--parallelism=N] "
+                    + "[--slice-size=16MB]");
+            System.exit(2);
+            return;
+        }
+        long start = System.nanoTime();
+        ReprocessReport report = run(options, System.err);
+        report.print(System.out, Duration.ofNanos(System.nanoTime() - start), options.parallelism());
+    }
+
+    public static ReprocessReport run(ReprocessOptions options, PrintStream errors) throws IOException {
+        List<InputSlice> slices = InputSlice.of(options.input(), options.sliceBytes());
+        Files.createDirectories(options.output());
+        deleteParts(options.output());
+        try (ForkJoinPool pool = new ForkJoinPool(options.parallelism())) {
+            return pool.invoke(new ReprocessTask(slices, options.sliceBytes(), options.output(), errors));
+        }
+    }
+
+    private static void deleteParts(Path output) throws IOException {
+        try (Stream<Path> files = Files.list(output)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(ReprocessTask.PART_PREFIX) && name.endsWith(ReprocessTask.PART_SUFFIX)) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+}
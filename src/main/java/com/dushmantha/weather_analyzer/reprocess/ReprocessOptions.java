@@ -0,0 +1,63 @@
+package com.dushmantha.weather_analyzer.reprocess;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Command line options of {@link ReprocessCommand}, given as {@code --name=value}.
+ *
+ * <pre>
+ * --input=PATH          an NDJSON file of forecast payloads, one per line, or a directory of them and of .json
+ *                       files holding one payload each
+ * --output=DIR          directory the summary part files are written to, created if missing
+ * --parallelism=N       worker threads (default: all cores)
+ * --slice-size=16MB     input bytes per task: the unit of parallel work, of mapped memory and of one part file
+ * </pre>
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public record ReprocessOptions(Path input, Path output, int parallelism, long sliceBytes) {
+
+    private static final Set<String> NAMES = Set.of("input", "output", "parallelism", "slice-size");
+
+    public static ReprocessOptions parse(String... args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0 || !NAMES.contains(arg.substring(2, separator))) {
+                throw new IllegalArgumentException("Unknown option: " + arg + ", expected one of --" + NAMES);
+            }
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        if (!values.containsKey("input") || !values.containsKey("output")) {
+            throw new IllegalArgumentException("Both --input and --output are required");
+        }
+        int parallelism = Integer.parseInt(values.getOrDefault("parallelism",
+                Integer.toString(Runtime.getRuntime().availableProcessors())));
+        long sliceBytes = bytes(values.getOrDefault("slice-size", "16MB"));
+        if (parallelism <= 0 || sliceBytes <= 0) {
+            throw new IllegalArgumentException("Both --parallelism and --slice-size must be positive");
+        }
+        return new ReprocessOptions(Path.of(values.get("input")), Path.of(values.get("output")), parallelism,
+                sliceBytes);
+    }
+
+    /**
+     * Parses a size such as {@code 4096}, {@code 512KB} or {@code 16MB}.
+     */
+    static long bytes(String size) {
+        String value = size.trim().toUpperCase();
+        long unit = 1;
+        if (value.endsWith("KB")) {
+            unit = 1L << 10;
+        } else if (value.endsWith("MB")) {
+            unit = 1L << 20;
+        } else if (value.endsWith("GB")) {
+            unit = 1L << 30;
+        }
+        String digits = unit == 1 ? value.replaceFirst("B$", "") : value.substring(0, value.length() - 2);
+        return Long.parseLong(digits.trim()) * unit;
+    }
+}
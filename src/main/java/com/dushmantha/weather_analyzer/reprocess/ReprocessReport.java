@@ -0,0 +1,38 @@
+package com.dushmantha.weather_analyzer.reprocess;
+
+import java.io.PrintStream;
+import java.time.Duration;
+
+/**
+ * Counts of a reprocessing run or of one part of it; the parts of a run are combined with {@link #plus}.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public record ReprocessReport(long payloads, long failed, long bytes, int parts) {
+
+    public static final ReprocessReport EMPTY = new ReprocessReport(0, 0, 0, 0);
+
+    public ReprocessReport plus(ReprocessReport other) {
+        return new ReprocessReport(payloads + other.payloads, failed + other.failed, bytes + other.bytes,
+                parts + other.parts);
+    }
+
+    public double payloadsPerSecond(Duration elapsed) {
+        return payloads / seconds(elapsed);
+    }
+
+    public double megabytesPerSecond(Duration elapsed) {
+        return bytes / (1024.0 * 1024.0) / seconds(elapsed);
+    }
+
+    public void print(PrintStream out, Duration elapsed, int parallelism) {
+        out.printf("Reprocessed %d payloads (%d failed) from %.1f MB into %d part files%n",
+                payloads, failed, bytes / (1024.0 * 1024.0), parts);
+        out.printf("%.0f ms on %d threads: %.0f payloads/s, %.1f MB/s%n",
+                elapsed.toNanos() / 1e6, parallelism, payloadsPerSecond(elapsed), megabytesPerSecond(elapsed));
+    }
+
+    private static double seconds(Duration elapsed) {
+        return Math.max(1, elapsed.toNanos()) / 1e9;
+    }
+}
@@ -0,0 +1,172 @@
+package com.dushmantha.weather_analyzer.reprocess;
+
+import com.dushmantha.weather_analyzer.dto.WeatherSummary;
+import com.dushmantha.weather_analyzer.forecast.ForecastColumns;
+import com.dushmantha.weather_analyzer.forecast.ForecastDecoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reprocesses a run of {@link InputSlice}s. A run of more than {@code sliceBytes} is split in two at its middle byte
+ * and both halves are forked, so idle workers steal the remaining halves and all cores stay busy however unevenly
+ * the input is sized. A run within it is one part file: each payload of its slices, mapped into memory or read into
+ * the run's input buffer, see {@link InputSlice#read}, is decoded and summarised as on a cache miss, and the summary
+ * is appended as a line of {@code part-NNNNN.ndjson}. Parts are numbered after the run's first slice so they list in
+ * input order. The reports of the halves are added up on the way back.
+ * <p>
+ * Memory stays bounded by the number of workers: each holds one slice, one decoded forecast and an output buffer at
+ * a time, whatever the size of the input.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+final class ReprocessTask extends RecursiveTask<ReprocessReport> {
+
+    static final String PART_PREFIX = "part-";
+    static final String PART_SUFFIX = ".ndjson";
+
+    private static final ObjectWriter SUMMARY_WRITER = new ObjectMapper().writerFor(WeatherSummary.class);
+    private static final int OUTPUT_BUFFER_BYTES = 64 * 1024;
+    private static final int INPUT_BUFFER_BYTES = 64 * 1024;
+    private static final int MAX_REPORTED_ERRORS = 20;
+
+    private final Job job;
+    private final int from;
+    private final int to;
+
+    ReprocessTask(List<InputSlice> slices, long sliceBytes, Path output, PrintStream errors) {
+        this(new Job(slices, ends(slices), sliceBytes, output, errors, new AtomicInteger()), 0, slices.size());
+    }
+
+    private ReprocessTask(Job job, int from, int to) {
+        this.job = job;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected ReprocessReport compute() {
+        if (to - from > 1 && bytes(from, to) > job.sliceBytes()) {
+            int middle = middle();
+            ReprocessTask left = new ReprocessTask(job, from, middle);
+            ReprocessTask right = new ReprocessTask(job, middle, to);
+            right.fork();
+            ReprocessReport report = left.compute();
+            return report.plus(right.join());
+        }
+        if (from == to) {
+            return ReprocessReport.EMPTY;
+        }
+        try {
+            return processRun();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to reprocess " + job.slices().get(from), e);
+        }
+    }
+
+    /**
+     * The first slice ending past the middle byte of this run, kept inside it so both halves have slices.
+     */
+    private int middle() {
+        long start = from == 0 ? 0 : job.ends()[from - 1];
+        long half = start + bytes(from, to) / 2;
+        int index = Arrays.binarySearch(job.ends(), from, to, half);
+        int middle = index >= 0 ? index + 1 : -index - 1;
+        return Math.max(from + 1, Math.min(to - 1, middle));
+    }
+
+    private long bytes(int fromIndex, int toIndex) {
+        return job.ends()[toIndex - 1] - (fromIndex == 0 ? 0 : job.ends()[fromIndex - 1]);
+    }
+
+    private ReprocessReport processRun() throws IOException {
+        Path part = job.output().resolve(String.format("%s%05d%s", PART_PREFIX, from, PART_SUFFIX));
+        long payloads = 0;
+        long failed = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(INPUT_BUFFER_BYTES);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(part), OUTPUT_BUFFER_BYTES)) {
+            for (InputSlice slice : job.slices().subList(from, to)) {
+                ByteBuffer input = slice.read(buffer);
+                if (!slice.lines()) {
+                    buffer = input;
+                    payloads++;
+                    failed += process(input, slice, 0, out) ? 0 : 1;
+                    continue;
+                }
+                int start = 0;
+                for (int i = 0; i <= input.limit(); i++) {
+                    if (i == input.limit() || input.get(i) == '\n') {
+                        if (!isBlank(input, start, i)) {
+                            payloads++;
+                            failed += process(input.slice(start, i - start), slice, start, out) ? 0 : 1;
+                        }
+                        start = i + 1;
+                    }
+                }
+            }
+        }
+        return new ReprocessReport(payloads, failed, bytes(from, to), 1);
+    }
+
+    /**
+     * Writes the summary of one payload as a line of {@code out}, or reports why it has none.
+     *
+     * @return whether the payload was summarised
+     */
+    private boolean process(ByteBuffer payload, InputSlice slice, int offset, OutputStream out) throws IOException {
+        byte[] json;
+        try {
+            ForecastColumns forecast = ForecastDecoder.decode(payload, ForecastColumns.builder(),
+                    ForecastColumns.CAPACITY).build();
+            json = SUMMARY_WRITER.writeValueAsBytes(forecast.summary());
+        } catch (RuntimeException e) {
+            if (job.reportedErrors().getAndIncrement() < MAX_REPORTED_ERRORS) {
+                job.errors().printf("Skipped payload at %s@%d: %s%n", slice.file(), slice.offset() + offset,
+                        e.getMessage());
+            }
+            return false;
+        }
+        out.write(json);
+        out.write('\n');
+        return true;
+    }
+
+    private static boolean isBlank(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!Character.isWhitespace(buffer.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long[] ends(List<InputSlice> slices) {
+        long[] ends = new long[slices.size()];
+        long end = 0;
+        for (int i = 0; i < ends.length; i++) {
+            end += slices.get(i).length();
+            ends[i] = end;
+        }
+        return ends;
+    }
+
+    /**
+     * What every task of one run shares. {@code ends} holds the running total of slice lengths, so the bytes of any
+     * run of slices and its middle are found without walking it.
+     */
+    private record Job(List<InputSlice> slices, long[] ends, long sliceBytes, Path output, PrintStream errors,
+                       AtomicInteger reportedErrors) {
+    }
+}
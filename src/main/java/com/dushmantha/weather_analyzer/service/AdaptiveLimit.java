@@ -0,0 +1,74 @@
+package com.dushmantha.weather_analyzer.service;
+
+/**
+ * Concurrency limit that follows upstream latency, in the spirit of TCP congestion control. Each completed call
+ * compares its latency with a slow moving average: while latency stays within {@code tolerance} of it the limit
+ * grows by about its square root, once it rises above that the limit shrinks in proportion, and a timeout cuts it
+ * by a tenth. Growth is skipped while under half the limit is in use, since an idle limit says nothing about what
+ * upstream can take. With {@code min == max} the limit is fixed.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public class AdaptiveLimit {
+
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF = 0.9;
+    private static final int LONG_WINDOW = 100;
+
+    private final int min;
+    private final int max;
+    private final double tolerance;
+    private double limit;
+    private double longRttNanos;
+
+    public AdaptiveLimit(int initial, int min, int max, double tolerance) {
+        if (min < 1 || max < min || initial < min || initial > max) {
+            throw new IllegalArgumentException("Expected 1 <= min <= initial <= max but got min=" + min
+                    + ", initial=" + initial + ", max=" + max);
+        }
+        this.min = min;
+        this.max = max;
+        this.tolerance = tolerance;
+        this.limit = initial;
+    }
+
+    public static AdaptiveLimit fixed(int limit) {
+        return new AdaptiveLimit(limit, limit, limit, 1.0);
+    }
+
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    synchronized void onSample(long rttNanos, int inFlight) {
+        if (min == max || rttNanos <= 0) {
+            return;
+        }
+        if (longRttNanos == 0) {
+            longRttNanos = rttNanos;
+        } else {
+            longRttNanos += (rttNanos - longRttNanos) / LONG_WINDOW;
+        }
+        if (longRttNanos > 2 * rttNanos) {
+            // latency has recovered from a sustained rise: let the baseline come back down faster
+            longRttNanos *= 0.95;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRttNanos / rttNanos));
+        double target = limit * gradient + Math.sqrt(limit);
+        if (target > limit && inFlight < limit / 2) {
+            return;
+        }
+        limit = clamp(limit * (1 - SMOOTHING) + target * SMOOTHING);
+    }
+
+    synchronized void onDrop() {
+        if (min != max) {
+            limit = clamp(limit * BACKOFF);
+        }
+    }
+
+    private double clamp(double value) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
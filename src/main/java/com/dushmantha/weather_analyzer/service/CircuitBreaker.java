@@ -0,0 +1,158 @@
+package com.dushmantha.weather_analyzer.service;
+
+import com.dushmantha.weather_analyzer.exception.ExternalApiException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Fails calls fast while upstream is unhealthy. Closed, it tracks the last {@code slidingWindow} results and opens
+ * once at least {@code minimumCalls} of them were recorded and the share of failures reaches
+ * {@code failureRateThreshold}. Open, every call is rejected without reaching upstream until {@code openDuration}
+ * has passed. Half open, {@code halfOpenCalls} trial calls are let through: if all succeed it closes, the first
+ * failure opens it again. Only errors matching {@code isFailure} count as failures; a 404 is a healthy answer.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    private static final ExternalApiException CIRCUIT_OPEN =
+            ExternalApiException.stackless("Weather service API unavailable");
+
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    private final String name;
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final Predicate<Throwable> isFailure;
+    private final boolean[] window;
+
+    private State state = State.CLOSED;
+    private long generation;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+    private long openUntilNanos;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+    private long rejected;
+
+    public CircuitBreaker(String name, double failureRateThreshold, int slidingWindow, int minimumCalls,
+                          Duration openDuration, int halfOpenCalls, Predicate<Throwable> isFailure,
+                          MeterRegistry meterRegistry) {
+        this.name = name;
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumCalls = Math.min(minimumCalls, slidingWindow);
+        this.openNanos = openDuration.toNanos();
+        this.halfOpenCalls = halfOpenCalls;
+        this.isFailure = isFailure;
+        this.window = new boolean[slidingWindow];
+
+        Gauge.builder(name + ".circuit.state", this, breaker -> breaker.state().ordinal())
+                .description("Circuit state: 0 closed, 1 half open, 2 open")
+                .register(meterRegistry);
+        FunctionCounter.builder(name + ".circuit.rejected", this, CircuitBreaker::rejected)
+                .description("Calls failed fast while the circuit was open")
+                .register(meterRegistry);
+    }
+
+    public <T> Mono<T> execute(Supplier<Mono<T>> call) {
+        return Mono.defer(() -> {
+            long permit = tryAcquire();
+            if (permit < 0) {
+                return Mono.error(CIRCUIT_OPEN);
+            }
+            return call.get()
+                    .doOnSuccess(value -> onResult(permit, false))
+                    .doOnError(e -> onResult(permit, isFailure.test(e)))
+                    .doOnCancel(() -> onCancel(permit));
+        });
+    }
+
+    /**
+     * @return the generation the call was admitted in, or -1 if it is rejected
+     */
+    private synchronized long tryAcquire() {
+        if (state == State.OPEN && System.nanoTime() - openUntilNanos >= 0) {
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.CLOSED) {
+            return generation;
+        }
+        if (state == State.HALF_OPEN && halfOpenPermits < halfOpenCalls) {
+            halfOpenPermits++;
+            return generation;
+        }
+        rejected++;
+        return -1;
+    }
+
+    private synchronized void onResult(long permit, boolean failure) {
+        // results of calls admitted before the last transition say nothing about the current state
+        if (permit != generation) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            if (failure) {
+                transition(State.OPEN);
+            } else if (++halfOpenSuccesses >= halfOpenCalls) {
+                transition(State.CLOSED);
+            }
+        } else if (state == State.CLOSED) {
+            record(failure);
+            if (windowCount >= minimumCalls && windowFailures >= failureRateThreshold * windowCount) {
+                transition(State.OPEN);
+            }
+        }
+    }
+
+    private synchronized void onCancel(long permit) {
+        if (permit == generation && state == State.HALF_OPEN) {
+            halfOpenPermits--;
+        }
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == window.length) {
+            windowFailures -= window[windowIndex] ? 1 : 0;
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failure;
+        windowFailures += failure ? 1 : 0;
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void transition(State next) {
+        log.warn("Circuit {} {} -> {}", name, state, next);
+        state = next;
+        generation++;
+        windowIndex = 0;
+        windowCount = 0;
+        windowFailures = 0;
+        halfOpenPermits = 0;
+        halfOpenSuccesses = 0;
+        if (next == State.OPEN) {
+            openUntilNanos = System.nanoTime() + openNanos;
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    public synchronized long rejected() {
+        return rejected;
+    }
+}
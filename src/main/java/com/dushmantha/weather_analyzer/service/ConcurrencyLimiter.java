@@ -0,0 +1,136 @@
+package com.dushmantha.weather_analyzer.service;
+
+import com.dushmantha.weather_analyzer.exception.ExternalApiException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking cap on the number of in-flight calls. Callers over the limit wait in a bounded FIFO without holding a
+ * thread and are rejected once the queue is full. Neither the request path nor a virtual thread executor limits
+ * upstream concurrency by thread count, so this is what keeps a burst from opening an unbounded number of calls.
+ * The cap is an {@link AdaptiveLimit}, fed with the latency of every call that got an answer and with every call that
+ * {@code isDrop} classifies as lost, such as a timeout.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public class ConcurrencyLimiter {
+
+    private static final ExternalApiException REJECTED =
+            ExternalApiException.stackless("Too many concurrent requests to weather API");
+
+    private final AdaptiveLimit limit;
+    private final int maxQueued;
+    private final Predicate<Throwable> isDrop;
+    private final Deque<MonoSink<Long>> waiters = new ArrayDeque<>();
+    private int inFlight;
+    private long rejected;
+
+    public ConcurrencyLimiter(String name, int limit, int maxQueued, MeterRegistry meterRegistry) {
+        this(name, AdaptiveLimit.fixed(limit), maxQueued, e -> false, meterRegistry);
+    }
+
+    public ConcurrencyLimiter(String name, AdaptiveLimit limit, int maxQueued, Predicate<Throwable> isDrop,
+                              MeterRegistry meterRegistry) {
+        this.limit = limit;
+        this.maxQueued = maxQueued;
+        this.isDrop = isDrop;
+
+        Gauge.builder(name + ".limit", limit, AdaptiveLimit::limit)
+                .description("Current concurrency limit")
+                .register(meterRegistry);
+        Gauge.builder(name + ".inflight", this, ConcurrencyLimiter::inFlight)
+                .description("Calls currently holding a permit")
+                .register(meterRegistry);
+        Gauge.builder(name + ".queued", this, ConcurrencyLimiter::queued)
+                .description("Calls waiting for a permit")
+                .register(meterRegistry);
+        FunctionCounter.builder(name + ".rejected", this, ConcurrencyLimiter::rejected)
+                .description("Calls rejected because the wait queue was full")
+                .register(meterRegistry);
+    }
+
+    public <T> Mono<T> execute(Supplier<Mono<T>> call) {
+        return Mono.usingWhen(
+                Mono.<Long>create(this::acquire)
+                        // a permit handed to a caller that has just cancelled is returned instead of leaked
+                        .doOnDiscard(Long.class, startNanos -> release()),
+                startNanos -> call.get(),
+                startNanos -> Mono.fromRunnable(() -> complete(startNanos, null)),
+                (startNanos, error) -> Mono.fromRunnable(() -> complete(startNanos, error)),
+                startNanos -> Mono.fromRunnable(this::release));
+    }
+
+    private void acquire(MonoSink<Long> sink) {
+        synchronized (this) {
+            if (inFlight < limit.limit()) {
+                inFlight++;
+            } else if (waiters.size() < maxQueued) {
+                waiters.addLast(sink);
+                sink.onCancel(() -> cancel(sink));
+                return;
+            } else {
+                rejected++;
+                sink.error(REJECTED);
+                return;
+            }
+        }
+        sink.success(System.nanoTime());
+    }
+
+    private void cancel(MonoSink<Long> sink) {
+        synchronized (this) {
+            waiters.remove(sink);
+        }
+    }
+
+    private void complete(long startNanos, Throwable error) {
+        if (error != null && isDrop.test(error)) {
+            limit.onDrop();
+        } else {
+            limit.onSample(System.nanoTime() - startNanos, inFlight());
+        }
+        release();
+    }
+
+    private void release() {
+        synchronized (this) {
+            inFlight--;
+        }
+        // admits as many waiters as the limit allows now, which is more than one after it has grown
+        while (true) {
+            MonoSink<Long> next;
+            synchronized (this) {
+                if (inFlight >= limit.limit() || waiters.isEmpty()) {
+                    return;
+                }
+                next = waiters.pollFirst();
+                inFlight++;
+            }
+            next.success(System.nanoTime());
+        }
+    }
+
+    public int limit() {
+        return limit.limit();
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    public synchronized int queued() {
+        return waiters.size();
+    }
+
+    public synchronized long rejected() {
+        return rejected;
+    }
+}
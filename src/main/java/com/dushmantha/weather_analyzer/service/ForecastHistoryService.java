@@ -0,0 +1,16 @@
+package com.dushmantha.weather_analyzer.service;
+
+import com.dushmantha.weather_analyzer.dto.ForecastHistory;
+import reactor.core.publisher.Mono;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+public interface ForecastHistoryService {
+
+    /**
+     * Aggregates the forecasts fetched for {@code city} over the last {@code days} UTC days, today included, with a
+     * breakdown per day when {@code daily} is set.
+     */
+    Mono<ForecastHistory> forecastHistory(String city, int days, boolean daily);
+}
@@ -0,0 +1,70 @@
+package com.dushmantha.weather_analyzer.service;
+
+import com.dushmantha.weather_analyzer.city.CityIndex;
+import com.dushmantha.weather_analyzer.dto.DailyHistory;
+import com.dushmantha.weather_analyzer.dto.ForecastHistory;
+import com.dushmantha.weather_analyzer.exception.ExternalApiException;
+import com.dushmantha.weather_analyzer.history.ForecastHistoryStore;
+import com.dushmantha.weather_analyzer.history.HistoryAggregate;
+import com.dushmantha.weather_analyzer.util.CityNames;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+@Service
+public class ForecastHistoryServiceImpl implements ForecastHistoryService {
+
+    private final Optional<ForecastHistoryStore> historyStore;
+    private final CityIndex cityIndex;
+
+    @Value("${weather.history.max-query-days:400}")
+    private int maxQueryDays;
+
+    public ForecastHistoryServiceImpl(Optional<ForecastHistoryStore> historyStore, CityIndex cityIndex) {
+        this.historyStore = historyStore;
+        this.cityIndex = cityIndex;
+    }
+
+    @Override
+    public Mono<ForecastHistory> forecastHistory(String city, int days, boolean daily) {
+        if (days <= 0 || days > maxQueryDays) {
+            return Mono.error(new IllegalArgumentException("days must be between 1 and " + maxQueryDays));
+        }
+        if (historyStore.isEmpty()) {
+            return Mono.error(new IllegalStateException("Forecast history is disabled"));
+        }
+        String key = cityIndex.resolve(city);
+        if (key == null) {
+            return Mono.error(ExternalApiException.stackless("City not found for: " + CityNames.normalize(city)));
+        }
+        LocalDate to = LocalDate.now(ZoneOffset.UTC);
+        LocalDate from = to.minusDays(days - 1L);
+        long fromMillis = from.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        long toMillis = to.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        return Mono.fromFuture(() -> historyStore.get().query(key, fromMillis, toMillis, daily ? days : 0))
+                .map(aggregate -> toHistory(cityIndex.query(key), from, to, aggregate));
+    }
+
+    private static ForecastHistory toHistory(String city, LocalDate from, LocalDate to, HistoryAggregate aggregate) {
+        List<DailyHistory> daily = null;
+        if (aggregate.days() > 0) {
+            daily = new ArrayList<>(aggregate.days());
+            for (int day = 0; day < aggregate.days(); day++) {
+                daily.add(new DailyHistory(from.plusDays(day).toString(), aggregate.snapshots(day),
+                        aggregate.averageTemperature(day), aggregate.minTemperature(day),
+                        aggregate.maxTemperature(day)));
+            }
+        }
+        return new ForecastHistory(city, from.toString(), to.toString(), aggregate.snapshots(), aggregate.slots(),
+                aggregate.averageTemperature(), aggregate.minTemperature(), aggregate.maxTemperature(), daily);
+    }
+}
@@ -0,0 +1,343 @@
+package com.dushmantha.weather_analyzer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Sends a second, hedged request when the first has not been answered by the time most calls are, and takes
+ * whichever answers first. The first request goes to the primary endpoint, the first of {@code endpoints}; hedges go
+ * to the others in turn, or to the primary again when it is the only one. The hedge delay is the {@code percentile}
+ * of the latencies of the last {@code window} primary requests that answered or were cancelled, kept between
+ * {@code minDelay} and {@code maxDelay}; nothing is hedged until enough of them were seen. A primary cancelled after
+ * losing to a hedge counts with the time it had run, a lower bound of its latency: leaving it out would keep only
+ * the primaries fast enough to beat a hedge, and the delay would shrink towards {@code minDelay}.
+ * <p>
+ * Each call adds {@code budget} to a bucket of at most {@link #BURST} hedges and each hedge takes one from it, so
+ * hedges stay at about {@code budget} of the calls even when upstream slows down as a whole. A budget of 0 turns
+ * hedging off. The request that loses the race is cancelled. A primary failing after the hedge was sent leaves the
+ * answer to the hedge when {@code isRetryable} says another attempt may do better, such as after a 5xx or a timeout;
+ * any other failure, such as a 404, is the answer.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public class RequestHedger {
+
+    static final int BURST = 10;
+    private static final int MIN_SAMPLES = 50;
+    private static final int RECOMPUTE_EVERY = 64;
+
+    private final String name;
+    private final List<String> endpoints;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private final double budget;
+    private final Predicate<Throwable> isRetryable;
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger nextHedgeEndpoint = new AtomicInteger();
+    private final Counter won;
+    private final Counter lost;
+    private final Counter failed;
+    private final Counter denied;
+    private final Timer saved;
+
+    private final long[] samples;
+    private final boolean[] lowerBounds;
+    private final int minSamples;
+    private int sampleIndex;
+    private int sampleCount;
+    private int sinceRecompute;
+    private long delayNanos = -1;
+    private double tokens;
+    private long calls;
+
+    public RequestHedger(String name, List<String> endpoints, double percentile, Duration minDelay,
+                         Duration maxDelay, double budget, int window, Predicate<Throwable> isRetryable,
+                         MeterRegistry meterRegistry) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("Expected at least one endpoint");
+        }
+        if (percentile <= 0 || percentile >= 1) {
+            throw new IllegalArgumentException("Expected 0 < percentile < 1 but got " + percentile);
+        }
+        this.name = name;
+        this.endpoints = List.copyOf(endpoints);
+        this.percentile = percentile;
+        this.minDelayNanos = minDelay.toNanos();
+        this.maxDelayNanos = Math.max(minDelayNanos, maxDelay.toNanos());
+        this.budget = budget;
+        this.isRetryable = isRetryable;
+        this.meterRegistry = meterRegistry;
+        this.samples = new long[window];
+        this.lowerBounds = new boolean[window];
+        this.minSamples = Math.min(window, MIN_SAMPLES);
+
+        won = hedges("won", "Hedges answered before the primary request, which was cancelled");
+        lost = hedges("lost", "Hedges cancelled because the primary request answered first");
+        failed = hedges("failed", "Hedges that failed");
+        denied = hedges("denied", "Hedges not sent because the hedging budget was used up");
+        saved = Timer.builder(name + ".hedge.saved")
+                .description("Estimated latency saved by each hedge that won, from the primary latencies above "
+                        + "the time it answered")
+                .register(meterRegistry);
+        FunctionCounter.builder(name + ".hedge.calls", this, RequestHedger::calls)
+                .description("Calls that could be hedged")
+                .register(meterRegistry);
+        TimeGauge.builder(name + ".hedge.delay", this, TimeUnit.NANOSECONDS, hedger -> Math.max(0, hedger.delay()))
+                .description("Time a primary request is given before it is hedged, 0 until enough were seen")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Calls {@code call} with the primary endpoint and, if it is slow, with a hedge endpoint.
+     */
+    public <T> Mono<T> execute(Function<String, Mono<T>> call) {
+        if (budget <= 0) {
+            return call.apply(primary());
+        }
+        return Mono.defer(() -> {
+            long delay = admit();
+            long start = System.nanoTime();
+            AtomicBoolean recorded = new AtomicBoolean();
+            Mono<T> primary = call.apply(primary())
+                    .doOnSuccess(value -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            record(System.nanoTime() - start, false);
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            record(System.nanoTime() - start, true);
+                        }
+                    });
+            if (delay < 0) {
+                return primary;
+            }
+            return Mono.create(sink -> new Race<>(sink, start).start(primary,
+                    () -> call.apply(hedgeEndpoint()), delay));
+        });
+    }
+
+    public String primary() {
+        return endpoints.get(0);
+    }
+
+    public List<String> endpoints() {
+        return endpoints;
+    }
+
+    private String hedgeEndpoint() {
+        if (endpoints.size() == 1) {
+            return primary();
+        }
+        return endpoints.get(1 + Math.floorMod(nextHedgeEndpoint.getAndIncrement(), endpoints.size() - 1));
+    }
+
+    /**
+     * @return the hedge delay, or -1 while there are too few samples for one
+     */
+    private synchronized long admit() {
+        calls++;
+        tokens = Math.min(BURST, tokens + budget);
+        return delayNanos;
+    }
+
+    private synchronized boolean tryHedge() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    /**
+     * @param lowerBound whether the request was cancelled after {@code latencyNanos}, before it answered
+     */
+    private synchronized void record(long latencyNanos, boolean lowerBound) {
+        samples[sampleIndex] = latencyNanos;
+        lowerBounds[sampleIndex] = lowerBound;
+        sampleIndex = (sampleIndex + 1) % samples.length;
+        sampleCount = Math.min(sampleCount + 1, samples.length);
+        if (sampleCount >= minSamples && (delayNanos < 0 || ++sinceRecompute >= RECOMPUTE_EVERY)) {
+            long[] sorted = Arrays.copyOf(samples, sampleCount);
+            Arrays.sort(sorted);
+            long at = sorted[Math.max(0, (int) Math.ceil(percentile * sorted.length) - 1)];
+            delayNanos = Math.max(minDelayNanos, Math.min(maxDelayNanos, at));
+            sinceRecompute = 0;
+        }
+    }
+
+    /**
+     * A hedge answered {@code elapsedNanos} after the primary was sent, which had not answered yet. Had it not been
+     * hedged, the call would have taken as long as the primary requests that took longer than that, on average.
+     * Cancelled primaries are left out, their full latency is unknown.
+     */
+    private synchronized long estimateSaved(long elapsedNanos) {
+        long sum = 0;
+        int slower = 0;
+        for (int i = 0; i < sampleCount; i++) {
+            if (!lowerBounds[i] && samples[i] > elapsedNanos) {
+                sum += samples[i];
+                slower++;
+            }
+        }
+        return slower == 0 ? 0 : sum / slower - elapsedNanos;
+    }
+
+    public synchronized long delay() {
+        return delayNanos;
+    }
+
+    public synchronized long calls() {
+        return calls;
+    }
+
+    private Counter hedges(String outcome, String description) {
+        return Counter.builder(name + ".hedges")
+                .description(description)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * One primary request and, once its delay passed, at most one hedge. The first answer is emitted to
+     * {@code sink}; cancelling the sink cancels whatever is still running.
+     */
+    private final class Race<T> {
+
+        private final MonoSink<T> sink;
+        private final long start;
+        private final Disposable.Composite running = Disposables.composite();
+        private boolean done;
+        private boolean hedged;
+        private boolean hedgeFailed;
+        private Throwable primaryError;
+
+        Race(MonoSink<T> sink, long start) {
+            this.sink = sink;
+            this.start = start;
+        }
+
+        void start(Mono<T> primary, Supplier<Mono<T>> hedge, long delay) {
+            sink.onDispose(running);
+            running.add(primary.subscribe(this::primaryAnswered, this::primaryFailed,
+                    () -> primaryAnswered(null)));
+            running.add(Mono.delay(Duration.ofNanos(delay)).subscribe(tick -> hedge(hedge)));
+        }
+
+        private void hedge(Supplier<Mono<T>> hedge) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+            }
+            if (!tryHedge()) {
+                denied.increment();
+                return;
+            }
+            synchronized (this) {
+                hedged = true;
+            }
+            running.add(hedge.get().subscribe(this::hedgeAnswered, this::hedgeFailed, () -> hedgeAnswered(null)));
+        }
+
+        private void primaryAnswered(T value) {
+            if (finish()) {
+                emit(value);
+            }
+        }
+
+        private void primaryFailed(Throwable e) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                if (hedged && !hedgeFailed && isRetryable.test(e)) {
+                    primaryError = e;
+                    return;
+                }
+            }
+            if (finish()) {
+                running.dispose();
+                sink.error(e);
+            }
+        }
+
+        private void hedgeAnswered(T value) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+            }
+            won.increment();
+            long elapsed = System.nanoTime() - start;
+            saved.record(estimateSaved(elapsed), TimeUnit.NANOSECONDS);
+            emit(value);
+        }
+
+        private void hedgeFailed(Throwable e) {
+            Throwable error;
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                hedgeFailed = true;
+                error = primaryError;
+                done = error != null;
+            }
+            failed.increment();
+            if (error != null) {
+                running.dispose();
+                sink.error(error);
+            }
+        }
+
+        /**
+         * Ends the race for the primary request's answer, counting a hedge still running as lost.
+         */
+        private boolean finish() {
+            boolean hedgeRunning;
+            synchronized (this) {
+                if (done) {
+                    return false;
+                }
+                done = true;
+                hedgeRunning = hedged && !hedgeFailed;
+            }
+            if (hedgeRunning) {
+                lost.increment();
+            }
+            return true;
+        }
+
+        /**
+         * Cancels the loser before the answer is passed on, so no work on it outlives the call.
+         */
+        private void emit(T value) {
+            running.dispose();
+            if (value == null) {
+                sink.success();
+            } else {
+                sink.success(value);
+            }
+        }
+    }
+}
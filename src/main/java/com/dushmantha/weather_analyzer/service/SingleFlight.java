@@ -0,0 +1,63 @@
+package com.dushmantha.weather_analyzer.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads for the same key into a single upstream subscription. Callers that arrive while a load
+ * is in flight join it and receive the same result; the next caller after completion starts a new load.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+    private final DistributionSummary callersPerLoad;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.callersPerLoad = DistributionSummary.builder(name + ".callers")
+                .description("Number of callers served by each coalesced load")
+                .register(meterRegistry);
+    }
+
+    public Mono<V> execute(K key, Supplier<Mono<V>> loader) {
+        return Mono.defer(() -> {
+            Flight<V> flight = inFlight.computeIfAbsent(key, k -> new Flight<>());
+            flight.callers.incrementAndGet();
+            return flight.result(() -> loader.get()
+                    .doFinally(signal -> {
+                        inFlight.remove(key, flight);
+                        callersPerLoad.record(flight.callers.get());
+                    }));
+        });
+    }
+
+    int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private static final class Flight<V> {
+        private final AtomicInteger callers = new AtomicInteger();
+        private volatile Mono<V> result;
+
+        private Mono<V> result(Supplier<Mono<V>> loader) {
+            Mono<V> mono = result;
+            if (mono == null) {
+                synchronized (this) {
+                    mono = result;
+                    if (mono == null) {
+                        mono = loader.get().cache();
+                        result = mono;
+                    }
+                }
+            }
+            return mono;
+        }
+    }
+}
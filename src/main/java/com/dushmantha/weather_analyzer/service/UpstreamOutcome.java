@@ -0,0 +1,53 @@
+package com.dushmantha.weather_analyzer.service;
+
+import com.dushmantha.weather_analyzer.exception.ExternalApiException;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Classifies the result of a weather API call, for metric tags and for deciding which failures say that upstream is
+ * unhealthy or overloaded.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public final class UpstreamOutcome {
+
+    private UpstreamOutcome() {
+    }
+
+    public static String of(Throwable e) {
+        if (!(e instanceof ExternalApiException apiException)) {
+            return isTimeout(e) ? "timeout" : "io_error";
+        }
+        int status = apiException.getUpstreamStatus();
+        if (status == 404) {
+            return "not_found";
+        } else if (status == 401) {
+            return "unauthorized";
+        } else if (status >= 500) {
+            return "server_error";
+        } else if (status >= 400) {
+            return "client_error";
+        }
+        return "invalid_response";
+    }
+
+    /**
+     * 5xx answers, timeouts and connection failures; a 4xx or a malformed body is upstream working as designed.
+     */
+    public static boolean isUnhealthy(Throwable e) {
+        return !(e instanceof ExternalApiException apiException) || apiException.getUpstreamStatus() >= 500;
+    }
+
+    /**
+     * Calls that got no answer in time, the signal of an overloaded upstream.
+     */
+    public static boolean isTimeout(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException || cause instanceof io.netty.handler.timeout.TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
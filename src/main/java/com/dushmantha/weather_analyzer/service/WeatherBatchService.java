@@ -0,0 +1,18 @@
+package com.dushmantha.weather_analyzer.service;
+
+import com.dushmantha.weather_analyzer.dto.WeatherBatchResult;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+public interface WeatherBatchService {
+
+    /**
+     * Emits one result per distinct city as soon as it is available. Cached cities are emitted first, misses follow
+     * in completion order.
+     */
+    Flux<WeatherBatchResult> weatherSummaries(List<String> cities);
+}
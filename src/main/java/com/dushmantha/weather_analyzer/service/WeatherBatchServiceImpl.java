@@ -0,0 +1,94 @@
+package com.dushmantha.weather_analyzer.service;
+
+import com.dushmantha.weather_analyzer.cache.WeatherCache;
+import com.dushmantha.weather_analyzer.city.CityIndex;
+import com.dushmantha.weather_analyzer.dto.WeatherBatchResult;
+import com.dushmantha.weather_analyzer.exception.ExternalApiException;
+import com.dushmantha.weather_analyzer.exception.GlobalExceptionHandler;
+import com.dushmantha.weather_analyzer.util.CityNames;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+@Service
+@Slf4j
+public class WeatherBatchServiceImpl implements WeatherBatchService {
+
+    private final WeatherService weatherService;
+    private final WeatherCache weatherCache;
+    private final CityIndex cityIndex;
+
+    @Value("${weather.batch.max-cities:500}")
+    private int maxCities;
+
+    @Value("${weather.batch.max-concurrency:8}")
+    private int maxConcurrency;
+
+    @Value("${weather.batch.city-timeout:5s}")
+    private Duration cityTimeout;
+
+    public WeatherBatchServiceImpl(WeatherService weatherService, WeatherCache weatherCache, CityIndex cityIndex) {
+        this.weatherService = weatherService;
+        this.weatherCache = weatherCache;
+        this.cityIndex = cityIndex;
+    }
+
+    @Override
+    public Flux<WeatherBatchResult> weatherSummaries(List<String> cities) {
+        if (cities == null || cities.isEmpty()) {
+            throw new IllegalArgumentException("At least one city is required");
+        }
+        if (cities.size() > maxCities) {
+            throw new IllegalArgumentException("A batch may contain at most " + maxCities + " cities");
+        }
+
+        Map<String, String> distinctCities = new LinkedHashMap<>();
+        for (String city : cities) {
+            // spellings of one city share a key; unknown names are kept apart so each one reports its error
+            String key = cityIndex.resolve(city);
+            if (key == null) {
+                String normalized = CityNames.normalize(city);
+                if (normalized.isEmpty()) {
+                    continue;
+                }
+                key = "?" + normalized;
+            }
+            distinctCities.putIfAbsent(key, city);
+        }
+        log.info("Weather summary batch of {} cities", distinctCities.size());
+
+        List<String> hits = new ArrayList<>();
+        List<String> misses = new ArrayList<>();
+        distinctCities.forEach((key, city) -> (weatherCache.getIfPresent(key) != null ? hits : misses).add(city));
+
+        return Flux.merge(
+                Flux.fromIterable(hits).flatMap(this::fetch),
+                Flux.fromIterable(misses).flatMap(this::fetch, maxConcurrency));
+    }
+
+    private Mono<WeatherBatchResult> fetch(String city) {
+        return weatherService.reactiveWeatherSummary(city)
+                .timeout(cityTimeout)
+                .map(summary -> WeatherBatchResult.success(city, summary))
+                .onErrorResume(e -> Mono.just(WeatherBatchResult.failure(city, errorMessage(e))));
+    }
+
+    private static String errorMessage(Throwable e) {
+        if (e instanceof TimeoutException) {
+            return GlobalExceptionHandler.errorMessage(new ExternalApiException("Weather service API timed out"));
+        }
+        return GlobalExceptionHandler.errorMessage(e);
+    }
+}
@@ -1,6 +1,8 @@
 package com.dushmantha.weather_analyzer.service;
 
+import com.dushmantha.weather_analyzer.cache.CachedSummary;
 import com.dushmantha.weather_analyzer.dto.WeatherSummary;
+import reactor.core.publisher.Mono;
 
 import java.util.concurrent.CompletableFuture;
 
@@ -8,5 +10,35 @@ import java.util.concurrent.CompletableFuture;
  * @author dushmantha.sse@gmail.com
  */
 public interface WeatherService {
+
+    /**
+     * Weather summary with its fetch time, served from {@code weatherCache} when present (possibly stale while a
+     * refresh runs) and fetched from upstream otherwise. A city the gazetteer does not know fails with
+     * {@code ExternalApiException} without an upstream call.
+     */
+    Mono<CachedSummary> cachedWeatherSummary(String city);
+
+    /**
+     * Fetches the summary from upstream and replaces the cached entry whatever its age. {@code city} must already be
+     * a cache key resolved by {@code CityIndex}. Not counted as demand.
+     */
+    Mono<CachedSummary> refreshWeatherSummary(String city);
+
+    /**
+     * The summary for the cache key {@code key} as the instance owning it in the cluster: from this instance's cache
+     * or its own upstream call, never asked of another instance. Counted as demand, since the asking instance's
+     * requests for the city are. A key {@link com.dushmantha.weather_analyzer.city.CityIndex} would not resolve a
+     * city to is rejected like an unknown city.
+     */
+    Mono<CachedSummary> ownedWeatherSummary(String key);
+
+    /**
+     * Non-blocking weather summary. Nothing on this path blocks a thread while the upstream call is in flight.
+     */
+    Mono<WeatherSummary> reactiveWeatherSummary(String city);
+
+    /**
+     * {@link CompletableFuture} adapter over {@link #reactiveWeatherSummary(String)} for existing callers.
+     */
     CompletableFuture<WeatherSummary> weatherSummary(String city);
 }
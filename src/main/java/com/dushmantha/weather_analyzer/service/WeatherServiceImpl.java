@@ -1,20 +1,29 @@
 package com.dushmantha.weather_analyzer.service;
 
-import com.dushmantha.weather_analyzer.dto.WeatherApiResponse;
-import com.dushmantha.weather_analyzer.dto.WeatherData;
+import com.dushmantha.weather_analyzer.cache.CachedSummary;
+import com.dushmantha.weather_analyzer.cache.WeatherCache;
+import com.dushmantha.weather_analyzer.city.CityIndex;
 import com.dushmantha.weather_analyzer.dto.WeatherSummary;
 import com.dushmantha.weather_analyzer.exception.ExternalApiException;
+import com.dushmantha.weather_analyzer.forecast.ForecastColumns;
+import com.dushmantha.weather_analyzer.forecast.ForecastDecoder;
+import com.dushmantha.weather_analyzer.history.ForecastHistoryStore;
+import com.dushmantha.weather_analyzer.prefetch.DemandTracker;
+import com.dushmantha.weather_analyzer.util.CityNames;
+import com.dushmantha.weather_analyzer.util.LogRateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpStatusCode;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
-import java.util.Comparator;
-import java.util.List;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
 
@@ -25,88 +34,155 @@ import java.util.concurrent.CompletableFuture;
 @Slf4j
 public class WeatherServiceImpl implements WeatherService {
 
+    private static final ExternalApiException UNAUTHORIZED =
+            ExternalApiException.stackless("Unauthorized access to weather API", 401);
+    private static final LogRateLimiter ERROR_LOGS = new LogRateLimiter(Duration.ofMinutes(1), 20);
+
     private final WebClient webClient;
+    private final ConcurrencyLimiter upstreamLimiter;
+    private final CircuitBreaker upstreamCircuitBreaker;
+    private final RequestHedger upstreamHedger;
+    private final WeatherCache weatherCache;
+    private final DemandTracker demandTracker;
+    private final CityIndex cityIndex;
+    private final Optional<ForecastHistoryStore> historyStore;
+    private final MeterRegistry meterRegistry;
 
     @Value("${weather.api.key}")
     private String apiKey;
 
-    @Value("${weather.api.url}")
-    private String apiUrl;
+    public WeatherServiceImpl(WebClient weatherApiClient, ConcurrencyLimiter upstreamLimiter,
+                              CircuitBreaker upstreamCircuitBreaker, RequestHedger upstreamHedger,
+                              WeatherCache weatherCache,
+                              DemandTracker demandTracker, CityIndex cityIndex,
+                              Optional<ForecastHistoryStore> historyStore, MeterRegistry meterRegistry) {
+        this.webClient = weatherApiClient;
+        this.upstreamLimiter = upstreamLimiter;
+        this.upstreamCircuitBreaker = upstreamCircuitBreaker;
+        this.upstreamHedger = upstreamHedger;
+        this.weatherCache = weatherCache;
+        this.demandTracker = demandTracker;
+        this.cityIndex = cityIndex;
+        this.historyStore = historyStore;
+        this.meterRegistry = meterRegistry;
+    }
 
-    public WeatherServiceImpl(WebClient.Builder webClientBuilder) {
-        this.webClient = webClientBuilder.build();
+    @Override
+    public Mono<CachedSummary> cachedWeatherSummary(String city) {
+        String key = cityIndex.resolve(city);
+        if (key == null) {
+            return Mono.error(ExternalApiException.stackless("City not found for: " + CityNames.normalize(city)));
+        }
+        // counted once answered, so names that turn out unknown upstream never become hot
+        return weatherCache.get(key, this::loadWeatherSummary)
+                .doOnNext(entry -> demandTracker.record(key));
     }
 
     @Override
-    @Async("taskExecutor")
-    @Cacheable(value = "weatherCache", key = "#city.toLowerCase()")
-    public CompletableFuture<WeatherSummary> weatherSummary(String city) {
-        try {
-            WeatherApiResponse response = fetchWeatherData(city);
-            WeatherSummary summary = processWeatherData(response);
-            return CompletableFuture.completedFuture(summary);
-        } catch (Exception e) {
-            log.error("Error processing weather data for city: {}", city);
-            return CompletableFuture.failedFuture(e);
+    public Mono<CachedSummary> refreshWeatherSummary(String city) {
+        return weatherCache.refresh(city, this::loadWeatherSummary);
+    }
+
+    @Override
+    public Mono<CachedSummary> ownedWeatherSummary(String key) {
+        if (!cityIndex.isKey(key)) {
+            return Mono.error(ExternalApiException.stackless("City not found for: " + key));
         }
+        return weatherCache.getOwned(key, this::loadWeatherSummary)
+                .doOnNext(entry -> demandTracker.record(key));
+    }
+
+    @Override
+    public Mono<WeatherSummary> reactiveWeatherSummary(String city) {
+        return cachedWeatherSummary(city).map(CachedSummary::getSummary);
     }
 
-    private WeatherApiResponse fetchWeatherData(String city) {
-        String url = String.format("%s?q=%s&appid=%s&units=metric", apiUrl, city, apiKey);
-        log.info("Fetch weather data using url: {}", url);
+    @Override
+    public CompletableFuture<WeatherSummary> weatherSummary(String city) {
+        return reactiveWeatherSummary(city).toFuture();
+    }
+
+    private Mono<ForecastColumns> loadWeatherSummary(String key) {
+        String city = cityIndex.query(key);
+        // an open circuit fails before taking a queue slot; stale entries keep being served by weatherCache.
+        // A hedge shares the call's permit: the hedging budget, not the limiter, bounds the extra load
+        return upstreamCircuitBreaker.execute(() -> upstreamLimiter.execute(() -> timed(
+                        upstreamHedger.execute(endpoint -> fetchWeatherData(endpoint, city)))))
+                .doOnNext(forecast -> historyStore.ifPresent(
+                        store -> store.append(key, forecast, System.currentTimeMillis())))
+                // upstream answers were logged with their response body already
+                .doOnError(e -> !(e instanceof ExternalApiException api && api.getUpstreamStatus() > 0),
+                        e -> logError(UpstreamOutcome.of(e), "Error processing weather data for city: {}", city));
+    }
+
+    private Mono<ForecastColumns> fetchWeatherData(String endpoint, String city) {
+        log.info("Fetch weather data from {} for city: {}", endpoint, city);
 
         return webClient.get()
-                .uri(url)
+                // expanded from a template so the client metrics' uri tag stays one value, without city or key
+                .uri(endpoint + "?q={city}&appid={key}&units=metric", city, apiKey)
                 .retrieve()
                 .onStatus(HttpStatusCode::is4xxClientError, response ->
                         response.bodyToMono(String.class).flatMap(errorBody -> {
                             int status = response.statusCode().value();
 
                             if (status == 404) {
-                                log.error("City not found (404): {} | Response: {}", city, errorBody);
-                                return Mono.error(new ExternalApiException("City not found for: " + city));
+                                logError("not_found", "City not found (404): {} | Response: {}", city, errorBody);
+                                // kept by weatherCache as a negative entry and signalled again to every caller
+                                return Mono.error(ExternalApiException.stackless("City not found for: " + city,
+                                        status));
                             } else if (status == 401) {
-                                log.error("Unauthorized (401): {} | Response: {}", city, errorBody);
-                                return Mono.error(new ExternalApiException("Unauthorized access to weather API"));
+                                logError("unauthorized", "Unauthorized (401): {} | Response: {}", city, errorBody);
+                                return Mono.error(UNAUTHORIZED);
                             } else {
-                                log.error("Client error {} for city: {} | Response: {}", status, city, errorBody);
-                                return Mono.error(new ExternalApiException("Client error: " + status));
+                                logError("client_error", "Client error {} for city: {} | Response: {}", status, city,
+                                        errorBody);
+                                return Mono.error(ExternalApiException.stackless("Client error: " + status, status));
                             }
                         })
                 )
                 .onStatus(HttpStatusCode::is5xxServerError, response ->
                         response.bodyToMono(String.class).flatMap(errorBody -> {
-                            log.error("Server error for city: {} | Response: {}", city, errorBody);
-                            return Mono.error(new ExternalApiException("Weather service API unavailable"));
+                            logError("server_error", "Server error for city: {} | Response: {}", city, errorBody);
+                            return Mono.error(ExternalApiException.stackless("Weather service API unavailable",
+                                    response.statusCode().value()));
                         })
                 )
-                .bodyToMono(WeatherApiResponse.class)
-                .block();
+                .bodyToFlux(DataBuffer.class)
+                .as(body -> ForecastDecoder.decode(body, ForecastColumns::builder, ForecastColumns.CAPACITY))
+                .map(ForecastColumns.Builder::build);
+    }
+
+    /**
+     * Logs at most 20 errors a minute per outcome, so junk lookups or an upstream outage cannot flood the log.
+     */
+    private static void logError(String outcome, String format, Object... args) {
+        long skipped = ERROR_LOGS.tryAcquire(outcome);
+        if (skipped >= 0) {
+            Object[] withSkipped = Arrays.copyOf(args, args.length + 1);
+            withSkipped[args.length] = skipped;
+            log.error(format + " ({} similar skipped)", withSkipped);
+        }
+    }
+
+    /**
+     * Records the upstream call, including reading and decoding the body, in {@code weather.upstream.requests}
+     * tagged with its outcome.
+     */
+    private Mono<ForecastColumns> timed(Mono<ForecastColumns> call) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return call
+                    .doOnSuccess(forecast -> stop(sample, "success"))
+                    .doOnError(e -> stop(sample, UpstreamOutcome.of(e)))
+                    .doOnCancel(() -> stop(sample, "cancelled"));
+        });
     }
 
-    private WeatherSummary processWeatherData(WeatherApiResponse response) {
-        List<WeatherData> last7Days = response.getList().stream()
-                .limit(56) // 7 days * 8 forecasts per day (3-hour intervals)
-                .toList();
-
-        double averageTemp = last7Days.stream()
-                .mapToDouble(data -> data.getMain().getTemp())
-                .average()
-                .orElse(0.0);
-
-        WeatherData hottestData = last7Days.stream()
-                .max(Comparator.comparing(data -> data.getMain().getTemp()))
-                .orElse(null);
-
-        WeatherData coldestData = last7Days.stream()
-                .min(Comparator.comparing(data -> data.getMain().getTemp()))
-                .orElse(null);
-
-        return new WeatherSummary(
-                response.getCity().getName(),
-                Math.round(averageTemp * 100.0) / 100.0,
-                hottestData != null ? hottestData.getDt_txt().split(" ")[0] : null,
-                coldestData != null ? coldestData.getDt_txt().split(" ")[0] : null
-        );
+    private void stop(Timer.Sample sample, String outcome) {
+        sample.stop(Timer.builder("weather.upstream.requests")
+                .description("Weather API calls, from request to decoded forecast")
+                .tag("outcome", outcome)
+                .register(meterRegistry));
     }
 }
@@ -0,0 +1,20 @@
+package com.dushmantha.weather_analyzer.service;
+
+import com.dushmantha.weather_analyzer.dto.WeatherBatchResult;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+public interface WeatherSubscriptionService {
+
+    /**
+     * Emits the current summary of every distinct city, then a new one each time its cached entry is refreshed, as
+     * {@code summary} events; a city that cannot be served gets an {@code error} event instead. Never completes
+     * unless the client is too slow to keep up and gets disconnected.
+     */
+    Flux<ServerSentEvent<WeatherBatchResult>> subscribe(List<String> cities);
+}
@@ -0,0 +1,182 @@
+package com.dushmantha.weather_analyzer.service;
+
+import com.dushmantha.weather_analyzer.cache.CachedSummary;
+import com.dushmantha.weather_analyzer.cache.WeatherCache;
+import com.dushmantha.weather_analyzer.city.CityIndex;
+import com.dushmantha.weather_analyzer.dto.WeatherBatchResult;
+import com.dushmantha.weather_analyzer.exception.GlobalExceptionHandler;
+import com.dushmantha.weather_analyzer.util.CityNames;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+/**
+ * Subscriptions share everything per city: one cache entry, one topic that a refresh is published to once, and one
+ * keep-fresh read per heartbeat whatever the number of subscribers. Each subscription only holds a bounded buffer of
+ * events its client has not taken yet; when it is full the oldest event is dropped, or the client is disconnected
+ * with {@code slow-consumer: disconnect}. A heartbeat comment keeps idle connections open through proxies and detects
+ * clients that went away. Each subscription has its own heartbeat timer, a cheap task on the shared parallel
+ * scheduler, so a client that stopped reading only misses its own heartbeats.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+@Service
+@Slf4j
+public class WeatherSubscriptionServiceImpl implements WeatherSubscriptionService {
+
+    public enum SlowConsumerPolicy {
+        DROP_OLDEST,
+        DISCONNECT
+    }
+
+    private static final ServerSentEvent<WeatherBatchResult> HEARTBEAT =
+            ServerSentEvent.<WeatherBatchResult>builder().comment("heartbeat").build();
+
+    private final WeatherService weatherService;
+    private final WeatherCache weatherCache;
+    private final CityIndex cityIndex;
+    private final Duration heartbeat;
+    private final AtomicInteger open = new AtomicInteger();
+    private final Counter dropped;
+    private final Counter disconnected;
+
+    @Value("${weather.subscriptions.max-cities:50}")
+    private int maxCities;
+
+    @Value("${weather.subscriptions.buffer-size:16}")
+    private int bufferSize;
+
+    @Value("${weather.subscriptions.slow-consumer:drop-oldest}")
+    private SlowConsumerPolicy slowConsumer;
+
+    public WeatherSubscriptionServiceImpl(WeatherService weatherService, WeatherCache weatherCache,
+                                          CityIndex cityIndex,
+                                          @Value("${weather.subscriptions.heartbeat:30s}") Duration heartbeat,
+                                          MeterRegistry meterRegistry) {
+        this.weatherService = weatherService;
+        this.weatherCache = weatherCache;
+        this.cityIndex = cityIndex;
+        this.heartbeat = heartbeat;
+
+        Gauge.builder("weather.subscriptions.open", open, AtomicInteger::get)
+                .description("Open summary subscriptions")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("weather.subscriptions.dropped")
+                .description("Events dropped because a subscriber's buffer was full")
+                .register(meterRegistry);
+        this.disconnected = Counter.builder("weather.subscriptions.disconnected")
+                .description("Subscribers disconnected for not keeping up")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Flux<ServerSentEvent<WeatherBatchResult>> subscribe(List<String> cities) {
+        if (cities == null || cities.isEmpty()) {
+            throw new IllegalArgumentException("At least one city is required");
+        }
+        if (cities.size() > maxCities) {
+            throw new IllegalArgumentException("A subscription may contain at most " + maxCities + " cities");
+        }
+
+        Map<String, String> distinctCities = new LinkedHashMap<>();
+        for (String city : cities) {
+            String key = cityIndex.resolve(city);
+            if (key == null) {
+                String normalized = CityNames.normalize(city);
+                if (normalized.isEmpty()) {
+                    continue;
+                }
+                key = "?" + normalized;
+            }
+            distinctCities.putIfAbsent(key, city);
+        }
+        log.info("Weather summary subscription to {} cities", distinctCities.size());
+
+        Flux<ServerSentEvent<WeatherBatchResult>> summaries = Flux.fromIterable(distinctCities.entrySet())
+                .flatMap(city -> cityEvents(city.getKey(), city.getValue()), Math.max(1, distinctCities.size()), 1)
+                .map(WeatherSubscriptionServiceImpl::event);
+        summaries = slowConsumer == SlowConsumerPolicy.DISCONNECT
+                ? summaries.onBackpressureBuffer(bufferSize)
+                : summaries.onBackpressureBuffer(bufferSize, event -> dropped.increment(),
+                BufferOverflowStrategy.DROP_OLDEST);
+
+        // not shared: a shared timer emits only as fast as its slowest subscriber takes heartbeats
+        Flux<ServerSentEvent<WeatherBatchResult>> heartbeats = Flux.interval(heartbeat, heartbeat)
+                .onBackpressureDrop()
+                .map(tick -> HEARTBEAT);
+
+        return Flux.merge(1, summaries, heartbeats)
+                .onErrorResume(Exceptions::isOverflow, e -> {
+                    disconnected.increment();
+                    return Flux.empty();
+                })
+                .doOnSubscribe(subscription -> open.incrementAndGet())
+                .doFinally(signal -> open.decrementAndGet());
+    }
+
+    /**
+     * Reads every subscribed city through the cache once per heartbeat on behalf of all its subscribers, so it is
+     * refreshed past its soft TTL and counted as demand like a city that is polled.
+     */
+    @Scheduled(fixedDelayString = "${weather.subscriptions.heartbeat:30s}",
+            initialDelayString = "${weather.subscriptions.heartbeat:30s}")
+    public void keepSubscribedCitiesFresh() {
+        for (String key : weatherCache.subscribedKeys()) {
+            weatherService.cachedWeatherSummary(key).subscribe(
+                    entry -> { },
+                    e -> log.debug("Keep-fresh read failed for subscribed city: {}", key));
+        }
+    }
+
+    /**
+     * The city's current summary followed by every refresh. Updates are subscribed to first, so a refresh landing
+     * while the current entry loads is not lost. Only entries at least as new as the last one sent go out, and never
+     * the same entry twice.
+     */
+    private Flux<WeatherBatchResult> cityEvents(String key, String city) {
+        if (key.startsWith("?")) {
+            return Flux.just(WeatherBatchResult.failure(city, "City not found for: " + CityNames.normalize(city)));
+        }
+        AtomicReference<CachedSummary> latest = new AtomicReference<>();
+        Predicate<CachedSummary> isNewer = entry -> {
+            CachedSummary previous = latest.getAndAccumulate(entry, WeatherSubscriptionServiceImpl::newer);
+            return previous != entry && newer(previous, entry) == entry;
+        };
+        Mono<WeatherBatchResult> current = weatherService.cachedWeatherSummary(city)
+                .filter(isNewer)
+                .map(entry -> WeatherBatchResult.success(city, entry.getSummary()))
+                .onErrorResume(e -> Mono.just(WeatherBatchResult.failure(city,
+                        GlobalExceptionHandler.errorMessage(e))));
+        Flux<WeatherBatchResult> updates = weatherCache.updates(key)
+                .filter(isNewer)
+                .map(entry -> WeatherBatchResult.success(city, entry.getSummary()));
+        return Flux.merge(updates, current);
+    }
+
+    private static CachedSummary newer(CachedSummary previous, CachedSummary next) {
+        return previous == null || next.getFetchedAtMillis() >= previous.getFetchedAtMillis() ? next : previous;
+    }
+
+    private static ServerSentEvent<WeatherBatchResult> event(WeatherBatchResult result) {
+        return ServerSentEvent.builder(result)
+                .event(result.getError() == null ? "summary" : "error")
+                .build();
+    }
+}
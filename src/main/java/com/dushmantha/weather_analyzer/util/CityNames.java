@@ -0,0 +1,27 @@
+package com.dushmantha.weather_analyzer.util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Canonical form of a user supplied city name. The same form is used as the cache key and in the upstream query,
+ * so " London", "LONDON" and "ｌｏｎｄｏｎ" all resolve to one entry and one upstream call.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public final class CityNames {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private CityNames() {
+    }
+
+    public static String normalize(String city) {
+        if (city == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(city, Normalizer.Form.NFKC).strip();
+        return WHITESPACE.matcher(normalized).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+}
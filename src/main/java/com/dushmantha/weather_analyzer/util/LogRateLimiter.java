@@ -0,0 +1,58 @@
+package com.dushmantha.weather_analyzer.util;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lets at most {@code permits} log statements of each category through per {@code interval} and counts the rest.
+ * A flood of one kind of failure, such as bots asking for made-up cities, then costs a counter increment per
+ * occurrence instead of a formatted and written line, and the next line let through reports how many were skipped.
+ * Categories should be a small fixed set, such as an outcome or a status code, never a city.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public final class LogRateLimiter {
+
+    private final long intervalNanos;
+    private final int permits;
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    public LogRateLimiter(Duration interval, int permits) {
+        this.intervalNanos = interval.toNanos();
+        this.permits = permits;
+    }
+
+    /**
+     * Returns -1 when a statement of {@code category} should be skipped, otherwise the number of statements of
+     * {@code category} skipped since the last one let through.
+     */
+    public long tryAcquire(String category) {
+        Window window = windows.computeIfAbsent(category, c -> new Window(System.nanoTime()));
+        synchronized (window) {
+            long now = System.nanoTime();
+            if (now - window.start >= intervalNanos) {
+                window.start = now;
+                window.used = 0;
+            }
+            if (window.used >= permits) {
+                window.skipped++;
+                return -1;
+            }
+            window.used++;
+            long skipped = window.skipped;
+            window.skipped = 0;
+            return skipped;
+        }
+    }
+
+    private static final class Window {
+        private long start;
+        private int used;
+        private long skipped;
+
+        private Window(long start) {
+            this.start = start;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.dushmantha.weather_analyzer.perf;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Forecast payloads in the shape OpenWeatherMap's {@code /data/2.5/forecast} returns, including the fields the
+ * application never reads (weather, clouds, wind, visibility, pop, sys), so decoding cost is representative.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public final class ForecastPayloads {
+
+    private static final DateTimeFormatter DT_TXT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final LocalDateTime START = LocalDateTime.of(2024, 11, 19, 12, 0);
+
+    private ForecastPayloads() {
+    }
+
+    public static byte[] forecast(String city, int slots, long seed) {
+        Random random = new Random(seed);
+        StringBuilder json = new StringBuilder(512 + slots * 560);
+        json.append("{\"cod\":\"200\",\"message\":0,\"cnt\":").append(slots).append(",\"list\":[");
+        for (int i = 0; i < slots; i++) {
+            LocalDateTime time = START.plusHours(3L * i);
+            double temp = round(12 + random.nextGaussian() * 6);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"dt\":").append(time.toEpochSecond(ZoneOffset.UTC))
+                    .append(",\"main\":{\"temp\":").append(temp)
+                    .append(",\"feels_like\":").append(round(temp - random.nextDouble() * 3))
+                    .append(",\"temp_min\":").append(round(temp - random.nextDouble() * 2))
+                    .append(",\"temp_max\":").append(round(temp + random.nextDouble() * 2))
+                    .append(",\"pressure\":").append(990 + random.nextInt(40))
+                    .append(",\"sea_level\":").append(990 + random.nextInt(40))
+                    .append(",\"grnd_level\":").append(980 + random.nextInt(40))
+                    .append(",\"humidity\":").append(40 + random.nextInt(60))
+                    .append(",\"temp_kf\":").append(round(random.nextDouble()))
+                    .append("},\"weather\":[{\"id\":80").append(random.nextInt(5))
+                    .append(",\"main\":\"Clouds\",\"description\":\"scattered clouds\",\"icon\":\"03d\"}]")
+                    .append(",\"clouds\":{\"all\":").append(random.nextInt(100))
+                    .append("},\"wind\":{\"speed\":").append(round(random.nextDouble() * 12))
+                    .append(",\"deg\":").append(random.nextInt(360))
+                    .append(",\"gust\":").append(round(random.nextDouble() * 20))
+                    .append("},\"visibility\":10000,\"pop\":").append(round(random.nextDouble()))
+                    .append(",\"sys\":{\"pod\":\"").append(time.getHour() < 18 ? 'd' : 'n')
+                    .append("\"},\"dt_txt\":\"").append(time.format(DT_TXT)).append("\"}");
+        }
+        json.append("],\"city\":{\"id\":").append(Math.abs(city.hashCode()))
+                .append(",\"name\":\"").append(displayName(city))
+                .append("\",\"coord\":{\"lat\":51.5085,\"lon\":-0.1257},\"country\":\"GB\",\"population\":1000000,")
+                .append("\"timezone\":0,\"sunrise\":1732000000,\"sunset\":1732030000}}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String displayName(String city) {
+        // "London,GB" as sent for gazetteer cities
+        int comma = city.indexOf(',');
+        String name = comma >= 0 ? city.substring(0, comma) : city;
+        if (name.isEmpty()) {
+            return name;
+        }
+        return name.substring(0, 1).toUpperCase(Locale.ROOT) + name.substring(1);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+}
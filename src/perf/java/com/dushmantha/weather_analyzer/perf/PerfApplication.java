@@ -0,0 +1,40 @@
+package com.dushmantha.weather_analyzer.perf;
+
+import com.dushmantha.weather_analyzer.WeatherAnalyzerApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boots the real application on a random port with its upstream pointed at a {@link StubUpstream}.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public final class PerfApplication {
+
+    private PerfApplication() {
+    }
+
+    public static ConfigurableApplicationContext start(String upstreamUrl, String... extraProperties) {
+        List<String> properties = new ArrayList<>(List.of(
+                "server.port=0",
+                "weather.api.url=" + upstreamUrl,
+                "weather.api.key=perf",
+                // synthetic city names such as city-42 are not in the gazetteer
+                "weather.cities.reject-unknown=false",
+                "logging.level.root=warn",
+                "logging.level.com.dushmantha=off"));
+        properties.addAll(List.of(extraProperties));
+        // passed as arguments so they win over the profile's application-*.yml
+        return new SpringApplicationBuilder(WeatherAnalyzerApplication.class)
+                .run(properties.stream().map(property -> "--" + property).toArray(String[]::new));
+    }
+
+    public static String baseUrl(ConfigurableApplicationContext context) {
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        return "http://127.0.0.1:" + port;
+    }
+}
@@ -0,0 +1,91 @@
+package com.dushmantha.weather_analyzer.perf;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for OpenWeatherMap's {@code /data/2.5/forecast} endpoint, so benchmarks never touch the real API.
+ * Every city gets a deterministic payload of {@code slots} forecast slots.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public class StubUpstream implements AutoCloseable {
+
+    public static final String FORECAST_PATH = "/data/2.5/forecast";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, byte[]> payloads = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final int slots;
+
+    public StubUpstream(int slots) throws IOException {
+        this.slots = slots;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        this.server.createContext(FORECAST_PATH, this::handle);
+        this.server.setExecutor(executor);
+        this.server.start();
+    }
+
+    public String forecastUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + FORECAST_PATH;
+    }
+
+    public long requestCount() {
+        return requests.get();
+    }
+
+    protected void handle(HttpExchange exchange) throws IOException {
+        countRequest();
+        String city = queryParameter(exchange.getRequestURI(), "q");
+        respond(exchange, 200, payload(city));
+    }
+
+    protected void countRequest() {
+        requests.incrementAndGet();
+    }
+
+    protected byte[] payload(String city) {
+        return payloads.computeIfAbsent(city, c -> ForecastPayloads.forecast(c, slots, c.hashCode()));
+    }
+
+    protected static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    protected static String queryParameter(URI uri, String name) {
+        String query = uri.getRawQuery();
+        if (query == null) {
+            return "";
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0 && pair.substring(0, separator).equals(name)) {
+                return URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return "";
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,91 @@
+package com.dushmantha.weather_analyzer.perf.benchmark;
+
+import com.dushmantha.weather_analyzer.dto.WeatherApiResponse;
+import com.dushmantha.weather_analyzer.dto.WeatherSummary;
+import com.dushmantha.weather_analyzer.forecast.ForecastAccumulator;
+import com.dushmantha.weather_analyzer.forecast.ForecastDecoder;
+import com.dushmantha.weather_analyzer.forecast.ForecastSink;
+import com.dushmantha.weather_analyzer.perf.ForecastPayloads;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregation alone, with decoding taken out: the single-pass accumulator over already decoded slots against the
+ * original three-stream {@code processWeatherData}.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AggregationBenchmark {
+
+    @Param({"8", "40", "56"})
+    private int slots;
+
+    private WeatherApiResponse response;
+    private String city;
+    private long[] epochSeconds;
+    private double[] temps;
+    private int[] epochDays;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] payload = ForecastPayloads.forecast("london", slots, 42);
+        response = new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+                .readValue(payload, WeatherApiResponse.class);
+
+        epochSeconds = new long[slots];
+        temps = new double[slots];
+        epochDays = new int[slots];
+        ForecastDecoder.decode(ByteBuffer.wrap(payload), new ForecastSink() {
+            private int slot;
+
+            @Override
+            public void city(String name) {
+                city = name;
+            }
+
+            @Override
+            public void slot(long epochSecond, double temp, double tempMin, double tempMax, int epochDay) {
+                epochSeconds[slot] = epochSecond;
+                temps[slot] = temp;
+                epochDays[slot++] = epochDay;
+            }
+        }, slots);
+    }
+
+    @Benchmark
+    public WeatherSummary singlePassAccumulator() {
+        ForecastAccumulator accumulator = new ForecastAccumulator();
+        accumulator.city(city);
+        for (int i = 0; i < temps.length; i++) {
+            accumulator.slot(epochSeconds[i], temps[i], temps[i], temps[i], epochDays[i]);
+        }
+        return accumulator.toSummary();
+    }
+
+    @Benchmark
+    public WeatherSummary legacyStreams() {
+        return LegacyForecastAggregation.processWeatherData(response);
+    }
+}
@@ -0,0 +1,65 @@
+package com.dushmantha.weather_analyzer.perf.benchmark;
+
+import com.dushmantha.weather_analyzer.dto.DailyForecast;
+import com.dushmantha.weather_analyzer.dto.TemperaturePercentiles;
+import com.dushmantha.weather_analyzer.dto.WeatherSummary;
+import com.dushmantha.weather_analyzer.forecast.ForecastAnalysis;
+import com.dushmantha.weather_analyzer.forecast.ForecastColumns;
+import com.dushmantha.weather_analyzer.forecast.ForecastDecoder;
+import com.dushmantha.weather_analyzer.perf.ForecastPayloads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analyses answered from cached {@link ForecastColumns} over a full 40-slot forecast, the cost of each compared with
+ * the upstream round trip it replaces. Run with {@code -prof gc} to see the allocation per call.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ForecastAnalysisBenchmark {
+
+    private static final double[] PERCENTILES = {50, 90, 99};
+
+    private ForecastColumns forecast;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] payload = ForecastPayloads.forecast("london", 40, 42);
+        forecast = ForecastDecoder.decode(ByteBuffer.wrap(payload), ForecastColumns.builder(), ForecastColumns.CAPACITY)
+                .build();
+    }
+
+    @Benchmark
+    public List<DailyForecast> daily() {
+        return ForecastAnalysis.daily(forecast, 7);
+    }
+
+    @Benchmark
+    public WeatherSummary window() {
+        return ForecastAnalysis.window(forecast, 48);
+    }
+
+    @Benchmark
+    public TemperaturePercentiles percentiles() {
+        return ForecastAnalysis.percentiles(forecast, 120, PERCENTILES);
+    }
+}
@@ -0,0 +1,63 @@
+package com.dushmantha.weather_analyzer.perf.benchmark;
+
+import com.dushmantha.weather_analyzer.dto.WeatherApiResponse;
+import com.dushmantha.weather_analyzer.dto.WeatherSummary;
+import com.dushmantha.weather_analyzer.forecast.ForecastAccumulator;
+import com.dushmantha.weather_analyzer.forecast.ForecastDecoder;
+import com.dushmantha.weather_analyzer.perf.ForecastPayloads;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding a forecast payload into a summary: the streaming decoder against binding the whole
+ * {@link WeatherApiResponse} graph with Jackson and aggregating it.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ForecastDecodeBenchmark {
+
+    @Param({"8", "40", "56", "400"})
+    private int slots;
+
+    private byte[] payload;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        payload = ForecastPayloads.forecast("london", slots, 42);
+        objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    @Benchmark
+    public WeatherSummary streamingDecode() {
+        return ForecastDecoder.decode(ByteBuffer.wrap(payload), new ForecastAccumulator(), ForecastAccumulator.WINDOW)
+                .toSummary();
+    }
+
+    @Benchmark
+    public WeatherSummary databindDecode() throws IOException {
+        WeatherApiResponse response = objectMapper.readValue(payload, WeatherApiResponse.class);
+        return LegacyForecastAggregation.processWeatherData(response);
+    }
+}
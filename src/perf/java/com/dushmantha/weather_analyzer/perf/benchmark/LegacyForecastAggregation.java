@@ -0,0 +1,45 @@
+package com.dushmantha.weather_analyzer.perf.benchmark;
+
+import com.dushmantha.weather_analyzer.dto.WeatherApiResponse;
+import com.dushmantha.weather_analyzer.dto.WeatherData;
+import com.dushmantha.weather_analyzer.dto.WeatherSummary;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The original bind-then-stream aggregation, kept as the baseline the streaming decoder is measured against.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+final class LegacyForecastAggregation {
+
+    private LegacyForecastAggregation() {
+    }
+
+    static WeatherSummary processWeatherData(WeatherApiResponse response) {
+        List<WeatherData> last7Days = response.getList().stream()
+                .limit(56)
+                .toList();
+
+        double averageTemp = last7Days.stream()
+                .mapToDouble(data -> data.getMain().getTemp())
+                .average()
+                .orElse(0.0);
+
+        WeatherData hottestData = last7Days.stream()
+                .max(Comparator.comparing(data -> data.getMain().getTemp()))
+                .orElse(null);
+
+        WeatherData coldestData = last7Days.stream()
+                .min(Comparator.comparing(data -> data.getMain().getTemp()))
+                .orElse(null);
+
+        return new WeatherSummary(
+                response.getCity().getName(),
+                Math.round(averageTemp * 100.0) / 100.0,
+                hottestData != null ? hottestData.getDt_txt().split(" ")[0] : null,
+                coldestData != null ? coldestData.getDt_txt().split(" ")[0] : null
+        );
+    }
+}
@@ -0,0 +1,136 @@
+package com.dushmantha.weather_analyzer.perf.benchmark;
+
+import com.dushmantha.weather_analyzer.cache.CachedSummary;
+import com.dushmantha.weather_analyzer.cache.SummaryEncoder;
+import com.dushmantha.weather_analyzer.cache.SummaryFormat;
+import com.dushmantha.weather_analyzer.dto.WeatherBatchResult;
+import com.dushmantha.weather_analyzer.dto.WeatherSummary;
+import com.dushmantha.weather_analyzer.perf.PerfApplication;
+import com.dushmantha.weather_analyzer.perf.StubUpstream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link SummaryFormat}s of a summary response: encoding a summary and a batch of 50 results, serving a cached
+ * entry's body, kept with it when the format is eager and encoded again otherwise, decoding it as a client would,
+ * and {@code GET /weather} round trips through the embedded server with the format's {@code Accept} header. The
+ * encoded size of each format is printed at setup.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseFormatBenchmark {
+
+    private static final int BATCH_SIZE = 50;
+
+    @Param({"JSON", "CBOR", "SMILE", "BINARY"})
+    private SummaryFormat format;
+
+    /**
+     * Whether the format is one of {@code weather.cache.eager-formats}, kept with the entry rather than encoded on
+     * every response.
+     */
+    @Param({"true", "false"})
+    private boolean eager;
+
+    private WeatherSummary summary;
+    private SummaryEncoder encoder;
+    private CachedSummary cached;
+    private List<WeatherBatchResult> batch;
+    private byte[] encoded;
+
+    private StubUpstream upstream;
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private HttpRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        upstream = new StubUpstream(40);
+        context = PerfApplication.start(upstream.forecastUrl(),
+                "weather.cache.eager-formats=" + (eager ? format.name().toLowerCase(Locale.ROOT) : "json"));
+        encoder = context.getBean(SummaryEncoder.class);
+
+        summary = new WeatherSummary("London", 16.8, "2025-07-27", "2025-07-25");
+        cached = new CachedSummary(summary, 0L, Long.MAX_VALUE);
+        cached.getBody(encoder);
+        batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            String city = "City " + i;
+            batch.add(i % 10 == 9
+                    ? WeatherBatchResult.failure(city, "City not found for: " + city)
+                    : WeatherBatchResult.success(city, new WeatherSummary(city, 10.0 + i / 4.0, "2025-07-27",
+                    "2025-07-25")));
+        }
+        encoded = cached.getBody(encoder, format);
+        System.out.printf("%n%s: summary %d bytes, batch of %d %d bytes%n", format, encoded.length, BATCH_SIZE,
+                encoder.write(format, batch).length);
+
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        request = HttpRequest.newBuilder(URI.create(PerfApplication.baseUrl(context) + "/weather?city=London"))
+                .header(HttpHeaders.ACCEPT, format.mediaType().toString())
+                .GET()
+                .build();
+        httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        upstream.close();
+    }
+
+    @Benchmark
+    public byte[] encodeSummary() {
+        return encoder.write(format, summary);
+    }
+
+    @Benchmark
+    public byte[] encodeBatch() {
+        return encoder.write(format, batch);
+    }
+
+    @Benchmark
+    public byte[] cachedBody() {
+        return cached.getBody(encoder, format);
+    }
+
+    @Benchmark
+    public WeatherSummary decodeSummary() throws IOException {
+        return encoder.read(format, encoded, WeatherSummary.class);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int controllerRoundTrip() throws IOException, InterruptedException {
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray()).body().length;
+    }
+}
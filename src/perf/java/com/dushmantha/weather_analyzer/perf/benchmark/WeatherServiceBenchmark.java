@@ -0,0 +1,86 @@
+package com.dushmantha.weather_analyzer.perf.benchmark;
+
+import com.dushmantha.weather_analyzer.dto.WeatherSummary;
+import com.dushmantha.weather_analyzer.perf.PerfApplication;
+import com.dushmantha.weather_analyzer.perf.StubUpstream;
+import com.dushmantha.weather_analyzer.service.WeatherService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The full application against a local {@link StubUpstream}: summaries served from {@code weatherCache}, summaries
+ * that always miss and go upstream, and {@code GET /weather} round trips through the embedded server.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(4)
+@Fork(1)
+public class WeatherServiceBenchmark {
+
+    private final AtomicLong uniqueCity = new AtomicLong();
+
+    private StubUpstream upstream;
+    private ConfigurableApplicationContext context;
+    private WeatherService weatherService;
+    private HttpClient httpClient;
+    private HttpRequest cachedRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        upstream = new StubUpstream(40);
+        context = PerfApplication.start(upstream.forecastUrl(), "weather.cache.maximum-weight=256MB");
+        weatherService = context.getBean(WeatherService.class);
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        cachedRequest = HttpRequest.newBuilder(URI.create(PerfApplication.baseUrl(context) + "/weather?city=London"))
+                .GET()
+                .build();
+        weatherService.reactiveWeatherSummary("London").block();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        upstream.close();
+    }
+
+    @Benchmark
+    public WeatherSummary cachedSummary() {
+        return weatherService.reactiveWeatherSummary("London").block();
+    }
+
+    @Benchmark
+    public WeatherSummary uncachedSummary() {
+        return weatherService.reactiveWeatherSummary("city-" + uniqueCity.incrementAndGet()).block();
+    }
+
+    @Benchmark
+    public int controllerRoundTrip() throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = httpClient.send(cachedRequest, HttpResponse.BodyHandlers.ofByteArray());
+        return response.body().length;
+    }
+}
@@ -0,0 +1,49 @@
+package com.dushmantha.weather_analyzer.perf.loadtest;
+
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * Simulated upstream response time. Parsed from {@code fixed:20ms}, {@code uniform:10ms-80ms} or
+ * {@code lognormal:40ms-400ms} (median and p99), the last being the closest to what a real API looks like.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+    /** z-score of the 99th percentile of the standard normal distribution. */
+    double Z_99 = 2.3263;
+
+    long sampleNanos(Random random);
+
+    static LatencyDistribution parse(String spec) {
+        int colon = spec.indexOf(':');
+        String kind = colon < 0 ? spec : spec.substring(0, colon);
+        String[] values = colon < 0 ? new String[0] : spec.substring(colon + 1).split("-");
+        switch (kind) {
+            case "none":
+                return random -> 0L;
+            case "fixed": {
+                long nanos = nanos(values[0]);
+                return random -> nanos;
+            }
+            case "uniform": {
+                long min = nanos(values[0]);
+                long max = nanos(values[1]);
+                return random -> min + (long) (random.nextDouble() * (max - min));
+            }
+            case "lognormal": {
+                double mu = Math.log(nanos(values[0]));
+                double sigma = (Math.log(nanos(values[1])) - mu) / Z_99;
+                return random -> (long) Math.exp(mu + sigma * random.nextGaussian());
+            }
+            default:
+                throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+        }
+    }
+
+    private static long nanos(String value) {
+        return LoadTestOptions.duration(value).toNanos();
+    }
+}
@@ -0,0 +1,59 @@
+package com.dushmantha.weather_analyzer.perf.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Outcome of one measured run. Replayed requests and forced misses are recorded apart, so cache hit latency can be
+ * watched on its own while misses go upstream. Latencies are in microseconds; in the open model they are measured from when each
+ * request was due rather than when it was sent, so a stalled server is not hidden by coordinated omission.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public record LoadReport(Histogram latencyMicros, Histogram missLatencyMicros, Duration elapsed, Map<Integer, Long> statuses, long dropped,
+                         long ioErrors, long cacheHits, long cacheMisses, long upstreamCalls) {
+
+    public long requests() {
+        return latencyMicros.getTotalCount() + missLatencyMicros.getTotalCount();
+    }
+
+    public double throughput() {
+        return requests() / (elapsed.toNanos() / 1e9);
+    }
+
+    public double cacheHitRatio() {
+        long gets = cacheHits + cacheMisses;
+        return gets == 0 ? Double.NaN : (double) cacheHits / gets;
+    }
+
+    public void print(PrintStream out) {
+        out.printf("Requests     %d in %.1fs (%.1f req/s), %d dropped, %d I/O errors%n",
+                requests(), elapsed.toNanos() / 1e9, throughput(), dropped, ioErrors);
+        StringBuilder statusLine = new StringBuilder();
+        new TreeMap<>(statuses).forEach((status, count) -> statusLine.append(' ').append(status).append('=').append(count));
+        out.printf("Status      %s%n", statusLine);
+        printLatency(out, "Latency ms  ", latencyMicros);
+        if (missLatencyMicros.getTotalCount() > 0) {
+            printLatency(out, "Misses ms   ", missLatencyMicros);
+        }
+        out.printf("Cache        hit ratio %.1f%% (hits=%d misses=%d)%n",
+                cacheHitRatio() * 100, cacheHits, cacheMisses);
+        if (upstreamCalls >= 0) {
+            out.printf("Upstream     %d calls%n", upstreamCalls);
+        }
+    }
+
+    private static void printLatency(PrintStream out, String label, Histogram histogram) {
+        out.printf("%s p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f (%d requests)%n", label,
+                percentile(histogram, 50), percentile(histogram, 90), percentile(histogram, 99),
+                percentile(histogram, 99.9), histogram.getMaxValue() / 1000.0, histogram.getTotalCount());
+    }
+
+    private static double percentile(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+}
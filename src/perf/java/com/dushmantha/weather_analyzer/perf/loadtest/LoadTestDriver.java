@@ -0,0 +1,247 @@
+package com.dushmantha.weather_analyzer.perf.loadtest;
+
+import com.dushmantha.weather_analyzer.perf.PerfApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Recorder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * Replays a JSONL file of city requests against {@code GET /weather} at a fixed rate or concurrency and reports
+ * throughput, latency percentiles, status codes and the {@code weatherCache} hit ratio. Without {@code --target} the
+ * application is started in-process against an {@link UpstreamSimulator}, so no API quota is used. See
+ * {@link LoadTestOptions} for the options.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public class LoadTestDriver {
+
+    private static final String SAMPLE_REPLAY = "/loadtest/cities.jsonl";
+    /** coprime with 1000, so forced misses are spread evenly through the sequence instead of bunched */
+    private static final long MISS_SPREAD = 617;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LoadTestOptions options;
+    private final String target;
+    private final List<URI> requests;
+    private final HttpClient httpClient;
+    private final AtomicLong missCounter = new AtomicLong(System.currentTimeMillis());
+
+    public LoadTestDriver(LoadTestOptions options, String target, List<String> cities) {
+        this.options = options;
+        this.target = target;
+        this.requests = cities.stream()
+                .map(city -> URI.create(target + "/weather?city=" + URLEncoder.encode(city, StandardCharsets.UTF_8)))
+                .toList();
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(options.timeout())
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        List<String> cities = readReplay(options.replay());
+
+        UpstreamSimulator upstream = null;
+        ConfigurableApplicationContext application = null;
+        try {
+            String target = options.target();
+            if (target == null) {
+                upstream = new UpstreamSimulator(options);
+                application = PerfApplication.start(upstream.forecastUrl());
+                target = PerfApplication.baseUrl(application);
+            }
+            System.out.printf("Replaying %d requests against %s, %s for %s after %s warmup%n", cities.size(), target,
+                    options.openModel() ? options.rate() + " req/s" : options.concurrency() + " clients",
+                    options.duration(), options.warmup());
+
+            LoadTestDriver driver = new LoadTestDriver(options, target, cities);
+            driver.run(options.warmup());
+            long upstreamBefore = 0;
+            if (upstream != null) {
+                upstream.beginMeasurement();
+                upstreamBefore = upstream.requestCount();
+            }
+            LoadReport report = driver.measure(options.duration(), upstreamBefore, upstream);
+            report.print(System.out);
+        } finally {
+            if (application != null) {
+                application.close();
+            }
+            if (upstream != null) {
+                upstream.close();
+            }
+        }
+    }
+
+    static List<String> readReplay(String path) throws IOException {
+        try (InputStream in = path != null ? Files.newInputStream(Path.of(path))
+                : LoadTestDriver.class.getResourceAsStream(SAMPLE_REPLAY)) {
+            ObjectMapper objectMapper = new ObjectMapper();
+            List<String> cities = new ArrayList<>();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (!line.isBlank()) {
+                    cities.add(objectMapper.readTree(line).path("city").asText());
+                }
+            }
+            if (cities.isEmpty()) {
+                throw new IllegalArgumentException("Replay file has no requests: " + path);
+            }
+            return cities;
+        }
+    }
+
+    private LoadReport measure(Duration duration, long upstreamBefore, UpstreamSimulator upstream)
+            throws Exception {
+        long hitsBefore = cacheGets("hit");
+        long missesBefore = cacheGets("miss");
+        Run run = run(duration);
+        return new LoadReport(run.recorder.getIntervalHistogram(), run.missRecorder.getIntervalHistogram(),
+                run.elapsed,
+                run.statuses.entrySet().stream()
+                        .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().sum())),
+                run.dropped.sum(), run.ioErrors.sum(),
+                cacheGets("hit") - hitsBefore, cacheGets("miss") - missesBefore,
+                upstream != null ? upstream.requestCount() - upstreamBefore : -1);
+    }
+
+    private Run run(Duration duration) throws InterruptedException {
+        Run run = new Run();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        if (options.openModel()) {
+            runOpen(run, start, end);
+        } else {
+            runClosed(run, end);
+        }
+        run.elapsed = Duration.ofNanos(System.nanoTime() - start);
+        return run;
+    }
+
+    /**
+     * Sends on a fixed schedule whatever the response times. Requests that would exceed what can be outstanding
+     * within one timeout at the target rate are dropped and counted instead of queued.
+     */
+    private void runOpen(Run run, long start, long end) throws InterruptedException {
+        long interval = TimeUnit.SECONDS.toNanos(1) / options.rate();
+        int maxOutstanding = (int) Math.max(1, options.rate() * Math.max(1, options.timeout().toSeconds()));
+        Semaphore outstanding = new Semaphore(maxOutstanding);
+        for (long i = 0; ; i++) {
+            long due = start + i * interval;
+            if (due >= end) {
+                break;
+            }
+            LockSupport.parkNanos(due - System.nanoTime());
+            if (!outstanding.tryAcquire()) {
+                run.dropped.increment();
+                continue;
+            }
+            boolean miss = isMiss(i);
+            httpClient.sendAsync(request(i, miss), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        run.record(due, miss, response, error);
+                        outstanding.release();
+                    });
+        }
+        outstanding.tryAcquire(maxOutstanding, options.timeout().toMillis() * 2, TimeUnit.MILLISECONDS);
+    }
+
+    private void runClosed(Run run, long end) throws InterruptedException {
+        AtomicLong sequence = new AtomicLong();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < options.concurrency(); c++) {
+                clients.execute(() -> {
+                    while (System.nanoTime() < end) {
+                        long next = sequence.getAndIncrement();
+                        boolean miss = isMiss(next);
+                        long sent = System.nanoTime();
+                        try {
+                            run.record(sent, miss, httpClient.send(request(next, miss),
+                                    HttpResponse.BodyHandlers.discarding()), null);
+                        } catch (IOException e) {
+                            run.record(sent, miss, null, e);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    private boolean isMiss(long sequence) {
+        return (sequence * MISS_SPREAD) % 1000 < options.missRatio() * 1000;
+    }
+
+    private HttpRequest request(long sequence, boolean miss) {
+        URI uri = miss
+                ? URI.create(target + "/weather?city=loadtest-miss-" + missCounter.incrementAndGet())
+                : requests.get((int) (sequence % requests.size()));
+        return HttpRequest.newBuilder(uri)
+                .timeout(options.timeout())
+                .GET()
+                .build();
+    }
+
+    private long cacheGets(String result) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(
+                        URI.create(target + "/actuator/metrics/cache.gets?tag=cache:weatherCache&tag=result:" + result))
+                .timeout(options.timeout())
+                .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            return 0;
+        }
+        JsonNode measurements = objectMapper.readTree(response.body()).path("measurements");
+        return measurements.isEmpty() ? 0 : measurements.get(0).path("value").asLong();
+    }
+
+    private static final class Run {
+
+        private final Recorder recorder = new Recorder(3);
+        private final Recorder missRecorder = new Recorder(3);
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder ioErrors = new LongAdder();
+        private Duration elapsed;
+
+        private void record(long startNanos, boolean miss, HttpResponse<?> response, Throwable error) {
+            (miss ? missRecorder : recorder).recordValue(Math.max(0, (System.nanoTime() - startNanos) / 1000));
+            if (error != null) {
+                ioErrors.increment();
+            } else {
+                statuses.computeIfAbsent(response.statusCode(), status -> new LongAdder()).increment();
+            }
+        }
+    }
+}
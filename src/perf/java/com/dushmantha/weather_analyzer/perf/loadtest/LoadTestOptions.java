@@ -0,0 +1,90 @@
+package com.dushmantha.weather_analyzer.perf.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Command line options of {@link LoadTestDriver}, given as {@code --name=value}.
+ *
+ * <pre>
+ * --replay=PATH            JSONL file of {"city": "..."} lines, replayed in order and repeated (default: bundled sample)
+ * --target=URL             base URL of a running instance; without it the application is started in-process
+ *                          against a local {@link UpstreamSimulator}
+ * --rate=N                 open model: N requests per second regardless of response times
+ * --concurrency=N          closed model: N clients each sending their next request on response (default 32)
+ * --duration=60s           measured run length
+ * --warmup=10s             unmeasured run before it
+ * --timeout=10s            per request timeout
+ * --upstream-latency=SPEC  fixed:20ms, uniform:10ms-80ms or lognormal:40ms-400ms (median-p99)
+ * --upstream-404-rate=0.01 --upstream-401-rate=0 --upstream-5xx-rate=0.01
+ * --upstream-slots=40      forecast slots per upstream payload
+ * --miss-ratio=0.2         share of requests sent for a never seen city, reported apart from the replayed ones
+ * --incident=20s+15s       upstream incident starting 20s into the measured run and lasting 15s, during which
+ *                          --incident-latency=fixed:3s and --incident-5xx-rate=0.5 apply instead
+ * </pre>
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public record LoadTestOptions(String replay, String target, int rate, int concurrency, Duration duration,
+                              Duration warmup, Duration timeout, String upstreamLatencySpec, double notFoundRate,
+                              double unauthorizedRate, double serverErrorRate, int upstreamSlots,
+                              double missRatio, Duration incidentAt, Duration incidentFor,
+                              String incidentLatencySpec, double incidentServerErrorRate) {
+
+    private static final Set<String> NAMES = Set.of("replay", "target", "rate", "concurrency", "duration", "warmup",
+            "timeout", "upstream-latency", "upstream-404-rate", "upstream-401-rate", "upstream-5xx-rate",
+            "upstream-slots", "miss-ratio", "incident", "incident-latency", "incident-5xx-rate");
+
+    public static LoadTestOptions parse(String... args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0 || !NAMES.contains(arg.substring(2, separator))) {
+                throw new IllegalArgumentException("Unknown option: " + arg + ", expected one of --" + NAMES);
+            }
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        String[] incident = values.getOrDefault("incident", "0s+0s").split("\\+");
+        LoadTestOptions options = new LoadTestOptions(
+                values.get("replay"),
+                values.get("target"),
+                Integer.parseInt(values.getOrDefault("rate", "0")),
+                Integer.parseInt(values.getOrDefault("concurrency", "32")),
+                duration(values.getOrDefault("duration", "60s")),
+                duration(values.getOrDefault("warmup", "10s")),
+                duration(values.getOrDefault("timeout", "10s")),
+                values.getOrDefault("upstream-latency", "lognormal:40ms-400ms"),
+                Double.parseDouble(values.getOrDefault("upstream-404-rate", "0.01")),
+                Double.parseDouble(values.getOrDefault("upstream-401-rate", "0")),
+                Double.parseDouble(values.getOrDefault("upstream-5xx-rate", "0.01")),
+                Integer.parseInt(values.getOrDefault("upstream-slots", "40")),
+                Double.parseDouble(values.getOrDefault("miss-ratio", "0")),
+                duration(incident[0]),
+                duration(incident[1]),
+                values.getOrDefault("incident-latency", "fixed:3s"),
+                Double.parseDouble(values.getOrDefault("incident-5xx-rate", "0.5")));
+        options.upstreamLatency();
+        options.incidentLatency();
+        return options;
+    }
+
+    public LatencyDistribution upstreamLatency() {
+        return LatencyDistribution.parse(upstreamLatencySpec);
+    }
+
+    public LatencyDistribution incidentLatency() {
+        return LatencyDistribution.parse(incidentLatencySpec);
+    }
+
+    public boolean openModel() {
+        return rate > 0;
+    }
+
+    static Duration duration(String value) {
+        return DurationStyle.detectAndParse(value);
+    }
+}
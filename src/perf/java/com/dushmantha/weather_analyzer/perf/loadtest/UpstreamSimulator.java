@@ -0,0 +1,90 @@
+package com.dushmantha.weather_analyzer.perf.loadtest;
+
+import com.dushmantha.weather_analyzer.perf.StubUpstream;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link StubUpstream} with a latency distribution and 404 / 401 / 5xx error rates, answering with the same status
+ * codes and bodies the real API does so every {@code onStatus} branch of {@code fetchWeatherData} is exercised.
+ * An optional incident window, timed from {@link #beginMeasurement()}, swaps in a slower latency distribution and a
+ * higher 5xx rate.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public class UpstreamSimulator extends StubUpstream {
+
+    private static final byte[] NOT_FOUND = body("{\"cod\":\"404\",\"message\":\"city not found\"}");
+    private static final byte[] UNAUTHORIZED = body("{\"cod\":401,\"message\":\"Invalid API key. "
+            + "Please see https://openweathermap.org/faq#error401 for more info.\"}");
+    private static final byte[] SERVER_ERROR = body("{\"cod\":\"503\",\"message\":\"Service Unavailable\"}");
+
+    private final LatencyDistribution latency;
+    private final double notFoundRate;
+    private final double unauthorizedRate;
+    private final double serverErrorRate;
+    private final LatencyDistribution incidentLatency;
+    private final double incidentServerErrorRate;
+    private final long incidentAtNanos;
+    private final long incidentForNanos;
+    private volatile long measurementStartNanos = Long.MAX_VALUE;
+
+    public UpstreamSimulator(LoadTestOptions options) throws IOException {
+        super(options.upstreamSlots());
+        this.latency = options.upstreamLatency();
+        this.notFoundRate = options.notFoundRate();
+        this.unauthorizedRate = options.unauthorizedRate();
+        this.serverErrorRate = options.serverErrorRate();
+        this.incidentLatency = options.incidentLatency();
+        this.incidentServerErrorRate = options.incidentServerErrorRate();
+        this.incidentAtNanos = options.incidentAt().toNanos();
+        this.incidentForNanos = options.incidentFor().toNanos();
+    }
+
+    public void beginMeasurement() {
+        measurementStartNanos = System.nanoTime();
+    }
+
+    private boolean inIncident() {
+        long start = measurementStartNanos;
+        if (start == Long.MAX_VALUE || incidentForNanos == 0) {
+            return false;
+        }
+        long elapsed = System.nanoTime() - start;
+        return elapsed >= incidentAtNanos && elapsed < incidentAtNanos + incidentForNanos;
+    }
+
+    @Override
+    protected void handle(HttpExchange exchange) throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        boolean incident = inIncident();
+        long delay = (incident ? incidentLatency : latency).sampleNanos(random);
+        double serverErrorRate = incident ? incidentServerErrorRate : this.serverErrorRate;
+        if (delay > 0) {
+            // handlers run on virtual threads, so a parked request costs no platform thread
+            LockSupport.parkNanos(delay);
+        }
+
+        double roll = random.nextDouble();
+        if (roll < notFoundRate) {
+            countRequest();
+            respond(exchange, 404, NOT_FOUND);
+        } else if (roll < notFoundRate + unauthorizedRate) {
+            countRequest();
+            respond(exchange, 401, UNAUTHORIZED);
+        } else if (roll < notFoundRate + unauthorizedRate + serverErrorRate) {
+            countRequest();
+            respond(exchange, 503, SERVER_ERROR);
+        } else {
+            super.handle(exchange);
+        }
+    }
+
+    private static byte[] body(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,179 @@
+package com.dushmantha.weather_analyzer.perf.startup;
+
+import com.dushmantha.weather_analyzer.perf.StubUpstream;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Starts the packaged application cold, once per run and {@link StartupMode}, against a {@link StubUpstream} and
+ * reports per mode the medians of:
+ * <ul>
+ *   <li>time until {@code /actuator/health/readiness} is UP, when a load balancer would start routing to it;</li>
+ *   <li>time until the first {@code GET /weather} sent after that has been answered, the time-to-first-response;</li>
+ *   <li>the latency of that first request and of {@code --requests} further ones for distinct cities, all misses
+ *   that decode an upstream payload;</li>
+ *   <li>the resident set size of the process after them.</li>
+ * </ul>
+ * Each run gets a fresh process on a free port and is stopped before the next, so nothing is shared between runs
+ * but the OS page cache. See {@link StartupOptions} for the options.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public class StartupBenchmark {
+
+    private static final Duration START_TIMEOUT = Duration.ofSeconds(60);
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(5);
+
+    private final StartupOptions options;
+    private final String upstreamUrl;
+    private final String jarName;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+
+    public StartupBenchmark(StartupOptions options, String upstreamUrl) throws IOException {
+        this.options = options;
+        this.upstreamUrl = upstreamUrl;
+        this.jarName = applicationJar(options.buildDir());
+    }
+
+    public static void main(String[] args) throws Exception {
+        StartupOptions options = StartupOptions.parse(args);
+        try (StubUpstream upstream = new StubUpstream(40)) {
+            StartupBenchmark benchmark = new StartupBenchmark(options, upstream.forecastUrl());
+            List<StartupReport> reports = new ArrayList<>();
+            for (StartupMode mode : options.modes()) {
+                List<StartupReport.Run> runs = new ArrayList<>();
+                for (int i = 0; i < options.runs(); i++) {
+                    StartupReport.Run run = benchmark.run(mode, i);
+                    System.out.printf("%-11s run %d: %s%n", mode.label(), i + 1, run);
+                    runs.add(run);
+                }
+                reports.add(new StartupReport(mode, runs));
+            }
+            StartupReport.print(System.out, reports);
+        }
+    }
+
+    StartupReport.Run run(StartupMode mode, int index) throws Exception {
+        int port = freePort();
+        String baseUrl = "http://127.0.0.1:" + port;
+        List<String> command = mode.command(options.java(), options.buildDir(), jarName);
+        command.addAll(List.of(
+                "--server.port=" + port,
+                "--weather.api.url=" + upstreamUrl,
+                "--weather.api.key=perf",
+                "--weather.cities.reject-unknown=false",
+                "--weather.prefetch.enabled=false",
+                "--logging.level.root=warn",
+                "--logging.level.com.dushmantha=warn"));
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            awaitReady(process, baseUrl, start);
+            long ready = System.nanoTime() - start;
+
+            long sent = System.nanoTime();
+            expectOk(get(baseUrl + "/weather?city=startup-" + mode.label() + "-" + index + "-0"));
+            long firstResponse = System.nanoTime() - start;
+            long firstLatency = System.nanoTime() - sent;
+
+            long[] latencies = new long[options.requests()];
+            for (int i = 0; i < latencies.length; i++) {
+                sent = System.nanoTime();
+                expectOk(get(baseUrl + "/weather?city=startup-" + mode.label() + "-" + index + "-" + (i + 1)));
+                latencies[i] = System.nanoTime() - sent;
+            }
+            Arrays.sort(latencies);
+            return new StartupReport.Run(ready, firstResponse, firstLatency,
+                    latencies.length == 0 ? 0 : latencies[latencies.length / 2],
+                    latencies.length == 0 ? 0 : latencies[latencies.length - 1],
+                    residentSetBytes(process));
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private void awaitReady(Process process, String baseUrl, long start) throws Exception {
+        URI readiness = URI.create(baseUrl + "/actuator/health/readiness");
+        while (System.nanoTime() - start < START_TIMEOUT.toNanos()) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Application exited with " + process.exitValue()
+                        + ", run it by hand to see why");
+            }
+            try {
+                if (httpClient.send(HttpRequest.newBuilder(readiness).build(),
+                        HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(POLL_INTERVAL);
+        }
+        throw new IllegalStateException("Application not ready within " + START_TIMEOUT);
+    }
+
+    private HttpResponse<Void> get(String url) throws Exception {
+        return httpClient.send(HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(10)).build(),
+                HttpResponse.BodyHandlers.discarding());
+    }
+
+    private static void expectOk(HttpResponse<Void> response) {
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(response.uri() + " answered " + response.statusCode());
+        }
+    }
+
+    /**
+     * VmRSS from {@code /proc}, or {@code ps} where there is none, or -1 when neither is available.
+     */
+    private static long residentSetBytes(Process process) throws Exception {
+        Path status = Path.of("/proc", Long.toString(process.pid()), "status");
+        if (Files.exists(status)) {
+            try (Stream<String> lines = Files.lines(status)) {
+                return lines.filter(line -> line.startsWith("VmRSS:"))
+                        .mapToLong(line -> Long.parseLong(line.replaceAll("\\D", "")) * 1024)
+                        .findFirst()
+                        .orElse(-1);
+            }
+        }
+        Process ps = new ProcessBuilder("ps", "-o", "rss=", "-p", Long.toString(process.pid())).start();
+        String output = new String(ps.getInputStream().readAllBytes()).trim();
+        return ps.waitFor() == 0 && !output.isEmpty() ? Long.parseLong(output) * 1024 : -1;
+    }
+
+    private static String applicationJar(Path buildDir) throws IOException {
+        try (Stream<Path> files = Files.list(buildDir)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith("weather-analyzer-") && name.endsWith(".jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No application jar in " + buildDir
+                            + ", build it first with: mvn -Pfast-start package"));
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.dushmantha.weather_analyzer.perf.startup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * How the application is launched. Every mode but {@code jar} runs the unpacked layout built by the {@code fast-start}
+ * Maven profile, and each adds one step to the one before it.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public enum StartupMode {
+
+    /** The executable jar as built, classes loaded from nested jars. */
+    JAR,
+    /** The unpacked layout, application jar with its libraries next to it. */
+    EXTRACTED,
+    /** Plus the bean definitions generated by Spring AOT instead of classpath scanning and condition evaluation. */
+    AOT,
+    /** Plus the class data sharing archive from the training run, so classes are mapped instead of loaded. */
+    CDS,
+    /** Plus the {@code fast-start} Spring profile: lazy initialization and warm-up before readiness. */
+    FAST_START;
+
+    static final String FAST_START_DIRECTORY = "fast-start";
+
+    public static StartupMode of(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+
+    public String label() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    /**
+     * The command starting the application from {@code buildDir}, before the arguments common to every mode.
+     */
+    List<String> command(String java, Path buildDir, String jarName) {
+        List<String> command = new ArrayList<>(List.of(java));
+        if (this == JAR) {
+            command.addAll(List.of("-jar", require(buildDir.resolve(jarName)).toString()));
+            return command;
+        }
+        Path directory = buildDir.resolve(FAST_START_DIRECTORY);
+        if (compareTo(AOT) >= 0) {
+            command.add("-Dspring.aot.enabled=true");
+        }
+        if (compareTo(CDS) >= 0) {
+            command.add("-XX:SharedArchiveFile=" + require(directory.resolve("application.jsa")));
+            command.add("-Xlog:cds=off");
+        }
+        command.addAll(List.of("-jar", require(directory.resolve(jarName)).toString()));
+        command.add("--spring.profiles.active=" + (this == FAST_START ? "dev,fast-start" : "dev"));
+        return command;
+    }
+
+    private static Path require(Path path) {
+        if (!Files.exists(path)) {
+            throw new IllegalStateException(path + " not found, build it first with: mvn -Pfast-start package");
+        }
+        return path;
+    }
+}
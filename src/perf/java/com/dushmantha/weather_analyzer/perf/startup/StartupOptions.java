@@ -0,0 +1,46 @@
+package com.dushmantha.weather_analyzer.perf.startup;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Command line options of {@link StartupBenchmark}, given as {@code --name=value}.
+ *
+ * <pre>
+ * --modes=jar,aot,cds,fast-start  startup modes to compare, see {@link StartupMode}
+ * --runs=5                        cold starts per mode; medians are reported
+ * --requests=50                   requests for distinct cities after the first response, all misses
+ * --build-dir=target              build directory holding the jar and, from -Pfast-start, fast-start/
+ * --java=PATH                     java launcher for the application (default: the one running the benchmark)
+ * </pre>
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public record StartupOptions(List<StartupMode> modes, int runs, int requests, Path buildDir, String java) {
+
+    private static final Set<String> NAMES = Set.of("modes", "runs", "requests", "build-dir", "java");
+
+    public static StartupOptions parse(String... args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0 || !NAMES.contains(arg.substring(2, separator))) {
+                throw new IllegalArgumentException("Unknown option: " + arg + ", expected one of --" + NAMES);
+            }
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return new StartupOptions(
+                Arrays.stream(values.getOrDefault("modes", "jar,aot,cds,fast-start").split(","))
+                        .map(StartupMode::of)
+                        .toList(),
+                Integer.parseInt(values.getOrDefault("runs", "5")),
+                Integer.parseInt(values.getOrDefault("requests", "50")),
+                Path.of(values.getOrDefault("build-dir", "target")),
+                values.getOrDefault("java",
+                        Path.of(System.getProperty("java.home"), "bin", "java").toString()));
+    }
+}
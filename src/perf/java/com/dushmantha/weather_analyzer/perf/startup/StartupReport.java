@@ -0,0 +1,52 @@
+package com.dushmantha.weather_analyzer.perf.startup;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Runs of one {@link StartupMode} and their medians. Times are in nanoseconds and printed in milliseconds.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+public record StartupReport(StartupMode mode, List<Run> runs) {
+
+    public long median(ToLongFunction<Run> metric) {
+        long[] values = runs.stream().mapToLong(metric).sorted().toArray();
+        return values.length == 0 ? 0 : values[values.length / 2];
+    }
+
+    public static void print(PrintStream out, List<StartupReport> reports) {
+        out.printf("%n%-11s %9s %9s %9s %9s %9s %8s   (medians of runs)%n",
+                "Mode", "ready ms", "TTFR ms", "first ms", "p50 ms", "max ms", "RSS MB");
+        for (StartupReport report : reports) {
+            out.printf("%-11s %9.0f %9.0f %9.1f %9.2f %9.1f %8.0f%n", report.mode().label(),
+                    millis(report.median(Run::readyNanos)),
+                    millis(report.median(Run::firstResponseNanos)),
+                    millis(report.median(Run::firstLatencyNanos)),
+                    millis(report.median(Run::medianLatencyNanos)),
+                    millis(report.median(Run::maxLatencyNanos)),
+                    report.median(Run::residentSetBytes) / (1024.0 * 1024.0));
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    /**
+     * One cold start: time to readiness and to the first response, latency of the first request and of the misses
+     * after it, and resident set size at the end.
+     */
+    public record Run(long readyNanos, long firstResponseNanos, long firstLatencyNanos, long medianLatencyNanos,
+                      long maxLatencyNanos, long residentSetBytes) {
+
+        @Override
+        public String toString() {
+            return String.format("ready %.0f ms, first response %.0f ms (%.1f ms), misses p50 %.2f ms max %.1f ms, "
+                            + "RSS %.0f MB", millis(readyNanos), millis(firstResponseNanos),
+                    millis(firstLatencyNanos), millis(medianLatencyNanos), millis(maxLatencyNanos),
+                    residentSetBytes / (1024.0 * 1024.0));
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.dushmantha.weather_analyzer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+@SpringBootTest(properties = "weather.warm-up.iterations=2")
+@ActiveProfiles({"dev", "fast-start"})
+class FastStartProfileTest {
+
+    @Autowired
+    private ConfigurableListableBeanFactory beanFactory;
+
+    @Test
+    void testRequestPathStaysEagerWhileTheRestIsLazy() {
+        // Then
+        assertThat(beanFactory.getBeanDefinition("weatherCache").isLazyInit()).isFalse();
+        assertThat(beanFactory.getBeanDefinition("weatherServiceImpl").isLazyInit()).isFalse();
+        assertThat(beanFactory.getBeanDefinition("cityIndex").isLazyInit()).isFalse();
+        assertThat(beanFactory.getBeanDefinition("weatherController").isLazyInit()).isFalse();
+        assertThat(beanFactory.getBeanDefinition("weatherBatchServiceImpl").isLazyInit()).isTrue();
+        assertThat(beanFactory.getBeanDefinition("forecastHistoryServiceImpl").isLazyInit()).isTrue();
+    }
+}
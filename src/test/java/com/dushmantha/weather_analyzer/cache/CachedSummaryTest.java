@@ -0,0 +1,142 @@
+package com.dushmantha.weather_analyzer.cache;
+
+import com.dushmantha.weather_analyzer.dto.WeatherSummary;
+import com.dushmantha.weather_analyzer.forecast.ForecastColumns;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+class CachedSummaryTest {
+
+    private static final SummaryEncoder ENCODER = new SummaryEncoder(new ObjectMapper());
+
+    @Test
+    void testEntryFromForecastMatchesSummary() {
+        // Given
+        ForecastColumns forecast = forecast("London", 40);
+
+        // When
+        CachedSummary entry = CachedSummary.of(forecast, 0L, 1L);
+
+        // Then
+        assertThat(entry.getSummary()).isEqualTo(forecast.summary());
+        assertThat(entry.getHottestEpochDay())
+                .isEqualTo(LocalDate.parse(forecast.summary().getHottestDay()).toEpochDay());
+        assertThat(entry).isEqualTo(new CachedSummary(forecast.summary(), forecast, 0L, 1L));
+    }
+
+    @Test
+    void testEmptyForecastHasNoDays() {
+        // When
+        CachedSummary entry = CachedSummary.of(forecast("Atlantis", 0), 0L, 1L);
+
+        // Then
+        assertThat(entry.getHottestEpochDay()).isEqualTo(CachedSummary.NO_DAY);
+        assertThat(entry.getSummary()).isEqualTo(new WeatherSummary("Atlantis", 0.0, null, null));
+    }
+
+    @Test
+    void testEpochDaysOfIsoDates() {
+        // When & Then
+        for (String date : List.of("2024-02-29", "1969-12-31", "0001-01-01", "+12025-07-27")) {
+            assertThat(CachedSummary.toEpochDay(date)).isEqualTo(LocalDate.parse(date).toEpochDay());
+        }
+        assertThatThrownBy(() -> CachedSummary.toEpochDay("2025-02-30")).isInstanceOf(DateTimeException.class);
+        assertThatThrownBy(() -> CachedSummary.toEpochDay("2025-0a-01")).isInstanceOf(DateTimeException.class);
+    }
+
+    @Test
+    void testCityNamesAreShared() {
+        // Given
+        String first = new String("Kandy");
+        String second = new String("Kandy");
+
+        // When
+        CachedSummary a = new CachedSummary(new WeatherSummary(first, 24.0, "2024-11-20", "2024-11-21"), 0L, 1L);
+        CachedSummary b = CachedSummary.of(forecast(second, 8), 0L, 1L);
+
+        // Then
+        assertThat(a.getCity()).isSameAs(b.getCity());
+        assertThat(b.getForecast().city()).isSameAs(a.getCity());
+    }
+
+    @Test
+    void testOffHeapForecastReadsTheSame() {
+        // Given
+        ForecastColumns heap = forecast("London", 40);
+        CachedSummary onHeap = CachedSummary.of(heap, 0L, 1L);
+
+        // When
+        ForecastColumns direct = heap.offHeap();
+        CachedSummary offHeap = onHeap.withForecast(direct);
+
+        // Then
+        assertThat(direct.isOffHeap()).isTrue();
+        assertThat(direct).isEqualTo(heap);
+        for (int i = 0; i < heap.size(); i++) {
+            assertThat(direct.tempRank(i)).isEqualTo(heap.tempRank(i));
+            assertThat(direct.tempMax(i)).isEqualTo(heap.tempMax(i));
+        }
+        assertThat(offHeap.getSummary()).isEqualTo(onHeap.getSummary());
+        // 40 slots pack into under 500 bytes either way; the rest is the entry and its body in every format
+        assertThat(heap.sizeInBytes()).isEqualTo(12 + 40 * 12);
+        assertThat(onHeap.estimatedBytes()).isBetween(heap.sizeInBytes(), 1500);
+        assertThat(offHeap.estimatedBytes()).isBetween(heap.sizeInBytes(), 1500);
+    }
+
+    @Test
+    void testBodyIsEncodedOnceWithContentEtag() throws Exception {
+        // Given
+        WeatherSummary summary = new WeatherSummary("London", 14.75, "2024-11-21", "2024-11-19");
+        CachedSummary entry = new CachedSummary(summary, 0L, 1L);
+        CachedSummary refetched = new CachedSummary(summary, 5_000L, 6_000L);
+        CachedSummary changed = new CachedSummary(
+                new WeatherSummary("London", 14.76, "2024-11-21", "2024-11-19"), 0L, 1L);
+
+        // When
+        SummaryBody body = entry.getBody(ENCODER);
+
+        // Then
+        assertThat(entry.getBody(ENCODER)).isSameAs(body);
+        assertThat(entry.withForecast(forecast("London", 8)).getBody(ENCODER)).isSameAs(body);
+        assertThat(body.getJson()).isEqualTo(new ObjectMapper().writeValueAsBytes(summary));
+        assertThat(refetched.getBody(ENCODER).getEtag()).isEqualTo(body.getEtag());
+        assertThat(changed.getBody(ENCODER).getEtag()).isNotEqualTo(body.getEtag());
+    }
+
+    @Test
+    void testEstimatedBytesCountTheEncodedBody() {
+        // Given
+        CachedSummary entry = new CachedSummary(new WeatherSummary("London", 14.75, "2024-11-21", "2024-11-19"),
+                0L, 1L);
+        int unencoded = entry.estimatedBytes();
+
+        // When
+        int json = entry.getBody(ENCODER).getJson().length;
+
+        // Then
+        assertThat(entry.estimatedBytes()).isGreaterThan(json).isBetween(unencoded - 50, unencoded + 50);
+    }
+
+    /**
+     * 3-hourly slots with two-decimal temperatures, as the weather API reports them.
+     */
+    private static ForecastColumns forecast(String city, int slots) {
+        ForecastColumns.Builder builder = ForecastColumns.builder();
+        builder.city(city);
+        for (int i = 0; i < slots; i++) {
+            double temp = 12.34 + (i * 37 % 23) * 0.47;
+            builder.slot(1732104000L + i * 10_800L, temp, temp - 1.25, temp + 0.83, 20047 + (i + 4) / 8);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,197 @@
+package com.dushmantha.weather_analyzer.cache;
+
+import com.dushmantha.weather_analyzer.dto.WeatherSummary;
+import com.dushmantha.weather_analyzer.forecast.ForecastColumns;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+class DiskSummaryStoreTest {
+
+    @TempDir
+    private Path directory;
+
+    private DiskSummaryStore store;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (store != null) {
+            store.destroy();
+        }
+    }
+
+    @Test
+    void testEntriesSurviveRestart() throws IOException {
+        // Given
+        Path file = directory.resolve("weather-cache.bin");
+        store = open(file);
+        CachedSummary london = entry("London", 14.75, System.currentTimeMillis());
+        store.put("london", london);
+        store.put("kandy", entry("Kandy", 24.1, System.currentTimeMillis()));
+        store.destroy();
+
+        // When
+        store = open(file);
+
+        // Then
+        assertThat(store.get("london").block()).isEqualTo(london);
+        assertThat(store.get("kandy").block().getSummary().getCity()).isEqualTo("Kandy");
+        assertThat(store.get("paris").block()).isNull();
+    }
+
+    @Test
+    void testForecastColumnsSurviveRestart() throws IOException {
+        // Given
+        Path file = directory.resolve("weather-cache.bin");
+        store = open(file);
+        ForecastColumns.Builder builder = ForecastColumns.builder();
+        builder.city("London");
+        for (int i = 0; i < 40; i++) {
+            builder.slot(1732104000L + i * 10_800L, 10.0 + i % 7, 9.0 + i % 7, 11.5 + i % 7, 20047 + i / 8);
+        }
+        ForecastColumns forecast = builder.build();
+        long now = System.currentTimeMillis();
+        CachedSummary london = new CachedSummary(forecast.summary(), forecast, now, now + 60_000);
+        store.put("london", london);
+        store.destroy();
+
+        // When
+        store = open(file);
+        CachedSummary restored = store.get("london").block();
+
+        // Then
+        assertThat(restored).isEqualTo(london);
+        assertThat(restored.getForecast().tempMax(39)).isEqualTo(11.5 + 39 % 7);
+    }
+
+    @Test
+    void testExpiredEntriesAreNotServed() throws IOException {
+        // Given
+        Path file = directory.resolve("weather-cache.bin");
+        store = open(file);
+        store.put("london", entry("London", 14.75, System.currentTimeMillis() - Duration.ofHours(3).toMillis()));
+        store.destroy();
+
+        // When
+        store = open(file);
+
+        // Then
+        assertThat(store.get("london").block()).isNull();
+    }
+
+    @Test
+    void testCompactionKeepsLatestLiveEntries() throws IOException {
+        // Given
+        Path file = directory.resolve("weather-cache.bin");
+        store = open(file);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 10; i++) {
+            store.put("london", entry("London", i, now));
+        }
+        store.put("paris", entry("Paris", 20.0, now - Duration.ofHours(3).toMillis()));
+        long before = Files.size(file);
+
+        // When
+        store.compactIfNeeded();
+
+        // Then
+        assertThat(Files.size(file)).isLessThan(before);
+        assertThat(store.get("london").block().getSummary().getAverageTemperature()).isEqualTo(9.0);
+        assertThat(store.get("paris").block()).isNull();
+
+        store.destroy();
+        store = open(file);
+        assertThat(store.get("london").block().getSummary().getAverageTemperature()).isEqualTo(9.0);
+    }
+
+    @Test
+    void testTornTailRecordIsTruncated() throws IOException {
+        // Given
+        Path file = directory.resolve("weather-cache.bin");
+        store = open(file);
+        CachedSummary london = entry("London", 14.75, System.currentTimeMillis());
+        store.put("london", london);
+        store.put("kandy", entry("Kandy", 24.1, System.currentTimeMillis()));
+        store.destroy();
+        long size = Files.size(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+
+        // When
+        store = open(file);
+
+        // Then
+        assertThat(store.get("london").block()).isEqualTo(london);
+        assertThat(store.get("kandy").block()).isNull();
+        assertThat(Files.size(file)).isLessThan(size - 3);
+    }
+
+    @Test
+    void testRejectedWritesAreDroppedAndCounted() {
+        // Given
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AtomicBoolean indexing = new AtomicBoolean(true);
+        Executor executor = task -> {
+            if (!indexing.getAndSet(false)) {
+                throw new RejectedExecutionException("Executor queue is full");
+            }
+            task.run();
+        };
+        store = new DiskSummaryStore(directory.resolve("weather-cache.bin"), Duration.ofHours(2), executor,
+                meterRegistry);
+
+        // When
+        store.put("london", entry("London", 14.75, System.currentTimeMillis()));
+
+        // Then
+        assertThat(meterRegistry.get("weather.cache.disk.dropped").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testOverlongKeysAreNotPersisted() throws IOException {
+        // Given
+        Path file = directory.resolve("weather-cache.bin");
+        store = open(file);
+        String overlong = "x".repeat(40_000);
+        long size = Files.size(file);
+
+        // When
+        store.put(overlong, entry("London", 14.75, System.currentTimeMillis()));
+        store.put("kandy", entry(overlong, 24.1, System.currentTimeMillis()));
+        store.put("london", entry("London", 14.75, System.currentTimeMillis()));
+        store.destroy();
+        store = open(file);
+
+        // Then
+        assertThat(store.get(overlong).block()).isNull();
+        assertThat(store.get("kandy").block()).isNull();
+        assertThat(store.get("london").block()).isNotNull();
+        assertThat(Files.size(file) - size).isLessThan(1_000);
+    }
+
+    private static DiskSummaryStore open(Path file) {
+        return new DiskSummaryStore(file, Duration.ofHours(2), Runnable::run, new SimpleMeterRegistry());
+    }
+
+    private static CachedSummary entry(String city, double average, long fetchedAt) {
+        WeatherSummary summary = new WeatherSummary(city, average, "2024-11-21", "2024-11-19");
+        return new CachedSummary(summary, fetchedAt, fetchedAt + Duration.ofMinutes(30).toMillis());
+    }
+}
@@ -0,0 +1,143 @@
+package com.dushmantha.weather_analyzer.cache;
+
+import com.dushmantha.weather_analyzer.cluster.ClusterMembership;
+import com.dushmantha.weather_analyzer.dto.WeatherSummary;
+import com.dushmantha.weather_analyzer.exception.ExternalApiException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+class PeerCacheClientTest {
+
+    private static final String SELF = "http://127.0.0.1:1";
+    private static final String SECRET = "cluster-secret";
+
+    private final CachedSummary london = new CachedSummary(
+            new WeatherSummary("London", 12.5, "2024-11-21", "2024-11-20"), 1_000L, Long.MAX_VALUE);
+
+    private HttpServer owner;
+    private String ownerUrl;
+    private String downUrl;
+    private SimpleMeterRegistry meterRegistry;
+    private ClusterMembership membership;
+    private PeerCacheClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        owner = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 16);
+        owner.createContext(PeerCacheClient.ENTRY_PATH, this::handle);
+        owner.start();
+        ownerUrl = "http://127.0.0.1:" + owner.getAddress().getPort();
+        try (ServerSocket socket = new ServerSocket(0)) {
+            downUrl = "http://127.0.0.1:" + socket.getLocalPort();
+        }
+
+        meterRegistry = new SimpleMeterRegistry();
+        membership = new ClusterMembership(SELF, List.of(ownerUrl, downUrl), 128, WebClient.builder(),
+                meterRegistry);
+        client = new PeerCacheClient(membership, WebClient.builder(), Duration.ofSeconds(2), SECRET,
+                meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        owner.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String key = exchange.getRequestURI().getQuery().substring("key=".length());
+        if (!SECRET.equals(exchange.getRequestHeaders().getFirst(PeerCacheClient.SECRET_HEADER))) {
+            respond(exchange, 403, "text/plain", new byte[0]);
+        } else if (key.equals("london")) {
+            respond(exchange, 200, "application/octet-stream", PeerCacheClient.encode(key, london));
+        } else if (key.equals("nowhere")) {
+            respond(exchange, 422, "application/json",
+                    "{\"error\":\"City not found for: nowhere\",\"upstreamStatus\":404}"
+                            .getBytes(StandardCharsets.UTF_8));
+        } else {
+            respond(exchange, 500, "text/plain", new byte[0]);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, byte[] body)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Test
+    void testFetchesTheOwnersEntryWithItsFetchTime() {
+        // When
+        CachedSummary entry = client.fetch(ownerUrl, "london").block();
+
+        // Then
+        assertThat(entry).isEqualTo(london);
+        assertThat(entry.getFetchedAtMillis()).isEqualTo(1_000L);
+        assertThat(meterRegistry.timer("weather.cluster.forwards", "outcome", "success").count()).isEqualTo(1);
+    }
+
+    @Test
+    void testSignalsTheOwnersUpstreamFailureWithItsStatus() {
+        // When / Then
+        assertThatThrownBy(() -> client.fetch(ownerUrl, "nowhere").block())
+                .isInstanceOf(ExternalApiException.class)
+                .hasMessage("City not found for: nowhere")
+                .satisfies(e -> assertThat(((ExternalApiException) e).getUpstreamStatus()).isEqualTo(404));
+        assertThat(membership.livePeers()).contains(ownerUrl);
+    }
+
+    @Test
+    void testOtherAnswersAreAPeerFailureWithoutMarkingThePeerDown() {
+        // When / Then
+        assertThatThrownBy(() -> client.fetch(ownerUrl, "broken").block())
+                .isInstanceOf(PeerCacheClient.PeerUnavailableException.class);
+        assertThat(membership.livePeers()).contains(ownerUrl);
+    }
+
+    @Test
+    void testUnreachablePeerIsMarkedDownAndLosesItsKeys() {
+        // Given
+        assertThat(membership.livePeers()).containsExactlyInAnyOrder(SELF, ownerUrl, downUrl);
+
+        // When / Then
+        assertThatThrownBy(() -> client.fetch(downUrl, "london").block())
+                .isNotInstanceOf(ExternalApiException.class);
+        assertThat(membership.livePeers()).containsExactlyInAnyOrder(SELF, ownerUrl);
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(membership.owner("city-" + i)).isNotEqualTo(downUrl);
+        }
+    }
+
+    @Test
+    void testDetectsACorruptEntry() {
+        // Given
+        byte[] record = PeerCacheClient.encode("london", london);
+        record[record.length - 1] ^= 1;
+
+        // When / Then
+        assertThatThrownBy(() -> PeerCacheClient.decode("london", record))
+                .isInstanceOf(PeerCacheClient.PeerUnavailableException.class)
+                .hasMessageContaining("Corrupt");
+    }
+}
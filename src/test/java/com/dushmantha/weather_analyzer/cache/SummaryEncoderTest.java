@@ -0,0 +1,56 @@
+package com.dushmantha.weather_analyzer.cache;
+
+import com.dushmantha.weather_analyzer.dto.WeatherSummary;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+class SummaryEncoderTest {
+
+    private final WeatherSummary summary = new WeatherSummary("London", 16.8, "2025-07-27", null);
+
+    @Test
+    void testEncodesWithTheApplicationsObjectMapper() throws Exception {
+        // Given
+        SummaryEncoder encoder = new SummaryEncoder(new ObjectMapper()
+                .setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE));
+        CachedSummary entry = new CachedSummary(summary, 0L, 1L);
+
+        // When
+        byte[] json = entry.getBody(encoder).getJson();
+        byte[] cbor = entry.getBody(encoder, SummaryFormat.CBOR);
+
+        // Then
+        assertThat(new String(json, StandardCharsets.UTF_8)).contains("\"average_temperature\":16.8");
+        assertThat(entry.getBody(encoder, SummaryFormat.JSON)).isSameAs(json);
+        assertThat(encoder.read(SummaryFormat.CBOR, cbor, WeatherSummary.class)).isEqualTo(summary);
+    }
+
+    @Test
+    void testKeepsOnlyEagerFormatsAndWeighsThem() {
+        // Given
+        SummaryEncoder jsonOnly = new SummaryEncoder(new ObjectMapper());
+        SummaryEncoder binaryToo = new SummaryEncoder(new ObjectMapper(), Set.of(SummaryFormat.BINARY));
+        CachedSummary lazy = new CachedSummary(summary, 0L, 1L);
+        CachedSummary eager = new CachedSummary(summary, 0L, 1L);
+
+        // When
+        lazy.getBody(jsonOnly);
+        eager.getBody(binaryToo);
+
+        // Then
+        byte[] binary = eager.getBody(binaryToo, SummaryFormat.BINARY);
+        assertThat(eager.getBody(binaryToo, SummaryFormat.BINARY)).isSameAs(binary);
+        assertThat(eager.estimatedBytes()).isEqualTo(lazy.estimatedBytes() + 16 + binary.length);
+        byte[] smile = lazy.getBody(jsonOnly, SummaryFormat.SMILE);
+        assertThat(lazy.getBody(jsonOnly, SummaryFormat.SMILE)).isEqualTo(smile).isNotSameAs(smile);
+    }
+}
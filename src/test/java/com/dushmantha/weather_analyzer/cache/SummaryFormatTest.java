@@ -0,0 +1,84 @@
+package com.dushmantha.weather_analyzer.cache;
+
+import com.dushmantha.weather_analyzer.dto.WeatherBatchResult;
+import com.dushmantha.weather_analyzer.dto.WeatherSummary;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+class SummaryFormatTest {
+
+    @Test
+    void testNegotiatesJsonByDefault() {
+        // When & Then
+        assertThat(SummaryFormat.negotiate(null)).isEqualTo(SummaryFormat.JSON);
+        assertThat(SummaryFormat.negotiate("*/*")).isEqualTo(SummaryFormat.JSON);
+        assertThat(SummaryFormat.negotiate("application/*")).isEqualTo(SummaryFormat.JSON);
+        assertThat(SummaryFormat.negotiate("application/json")).isEqualTo(SummaryFormat.JSON);
+    }
+
+    @Test
+    void testNegotiatesByQualityThenSpecificity() {
+        // When & Then
+        assertThat(SummaryFormat.negotiate("application/cbor")).isEqualTo(SummaryFormat.CBOR);
+        assertThat(SummaryFormat.negotiate("*/*, application/x-jackson-smile")).isEqualTo(SummaryFormat.SMILE);
+        assertThat(SummaryFormat.negotiate("application/json;q=0.9, application/vnd.weather-analyzer.summary"))
+                .isEqualTo(SummaryFormat.BINARY);
+        assertThat(SummaryFormat.negotiate("application/cbor;q=0.5, application/json")).isEqualTo(SummaryFormat.JSON);
+        assertThat(SummaryFormat.negotiate("application/cbor;q=0, */*")).isEqualTo(SummaryFormat.JSON);
+    }
+
+    @Test
+    void testBinaryLayout() {
+        // Given
+        CachedSummary entry = new CachedSummary(new WeatherSummary("São Paulo", 24.5, "2025-01-02", "2025-01-04"),
+                0L, 1L);
+
+        // When
+        byte[] encoded = SummaryFormat.writeBinary(entry);
+
+        // Then
+        assertThat(encoded).hasSize(2 + 10 + 8 + 4 + 4);
+        ByteBuffer in = ByteBuffer.wrap(encoded);
+        assertThat(in.getShort()).isEqualTo((short) 10);
+        in.position(in.position() + 10);
+        assertThat(in.getDouble()).isEqualTo(24.5);
+        assertThat(in.getInt()).isEqualTo((int) LocalDate.parse("2025-01-02").toEpochDay());
+        assertThat(SummaryFormat.readSummary(ByteBuffer.wrap(encoded))).isEqualTo(entry.getSummary());
+    }
+
+    @Test
+    void testBinaryReadsEveryWrittenType() {
+        // Given
+        WeatherSummary summary = new WeatherSummary("Tokyo", 21.25, "2025-07-27", null);
+        List<WeatherBatchResult> results = List.of(WeatherBatchResult.success("Tokyo", summary),
+                WeatherBatchResult.failure("Atlantis", "City not found for: Atlantis"));
+
+        // When
+        byte[] encodedSummary = SummaryFormat.writeBinary(summary);
+        byte[] encodedResults = SummaryFormat.writeBinary(results);
+
+        // Then
+        assertThat(SummaryFormat.readBinary(encodedSummary, WeatherSummary.class)).isEqualTo(summary);
+        assertThat(SummaryFormat.readBinary(encodedResults, WeatherBatchResult.class)).isEqualTo(results.get(0));
+        assertThat(SummaryFormat.readBinary(encodedResults, WeatherBatchResult[].class))
+                .containsExactlyElementsOf(results);
+        assertThatThrownBy(() -> SummaryFormat.readBinary(encodedSummary, String.class))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testEtagPerFormat() {
+        // When & Then
+        assertThat(SummaryFormat.JSON.etag("\"abc\"")).isEqualTo("\"abc\"");
+        assertThat(SummaryFormat.CBOR.etag("\"abc\"")).isEqualTo("\"abc-cbor\"");
+    }
+}
@@ -0,0 +1,104 @@
+package com.dushmantha.weather_analyzer.city;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+class CityIndexTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void testSpellingsResolveToOneKey() {
+        // Given
+        CityIndex index = bundled(true);
+
+        // When / Then
+        for (String spelling : new String[]{"London", " london ", "LONDON", "London,GB", "london, uk",
+                "Lond%C3%B3n", "Londón", "ｌｏｎｄｏｎ", "2643743"}) {
+            assertThat(index.resolve(spelling)).as(spelling).isEqualTo("2643743");
+        }
+        assertThat(index.query("2643743")).isEqualTo("London,GB");
+    }
+
+    @Test
+    void testAliasesAndAccentsFold() {
+        // Given
+        CityIndex index = bundled(true);
+
+        // When / Then
+        assertThat(index.resolve("München")).isEqualTo(index.resolve("munich"));
+        assertThat(index.resolve("Muenchen")).isEqualTo(index.resolve("Munich"));
+        assertThat(index.resolve("Sao Paulo")).isEqualTo(index.resolve("São Paulo"));
+        assertThat(index.resolve("new-york")).isEqualTo(index.resolve("NYC"));
+        assertThat(index.query(index.resolve("Reykjavík"))).isEqualTo("Reykjavik,IS");
+    }
+
+    @Test
+    void testCountryQualifierPicksAmongSameNames() {
+        // Given
+        CityIndex index = bundled(true);
+
+        // When / Then
+        assertThat(index.query(index.resolve("London"))).isEqualTo("London,GB");
+        assertThat(index.query(index.resolve("London,CA"))).isEqualTo("London,CA");
+        assertThat(index.resolve("London,FR")).isNull();
+    }
+
+    @Test
+    void testUnknownNamesAreRejectedOrFallBack() {
+        // Given
+        CityIndex rejecting = bundled(true);
+        CityIndex lenient = bundled(false);
+
+        // When / Then
+        assertThat(rejecting.resolve("Atlantis")).isNull();
+        assertThat(rejecting.resolve("  ")).isNull();
+        assertThat(meterRegistry.get("weather.cities.rejected").counter().count()).isEqualTo(2);
+        assertThat(lenient.resolve(" Atlantis ")).isEqualTo("atlantis");
+        assertThat(lenient.query("atlantis")).isEqualTo("atlantis");
+        assertThat(lenient.resolve("Paris")).isEqualTo(rejecting.resolve("paris"));
+    }
+
+    @Test
+    void testOnlyResolvableKeysAreKeys() {
+        // Given
+        CityIndex rejecting = bundled(true);
+        CityIndex lenient = bundled(false);
+
+        // When / Then
+        assertThat(rejecting.isKey(rejecting.resolve("London"))).isTrue();
+        assertThat(rejecting.isKey("atlantis")).isFalse();
+        assertThat(lenient.isKey("atlantis")).isTrue();
+        assertThat(lenient.isKey(" Atlantis")).isFalse();
+        assertThat(lenient.isKey("")).isFalse();
+    }
+
+    @Test
+    void testDuplicateIdsAreRefused() {
+        // Given
+        ByteArrayResource gazetteer = new ByteArrayResource("""
+                # id\tname\tcountry\taliases
+                1\tAlpha\tAA\t
+                1\tBeta\tBB\tB
+                """.getBytes(StandardCharsets.UTF_8));
+
+        // When / Then
+        assertThatThrownBy(() -> new CityIndex(gazetteer, true, meterRegistry))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Duplicate gazetteer id 1");
+    }
+
+    private CityIndex bundled(boolean rejectUnknown) {
+        return new CityIndex(new ClassPathResource("gazetteer/cities.tsv"), rejectUnknown, meterRegistry);
+    }
+}
@@ -0,0 +1,186 @@
+package com.dushmantha.weather_analyzer.cluster;
+
+import com.dushmantha.weather_analyzer.WeatherAnalyzerApplication;
+import com.dushmantha.weather_analyzer.cache.PeerCacheClient;
+import com.dushmantha.weather_analyzer.city.CityIndex;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two instances on localhost sharing one stub weather API.
+ *
+ * @author dushmantha.sse@gmail.com
+ */
+class ClusterIntegrationTest {
+
+    private static final List<String> CITIES = List.of("London", "Paris", "Tokyo", "Berlin", "Madrid", "Rome",
+            "Sydney", "Cairo", "Lima", "Oslo", "Dublin", "Vienna", "Prague");
+
+    private static final String SECRET = "cluster-secret";
+
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private final HttpClient http = HttpClient.newHttpClient();
+    private HttpServer upstream;
+    private ConfigurableApplicationContext first;
+    private ConfigurableApplicationContext second;
+    private String firstUrl;
+    private String secondUrl;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        upstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 64);
+        upstream.createContext("/data/2.5/forecast", this::forecast);
+        upstream.start();
+
+        int firstPort = freePort();
+        int secondPort = freePort();
+        firstUrl = "http://localhost:" + firstPort;
+        secondUrl = "http://localhost:" + secondPort;
+        first = start(firstPort, firstUrl);
+        second = start(secondPort, secondUrl);
+    }
+
+    @AfterEach
+    void tearDown() {
+        first.close();
+        second.close();
+        upstream.stop(0);
+    }
+
+    private ConfigurableApplicationContext start(int port, String self) {
+        // arguments rather than default properties, which application-dev.yml would override
+        return new SpringApplicationBuilder(WeatherAnalyzerApplication.class).run(
+                "--server.port=" + port,
+                "--weather.api.url=http://127.0.0.1:" + upstream.getAddress().getPort() + "/data/2.5/forecast",
+                "--weather.prefetch.enabled=false",
+                "--weather.cities.reject-unknown=true",
+                "--weather.cluster.enabled=true",
+                "--weather.cluster.self=" + self,
+                "--weather.cluster.secret=" + SECRET,
+                "--weather.cluster.peers=" + firstUrl + "," + secondUrl,
+                "--weather.cluster.health-interval=1h");
+    }
+
+    private void forecast(HttpExchange exchange) throws IOException {
+        String query = URLDecoder.decode(exchange.getRequestURI().getRawQuery(), StandardCharsets.UTF_8);
+        String city = query.substring(2).split("[,&]")[0];
+        upstreamCalls.incrementAndGet();
+        byte[] body = ("""
+                {"list":[
+                  {"dt":1732104000,"main":{"temp":8.5,"temp_min":7,"temp_max":9},"dt_txt":"2024-11-20 12:00:00"},
+                  {"dt":1732190400,"main":{"temp":11,"temp_min":10,"temp_max":12},"dt_txt":"2024-11-21 12:00:00"}
+                ],"city":{"name":"%s"}}""").formatted(city).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Test
+    void testOnlyTheOwnerCallsUpstreamForACity() throws Exception {
+        // Given
+        String city = cityOwnedBy(secondUrl, 0);
+
+        // When
+        HttpResponse<String> fromFirst = get(firstUrl, city);
+        HttpResponse<String> fromSecond = get(secondUrl, city);
+        HttpResponse<String> again = get(firstUrl, city);
+
+        // Then
+        assertThat(fromFirst.statusCode()).isEqualTo(200);
+        assertThat(fromSecond.body()).isEqualTo(fromFirst.body());
+        assertThat(again.statusCode()).isEqualTo(200);
+        assertThat(upstreamCalls).hasValue(1);
+    }
+
+    @Test
+    void testCitiesOfADepartedPeerAreLoadedByTheRemainingInstance() throws Exception {
+        // Given
+        String city = cityOwnedBy(secondUrl, 0);
+        second.close();
+
+        // When
+        HttpResponse<String> response = get(firstUrl, city);
+
+        // Then
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(upstreamCalls).hasValue(1);
+        ClusterMembership membership = first.getBean(ClusterMembership.class);
+        assertThat(membership.livePeers()).containsExactly(firstUrl);
+        assertThat(membership.owner(first.getBean(CityIndex.class).resolve(cityOwnedBy(secondUrl, 1))))
+                .isEqualTo(firstUrl);
+    }
+
+    @Test
+    void testPeerEndpointNeedsTheSecretAndAKnownCity() throws Exception {
+        // Given
+        String key = first.getBean(CityIndex.class).resolve("London");
+
+        // When
+        HttpResponse<String> anonymous = entry(firstUrl, key, null);
+        HttpResponse<String> wrongSecret = entry(firstUrl, key, "guess");
+        HttpResponse<String> unknown = entry(firstUrl, "nowhere-at-all", SECRET);
+        HttpResponse<String> known = entry(firstUrl, key, SECRET);
+
+        // Then
+        assertThat(anonymous.statusCode()).isEqualTo(403);
+        assertThat(wrongSecret.statusCode()).isEqualTo(403);
+        assertThat(unknown.statusCode()).isEqualTo(422);
+        assertThat(known.statusCode()).isEqualTo(200);
+        assertThat(upstreamCalls).hasValue(1);
+    }
+
+    /**
+     * The {@code skip}-th city of {@link #CITIES} that {@code owner} owns while both instances are live.
+     */
+    private String cityOwnedBy(String owner, int skip) {
+        CityIndex cityIndex = first.getBean(CityIndex.class);
+        HashRing ring = new HashRing(List.of(firstUrl, secondUrl), 128);
+        return CITIES.stream()
+                .filter(city -> ring.owner(cityIndex.resolve(city)).equals(owner))
+                .skip(skip)
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No city owned by " + owner));
+    }
+
+    private HttpResponse<String> get(String instance, String city) throws Exception {
+        return http.send(HttpRequest.newBuilder(URI.create(instance + "/weather?city=" + city)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> entry(String instance, String key, String secret) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(
+                URI.create(instance + PeerCacheClient.ENTRY_PATH + "?key=" + key));
+        if (secret != null) {
+            request.header(PeerCacheClient.SECRET_HEADER, secret);
+        }
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.dushmantha.weather_analyzer.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+class HashRingTest {
+
+    private static final List<String> NODES =
+            List.of("http://localhost:8080", "http://localhost:8081", "http://localhost:8082");
+
+    @Test
+    void testSpreadsKeysEvenlyOverNodes() {
+        // Given
+        HashRing ring = new HashRing(NODES, 128);
+        Map<String, Integer> owned = new HashMap<>();
+
+        // When
+        for (int i = 0; i < 30_000; i++) {
+            owned.merge(ring.owner("city-" + i), 1, Integer::sum);
+        }
+
+        // Then
+        assertThat(owned).containsOnlyKeys(NODES);
+        assertThat(owned.values()).allSatisfy(count -> assertThat(count).isBetween(8_000, 12_000));
+    }
+
+    @Test
+    void testRemovingANodeMovesOnlyItsKeys() {
+        // Given
+        HashRing full = new HashRing(NODES, 128);
+        HashRing reduced = new HashRing(NODES.subList(0, 2), 128);
+        String removed = NODES.get(2);
+
+        // When / Then
+        for (int i = 0; i < 10_000; i++) {
+            String key = "city-" + i;
+            String before = full.owner(key);
+            String after = reduced.owner(key);
+            if (before.equals(removed)) {
+                assertThat(after).isNotEqualTo(removed);
+            } else {
+                assertThat(after).isEqualTo(before);
+            }
+        }
+    }
+
+    @Test
+    void testOwnersDoNotDependOnNodeOrder() {
+        // Given
+        HashRing ring = new HashRing(NODES, 64);
+        HashRing reversed = new HashRing(NODES.reversed(), 64);
+
+        // When / Then
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(reversed.owner("city-" + i)).isEqualTo(ring.owner("city-" + i));
+        }
+    }
+
+    @Test
+    void testEmptyRingHasNoOwner() {
+        // Given
+        HashRing ring = new HashRing(List.of(), 128);
+
+        // When / Then
+        assertThat(ring.owner("london")).isNull();
+    }
+}
@@ -0,0 +1,38 @@
+package com.dushmantha.weather_analyzer.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+class AsyncConfigTest {
+
+    @Test
+    void testExecutorSettingsBindFromDevProfile() throws IOException {
+        // Given
+        List<PropertySource<?>> sources = new YamlPropertySourceLoader()
+                .load("application-dev", new ClassPathResource("application-dev.yml"));
+        StandardEnvironment environment = new StandardEnvironment();
+        sources.forEach(environment.getPropertySources()::addLast);
+
+        // When
+        Binder binder = Binder.get(environment);
+
+        // Then
+        assertThat(binder.bind("weather.executor.mode", String.class).get()).isEqualTo("pool");
+        assertThat(binder.bind("weather.executor.core-pool-size", Integer.class).get()).isEqualTo(2);
+        assertThat(binder.bind("weather.executor.queue-capacity", Integer.class).get()).isEqualTo(100);
+        assertThat(binder.bind("weather.prefetch.mode", String.class).isBound()).isFalse();
+        assertThat(binder.bind("weather.prefetch.top-n", Integer.class).get()).isEqualTo(80);
+    }
+}
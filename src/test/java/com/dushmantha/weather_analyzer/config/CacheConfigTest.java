@@ -0,0 +1,76 @@
+package com.dushmantha.weather_analyzer.config;
+
+import com.dushmantha.weather_analyzer.cache.CachedSummary;
+import com.dushmantha.weather_analyzer.cache.SummaryEncoder;
+import com.dushmantha.weather_analyzer.cache.WeatherCache;
+import com.dushmantha.weather_analyzer.forecast.ForecastColumns;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+class CacheConfigTest {
+
+    @Test
+    void testWeatherCacheIsBoundedByEstimatedBytes() {
+        // Given
+        CacheConfig cacheConfig = new CacheConfig();
+        ReflectionTestUtils.setField(cacheConfig, "hardTtl", Duration.ofHours(2));
+        ReflectionTestUtils.setField(cacheConfig, "maximumWeight", DataSize.ofKilobytes(100));
+        AsyncCache<String, CachedSummary> store = cacheConfig.weatherCacheStore();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        WeatherCache weatherCache = new WeatherCache(store, Optional.empty(), Optional.empty(),
+                new SummaryEncoder(new ObjectMapper()), meterRegistry);
+        long now = System.currentTimeMillis();
+
+        // When
+        for (int i = 0; i < 1000; i++) {
+            weatherCache.put("city-" + i, CachedSummary.of(forecast("City " + i), now, now + 60_000));
+        }
+        store.synchronous().cleanUp();
+
+        // Then
+        long weight = store.synchronous().policy().eviction().orElseThrow().weightedSize().orElseThrow();
+        assertThat(weight).isPositive().isLessThanOrEqualTo(DataSize.ofKilobytes(100).toBytes());
+        assertThat(store.synchronous().estimatedSize()).isBetween(50L, 999L);
+        assertThat(meterRegistry.get("weather.cache.weight").gauge().value()).isEqualTo(weight);
+        assertThat(meterRegistry.get("weather.cache.weight.max").gauge().value()).isEqualTo(102_400.0);
+    }
+
+    @Test
+    void testOffHeapWeightMustFitInDirectMemory() {
+        // Given
+        CacheConfig cacheConfig = new CacheConfig();
+        ReflectionTestUtils.setField(cacheConfig, "hardTtl", Duration.ofHours(2));
+        ReflectionTestUtils.setField(cacheConfig, "offHeap", true);
+        ReflectionTestUtils.setField(cacheConfig, "maximumWeight",
+                DataSize.ofBytes(CacheConfig.maxDirectMemory() + 1));
+
+        // When & Then
+        assertThatThrownBy(cacheConfig::weatherCacheStore)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("MaxDirectMemorySize");
+        ReflectionTestUtils.setField(cacheConfig, "maximumWeight", DataSize.ofKilobytes(100));
+        assertThat(cacheConfig.weatherCacheStore()).isNotNull();
+    }
+
+    private static ForecastColumns forecast(String city) {
+        ForecastColumns.Builder builder = ForecastColumns.builder();
+        builder.city(city);
+        for (int i = 0; i < 40; i++) {
+            builder.slot(1732104000L + i * 10_800L, 10.5 + i % 9, 9.5 + i % 9, 11.5 + i % 9, 20047 + (i + 4) / 8);
+        }
+        return builder.build();
+    }
+}
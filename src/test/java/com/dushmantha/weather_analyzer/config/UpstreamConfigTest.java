@@ -0,0 +1,104 @@
+package com.dushmantha.weather_analyzer.config;
+
+import com.sun.net.httpserver.HttpServer;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+class UpstreamConfigTest {
+
+    private final List<Integer> clientPorts = new CopyOnWriteArrayList<>();
+    private final List<String> acceptEncodings = new CopyOnWriteArrayList<>();
+
+    private HttpServer server;
+    private ConnectionProvider connectionProvider;
+    private WebClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 16);
+        server.createContext("/", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            acceptEncodings.add(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+            if (exchange.getRequestURI().getPath().equals("/slow")) {
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+
+        UpstreamConfig config = new UpstreamConfig();
+        ReflectionTestUtils.setField(config, "connectTimeout", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(config, "responseTimeout", Duration.ofMillis(200));
+        ReflectionTestUtils.setField(config, "readTimeout", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(config, "writeTimeout", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(config, "compression", true);
+        ReflectionTestUtils.setField(config, "maxConnections", 4);
+        ReflectionTestUtils.setField(config, "maxPendingAcquires", 16);
+        ReflectionTestUtils.setField(config, "pendingAcquireTimeout", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(config, "maxIdleTime", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(config, "maxLifeTime", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(config, "evictionInterval", Duration.ofSeconds(30));
+        connectionProvider = config.weatherApiConnectionProvider();
+        client = config.weatherApiClient(WebClient.builder(), connectionProvider);
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionProvider.dispose();
+        server.stop(0);
+    }
+
+    @Test
+    void testSequentialCallsReuseOneKeepAliveConnectionAndAskForGzip() throws InterruptedException {
+        // When
+        for (int i = 0; i < 3; i++) {
+            client.get().uri(url("/forecast")).retrieve().bodyToMono(String.class).block();
+            // the connection goes back to the pool on the event loop just after the body completes
+            Thread.sleep(50);
+        }
+
+        // Then
+        assertThat(clientPorts).hasSize(3).containsOnly(clientPorts.get(0));
+        assertThat(acceptEncodings).containsOnly("gzip");
+    }
+
+    @Test
+    void testResponseTimeoutFailsSlowCall() {
+        // When & Then
+        assertThatThrownBy(() -> client.get().uri(url("/slow")).retrieve().bodyToMono(String.class).block())
+                .hasRootCauseInstanceOf(ReadTimeoutException.class);
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+}
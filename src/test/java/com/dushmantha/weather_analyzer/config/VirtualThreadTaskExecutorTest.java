@@ -0,0 +1,49 @@
+package com.dushmantha.weather_analyzer.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+class VirtualThreadTaskExecutorTest {
+
+    @Test
+    void testLimitsConcurrencyAndRejectsOverflow() throws InterruptedException {
+        // Given
+        VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor("test-vt-", 2, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+        Runnable blocking = () -> {
+            try {
+                assertThat(Thread.currentThread().isVirtual()).isTrue();
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                done.countDown();
+            }
+        };
+
+        // When
+        executor.execute(blocking);
+        executor.execute(blocking);
+        executor.execute(blocking);
+
+        // Then
+        await().atMost(5, TimeUnit.SECONDS).until(() -> executor.activeCount() == 2 && executor.queuedCount() == 1);
+        assertThatThrownBy(() -> executor.execute(blocking)).isInstanceOf(TaskRejectedException.class);
+        assertThat(executor.rejectedCount()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        await().atMost(5, TimeUnit.SECONDS).until(() -> executor.activeCount() == 0);
+    }
+}
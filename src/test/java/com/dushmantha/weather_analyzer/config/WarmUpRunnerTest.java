@@ -0,0 +1,62 @@
+package com.dushmantha.weather_analyzer.config;
+
+import com.dushmantha.weather_analyzer.cache.SummaryEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+class WarmUpRunnerTest {
+
+    private WarmUpRunner warmUpRunner;
+
+    @BeforeEach
+    void setUp() {
+        warmUpRunner = new WarmUpRunner(new PathMatchingResourcePatternResolver(),
+                new SummaryEncoder(new ObjectMapper()));
+        ReflectionTestUtils.setField(warmUpRunner, "iterations", 3);
+        ReflectionTestUtils.setField(warmUpRunner, "maxDuration", Duration.ofSeconds(30));
+    }
+
+    @Test
+    void testProcessesEveryBundledPayloadEachIteration() {
+        // When
+        int processed = warmUpRunner.warmUp();
+
+        // Then
+        assertThat(processed).isEqualTo(3 * 2);
+    }
+
+    @Test
+    void testStopsAtMaxDuration() {
+        // Given
+        ReflectionTestUtils.setField(warmUpRunner, "iterations", Integer.MAX_VALUE);
+        ReflectionTestUtils.setField(warmUpRunner, "maxDuration", Duration.ofMillis(200));
+
+        // When
+        long start = System.nanoTime();
+        int processed = warmUpRunner.warmUp();
+
+        // Then
+        assertThat(processed).isPositive();
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void testDoesNothingUnlessEnabled() {
+        // Given
+        ReflectionTestUtils.setField(warmUpRunner, "iterations", Integer.MAX_VALUE);
+        ReflectionTestUtils.setField(warmUpRunner, "maxDuration", Duration.ofDays(1));
+
+        // When / Then
+        warmUpRunner.run(null);
+    }
+}
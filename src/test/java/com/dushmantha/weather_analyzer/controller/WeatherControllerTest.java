@@ -1,41 +1,355 @@
 package com.dushmantha.weather_analyzer.controller;
 
+import com.dushmantha.weather_analyzer.cache.CachedSummary;
+import com.dushmantha.weather_analyzer.cache.SummaryEncoder;
+import com.dushmantha.weather_analyzer.cache.SummaryFormat;
+import com.dushmantha.weather_analyzer.dto.DailyHistory;
+import com.dushmantha.weather_analyzer.dto.ForecastHistory;
+import com.dushmantha.weather_analyzer.dto.WeatherBatchResult;
 import com.dushmantha.weather_analyzer.dto.WeatherSummary;
+import com.dushmantha.weather_analyzer.exception.ExternalApiException;
+import com.dushmantha.weather_analyzer.forecast.ForecastColumns;
+import com.dushmantha.weather_analyzer.service.ForecastHistoryService;
+import com.dushmantha.weather_analyzer.service.WeatherBatchService;
 import com.dushmantha.weather_analyzer.service.WeatherService;
+import com.dushmantha.weather_analyzer.service.WeatherSubscriptionService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.json.JsonCompareMode;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.util.concurrent.CompletableFuture;
+import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.matchesPattern;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
  * @author dushmantha.sse@gmail.com
  */
 @WebMvcTest(WeatherController.class)
+@Import(SummaryEncoder.class)
 class WeatherControllerTest {
 
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private SummaryEncoder summaryEncoder;
+
     @MockitoBean
     private WeatherService weatherService;
 
+    @MockitoBean
+    private WeatherBatchService weatherBatchService;
+
+    @MockitoBean
+    private ForecastHistoryService forecastHistoryService;
+
+    @MockitoBean
+    private WeatherSubscriptionService weatherSubscriptionService;
+
     @Test
     void testGetWeatherSummary() throws Exception {
         WeatherSummary mockSummary = new WeatherSummary("London", 16.8, "2025-07-27", "2024-07-25");
-        when(weatherService.weatherSummary("London"))
-                .thenReturn(CompletableFuture.completedFuture(mockSummary));
+        long now = System.currentTimeMillis();
+        when(weatherService.cachedWeatherSummary("London"))
+                .thenReturn(Mono.just(new CachedSummary(mockSummary, now - 5_000, now + 60_000)));
+
+        MvcResult result = mockMvc.perform(get("/weather?city=London"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.AGE, "5"))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=65"))
+                .andExpect(header().string(HttpHeaders.ETAG, matchesPattern("\"[0-9a-f]{24}\"")))
+                .andExpect(header().doesNotExist(HttpHeaders.WARNING))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().json("{\"city\":\"London\",\"averageTemperature\":16.8,"
+                        + "\"hottestDay\":\"2025-07-27\",\"coldestDay\":\"2024-07-25\"}", JsonCompareMode.STRICT));
+    }
+
+    @Test
+    void testGetWeatherSummary_NotModified() throws Exception {
+        WeatherSummary mockSummary = new WeatherSummary("London", 16.8, "2025-07-27", "2024-07-25");
+        long now = System.currentTimeMillis();
+        CachedSummary cached = new CachedSummary(mockSummary, now - 5_000, now + 60_000);
+        String etag = cached.getBody(summaryEncoder).getEtag();
+        when(weatherService.cachedWeatherSummary("London")).thenReturn(Mono.just(cached));
+
+        MvcResult notModified = mockMvc.perform(get("/weather?city=London")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"other\", W/" + etag))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult changed = mockMvc.perform(get("/weather?city=London")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"other\""))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(notModified))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=65"))
+                .andExpect(header().string(HttpHeaders.AGE, "5"))
+                .andExpect(content().bytes(new byte[0]));
+        mockMvc.perform(asyncDispatch(changed))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(jsonPath("$.city").value("London"));
+    }
+
+    @Test
+    void testGetWeatherSummary_NegotiatesBinaryFormats() throws Exception {
+        WeatherSummary mockSummary = new WeatherSummary("London", 16.8, "2025-07-27", "2024-07-25");
+        long now = System.currentTimeMillis();
+        CachedSummary cached = new CachedSummary(mockSummary, now - 5_000, now + 60_000);
+        when(weatherService.cachedWeatherSummary("London")).thenReturn(Mono.just(cached));
+
+        for (SummaryFormat format : List.of(SummaryFormat.CBOR, SummaryFormat.SMILE, SummaryFormat.BINARY)) {
+            MvcResult result = mockMvc.perform(get("/weather?city=London")
+                            .header(HttpHeaders.ACCEPT, format.mediaType() + ", application/json;q=0.5"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            byte[] body = mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(format.mediaType()))
+                    .andExpect(header().string(HttpHeaders.ETAG, format.etag(cached.getBody(summaryEncoder).getEtag())))
+                    .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                    .andReturn().getResponse().getContentAsByteArray();
+            assertThat(summaryEncoder.read(format, body, WeatherSummary.class)).isEqualTo(mockSummary);
+            assertThat(body).isEqualTo(cached.getBody(summaryEncoder, format));
+        }
+    }
+
+    @Test
+    void testGetWeatherSummary_NotAcceptable() throws Exception {
+        mockMvc.perform(get("/weather?city=London").accept(MediaType.APPLICATION_XML))
+                .andExpect(status().isNotAcceptable());
+
+        long now = System.currentTimeMillis();
+        when(weatherService.cachedWeatherSummary("London"))
+                .thenReturn(Mono.just(cachedForecast(now - 5_000, now + 60_000)));
+        MvcResult result = mockMvc.perform(get("/weather/daily?city=London")
+                        .header(HttpHeaders.ACCEPT, SummaryFormat.BINARY_VALUE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isNotAcceptable());
+    }
+
+    @Test
+    void testGetWeatherSummary_StaleEntry() throws Exception {
+        WeatherSummary mockSummary = new WeatherSummary("London", 16.8, "2025-07-27", "2024-07-25");
+        long now = System.currentTimeMillis();
+        when(weatherService.cachedWeatherSummary("London"))
+                .thenReturn(Mono.just(new CachedSummary(mockSummary, now - 2_400_000, now - 600_000)));
+
+        MvcResult result = mockMvc.perform(get("/weather?city=London"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.AGE, "2400"))
+                .andExpect(header().string(HttpHeaders.WARNING, "110 - \"Response is Stale\""))
+                .andExpect(jsonPath("$.city").value("London"));
+    }
+
+    @Test
+    void testGetWeatherSummary_ExternalApiError() throws Exception {
+        when(weatherService.cachedWeatherSummary("InvalidCity"))
+                .thenReturn(Mono.error(new ExternalApiException("City not found for: InvalidCity")));
+
+        MvcResult result = mockMvc.perform(get("/weather?city=InvalidCity"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("City not found for: InvalidCity"));
+    }
+
+    @Test
+    void testGetDailyForecast_FromCachedColumns() throws Exception {
+        long now = System.currentTimeMillis();
+        when(weatherService.cachedWeatherSummary("London"))
+                .thenReturn(Mono.just(cachedForecast(now - 5_000, now + 60_000)));
+
+        MvcResult result = mockMvc.perform(get("/weather/daily?city=London&days=1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.AGE, "5"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].date").value("2024-11-20"))
+                .andExpect(jsonPath("$[0].minTemperature").value(7.0))
+                .andExpect(jsonPath("$[0].maxTemperature").value(15.0))
+                .andExpect(jsonPath("$[0].averageTemperature").value(11.0))
+                .andExpect(jsonPath("$[0].slots").value(4));
+    }
+
+    @Test
+    void testGetTemperaturePercentiles_StaleEntry() throws Exception {
+        long now = System.currentTimeMillis();
+        when(weatherService.cachedWeatherSummary("London"))
+                .thenReturn(Mono.just(cachedForecast(now - 2_400_000, now - 600_000)));
+
+        MvcResult result = mockMvc.perform(get("/weather/percentiles?city=London&p=0,50,100&hours=12"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
 
-        mockMvc.perform(get("/weather?city=London"))
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.WARNING, "110 - \"Response is Stale\""))
                 .andExpect(jsonPath("$.city").value("London"))
-                .andExpect(jsonPath("$.averageTemperature").value(16.8));
+                .andExpect(jsonPath("$.slots").value(4))
+                .andExpect(jsonPath("$.percentiles.p0").value(8.0))
+                .andExpect(jsonPath("$.percentiles.p50").value(11.0))
+                .andExpect(jsonPath("$.percentiles.p100").value(14.0));
+    }
+
+    @Test
+    void testGetWindowSummary_InvalidHours() throws Exception {
+        long now = System.currentTimeMillis();
+        when(weatherService.cachedWeatherSummary("London"))
+                .thenReturn(Mono.just(cachedForecast(now, now + 60_000)));
+
+        MvcResult result = mockMvc.perform(get("/weather/window?city=London&hours=0"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("hours must be positive"));
+    }
+
+    @Test
+    void testGetWeatherSummaries_StreamsNdjson() throws Exception {
+        WeatherSummary london = new WeatherSummary("London", 16.8, "2025-07-27", "2024-07-25");
+        when(weatherBatchService.weatherSummaries(List.of("London", "Atlantis")))
+                .thenReturn(Flux.just(
+                        WeatherBatchResult.success("London", london),
+                        WeatherBatchResult.failure("Atlantis", "City not found for: atlantis")));
+
+        MvcResult result = mockMvc.perform(post("/weather/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .content("{\"cities\":[\"London\",\"Atlantis\"]}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(
+                        "{\"city\":\"London\",\"summary\":{\"city\":\"London\",\"averageTemperature\":16.8,"
+                                + "\"hottestDay\":\"2025-07-27\",\"coldestDay\":\"2024-07-25\"}}\n"
+                                + "{\"city\":\"Atlantis\",\"error\":\"City not found for: atlantis\"}\n"));
+    }
+
+    @Test
+    void testGetWeatherSummaries_BinaryFormats() throws Exception {
+        List<WeatherBatchResult> results = List.of(
+                WeatherBatchResult.success("London", new WeatherSummary("London", 16.8, "2025-07-27", "2024-07-25")),
+                WeatherBatchResult.failure("Atlantis", "City not found for: atlantis"));
+        when(weatherBatchService.weatherSummaries(List.of("London", "Atlantis")))
+                .thenReturn(Flux.fromIterable(results));
+
+        for (SummaryFormat format : List.of(SummaryFormat.CBOR, SummaryFormat.SMILE, SummaryFormat.BINARY)) {
+            MvcResult result = mockMvc.perform(post("/weather/batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .accept(format.mediaType())
+                            .content("{\"cities\":[\"London\",\"Atlantis\"]}"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            byte[] body = mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith(format.mediaType()))
+                    .andReturn().getResponse().getContentAsByteArray();
+            assertThat(summaryEncoder.read(format, body, WeatherBatchResult[].class))
+                    .containsExactlyElementsOf(results);
+        }
+    }
+
+    @Test
+    void testSubscribe_StreamsServerSentEvents() throws Exception {
+        WeatherSummary london = new WeatherSummary("London", 16.8, "2025-07-27", "2024-07-25");
+        when(weatherSubscriptionService.subscribe(List.of("London,GB", "Atlantis")))
+                .thenReturn(Flux.just(
+                        ServerSentEvent.builder(WeatherBatchResult.success("London,GB", london))
+                                .event("summary").build(),
+                        ServerSentEvent.builder(WeatherBatchResult.failure("Atlantis", "City not found for: atlantis"))
+                                .event("error").build()));
+
+        MvcResult result = mockMvc.perform(get("/weather/subscribe?city=London,GB&city=Atlantis")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(content().string(
+                        "event:summary\ndata:{\"city\":\"London,GB\",\"summary\":{\"city\":\"London\","
+                                + "\"averageTemperature\":16.8,\"hottestDay\":\"2025-07-27\","
+                                + "\"coldestDay\":\"2024-07-25\"}}\n\n"
+                                + "event:error\ndata:{\"city\":\"Atlantis\",\"error\":\"City not found for: atlantis\"}"
+                                + "\n\n"));
+    }
+
+    @Test
+    void testGetForecastHistory() throws Exception {
+        ForecastHistory history = new ForecastHistory("London,GB", "2024-11-19", "2024-11-20", 3, 120, 9.5, 4.0, 14.25,
+                List.of(new DailyHistory("2024-11-19", 0, null, null, null),
+                        new DailyHistory("2024-11-20", 3, 9.5, 4.0, 14.25)));
+        when(forecastHistoryService.forecastHistory("London", 2, true)).thenReturn(Mono.just(history));
+
+        MvcResult result = mockMvc.perform(get("/weather/history?city=London&days=2&daily=true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.snapshots").value(3))
+                .andExpect(jsonPath("$.daily[0].snapshots").value(0))
+                .andExpect(jsonPath("$.daily[0].averageTemperature").doesNotExist())
+                .andExpect(jsonPath("$.daily[1].maxTemperature").value(14.25));
+    }
+
+    /**
+     * Two days of 3-hourly slots from 2024-11-20 12:00 UTC, temps 8, 10, 12, ... with min / max one degree apart.
+     */
+    private static CachedSummary cachedForecast(long fetchedAt, long staleAt) {
+        ForecastColumns.Builder builder = ForecastColumns.builder();
+        builder.city("London");
+        for (int i = 0; i < 8; i++) {
+            double temp = 8.0 + 2 * (i % 4);
+            builder.slot(1732104000L + i * 10_800L, temp, temp - 1, temp + 1, 20047 + (i + 4) / 8);
+        }
+        ForecastColumns forecast = builder.build();
+        return new CachedSummary(forecast.summary(), forecast, fetchedAt, staleAt);
     }
-}
\ No newline at end of file
+}
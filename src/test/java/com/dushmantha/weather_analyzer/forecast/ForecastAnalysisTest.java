@@ -0,0 +1,131 @@
+package com.dushmantha.weather_analyzer.forecast;
+
+import com.dushmantha.weather_analyzer.dto.DailyForecast;
+import com.dushmantha.weather_analyzer.dto.TemperaturePercentiles;
+import com.dushmantha.weather_analyzer.dto.WeatherSummary;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+class ForecastAnalysisTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 11, 20, 12, 0);
+
+    @Test
+    void testDaily_GroupsSlotsByDay() {
+        // Given: 12:00 .. 21:00 on the 20th, 00:00 and 03:00 on the 21st
+        ForecastColumns forecast = forecast(
+                new double[]{10.0, 12.0, 8.0, 6.0, 4.0, 2.0},
+                new double[]{9.5, 11.0, 7.5, 5.0, 3.5, 1.0},
+                new double[]{10.5, 13.5, 8.0, 6.5, 4.0, 2.5});
+
+        // When
+        List<DailyForecast> daily = ForecastAnalysis.daily(forecast, 7);
+
+        // Then
+        assertThat(daily).containsExactly(
+                new DailyForecast("2024-11-20", 5.0, 13.5, 9.0, 4),
+                new DailyForecast("2024-11-21", 1.0, 4.0, 3.0, 2));
+        assertThat(ForecastAnalysis.daily(forecast, 1)).hasSize(1);
+    }
+
+    @Test
+    void testWindow_SummarisesLeadingHours() {
+        // Given
+        ForecastColumns forecast = forecast(
+                new double[]{10.0, 12.0, 8.0, 6.0, 4.0, 2.0},
+                new double[]{10.0, 12.0, 8.0, 6.0, 4.0, 2.0},
+                new double[]{10.0, 12.0, 8.0, 6.0, 4.0, 2.0});
+
+        // When
+        WeatherSummary sixHours = ForecastAnalysis.window(forecast, 6);
+        WeatherSummary allDays = ForecastAnalysis.window(forecast, 24 * 7);
+
+        // Then
+        assertThat(sixHours).isEqualTo(new WeatherSummary("london", 11.0, "2024-11-20", "2024-11-20"));
+        assertThat(allDays).isEqualTo(new WeatherSummary("london", 7.0, "2024-11-20", "2024-11-21"));
+        assertThat(forecast.summary()).isEqualTo(allDays);
+    }
+
+    @Test
+    void testPercentiles_MatchSortedReference() {
+        Random random = new Random(42);
+        for (int run = 0; run < 200; run++) {
+            // Given
+            int size = 1 + random.nextInt(ForecastColumns.CAPACITY);
+            double[] temps = new double[size];
+            for (int i = 0; i < size; i++) {
+                // coarse values so that ties are common
+                temps[i] = Math.round((random.nextGaussian() * 8 + 12) * 2) / 2.0;
+            }
+            ForecastColumns forecast = forecast(temps, temps, temps);
+            int hours = 1 + random.nextInt(size * 3 + 6);
+            double[] ps = {0, 25, 50, 90, 99.5, 100};
+
+            // When
+            TemperaturePercentiles percentiles = ForecastAnalysis.percentiles(forecast, hours, ps);
+
+            // Then
+            int slots = Math.min(size, (hours + 2) / 3);
+            assertThat(percentiles.getSlots()).isEqualTo(slots);
+            double[] sorted = Arrays.copyOf(temps, slots);
+            Arrays.sort(sorted);
+            Map<String, Double> values = percentiles.getPercentiles();
+            assertThat(values).containsOnlyKeys("p0", "p25", "p50", "p90", "p99.5", "p100");
+            assertThat(values.get("p0")).isEqualTo(sorted[0]);
+            assertThat(values.get("p100")).isEqualTo(sorted[slots - 1]);
+            assertThat(values.get("p50")).isCloseTo(reference(sorted, 50), within(0.005));
+            assertThat(values.get("p90")).isCloseTo(reference(sorted, 90), within(0.005));
+            assertThat(values.get("p99.5")).isCloseTo(reference(sorted, 99.5), within(0.005));
+        }
+    }
+
+    @Test
+    void testInvalidParametersAreRejected() {
+        // Given
+        ForecastColumns forecast = forecast(new double[]{1.0}, new double[]{1.0}, new double[]{1.0});
+
+        // When / Then
+        assertThatThrownBy(() -> ForecastAnalysis.daily(forecast, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ForecastAnalysis.window(forecast, -3))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ForecastAnalysis.percentiles(forecast, 24, new double[]{101}))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ForecastAnalysis.percentiles(forecast, 24, new double[0]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static double reference(double[] sorted, double p) {
+        double position = p / 100.0 * (sorted.length - 1);
+        int lower = (int) Math.floor(position);
+        int upper = Math.min(lower + 1, sorted.length - 1);
+        return sorted[lower] + (position - lower) * (sorted[upper] - sorted[lower]);
+    }
+
+    /**
+     * 3-hourly slots from {@link #START}, built through the decoder's sink interface.
+     */
+    private static ForecastColumns forecast(double[] temps, double[] tempMins, double[] tempMaxes) {
+        ForecastColumns.Builder builder = ForecastColumns.builder();
+        builder.city("london");
+        for (int i = 0; i < temps.length; i++) {
+            LocalDateTime time = START.plusHours(3L * i);
+            builder.slot(time.toEpochSecond(ZoneOffset.UTC), temps[i], tempMins[i], tempMaxes[i],
+                    (int) time.toLocalDate().toEpochDay());
+        }
+        return builder.build();
+    }
+}
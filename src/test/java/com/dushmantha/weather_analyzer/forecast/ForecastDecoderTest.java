@@ -0,0 +1,175 @@
+package com.dushmantha.weather_analyzer.forecast;
+
+import com.dushmantha.weather_analyzer.dto.City;
+import com.dushmantha.weather_analyzer.dto.Main;
+import com.dushmantha.weather_analyzer.dto.WeatherApiResponse;
+import com.dushmantha.weather_analyzer.dto.WeatherData;
+import com.dushmantha.weather_analyzer.dto.WeatherSummary;
+import com.dushmantha.weather_analyzer.exception.ExternalApiException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+class ForecastDecoderTest {
+
+    private static final DateTimeFormatter DT_TXT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testDecode_MatchesObjectGraphAggregation() throws Exception {
+        Random random = new Random(42);
+        for (int run = 0; run < 200; run++) {
+            // Given
+            WeatherApiResponse response = randomResponse(random, random.nextInt(80));
+            byte[] payload = objectMapper.writeValueAsBytes(response);
+
+            // When
+            WeatherSummary summary = ForecastDecoder.decode(ByteBuffer.wrap(payload), new ForecastAccumulator(),
+                    ForecastAccumulator.WINDOW).toSummary();
+
+            // Then
+            assertThat(summary).isEqualTo(referenceSummary(response));
+        }
+    }
+
+    @Test
+    void testDecode_ChunkBoundariesDoNotMatter() throws Exception {
+        // Given
+        WeatherApiResponse response = randomResponse(new Random(7), 40);
+        byte[] payload = objectMapper.writeValueAsBytes(response);
+        WeatherSummary expected = referenceSummary(response);
+
+        for (int chunk = 1; chunk <= 64; chunk++) {
+            // When
+            ForecastAccumulator accumulator = new ForecastAccumulator();
+            try (ForecastDecoder decoder = new ForecastDecoder(accumulator, ForecastAccumulator.WINDOW)) {
+                for (int offset = 0; offset < payload.length; offset += chunk) {
+                    decoder.feed(ByteBuffer.wrap(payload, offset, Math.min(chunk, payload.length - offset)));
+                }
+                decoder.endOfInput();
+            }
+
+            // Then
+            assertThat(accumulator.toSummary()).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void testDecode_SkipsUnknownFields() {
+        // Given
+        String payload = """
+                {"cod":"200","message":0,"cnt":2,"list":[
+                  {"dt":1732104000,"main":{"temp":10.5,"feels_like":9.1,"temp_min":9.0,"temp_max":11.25,
+                     "pressure":1012},"weather":[{"id":800,"main":"Clear","icon":"01d"}],
+                     "wind":{"speed":3.6},"dt_txt":"2024-11-20 12:00:00"},
+                  {"dt":1732114800,"main":{"temp":-2,"temp_min":-3.5,"temp_max":1e1},"dt_txt":"2024-11-20 15:00:00"}
+                ],"city":{"id":2643743,"name":"London","coord":{"lat":51.5085,"lon":-0.1257},"country":"GB"}}
+                """;
+        List<double[]> slots = new ArrayList<>();
+        String[] city = new String[1];
+        ForecastSink sink = new ForecastSink() {
+            @Override
+            public void city(String name) {
+                city[0] = name;
+            }
+
+            @Override
+            public void slot(long epochSecond, double temp, double tempMin, double tempMax, int epochDay) {
+                slots.add(new double[]{epochSecond, temp, tempMin, tempMax, epochDay});
+            }
+        };
+
+        // When
+        ForecastDecoder.decode(ByteBuffer.wrap(payload.getBytes(StandardCharsets.UTF_8)), sink, 56);
+
+        // Then
+        assertThat(city[0]).isEqualTo("London");
+        assertThat(slots).hasSize(2);
+        assertThat(slots.get(0)).containsExactly(1732104000, 10.5, 9.0, 11.25, 20047);
+        assertThat(slots.get(1)).containsExactly(1732114800, -2.0, -3.5, 10.0, 20047);
+    }
+
+    @Test
+    void testDecode_TruncatedPayloadFails() {
+        byte[] payload = "{\"list\":[{\"dt\":1,\"main\":{\"temp\":1.5}".getBytes(StandardCharsets.UTF_8);
+
+        assertThatThrownBy(() -> ForecastDecoder.decode(ByteBuffer.wrap(payload), new ForecastAccumulator(), 56))
+                .isInstanceOf(ExternalApiException.class);
+    }
+
+    @Test
+    void testParseDouble_MatchesJdk() {
+        Random random = new Random(1);
+        for (int i = 0; i < 100_000; i++) {
+            String text = switch (i % 4) {
+                case 0 -> Double.toString(random.nextGaussian() * 30);
+                case 1 -> String.format("%.2f", random.nextDouble() * 80 - 40);
+                case 2 -> Long.toString(random.nextLong());
+                default -> Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(40) - 20));
+            };
+            char[] chars = ("x" + text + "x").toCharArray();
+
+            assertThat(ForecastDecoder.parseDouble(chars, 1, text.length()))
+                    .as(text)
+                    .isEqualTo(Double.parseDouble(text));
+        }
+    }
+
+    /**
+     * The aggregation previously done over the bound {@link WeatherApiResponse}.
+     */
+    private static WeatherSummary referenceSummary(WeatherApiResponse response) {
+        List<WeatherData> last7Days = response.getList().stream().limit(56).toList();
+        double averageTemp = last7Days.stream().mapToDouble(data -> data.getMain().getTemp()).average().orElse(0.0);
+        WeatherData hottest = last7Days.stream().max(Comparator.comparing(data -> data.getMain().getTemp())).orElse(null);
+        WeatherData coldest = last7Days.stream().min(Comparator.comparing(data -> data.getMain().getTemp())).orElse(null);
+        return new WeatherSummary(
+                response.getCity().getName(),
+                Math.round(averageTemp * 100.0) / 100.0,
+                hottest != null ? hottest.getDt_txt().split(" ")[0] : null,
+                coldest != null ? coldest.getDt_txt().split(" ")[0] : null);
+    }
+
+    private static WeatherApiResponse randomResponse(Random random, int slots) {
+        WeatherApiResponse response = new WeatherApiResponse();
+        City city = new City();
+        city.setName("City " + random.nextInt(1000));
+        response.setCity(city);
+        response.setCod("200");
+        response.setCnt(slots);
+
+        LocalDateTime start = LocalDateTime.of(2020 + random.nextInt(10), 1 + random.nextInt(12), 1, 0, 0)
+                .plusDays(random.nextInt(28));
+        List<WeatherData> list = new ArrayList<>();
+        for (int i = 0; i < slots; i++) {
+            LocalDateTime time = start.plusHours(3L * i);
+            Main main = new Main();
+            main.setTemp(Math.round((random.nextGaussian() * 12 + 15) * 100) / 100.0);
+            main.setTemp_min(main.getTemp() - random.nextInt(3));
+            main.setTemp_max(main.getTemp() + random.nextInt(3));
+            WeatherData data = new WeatherData();
+            data.setDt(time.toEpochSecond(ZoneOffset.UTC));
+            data.setMain(main);
+            data.setDt_txt(time.format(DT_TXT));
+            list.add(data);
+        }
+        response.setList(list);
+        return response;
+    }
+}
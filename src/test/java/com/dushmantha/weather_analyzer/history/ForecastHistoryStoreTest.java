@@ -0,0 +1,213 @@
+package com.dushmantha.weather_analyzer.history;
+
+import com.dushmantha.weather_analyzer.forecast.ForecastColumns;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+class ForecastHistoryStoreTest {
+
+    private static final long DAY_MILLIS = 86_400_000L;
+    private static final long START_MILLIS = 1732060800000L;
+    private static final int SLOTS = 8;
+
+    @TempDir
+    private Path directory;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ForecastHistoryStore store;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (store != null) {
+            store.destroy();
+        }
+    }
+
+    @Test
+    void testQueryAggregatesSealedAndActiveSnapshots() {
+        // Given
+        store = open(1_000);
+        store.append("london", forecast("London", START_MILLIS, 10.0), START_MILLIS);
+        store.append("london", forecast("London", START_MILLIS + 3_600_000, 12.0), START_MILLIS + 3_600_000);
+        store.seal();
+        store.append("london", forecast("London", START_MILLIS + DAY_MILLIS, 14.0), START_MILLIS + DAY_MILLIS);
+        store.append("paris", forecast("Paris", START_MILLIS, 30.0), START_MILLIS);
+
+        // When
+        HistoryAggregate history = store.query("london", START_MILLIS, START_MILLIS + 2 * DAY_MILLIS, 2).join();
+
+        // Then
+        assertThat(history.snapshots()).isEqualTo(3);
+        assertThat(history.slots()).isEqualTo(3 * SLOTS);
+        assertThat(history.averageTemperature()).isEqualTo(12.88);
+        assertThat(history.minTemperature()).isEqualTo(9.0);
+        assertThat(history.maxTemperature()).isEqualTo(16.75);
+        assertThat(history.snapshots(0)).isEqualTo(2);
+        assertThat(history.averageTemperature(0)).isEqualTo(11.88);
+        assertThat(history.snapshots(1)).isEqualTo(1);
+        assertThat(history.maxTemperature(1)).isEqualTo(16.75);
+        assertThat(store.query("berlin", START_MILLIS, START_MILLIS + DAY_MILLIS, 0).join().slots()).isZero();
+    }
+
+    @Test
+    void testSnapshotsSurviveRestartAndTornLogTailIsDropped() throws IOException {
+        // Given
+        store = open(3 * SLOTS);
+        for (int i = 0; i < 7; i++) {
+            long fetchedAt = START_MILLIS + i * 3_600_000L;
+            store.append("london", forecast("London", fetchedAt, i), fetchedAt);
+        }
+        HistoryAggregate before = store.query("london", START_MILLIS, START_MILLIS + DAY_MILLIS, 0).join();
+        store.destroy();
+        try (FileChannel log = FileChannel.open(directory.resolve("active.log"), StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            log.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 40, 1, 2, 3}));
+        }
+
+        // When
+        store = open(3 * SLOTS);
+        HistoryAggregate after = store.query("london", START_MILLIS, START_MILLIS + DAY_MILLIS, 0).join();
+
+        // Then
+        assertThat(meterRegistry.get("weather.history.segments").gauge().value()).isEqualTo(2.0);
+        assertThat(meterRegistry.get("weather.history.rows").gauge().value()).isEqualTo(7.0 * SLOTS);
+        assertThat(after.snapshots()).isEqualTo(7);
+        assertThat(after.averageTemperature()).isEqualTo(before.averageTemperature());
+        assertThat(after.minTemperature()).isEqualTo(before.minTemperature());
+        assertThat(after.maxTemperature()).isEqualTo(before.maxTemperature());
+    }
+
+    @Test
+    void testCompactionDropsExpiredRowsAndMergesSmallSegments() {
+        // Given one sealed segment per day for ten days and a five day retention
+        store = open(4 * SLOTS);
+        for (int day = 0; day < 10; day++) {
+            long fetchedAt = START_MILLIS + day * DAY_MILLIS;
+            store.append("london", forecast("London", fetchedAt, day), fetchedAt);
+            store.seal();
+        }
+        long now = START_MILLIS + 10 * DAY_MILLIS;
+
+        // When
+        store.compact(now);
+
+        // Then days 5-9 remain, merged four segments' rows at a time
+        assertThat(meterRegistry.get("weather.history.segments").gauge().value()).isEqualTo(2.0);
+        HistoryAggregate history = store.query("london", START_MILLIS, now, 0).join();
+        assertThat(history.snapshots()).isEqualTo(5);
+        assertThat(history.minTemperature()).isEqualTo(4.0);
+        assertThat(history.maxTemperature()).isEqualTo(11.75);
+    }
+
+    @Test
+    void testTimeBasedSealing() {
+        // Given
+        store = open(1_000);
+        store.append("london", forecast("London", START_MILLIS, 10.0), START_MILLIS);
+
+        // When
+        store.maintain(START_MILLIS + DAY_MILLIS / 2);
+        double beforeDue = meterRegistry.get("weather.history.segments").gauge().value();
+        store.maintain(START_MILLIS + DAY_MILLIS);
+
+        // Then
+        assertThat(beforeDue).isZero();
+        assertThat(meterRegistry.get("weather.history.segments").gauge().value()).isEqualTo(1.0);
+        assertThat(store.query("london", START_MILLIS, START_MILLIS + 1000, 0).join().snapshots()).isEqualTo(1);
+    }
+
+    @Test
+    void testParallelQueryMatchesBruteForce() {
+        // Given many small segments across several cities
+        store = open(5 * SLOTS);
+        String[] cities = {"london", "paris", "kandy"};
+        Random random = new Random(42);
+        long[] snapshots = new long[30];
+        long[] tempSums = new long[30];
+        for (int i = 0; i < 300; i++) {
+            String city = cities[random.nextInt(cities.length)];
+            long fetchedAt = START_MILLIS + random.nextLong(30 * DAY_MILLIS);
+            double base = random.nextInt(4000) / 100.0 - 10;
+            store.append(city, forecast(city, fetchedAt, base), fetchedAt);
+            if (city.equals("paris")) {
+                int day = (int) ((fetchedAt - START_MILLIS) / DAY_MILLIS);
+                snapshots[day]++;
+                for (int slot = 0; slot < SLOTS; slot++) {
+                    tempSums[day] += Math.round((base + slot * 0.25) * 100);
+                }
+            }
+        }
+
+        // When
+        HistoryAggregate history = store.query("paris", START_MILLIS, START_MILLIS + 30 * DAY_MILLIS, 30).join();
+
+        // Then
+        assertThat(meterRegistry.get("weather.history.segments").gauge().value()).isGreaterThan(10.0);
+        long totalSnapshots = 0;
+        for (int day = 0; day < 30; day++) {
+            totalSnapshots += snapshots[day];
+            assertThat(history.snapshots(day)).isEqualTo(snapshots[day]);
+            if (snapshots[day] > 0) {
+                double expected = Math.round(tempSums[day] / 100.0 / (snapshots[day] * SLOTS) * 100.0) / 100.0;
+                assertThat(history.averageTemperature(day)).isEqualTo(expected);
+            } else {
+                assertThat(history.averageTemperature(day)).isNull();
+            }
+        }
+        assertThat(history.snapshots()).isEqualTo(totalSnapshots);
+        assertThat(history.slots()).isEqualTo(totalSnapshots * SLOTS);
+    }
+
+    @Test
+    void testRejectedAppendsAreDroppedAndCounted() {
+        // Given
+        meterRegistry = new SimpleMeterRegistry();
+        store = new ForecastHistoryStore(directory, 1_000, Duration.ofDays(1), Duration.ofDays(5), 4, task -> {
+            throw new RejectedExecutionException("Executor queue is full");
+        }, meterRegistry);
+
+        // When
+        store.append("london", forecast("London", START_MILLIS, 10.0), START_MILLIS);
+
+        // Then
+        assertThat(meterRegistry.get("weather.history.dropped").counter().count()).isEqualTo(1.0);
+        assertThat(store.query("london", START_MILLIS, START_MILLIS + DAY_MILLIS, 0).join().snapshots()).isZero();
+    }
+
+    private ForecastHistoryStore open(int segmentRows) {
+        meterRegistry = new SimpleMeterRegistry();
+        return new ForecastHistoryStore(directory, segmentRows, Duration.ofDays(1), Duration.ofDays(5), 4,
+                Runnable::run, meterRegistry);
+    }
+
+    /**
+     * Eight 3-hourly slots from the fetch time, temps {@code base}, {@code base + 0.25}, ... with min / max one degree
+     * below and above.
+     */
+    private static ForecastColumns forecast(String city, long fetchedAtMillis, double base) {
+        ForecastColumns.Builder builder = ForecastColumns.builder();
+        builder.city(city);
+        for (int i = 0; i < SLOTS; i++) {
+            long epochSecond = fetchedAtMillis / 1000 + i * 10_800L;
+            double temp = base + i * 0.25;
+            builder.slot(epochSecond, temp, temp - 1, temp + 1, (int) (epochSecond / 86_400));
+        }
+        return builder.build();
+    }
+}
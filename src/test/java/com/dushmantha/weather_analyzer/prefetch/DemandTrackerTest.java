@@ -0,0 +1,72 @@
+package com.dushmantha.weather_analyzer.prefetch;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+class DemandTrackerTest {
+
+    @Test
+    void testRanksHottestCitiesOfSkewedTraffic() {
+        // Given
+        DemandTracker tracker = new DemandTracker(3, new SimpleMeterRegistry());
+        Random random = new Random(7);
+
+        // When
+        for (int i = 0; i < 2000; i++) {
+            tracker.record("london");
+            if (i % 2 == 0) {
+                tracker.record("tokyo");
+            }
+            if (i % 4 == 0) {
+                tracker.record("paris");
+            }
+            tracker.record("rare-" + random.nextInt(5000));
+        }
+        List<String> hot = tracker.hotCities();
+
+        // Then
+        assertThat(hot).containsExactly("london", "tokyo", "paris");
+    }
+
+    @Test
+    void testCityAskedForOnceIsNeverHot() {
+        // Given
+        DemandTracker tracker = new DemandTracker(80, new SimpleMeterRegistry());
+
+        // When
+        tracker.record("london");
+        tracker.record("london");
+        tracker.record("made-up-name");
+
+        // Then
+        assertThat(tracker.hotCities()).containsExactly("london");
+    }
+
+    @Test
+    void testSketchNeverUndercountsAndAgesOut() {
+        // Given
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int i = 0; i < 50; i++) {
+            sketch.increment("london");
+        }
+        int before = sketch.estimate("london");
+
+        // When
+        for (int i = 0; i < 20_000; i++) {
+            sketch.increment("other-" + i);
+        }
+
+        // Then
+        assertThat(before).isGreaterThanOrEqualTo(50);
+        assertThat(sketch.estimate("london")).isLessThan(before);
+        assertThat(sketch.estimate("never-seen")).isLessThan(before);
+    }
+}
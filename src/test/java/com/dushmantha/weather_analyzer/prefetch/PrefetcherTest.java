@@ -0,0 +1,121 @@
+package com.dushmantha.weather_analyzer.prefetch;
+
+import com.dushmantha.weather_analyzer.cache.CachedSummary;
+import com.dushmantha.weather_analyzer.cache.SummaryEncoder;
+import com.dushmantha.weather_analyzer.cache.WeatherCache;
+import com.dushmantha.weather_analyzer.dto.WeatherSummary;
+import com.dushmantha.weather_analyzer.exception.ExternalApiException;
+import com.dushmantha.weather_analyzer.service.WeatherService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+class PrefetcherTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final WeatherService weatherService = mock(WeatherService.class);
+
+    private DemandTracker demandTracker;
+
+    private WeatherCache weatherCache;
+
+    private Prefetcher prefetcher;
+
+    @BeforeEach
+    void setUp() {
+        demandTracker = new DemandTracker(10, meterRegistry);
+        weatherCache = new WeatherCache(Caffeine.newBuilder().buildAsync(), Optional.empty(), Optional.empty(),
+                new SummaryEncoder(new ObjectMapper()), meterRegistry);
+        prefetcher = new Prefetcher(demandTracker, weatherCache, weatherService, meterRegistry);
+        ReflectionTestUtils.setField(prefetcher, "interval", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(prefetcher, "refreshAhead", Duration.ofMinutes(2));
+        ReflectionTestUtils.setField(prefetcher, "spread", Duration.ZERO);
+        ReflectionTestUtils.setField(prefetcher, "budgetPerMinute", 24);
+        ReflectionTestUtils.setField(prefetcher, "failureBackoff", Duration.ofMinutes(10));
+        when(weatherService.refreshWeatherSummary(anyString()))
+                .thenAnswer(invocation -> Mono.just(entry(0, Duration.ofMinutes(30))));
+    }
+
+    @Test
+    void testRefreshesMissingAndSoonStaleHotCitiesOnly() {
+        // Given
+        demandTracker.record("london");
+        demandTracker.record("london");
+        demandTracker.record("tokyo");
+        demandTracker.record("tokyo");
+        demandTracker.record("paris");
+        demandTracker.record("paris");
+        weatherCache.put("tokyo", entry(0, Duration.ofMinutes(1)));
+        weatherCache.put("paris", entry(0, Duration.ofMinutes(20)));
+
+        // When
+        prefetcher.prefetch();
+
+        // Then
+        verify(weatherService).refreshWeatherSummary("london");
+        verify(weatherService).refreshWeatherSummary("tokyo");
+        verify(weatherService, never()).refreshWeatherSummary("paris");
+    }
+
+    @Test
+    void testStaysWithinBudgetHottestFirst() {
+        // Given
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j <= i + 1; j++) {
+                demandTracker.record("city-" + i);
+            }
+        }
+
+        // When
+        prefetcher.prefetch();
+
+        // Then
+        verify(weatherService).refreshWeatherSummary("city-4");
+        verify(weatherService).refreshWeatherSummary("city-3");
+        verify(weatherService, times(2)).refreshWeatherSummary(anyString());
+        assertThat(meterRegistry.get("weather.prefetch.deferred").counter().count()).isEqualTo(3);
+    }
+
+    @Test
+    void testBacksOffFromFailedCity() {
+        // Given
+        demandTracker.record("atlantis");
+        demandTracker.record("atlantis");
+        when(weatherService.refreshWeatherSummary("atlantis"))
+                .thenReturn(Mono.error(new ExternalApiException("City not found for: atlantis", 404)));
+
+        // When
+        prefetcher.prefetch();
+        prefetcher.prefetch();
+
+        // Then
+        verify(weatherService, times(1)).refreshWeatherSummary("atlantis");
+        assertThat(meterRegistry.get("weather.prefetch.refreshes").tag("result", "failure").counter().count())
+                .isEqualTo(1);
+    }
+
+    private static CachedSummary entry(long ageMillis, Duration untilStale) {
+        long now = System.currentTimeMillis();
+        return new CachedSummary(new WeatherSummary("city", 10.0, "2024-11-20", "2024-11-21"),
+                now - ageMillis, now + untilStale.toMillis());
+    }
+}
@@ -0,0 +1,203 @@
+package com.dushmantha.weather_analyzer.reprocess;
+
+import com.dushmantha.weather_analyzer.dto.WeatherSummary;
+import com.dushmantha.weather_analyzer.forecast.ForecastColumns;
+import com.dushmantha.weather_analyzer.forecast.ForecastDecoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+class ReprocessCommandTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ByteArrayOutputStream errors = new ByteArrayOutputStream();
+
+    @TempDir
+    private Path directory;
+
+    private byte[] london;
+
+    private byte[] tokyo;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        london = compact("warm-up/forecast-london.json");
+        tokyo = compact("warm-up/forecast-tokyo.json");
+    }
+
+    @Test
+    void testSummarisesNdjsonInInputOrderAcrossParts() throws IOException {
+        // Given
+        List<byte[]> payloads = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            payloads.add(i % 2 == 0 ? london : tokyo);
+        }
+        Path input = ndjson("forecasts.ndjson", payloads);
+        Path output = directory.resolve("summaries");
+
+        // When
+        ReprocessReport report = run(input, output, 4, london.length * 3L);
+
+        // Then
+        assertThat(report.payloads()).isEqualTo(50);
+        assertThat(report.failed()).isZero();
+        assertThat(report.bytes()).isEqualTo(Files.size(input));
+        assertThat(report.parts()).isGreaterThan(4);
+        List<String> summaries = summaries(output);
+        assertThat(summaries).hasSize(50);
+        for (int i = 0; i < 50; i++) {
+            assertThat(summaries.get(i)).isEqualTo(expected(i % 2 == 0 ? london : tokyo));
+        }
+    }
+
+    @Test
+    void testSkipsAndCountsMalformedPayloads() throws IOException {
+        // Given
+        Path input = ndjson("forecasts.ndjson", List.of(london, "{\"list\":[".getBytes(StandardCharsets.UTF_8),
+                "   ".getBytes(StandardCharsets.UTF_8), tokyo));
+
+        // When
+        ReprocessReport report = run(input, directory.resolve("summaries"), 2, 1 << 20);
+
+        // Then
+        assertThat(report.payloads()).isEqualTo(3);
+        assertThat(report.failed()).isEqualTo(1);
+        assertThat(summaries(directory.resolve("summaries"))).containsExactly(expected(london), expected(tokyo));
+        assertThat(errors.toString(StandardCharsets.UTF_8)).contains("forecasts.ndjson@" + (london.length + 1));
+    }
+
+    @Test
+    void testReadsDirectoryOfJsonAndNdjsonFiles() throws IOException {
+        // Given
+        Path input = Files.createDirectory(directory.resolve("archive"));
+        Files.write(input.resolve("a-london.json"), london);
+        ndjson("archive/b-both.ndjson", List.of(tokyo, london));
+        Files.write(input.resolve("c-tokyo.json"), tokyo);
+        Files.writeString(input.resolve("notes.txt"), "not a payload");
+
+        // When
+        ReprocessReport report = run(input, directory.resolve("summaries"), 3, 1);
+
+        // Then
+        assertThat(report.payloads()).isEqualTo(4);
+        assertThat(report.parts()).isEqualTo(4);
+        assertThat(summaries(directory.resolve("summaries")))
+                .containsExactly(expected(london), expected(tokyo), expected(london), expected(tokyo));
+    }
+
+    @Test
+    void testReadsManyJsonFilesIntoOnePart() throws IOException {
+        // Given files of two sizes, read in turn into the same buffer
+        Path input = Files.createDirectory(directory.resolve("archive"));
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            byte[] payload = i % 2 == 0 ? london : tokyo;
+            Files.write(input.resolve(String.format("%02d.json", i)), payload);
+            expected.add(expected(payload));
+        }
+
+        // When
+        ReprocessReport report = run(input, directory.resolve("summaries"), 1, 1024 * 1024);
+
+        // Then
+        assertThat(report.payloads()).isEqualTo(20);
+        assertThat(report.failed()).isZero();
+        assertThat(report.parts()).isEqualTo(1);
+        assertThat(summaries(directory.resolve("summaries"))).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void testReplacesPartsOfEarlierRun() throws IOException {
+        // Given
+        Path output = Files.createDirectory(directory.resolve("summaries"));
+        Files.writeString(output.resolve("part-00007.ndjson"), "{}\n");
+        Files.writeString(output.resolve("README"), "kept");
+
+        // When
+        run(ndjson("forecasts.ndjson", List.of(london)), output, 1, 1 << 20);
+
+        // Then
+        assertThat(summaries(output)).containsExactly(expected(london));
+        assertThat(output.resolve("README")).exists();
+    }
+
+    @Test
+    void testParsesOptions() {
+        // When
+        ReprocessOptions options = ReprocessOptions.parse("--input=in.ndjson", "--output=out", "--parallelism=3",
+                "--slice-size=512KB");
+
+        // Then
+        assertThat(options.input()).isEqualTo(Path.of("in.ndjson"));
+        assertThat(options.output()).isEqualTo(Path.of("out"));
+        assertThat(options.parallelism()).isEqualTo(3);
+        assertThat(options.sliceBytes()).isEqualTo(512 * 1024);
+        assertThat(ReprocessOptions.bytes("4096")).isEqualTo(4096);
+    }
+
+    @Test
+    void testRejectsNonPositiveParallelismAndSliceSize() {
+        // Then
+        for (String option : List.of("--parallelism=0", "--parallelism=-2", "--slice-size=0", "--slice-size=-1MB")) {
+            assertThatThrownBy(() -> ReprocessOptions.parse("--input=in.ndjson", "--output=out", option))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("must be positive");
+        }
+    }
+
+    private ReprocessReport run(Path input, Path output, int parallelism, long sliceBytes) throws IOException {
+        return ReprocessCommand.run(new ReprocessOptions(input, output, parallelism, sliceBytes),
+                new PrintStream(errors, true, StandardCharsets.UTF_8));
+    }
+
+    private Path ndjson(String name, List<byte[]> payloads) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] payload : payloads) {
+            out.write(payload);
+            out.write('\n');
+        }
+        return Files.write(directory.resolve(name), out.toByteArray());
+    }
+
+    private static List<String> summaries(Path output) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (Stream<Path> parts = Files.list(output)) {
+            for (Path part : parts.filter(part -> part.getFileName().toString().startsWith("part-")).sorted()
+                    .toList()) {
+                lines.addAll(Files.readAllLines(part));
+            }
+        }
+        return lines;
+    }
+
+    private String expected(byte[] payload) throws IOException {
+        WeatherSummary summary = ForecastDecoder.decode(ByteBuffer.wrap(payload), ForecastColumns.builder(),
+                ForecastColumns.CAPACITY).build().summary();
+        return objectMapper.writeValueAsString(summary);
+    }
+
+    private byte[] compact(String resource) throws IOException {
+        return objectMapper.writeValueAsBytes(objectMapper.readTree(
+                new ClassPathResource(resource).getContentAsByteArray()));
+    }
+}
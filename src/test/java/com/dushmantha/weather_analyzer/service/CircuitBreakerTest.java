@@ -0,0 +1,104 @@
+package com.dushmantha.weather_analyzer.service;
+
+import com.dushmantha.weather_analyzer.exception.ExternalApiException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+class CircuitBreakerTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        breaker = new CircuitBreaker("test", 0.5, 4, 4, Duration.ofMillis(200), 2,
+                UpstreamOutcome::isUnhealthy, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testOpensAtFailureRateAndFailsFast() {
+        // Given
+        call(error(503));
+        call(Mono.just("ok"));
+        call(error(503));
+
+        // When
+        call(Mono.just("ok"));
+
+        // Then
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(call(Mono.just("ok"))).isEqualTo("rejected");
+        assertThat(calls).hasValue(4);
+        assertThat(breaker.rejected()).isEqualTo(1);
+    }
+
+    @Test
+    void testClientErrorsDoNotOpen() {
+        // When
+        for (int i = 0; i < 4; i++) {
+            call(error(404));
+        }
+
+        // Then
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void testClosesAfterSuccessfulTrialCalls() {
+        // Given
+        openCircuit();
+
+        // When
+        await().atMost(Duration.ofSeconds(2)).until(() -> call(Mono.just("ok")).equals("ok"));
+        call(Mono.just("ok"));
+
+        // Then
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void testReopensWhenTrialCallFails() {
+        // Given
+        openCircuit();
+
+        // When
+        await().atMost(Duration.ofSeconds(2)).until(() -> call(error(503)).equals("failed"));
+
+        // Then
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(call(Mono.just("ok"))).isEqualTo("rejected");
+    }
+
+    private void openCircuit() {
+        for (int i = 0; i < 4; i++) {
+            call(error(503));
+        }
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    private String call(Mono<String> result) {
+        return breaker.execute(() -> {
+                    calls.incrementAndGet();
+                    return result;
+                })
+                .onErrorResume(ExternalApiException.class,
+                        e -> Mono.just(e.getUpstreamStatus() == 0 ? "rejected" : "failed"))
+                .block();
+    }
+
+    private static Mono<String> error(int status) {
+        return Mono.error(new ExternalApiException("Upstream error", status));
+    }
+}
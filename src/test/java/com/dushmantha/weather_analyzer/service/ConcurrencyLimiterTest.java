@@ -0,0 +1,156 @@
+package com.dushmantha.weather_analyzer.service;
+
+import com.dushmantha.weather_analyzer.exception.ExternalApiException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+class ConcurrencyLimiterTest {
+
+    private ConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        limiter = new ConcurrencyLimiter("test", 2, 1, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testCallsOverLimitWaitThenRun() {
+        // Given
+        List<Sinks.One<String>> calls = new ArrayList<>();
+        List<String> results = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            limiter.execute(() -> {
+                Sinks.One<String> call = Sinks.one();
+                calls.add(call);
+                return call.asMono();
+            }).subscribe(results::add);
+        }
+
+        // Then
+        assertThat(calls).hasSize(2);
+        assertThat(limiter.inFlight()).isEqualTo(2);
+        assertThat(limiter.queued()).isEqualTo(1);
+
+        calls.get(0).tryEmitValue("first");
+        assertThat(calls).hasSize(3);
+        assertThat(limiter.queued()).isZero();
+
+        calls.get(1).tryEmitValue("second");
+        calls.get(2).tryEmitValue("third");
+        assertThat(results).containsExactly("first", "second", "third");
+        assertThat(limiter.inFlight()).isZero();
+    }
+
+    @Test
+    void testRejectsWhenQueueIsFull() {
+        // Given
+        for (int i = 0; i < 3; i++) {
+            limiter.execute(Mono::never).subscribe();
+        }
+
+        // When
+        Throwable[] error = new Throwable[1];
+        limiter.execute(() -> Mono.just("late")).subscribe(value -> { }, e -> error[0] = e);
+
+        // Then
+        assertThat(error[0]).isInstanceOf(ExternalApiException.class);
+        assertThat(limiter.rejected()).isEqualTo(1);
+    }
+
+    @Test
+    void testCancellationReleasesPermitAndQueueSlot() {
+        // Given
+        Disposable running = limiter.execute(Mono::never).subscribe();
+        limiter.execute(Mono::never).subscribe();
+        Disposable waiting = limiter.execute(Mono::never).subscribe();
+
+        // When
+        waiting.dispose();
+        running.dispose();
+
+        // Then
+        assertThat(limiter.queued()).isZero();
+        assertThat(limiter.inFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void testAdaptiveLimitBacksOffOnTimeouts() {
+        // Given
+        ConcurrencyLimiter adaptive = new ConcurrencyLimiter("adaptive", new AdaptiveLimit(20, 2, 40, 1.5), 10,
+                e -> e instanceof TimeoutException, new SimpleMeterRegistry());
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            adaptive.execute(() -> Mono.error(new TimeoutException())).onErrorResume(e -> Mono.empty()).block();
+        }
+
+        // Then
+        assertThat(adaptive.limit()).isLessThan(8).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    void testAdaptiveLimitShrinksWhenLatencyRisesAndGrowsBackWhenItRecovers() {
+        // Given
+        AdaptiveLimit limit = new AdaptiveLimit(20, 2, 40, 1.5);
+        for (int i = 0; i < 50; i++) {
+            limit.onSample(10_000_000, 20);
+        }
+        int steady = limit.limit();
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            limit.onSample(100_000_000, limit.limit());
+        }
+        int slowed = limit.limit();
+        for (int i = 0; i < 50; i++) {
+            limit.onSample(10_000_000, limit.limit());
+        }
+
+        // Then
+        assertThat(steady).isEqualTo(40);
+        assertThat(slowed).isLessThan(steady / 2);
+        assertThat(limit.limit()).isGreaterThan(slowed);
+    }
+
+    @Test
+    void testAdaptiveLimitDoesNotGrowWhileMostlyIdle() {
+        // Given
+        AdaptiveLimit limit = new AdaptiveLimit(10, 2, 40, 1.5);
+
+        // When
+        for (int i = 0; i < 50; i++) {
+            limit.onSample(10_000_000, 1);
+        }
+
+        // Then
+        assertThat(limit.limit()).isEqualTo(10);
+    }
+
+    @Test
+    void testFixedLimitNeverMoves() {
+        // Given
+        AdaptiveLimit limit = AdaptiveLimit.fixed(8);
+
+        // When
+        limit.onDrop();
+        limit.onSample(1_000_000_000, 8);
+
+        // Then
+        assertThat(limit.limit()).isEqualTo(8);
+    }
+}
@@ -0,0 +1,203 @@
+package com.dushmantha.weather_analyzer.service;
+
+import com.dushmantha.weather_analyzer.exception.ExternalApiException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+class RequestHedgerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final List<String> called = new CopyOnWriteArrayList<>();
+
+    @Test
+    void testDoesNotHedgeBeforeEnoughSamples() {
+        // Given
+        RequestHedger hedger = hedger(1.0);
+
+        // When
+        String answer = call(hedger, Mono.delay(Duration.ofMillis(100)).thenReturn("primary"), Mono.just("mirror"));
+
+        // Then
+        assertThat(answer).isEqualTo("primary");
+        assertThat(called).containsExactly("primary");
+        assertThat(hedger.delay()).isEqualTo(-1);
+    }
+
+    @Test
+    void testHedgeWinsAgainstSlowPrimaryAndCancelsIt() {
+        // Given
+        RequestHedger hedger = warmedUp(1.0);
+        AtomicBoolean primaryCancelled = new AtomicBoolean();
+
+        // When
+        String answer = call(hedger, Mono.<String>never().doOnCancel(() -> primaryCancelled.set(true)),
+                Mono.just("mirror"));
+
+        // Then
+        assertThat(answer).isEqualTo("mirror");
+        assertThat(called).containsExactly("primary", "mirror");
+        assertThat(primaryCancelled).isTrue();
+        assertThat(hedger.delay()).isEqualTo(Duration.ofMillis(20).toNanos());
+        assertThat(hedges("won")).isEqualTo(1);
+        assertThat(meterRegistry.get("weather.upstream.hedge.saved").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testPrimaryAnsweringFirstCancelsHedge() {
+        // Given
+        RequestHedger hedger = warmedUp(1.0);
+        AtomicBoolean hedgeCancelled = new AtomicBoolean();
+
+        // When
+        String answer = call(hedger, Mono.delay(Duration.ofMillis(100)).thenReturn("primary"),
+                Mono.<String>never().doOnCancel(() -> hedgeCancelled.set(true)));
+
+        // Then
+        assertThat(answer).isEqualTo("primary");
+        assertThat(called).containsExactly("primary", "mirror");
+        assertThat(hedgeCancelled).isTrue();
+        assertThat(hedges("lost")).isEqualTo(1);
+    }
+
+    @Test
+    void testBudgetBoundsHedges() {
+        // Given
+        RequestHedger hedger = warmedUp(0.25);
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            call(hedger, Mono.delay(Duration.ofMillis(40)).thenReturn("primary"), Mono.never());
+        }
+
+        // Then
+        assertThat(called.stream().filter("mirror"::equals)).hasSize(6);
+        assertThat(hedges("lost")).isEqualTo(6);
+        assertThat(hedges("denied")).isEqualTo(14);
+        assertThat(hedger.calls()).isEqualTo(24);
+    }
+
+    @Test
+    void testUnhealthyPrimaryLeavesAnswerToHedge() {
+        // Given
+        RequestHedger hedger = warmedUp(1.0);
+
+        // When
+        String answer = call(hedger, Mono.delay(Duration.ofMillis(50)).then(Mono.error(upstream(503))),
+                Mono.delay(Duration.ofMillis(150)).thenReturn("mirror"));
+
+        // Then
+        assertThat(answer).isEqualTo("mirror");
+        assertThat(hedges("won")).isEqualTo(1);
+    }
+
+    @Test
+    void testClientErrorOfPrimaryIsTheAnswer() {
+        // Given
+        RequestHedger hedger = warmedUp(1.0);
+        AtomicBoolean hedgeCancelled = new AtomicBoolean();
+
+        // When & Then
+        assertThatThrownBy(() -> call(hedger, Mono.delay(Duration.ofMillis(50)).then(Mono.error(upstream(404))),
+                Mono.<String>never().doOnCancel(() -> hedgeCancelled.set(true))))
+                .isInstanceOf(ExternalApiException.class)
+                .hasMessage("upstream 404");
+        assertThat(hedgeCancelled).isTrue();
+    }
+
+    @Test
+    void testFailedHedgeLeavesAnswerToPrimary() {
+        // Given
+        RequestHedger hedger = warmedUp(1.0);
+
+        // When
+        String answer = call(hedger, Mono.delay(Duration.ofMillis(100)).thenReturn("primary"),
+                Mono.error(upstream(503)));
+
+        // Then
+        assertThat(answer).isEqualTo("primary");
+        assertThat(hedges("failed")).isEqualTo(1);
+        assertThat(hedges("lost")).isZero();
+    }
+
+    @Test
+    void testZeroBudgetCallsPrimaryOnly() {
+        // Given
+        RequestHedger hedger = hedger(0);
+        for (int i = 0; i < 4; i++) {
+            call(hedger, Mono.just("primary"), Mono.just("mirror"));
+        }
+
+        // When
+        String answer = call(hedger, Mono.delay(Duration.ofMillis(100)).thenReturn("primary"), Mono.just("mirror"));
+
+        // Then
+        assertThat(answer).isEqualTo("primary");
+        assertThat(called).containsOnly("primary");
+        assertThat(hedger.calls()).isZero();
+    }
+
+    @Test
+    void testBimodalLatencyKeepsDelayAtSlowMode() {
+        // Given 40% of primaries taking 300ms, the rest 5ms, and hedges answering in 5ms
+        RequestHedger hedger = new RequestHedger("weather.upstream", List.of("primary", "mirror"), 0.75,
+                Duration.ofMillis(1), Duration.ofMillis(50), 1.0, 10, UpstreamOutcome::isUnhealthy, meterRegistry);
+        Mono<String> fast = Mono.delay(Duration.ofMillis(5)).thenReturn("primary");
+        Mono<String> slow = Mono.delay(Duration.ofMillis(300)).thenReturn("primary");
+        Mono<String> mirror = Mono.delay(Duration.ofMillis(5)).thenReturn("mirror");
+        for (int i = 0; i < 10; i++) {
+            call(hedger, i % 5 < 2 ? slow : fast, mirror);
+        }
+        assertThat(hedger.delay()).isEqualTo(Duration.ofMillis(50).toNanos());
+
+        // When the slow primaries lose to hedges for more than one recompute
+        for (int i = 0; i < 120; i++) {
+            call(hedger, i % 5 < 2 ? slow : fast, mirror);
+        }
+
+        // Then their cancelled latencies still hold the delay at the slow mode
+        assertThat(hedges("won")).isGreaterThanOrEqualTo(40);
+        assertThat(hedger.delay()).isEqualTo(Duration.ofMillis(50).toNanos());
+    }
+
+    private RequestHedger warmedUp(double budget) {
+        RequestHedger hedger = hedger(budget);
+        for (int i = 0; i < 4; i++) {
+            call(hedger, Mono.just("primary"), Mono.just("mirror"));
+        }
+        called.clear();
+        return hedger;
+    }
+
+    private RequestHedger hedger(double budget) {
+        return new RequestHedger("weather.upstream", List.of("primary", "mirror"), 0.95, Duration.ofMillis(20),
+                Duration.ofSeconds(1), budget, 4, UpstreamOutcome::isUnhealthy, meterRegistry);
+    }
+
+    private String call(RequestHedger hedger, Mono<String> primary, Mono<String> mirror) {
+        return hedger.<String>execute(endpoint -> {
+            called.add(endpoint);
+            return endpoint.equals("primary") ? primary : mirror;
+        }).block(Duration.ofSeconds(2));
+    }
+
+    private double hedges(String outcome) {
+        return meterRegistry.get("weather.upstream.hedges").tag("outcome", outcome).counter().count();
+    }
+
+    private static ExternalApiException upstream(int status) {
+        return ExternalApiException.stackless("upstream " + status, status);
+    }
+}
@@ -0,0 +1,89 @@
+package com.dushmantha.weather_analyzer.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+class SingleFlightTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SingleFlight<String, String> singleFlight;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        singleFlight = new SingleFlight<>("test.flight", meterRegistry);
+    }
+
+    @Test
+    void testConcurrentCallersShareOneLoad() {
+        // Given
+        AtomicInteger loads = new AtomicInteger();
+        Sinks.One<String> upstream = Sinks.one();
+
+        // When
+        Mono<String> first = singleFlight.execute("london", () -> {
+            loads.incrementAndGet();
+            return upstream.asMono();
+        });
+        Mono<String> second = singleFlight.execute("london", () -> {
+            loads.incrementAndGet();
+            return upstream.asMono();
+        });
+        String[] results = new String[2];
+        first.subscribe(value -> results[0] = value);
+        second.subscribe(value -> results[1] = value);
+        upstream.tryEmitValue("summary");
+
+        // Then
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(results).containsExactly("summary", "summary");
+        assertThat(singleFlight.inFlightCount()).isZero();
+
+        DistributionSummary callers = meterRegistry.get("test.flight.callers").summary();
+        assertThat(callers.count()).isEqualTo(1);
+        assertThat(callers.totalAmount()).isEqualTo(2);
+    }
+
+    @Test
+    void testCompletedLoadIsNotReused() {
+        // Given
+        AtomicInteger loads = new AtomicInteger();
+
+        // When
+        singleFlight.execute("london", () -> Mono.fromSupplier(() -> "v" + loads.incrementAndGet())).block();
+        String second = singleFlight.execute("london", () -> Mono.fromSupplier(() -> "v" + loads.incrementAndGet())).block();
+
+        // Then
+        assertThat(second).isEqualTo("v2");
+        assertThat(meterRegistry.get("test.flight.callers").summary().count()).isEqualTo(2);
+    }
+
+    @Test
+    void testFailureIsSharedAndCleared() {
+        // Given
+        Sinks.One<String> upstream = Sinks.one();
+        Mono<String> first = singleFlight.execute("atlantis", upstream::asMono);
+        Mono<String> second = singleFlight.execute("atlantis", upstream::asMono);
+        Throwable[] errors = new Throwable[2];
+
+        // When
+        first.subscribe(value -> { }, error -> errors[0] = error);
+        second.subscribe(value -> { }, error -> errors[1] = error);
+        upstream.tryEmitError(new IllegalStateException("boom"));
+
+        // Then
+        assertThat(errors[0]).isSameAs(errors[1]).hasMessage("boom");
+        assertThat(singleFlight.inFlightCount()).isZero();
+    }
+}
@@ -0,0 +1,110 @@
+package com.dushmantha.weather_analyzer.service;
+
+import com.dushmantha.weather_analyzer.cache.CachedSummary;
+import com.dushmantha.weather_analyzer.cache.SummaryEncoder;
+import com.dushmantha.weather_analyzer.cache.WeatherCache;
+import com.dushmantha.weather_analyzer.city.CityIndex;
+import com.dushmantha.weather_analyzer.dto.WeatherBatchResult;
+import com.dushmantha.weather_analyzer.dto.WeatherSummary;
+import com.dushmantha.weather_analyzer.exception.ExternalApiException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+@ExtendWith(MockitoExtension.class)
+class WeatherBatchServiceImplTest {
+
+    @Mock
+    private WeatherService weatherService;
+
+    private WeatherCache weatherCache;
+
+    private WeatherBatchServiceImpl batchService;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        weatherCache = new WeatherCache(Caffeine.newBuilder().buildAsync(), Optional.empty(), Optional.empty(),
+                new SummaryEncoder(new ObjectMapper()), meterRegistry);
+
+        batchService = new WeatherBatchServiceImpl(weatherService, weatherCache,
+                new CityIndex(new ClassPathResource("gazetteer/cities.tsv"), true, meterRegistry));
+        ReflectionTestUtils.setField(batchService, "maxCities", 10);
+        ReflectionTestUtils.setField(batchService, "maxConcurrency", 2);
+        ReflectionTestUtils.setField(batchService, "cityTimeout", Duration.ofMillis(200));
+    }
+
+    @Test
+    void testWeatherSummaries_CacheHitsFirstThenMisses() {
+        // Given
+        WeatherSummary london = new WeatherSummary("London", 14.75, "2024-11-21", "2024-11-19");
+        WeatherSummary paris = new WeatherSummary("Paris", 20.0, "2024-11-20", "2024-11-20");
+        long now = System.currentTimeMillis();
+        weatherCache.put("2988507", new CachedSummary(paris, now, now + 60_000));
+        when(weatherService.reactiveWeatherSummary("Paris")).thenReturn(Mono.just(paris));
+        when(weatherService.reactiveWeatherSummary("London"))
+                .thenReturn(Mono.just(london).delayElement(Duration.ofMillis(20)));
+
+        // When
+        List<WeatherBatchResult> results = batchService.weatherSummaries(List.of("London", "Paris", " PARIS ", "paris,fr"))
+                .collectList()
+                .block();
+
+        // Then
+        assertThat(results).containsExactly(
+                WeatherBatchResult.success("Paris", paris),
+                WeatherBatchResult.success("London", london));
+        verify(weatherService, times(1)).reactiveWeatherSummary("Paris");
+    }
+
+    @Test
+    void testWeatherSummaries_ReportsPerCityErrors() {
+        // Given
+        when(weatherService.reactiveWeatherSummary("Atlantis"))
+                .thenReturn(Mono.error(new ExternalApiException("City not found for: atlantis")));
+        when(weatherService.reactiveWeatherSummary("Slowville"))
+                .thenReturn(Mono.never());
+
+        // When
+        List<WeatherBatchResult> results = batchService.weatherSummaries(List.of("Atlantis", "Slowville"))
+                .collectList()
+                .block();
+
+        // Then
+        assertThat(results).containsExactly(
+                WeatherBatchResult.failure("Atlantis", "City not found for: atlantis"),
+                WeatherBatchResult.failure("Slowville", "Weather service API timed out"));
+        verify(weatherService, times(2)).reactiveWeatherSummary(anyString());
+    }
+
+    @Test
+    void testWeatherSummaries_RejectsOversizedBatch() {
+        List<String> cities = List.of("a", "b", "c", "d", "e", "f", "g", "h", "i", "j", "k");
+
+        assertThatThrownBy(() -> batchService.weatherSummaries(cities))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("at most 10");
+    }
+}
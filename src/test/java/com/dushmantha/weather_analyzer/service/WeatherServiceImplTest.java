@@ -1,68 +1,106 @@
 package com.dushmantha.weather_analyzer.service;
 
+import com.dushmantha.weather_analyzer.cache.CachedSummary;
+import com.dushmantha.weather_analyzer.cache.SummaryEncoder;
+import com.dushmantha.weather_analyzer.cache.WeatherCache;
+import com.dushmantha.weather_analyzer.city.CityIndex;
 import com.dushmantha.weather_analyzer.dto.*;
+import com.dushmantha.weather_analyzer.exception.ExternalApiException;
+import com.dushmantha.weather_analyzer.forecast.ForecastColumns;
+import com.dushmantha.weather_analyzer.prefetch.DemandTracker;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
 import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
-import static org.mockito.ArgumentMatchers.*;
-import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
 
 /**
  * @author dushmantha.sse@gmail.com
  */
-@ExtendWith(MockitoExtension.class)
 class WeatherServiceImplTest {
 
-    @Mock
-    private WebClient webClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
 
-    @Mock
-    private WebClient.Builder webClientBuilder;
+    private final List<ClientRequest> requests = new CopyOnWriteArrayList<>();
 
-    @Mock
-    private WebClient.RequestHeadersUriSpec requestHeadersUriSpec;
+    private HttpStatus upstreamStatus;
 
-    @Mock
-    private WebClient.ResponseSpec responseSpec;
+    private String upstreamBody;
+
+    private Duration upstreamDelay = Duration.ZERO;
+
+    private String slowHost;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private WeatherCache weatherCache;
+
+    private DemandTracker demandTracker;
 
-    @InjectMocks
     private WeatherServiceImpl weatherService;
 
     @BeforeEach
     void setUp() {
-        when(webClientBuilder.build()).thenReturn(webClient);
-
-        weatherService = new WeatherServiceImpl(webClientBuilder);
-
-        when(webClient.get()).thenReturn(requestHeadersUriSpec);
-        when(requestHeadersUriSpec.uri(anyString())).thenReturn(requestHeadersUriSpec);
-        when(requestHeadersUriSpec.retrieve()).thenReturn(responseSpec);
+        ExchangeFunction upstream = request -> {
+            requests.add(request);
+            Mono<ClientResponse> response = Mono.just(ClientResponse.create(upstreamStatus)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body(upstreamBody)
+                    .build());
+            Duration delay = request.url().getHost().equals(slowHost) ? Duration.ofSeconds(1) : upstreamDelay;
+            return delay.isZero() ? response : response.delayElement(delay);
+        };
+
+        weatherCache = new WeatherCache(Caffeine.newBuilder().buildAsync(), Optional.empty(), Optional.empty(),
+                new SummaryEncoder(new ObjectMapper()), meterRegistry);
+        ReflectionTestUtils.setField(weatherCache, "softTtl", Duration.ofMinutes(30));
+        ReflectionTestUtils.setField(weatherCache, "notFoundTtl", Duration.ofMinutes(2));
+        ReflectionTestUtils.setField(weatherCache, "unauthorizedTtl", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(weatherCache, "refreshRetryInterval", Duration.ofSeconds(30));
+        demandTracker = new DemandTracker(10, meterRegistry);
+        weatherService = new WeatherServiceImpl(WebClient.builder().exchangeFunction(upstream).build(),
+                new ConcurrencyLimiter("weather.upstream", 4, 16, meterRegistry),
+                new CircuitBreaker("weather.upstream", 0.5, 10, 4, Duration.ofMinutes(1), 1,
+                        UpstreamOutcome::isUnhealthy, meterRegistry),
+                hedger(List.of("http://localhost/data/2.5/forecast"), 0),
+                weatherCache, demandTracker,
+                new CityIndex(new ClassPathResource("gazetteer/cities.tsv"), true, meterRegistry), Optional.empty(),
+                meterRegistry);
+        ReflectionTestUtils.setField(weatherService, "apiKey", "test-key");
     }
 
     @Test
-    void testWeatherSummary_Success() throws ExecutionException, InterruptedException {
+    void testWeatherSummary_Success() throws Exception {
         // Given
         String city = "London";
         WeatherApiResponse mockResponse = createMockWeatherResponse(city);
 
-        when(responseSpec.onStatus(any(), any())).thenReturn(responseSpec);
-        when(responseSpec.bodyToMono(WeatherApiResponse.class))
-                .thenReturn(Mono.just(mockResponse));
+        respondWith(HttpStatus.OK, mockResponse);
 
         // When
         CompletableFuture<WeatherSummary> result = weatherService.weatherSummary(city);
@@ -75,8 +113,25 @@ class WeatherServiceImplTest {
         assertThat(summary.getHottestDay()).isEqualTo("2024-11-21");
         assertThat(summary.getColdestDay()).isEqualTo("2024-11-19");
 
-        verify(webClient).get();
-        verify(requestHeadersUriSpec).uri(contains("London"));
+        assertThat(requests).hasSize(1);
+        assertThat(requests.get(0).url().getQuery()).contains("q=London,GB&");
+    }
+
+    @Test
+    void testWeatherSummary_NormalizesCityForUpstreamQuery() throws Exception {
+        // Given
+        respondWith(HttpStatus.OK, createMockWeatherResponse("London"));
+
+        // When
+        weatherService.weatherSummary("  LONDON ").get();
+        weatherService.weatherSummary("London, uk").get();
+        weatherService.weatherSummary("Lond%C3%B3n").get();
+        weatherService.weatherSummary("2643743").get();
+
+        // Then
+        assertThat(requests).hasSize(1);
+        assertThat(requests.get(0).url().getQuery()).contains("q=London,GB&");
+        assertThat(weatherCache.getIfPresent("2643743")).isNotNull();
     }
 
     @Test
@@ -84,16 +139,87 @@ class WeatherServiceImplTest {
         // Given
         String city = "InvalidCity";
 
-        when(responseSpec.onStatus(any(), any())).thenReturn(responseSpec);
-        when(responseSpec.bodyToMono(WeatherApiResponse.class))
-                .thenReturn(Mono.error(new WebClientResponseException(404, "Not Found", null, null, null)));
+        respondWith(HttpStatus.NOT_FOUND, "{\"cod\":\"404\",\"message\":\"city not found\"}");
 
         // When & Then
         CompletableFuture<WeatherSummary> result = weatherService.weatherSummary(city);
 
         assertThatThrownBy(result::get)
                 .isInstanceOf(ExecutionException.class)
-                .hasCauseInstanceOf(WebClientResponseException.class);
+                .hasCauseInstanceOf(ExternalApiException.class)
+                .hasRootCauseMessage("City not found for: invalidcity");
+        assertThat(requests).isEmpty();
+        assertThat(meterRegistry.get("weather.cities.rejected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testWeatherSummary_UpstreamNotFound() {
+        // Given
+        respondWith(HttpStatus.NOT_FOUND, "{\"cod\":\"404\",\"message\":\"city not found\"}");
+
+        // When & Then
+        CompletableFuture<WeatherSummary> result = weatherService.weatherSummary("Kandy");
+
+        assertThatThrownBy(result::get)
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(ExternalApiException.class)
+                .hasRootCauseMessage("City not found for: Kandy,LK");
+        assertThat(requests).hasSize(1);
+    }
+
+    @Test
+    void testWeatherSummary_OnlyAnsweredRequestsCountAsDemand() throws Exception {
+        // Given
+        respondWith(HttpStatus.NOT_FOUND, "{\"cod\":\"404\",\"message\":\"city not found\"}");
+        for (int i = 0; i < 3; i++) {
+            catchThrowableOfType(ExternalApiException.class,
+                    () -> weatherService.reactiveWeatherSummary("Kandy").block());
+        }
+        respondWith(HttpStatus.OK, createMockWeatherResponse("London"));
+
+        // When
+        weatherService.reactiveWeatherSummary("London").block();
+        weatherService.reactiveWeatherSummary("London").block();
+
+        // Then
+        assertThat(demandTracker.hotCities()).hasSize(1).noneMatch(key -> key.startsWith("kandy"));
+    }
+
+    @Test
+    void testWeatherSummary_UpstreamNotFoundIsRememberedForItsCity() {
+        // Given
+        respondWith(HttpStatus.NOT_FOUND, "{\"cod\":\"404\",\"message\":\"city not found\"}");
+        ExternalApiException notFound = catchThrowableOfType(ExternalApiException.class,
+                () -> weatherService.reactiveWeatherSummary("Kandy").block());
+
+        // When
+        ExternalApiException repeated = catchThrowableOfType(ExternalApiException.class,
+                () -> weatherService.reactiveWeatherSummary(" kandy,lk ").block());
+
+        // Then
+        assertThat(requests).hasSize(1);
+        assertThat(repeated).isSameAs(notFound).hasMessage("City not found for: Kandy,LK");
+        assertThat(repeated.getStackTrace()).isEmpty();
+        assertThat(meterRegistry.get("weather.cache.negative.hits").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testWeatherSummary_UnauthorizedIsRememberedForEveryCity() throws Exception {
+        // Given
+        respondWith(HttpStatus.OK, createMockWeatherResponse("London"));
+        weatherService.weatherSummary("London").get();
+        respondWith(HttpStatus.UNAUTHORIZED, "{\"cod\":401}");
+        assertThatThrownBy(() -> weatherService.reactiveWeatherSummary("Paris").block())
+                .hasMessage("Unauthorized access to weather API");
+
+        // When
+        Throwable berlin = catchThrowable(() -> weatherService.reactiveWeatherSummary("Berlin").block());
+        WeatherSummary london = weatherService.weatherSummary("London").get();
+
+        // Then
+        assertThat(requests).hasSize(2);
+        assertThat(berlin).hasMessage("Unauthorized access to weather API");
+        assertThat(london.getCity()).isEqualTo("London");
     }
 
     @Test
@@ -101,27 +227,44 @@ class WeatherServiceImplTest {
         // Given
         String city = "London";
 
-        when(responseSpec.onStatus(any(), any())).thenReturn(responseSpec);
-        when(responseSpec.bodyToMono(WeatherApiResponse.class))
-                .thenReturn(Mono.error(new WebClientResponseException(500, "Internal Server Error", null, null, null)));
+        respondWith(HttpStatus.INTERNAL_SERVER_ERROR, "{\"cod\":\"500\"}");
 
         // When & Then
         CompletableFuture<WeatherSummary> result = weatherService.weatherSummary(city);
 
         assertThatThrownBy(result::get)
                 .isInstanceOf(ExecutionException.class)
-                .hasCauseInstanceOf(WebClientResponseException.class);
+                .hasCauseInstanceOf(ExternalApiException.class)
+                .hasRootCauseMessage("Weather service API unavailable");
+    }
+
+    @Test
+    void testWeatherSummary_RecordsUpstreamLatencyByOutcome() throws Exception {
+        // Given
+        respondWith(HttpStatus.OK, createMockWeatherResponse("London"));
+        weatherService.weatherSummary("London").get();
+        respondWith(HttpStatus.NOT_FOUND, "{\"cod\":\"404\"}");
+
+        // When
+        CompletableFuture<WeatherSummary> result = weatherService.weatherSummary("Kandy");
+
+        // Then
+        assertThatThrownBy(result::get).hasCauseInstanceOf(ExternalApiException.class);
+        assertThat(meterRegistry.get("weather.upstream.requests").tag("outcome", "success").timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("weather.upstream.requests").tag("outcome", "not_found").timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("weather.cache.loads").tag("result", "failure").timer().count())
+                .isEqualTo(1);
     }
 
     @Test
-    void testWeatherSummary_EmptyResponse() throws ExecutionException, InterruptedException {
+    void testWeatherSummary_EmptyResponse() throws Exception {
         // Given
         String city = "London";
         WeatherApiResponse emptyResponse = createEmptyWeatherResponse(city);
 
-        when(responseSpec.onStatus(any(), any())).thenReturn(responseSpec);
-        when(responseSpec.bodyToMono(WeatherApiResponse.class))
-                .thenReturn(Mono.just(emptyResponse));
+        respondWith(HttpStatus.OK, emptyResponse);
 
         // When
         CompletableFuture<WeatherSummary> result = weatherService.weatherSummary(city);
@@ -136,14 +279,12 @@ class WeatherServiceImplTest {
     }
 
     @Test
-    void testWeatherSummary_SingleDataPoint() throws ExecutionException, InterruptedException {
+    void testWeatherSummary_SingleDataPoint() throws Exception {
         // Given
         String city = "Paris";
         WeatherApiResponse singleDataResponse = createSingleDataWeatherResponse(city);
 
-        when(responseSpec.onStatus(any(), any())).thenReturn(responseSpec);
-        when(responseSpec.bodyToMono(WeatherApiResponse.class))
-                .thenReturn(Mono.just(singleDataResponse));
+        respondWith(HttpStatus.OK, singleDataResponse);
 
         // When
         CompletableFuture<WeatherSummary> result = weatherService.weatherSummary(city);
@@ -157,6 +298,133 @@ class WeatherServiceImplTest {
         assertThat(summary.getColdestDay()).isEqualTo("2024-11-20");
     }
 
+    @Test
+    void testWeatherSummary_CachedAfterFirstFetch() throws Exception {
+        // Given
+        respondWith(HttpStatus.OK, createMockWeatherResponse("London"));
+
+        // When
+        weatherService.weatherSummary("London").get();
+        WeatherSummary summary = weatherService.weatherSummary("LONDON").get();
+
+        // Then
+        assertThat(summary.getCity()).isEqualTo("London");
+        assertThat(requests).hasSize(1);
+        ForecastColumns forecast = weatherCache.getIfPresent("2643743").getForecast();
+        assertThat(forecast.size()).isEqualTo(createMockWeatherResponse("London").getList().size());
+        assertThat(forecast.summary()).isEqualTo(summary);
+    }
+
+    @Test
+    void testWeatherSummary_StaleEntryServedWhileRefreshing() throws Exception {
+        // Given
+        long now = System.currentTimeMillis();
+        WeatherSummary stale = new WeatherSummary("London", 1.0, "2024-11-01", "2024-11-01");
+        weatherCache.put("2643743", new CachedSummary(stale, now - 3_600_000, now - 1_800_000));
+        respondWith(HttpStatus.OK, createMockWeatherResponse("London"));
+
+        // When
+        WeatherSummary served = weatherService.weatherSummary("London").get();
+
+        // Then
+        assertThat(served).isEqualTo(stale);
+        assertThat(requests).hasSize(1);
+        CachedSummary refreshed = weatherCache.getIfPresent("2643743");
+        assertThat(refreshed.getSummary().getAverageTemperature()).isEqualTo(14.75);
+        assertThat(refreshed.isStale()).isFalse();
+    }
+
+    @Test
+    void testWeatherSummary_FailedRefreshKeepsLastGoodSummary() throws Exception {
+        // Given
+        long now = System.currentTimeMillis();
+        WeatherSummary lastGood = new WeatherSummary("London", 1.0, "2024-11-01", "2024-11-01");
+        weatherCache.put("2643743", new CachedSummary(lastGood, now - 3_600_000, now - 1_800_000));
+        respondWith(HttpStatus.SERVICE_UNAVAILABLE, "{\"cod\":\"503\"}");
+
+        // When
+        WeatherSummary first = weatherService.weatherSummary("London").get();
+        WeatherSummary second = weatherService.weatherSummary("London").get();
+
+        // Then
+        assertThat(first).isEqualTo(lastGood);
+        assertThat(second).isEqualTo(lastGood);
+        assertThat(requests).hasSize(1);
+        assertThat(weatherCache.getIfPresent("2643743").ageSeconds()).isGreaterThanOrEqualTo(3600);
+    }
+
+    @Test
+    void testWeatherSummary_CacheHitsStayFastWhileUpstreamIsSlowAndFailing() throws Exception {
+        // Given
+        respondWith(HttpStatus.OK, createMockWeatherResponse("London"));
+        weatherService.weatherSummary("London").get();
+        upstreamDelay = Duration.ofMillis(300);
+        respondWith(HttpStatus.SERVICE_UNAVAILABLE, "{\"cod\":\"503\"}");
+
+        // When
+        List<CompletableFuture<WeatherSummary>> misses = new ArrayList<>();
+        for (String city : List.of("Tokyo", "Berlin", "Madrid", "Rome", "Cairo", "Lagos", "Seoul", "Sydney")) {
+            misses.add(weatherService.weatherSummary(city));
+        }
+        long hitStart = System.nanoTime();
+        WeatherSummary hit = weatherService.weatherSummary("London").get();
+        long hitMillis = Duration.ofNanos(System.nanoTime() - hitStart).toMillis();
+        for (CompletableFuture<WeatherSummary> miss : misses) {
+            assertThatThrownBy(miss::get).hasCauseInstanceOf(ExternalApiException.class);
+        }
+        int callsBeforeOpen = requests.size();
+        long failFastStart = System.nanoTime();
+        CompletableFuture<WeatherSummary> failFast = weatherService.weatherSummary("Paris");
+
+        // Then
+        assertThat(hit.getCity()).isEqualTo("London");
+        assertThat(hitMillis).isLessThan(100);
+        assertThatThrownBy(failFast::get)
+                .hasCauseInstanceOf(ExternalApiException.class)
+                .hasRootCauseMessage("Weather service API unavailable");
+        assertThat(Duration.ofNanos(System.nanoTime() - failFastStart).toMillis()).isLessThan(100);
+        assertThat(requests).hasSize(callsBeforeOpen);
+    }
+
+    @Test
+    void testWeatherSummary_HedgesSlowPrimaryToMirror() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(weatherService, "upstreamHedger", hedger(
+                List.of("http://localhost/data/2.5/forecast", "http://mirror/data/2.5/forecast"), 1.0));
+        respondWith(HttpStatus.OK, createMockWeatherResponse("London"));
+        for (String city : List.of("Tokyo", "Berlin", "Madrid", "Rome")) {
+            weatherService.weatherSummary(city).get();
+        }
+        slowHost = "localhost";
+
+        // When
+        long start = System.nanoTime();
+        WeatherSummary summary = weatherService.weatherSummary("London").get();
+
+        // Then
+        assertThat(summary.getCity()).isEqualTo("London");
+        assertThat(Duration.ofNanos(System.nanoTime() - start).toMillis()).isLessThan(500);
+        assertThat(requests).hasSize(6);
+        assertThat(requests.get(4).url().getHost()).isEqualTo("localhost");
+        assertThat(requests.get(5).url().getHost()).isEqualTo("mirror");
+        assertThat(meterRegistry.get("weather.upstream.hedges").tag("outcome", "won").counter().count())
+                .isEqualTo(1);
+    }
+
+    private RequestHedger hedger(List<String> endpoints, double budget) {
+        return new RequestHedger("weather.upstream", endpoints, 0.95, Duration.ofMillis(20), Duration.ofSeconds(2),
+                budget, 4, UpstreamOutcome::isUnhealthy, meterRegistry);
+    }
+
+    private void respondWith(HttpStatus status, WeatherApiResponse response) throws JsonProcessingException {
+        respondWith(status, objectMapper.writeValueAsString(response));
+    }
+
+    private void respondWith(HttpStatus status, String body) {
+        this.upstreamStatus = status;
+        this.upstreamBody = body;
+    }
+
     private WeatherApiResponse createMockWeatherResponse(String cityName) {
         WeatherApiResponse response = new WeatherApiResponse();
 
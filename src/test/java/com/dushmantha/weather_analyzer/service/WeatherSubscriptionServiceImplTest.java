@@ -0,0 +1,236 @@
+package com.dushmantha.weather_analyzer.service;
+
+import com.dushmantha.weather_analyzer.cache.CachedSummary;
+import com.dushmantha.weather_analyzer.cache.SummaryEncoder;
+import com.dushmantha.weather_analyzer.cache.WeatherCache;
+import com.dushmantha.weather_analyzer.city.CityIndex;
+import com.dushmantha.weather_analyzer.dto.WeatherBatchResult;
+import com.dushmantha.weather_analyzer.dto.WeatherSummary;
+import com.dushmantha.weather_analyzer.forecast.ForecastColumns;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.reactivestreams.Subscription;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author dushmantha.sse@gmail.com
+ */
+@ExtendWith(MockitoExtension.class)
+class WeatherSubscriptionServiceImplTest {
+
+    private static final String LONDON = "2643743";
+
+    @Mock
+    private WeatherService weatherService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private WeatherCache weatherCache;
+    private WeatherSubscriptionServiceImpl subscriptionService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        weatherCache = new WeatherCache(Caffeine.newBuilder().buildAsync(), Optional.empty(), Optional.empty(),
+                new SummaryEncoder(new ObjectMapper()), meterRegistry);
+        ReflectionTestUtils.setField(weatherCache, "softTtl", Duration.ofMinutes(30));
+
+        subscriptionService = new WeatherSubscriptionServiceImpl(weatherService, weatherCache,
+                new CityIndex(new ClassPathResource("gazetteer/cities.tsv"), true, meterRegistry),
+                Duration.ofHours(1), meterRegistry);
+        ReflectionTestUtils.setField(subscriptionService, "maxCities", 3);
+        ReflectionTestUtils.setField(subscriptionService, "bufferSize", 2);
+        ReflectionTestUtils.setField(subscriptionService, "slowConsumer",
+                WeatherSubscriptionServiceImpl.SlowConsumerPolicy.DROP_OLDEST);
+    }
+
+    @Test
+    void testSubscribe_CurrentSummaryThenEveryRefreshToAllSubscribers() {
+        // Given
+        long now = System.currentTimeMillis();
+        CachedSummary current = new CachedSummary(
+                new WeatherSummary("London", 10.0, "2024-11-20", "2024-11-21"), now - 60_000, now + 60_000);
+        when(weatherService.cachedWeatherSummary("London")).thenReturn(Mono.just(current));
+        List<WeatherBatchResult> first = new CopyOnWriteArrayList<>();
+        List<WeatherBatchResult> second = new CopyOnWriteArrayList<>();
+        Disposable firstSubscription = subscriptionService.subscribe(List.of("London", "london,gb"))
+                .subscribe(event -> first.add(event.data()));
+        Disposable secondSubscription = subscriptionService.subscribe(List.of("London"))
+                .subscribe(event -> second.add(event.data()));
+
+        // When
+        CachedSummary refreshed = refresh(14.0);
+
+        // Then
+        WeatherBatchResult initial = WeatherBatchResult.success("London", current.getSummary());
+        WeatherBatchResult update = WeatherBatchResult.success("London", refreshed.getSummary());
+        assertThat(first).containsExactly(initial, update);
+        assertThat(second).containsExactly(initial, update);
+        assertThat(meterRegistry.get("weather.subscriptions.open").gauge().value()).isEqualTo(2.0);
+
+        firstSubscription.dispose();
+        secondSubscription.dispose();
+        assertThat(weatherCache.subscribedKeys()).isEmpty();
+        assertThat(meterRegistry.get("weather.subscriptions.open").gauge().value()).isZero();
+    }
+
+    @Test
+    void testSubscribe_UnknownCityGetsErrorEvent() {
+        // When
+        List<ServerSentEvent<WeatherBatchResult>> events = new CopyOnWriteArrayList<>();
+        subscriptionService.subscribe(List.of("Atlantis")).subscribe(events::add);
+
+        // Then
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).event()).isEqualTo("error");
+        assertThat(events.get(0).data())
+                .isEqualTo(WeatherBatchResult.failure("Atlantis", "City not found for: atlantis"));
+    }
+
+    @Test
+    void testSubscribe_SlowConsumerKeepsNewestEvents() throws InterruptedException {
+        // Given a subscriber that takes nothing until ten refreshes were published
+        when(weatherService.cachedWeatherSummary("London")).thenReturn(Mono.empty());
+        List<WeatherBatchResult> received = new CopyOnWriteArrayList<>();
+        BaseSubscriber<ServerSentEvent<WeatherBatchResult>> slow = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+            }
+
+            @Override
+            protected void hookOnNext(ServerSentEvent<WeatherBatchResult> event) {
+                received.add(event.data());
+            }
+        };
+        subscriptionService.subscribe(List.of("London")).subscribe(slow);
+        CachedSummary last = null;
+        for (int i = 0; i < 10; i++) {
+            Thread.sleep(2);
+            last = refresh(i);
+        }
+
+        // When
+        slow.request(Long.MAX_VALUE);
+
+        // Then
+        assertThat(received).hasSizeLessThanOrEqualTo(3);
+        assertThat(received).last().isEqualTo(WeatherBatchResult.success("London", last.getSummary()));
+        assertThat(meterRegistry.get("weather.subscriptions.dropped").counter().count()).isGreaterThan(0);
+        slow.dispose();
+    }
+
+    @Test
+    void testSubscribe_StuckSubscriberDoesNotStopOthersHeartbeats() throws InterruptedException {
+        // Given a subscriber that never requests anything, and one that reads everything
+        WeatherSubscriptionServiceImpl service = new WeatherSubscriptionServiceImpl(weatherService, weatherCache,
+                new CityIndex(new ClassPathResource("gazetteer/cities.tsv"), true, meterRegistry),
+                Duration.ofMillis(1), meterRegistry);
+        ReflectionTestUtils.setField(service, "maxCities", 3);
+        ReflectionTestUtils.setField(service, "bufferSize", 2);
+        ReflectionTestUtils.setField(service, "slowConsumer",
+                WeatherSubscriptionServiceImpl.SlowConsumerPolicy.DROP_OLDEST);
+        when(weatherService.cachedWeatherSummary("London")).thenReturn(Mono.empty());
+        BaseSubscriber<ServerSentEvent<WeatherBatchResult>> stuck = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+            }
+        };
+        service.subscribe(List.of("London")).subscribe(stuck);
+        CountDownLatch heartbeats = new CountDownLatch(500);
+
+        // When
+        Disposable reading = service.subscribe(List.of("London")).subscribe(event -> heartbeats.countDown());
+
+        // Then, well past the 256 heartbeats a shared timer could queue for the stuck subscriber
+        assertThat(heartbeats.await(10, TimeUnit.SECONDS)).isTrue();
+        reading.dispose();
+        stuck.dispose();
+    }
+
+    @Test
+    void testSubscribe_SlowConsumerDisconnected() {
+        // Given
+        ReflectionTestUtils.setField(subscriptionService, "slowConsumer",
+                WeatherSubscriptionServiceImpl.SlowConsumerPolicy.DISCONNECT);
+        when(weatherService.cachedWeatherSummary("London")).thenReturn(Mono.empty());
+        AtomicBoolean completed = new AtomicBoolean();
+        subscriptionService.subscribe(List.of("London")).subscribe(new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+            }
+
+            @Override
+            protected void hookOnComplete() {
+                completed.set(true);
+            }
+        });
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            refresh(i);
+        }
+
+        // Then
+        assertThat(completed).isTrue();
+        assertThat(meterRegistry.get("weather.subscriptions.disconnected").counter().count()).isEqualTo(1.0);
+        assertThat(weatherCache.subscribedKeys()).isEmpty();
+    }
+
+    @Test
+    void testKeepSubscribedCitiesFresh_ReadsEachSubscribedCityOnce() {
+        // Given
+        when(weatherService.cachedWeatherSummary("London")).thenReturn(Mono.empty());
+        when(weatherService.cachedWeatherSummary(LONDON)).thenReturn(Mono.empty());
+        Disposable first = subscriptionService.subscribe(List.of("London")).subscribe();
+        Disposable second = subscriptionService.subscribe(List.of("London")).subscribe();
+
+        // When
+        subscriptionService.keepSubscribedCitiesFresh();
+
+        // Then
+        verify(weatherService).cachedWeatherSummary(LONDON);
+        first.dispose();
+        second.dispose();
+    }
+
+    @Test
+    void testSubscribe_RejectsTooManyCities() {
+        assertThatThrownBy(() -> subscriptionService.subscribe(List.of("a", "b", "c", "d")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("at most 3");
+    }
+
+    /**
+     * Loads a new London entry with every slot at {@code temp}, which publishes it to London's subscribers.
+     */
+    private CachedSummary refresh(double temp) {
+        ForecastColumns.Builder builder = ForecastColumns.builder();
+        builder.city("London");
+        builder.slot(1732104000L, temp, temp - 1, temp + 1, 20047);
+        ForecastColumns forecast = builder.build();
+        return weatherCache.refresh(LONDON, key -> Mono.just(forecast)).block();
+    }
+}